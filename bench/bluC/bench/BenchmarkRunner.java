@@ -0,0 +1,332 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A small, dependency-free benchmark harness modelled on JMH. Each 
+ *  benchmark is run for a number of timed warmup iterations (so it's JIT 
+ *  compiled), then for a number of timed measurement iterations. Each 
+ *  iteration calls the benchmark in a loop for a fixed time.
+ * 
+ * Like JMH's throughput mode with -prof gc, it reports:
+ *  - ops/s: the mean throughput of the measurement iterations, with its 
+ *      standard deviation across them
+ *  - B/op: bytes allocated per operation (gc.alloc.rate.norm)
+ *  - MB/s: the allocation rate (gc.alloc.rate)
+ *  - GCs, GC ms: collections and their time during measurement
+ * 
+ * Unlike JMH, benchmarks aren't forked into their own JVMs: they run in 
+ *  this one, in the order they were added, so run the ones being compared
+ *  on their own (see the filter passed to run) for the cleanest numbers.
+ *  System.out and System.err are silenced while a benchmark runs, since the
+ *  compiler prints as it goes.
+ * 
+ * @author John Schneider
+ */
+public class BenchmarkRunner
+{
+    public static final int     DEFAULT_WARMUP_ITERATIONS       = 5;
+    public static final int     DEFAULT_MEASUREMENT_ITERATIONS  = 5;
+    public static final long    DEFAULT_ITERATION_MILLIS        = 1000;
+    
+    /**
+     * Every result is stored here, so it's never dead code (JMH's 
+     *  Blackhole does the same job).
+     */
+    public static volatile Object sink;
+    
+    private static final ThreadMXBean THREADS = 
+        ManagementFactory.getThreadMXBean();
+    
+    private final ArrayList<Case>   cases;
+    private int                     warmupIterations;
+    private int                     measurementIterations;
+    private long                    iterationMillis;
+    
+    public BenchmarkRunner()
+    {
+        cases                   = new ArrayList<>();
+        warmupIterations        = DEFAULT_WARMUP_ITERATIONS;
+        measurementIterations   = DEFAULT_MEASUREMENT_ITERATIONS;
+        iterationMillis         = DEFAULT_ITERATION_MILLIS;
+    }
+    
+    public BenchmarkRunner setWarmupIterations(int warmupIterations)
+    {
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+    
+    public BenchmarkRunner setMeasurementIterations(int measurementIterations)
+    {
+        this.measurementIterations = measurementIterations;
+        return this;
+    }
+    
+    public BenchmarkRunner setIterationMillis(long iterationMillis)
+    {
+        this.iterationMillis = iterationMillis;
+        return this;
+    }
+    
+    /**
+     * Adds a benchmark, whose name is <b>name</b>:<b>param</b> (i.e. 
+     *  "lexer:huge").
+     */
+    public BenchmarkRunner add(String name, String param, Benchmark benchmark)
+    {
+        cases.add(new Case(name + ":" + param, benchmark));
+        return this;
+    }
+    
+    /**
+     * Runs every benchmark whose name contains a match for the filter, 
+     *  printing each result to <b>report</b> as soon as it's done.
+     */
+    public List<Result> run(Pattern filter, PrintStream report) 
+        throws Exception
+    {
+        ArrayList<Result> results = new ArrayList<>();
+        
+        report.println(String.format(Locale.ROOT, 
+            "%-32s %14s %12s %14s %10s %6s %8s", "benchmark", "ops/s", 
+            "stddev", "B/op", "MB/s", "GCs", "GC ms"));
+        
+        for (Case benchmarkCase : cases)
+        {
+            if (filter.matcher(benchmarkCase.name).find())
+            {
+                Result result = run(benchmarkCase);
+                
+                results.add(result);
+                report.println(result.format());
+            }
+        }
+        
+        return results;
+    }
+    
+    private Result run(Case benchmarkCase) throws Exception
+    {
+        PrintStream     out         = System.out;
+        PrintStream     err         = System.err;
+        PrintStream     silenced    = new PrintStream(new OutputStream()
+        {
+            @Override
+            public void write(int b)
+            {
+            }
+            
+            @Override
+            public void write(byte[] bytes, int offset, int length)
+            {
+            }
+        });
+        Result          result      = new Result(benchmarkCase.name);
+        
+        System.setOut(silenced);
+        System.setErr(silenced);
+        
+        try
+        {
+            for (int i = 0; i < warmupIterations; i++)
+            {
+                runIteration(benchmarkCase.benchmark, null);
+            }
+            
+            for (int i = 0; i < measurementIterations; i++)
+            {
+                runIteration(benchmarkCase.benchmark, result);
+            }
+        } finally
+        {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Calls the benchmark until the iteration time is up, and adds the 
+     *  iteration to the result (unless it's null, for a warmup iteration).
+     */
+    private void runIteration(Benchmark benchmark, Result result) 
+        throws Exception
+    {
+        long    iterationNanos      = iterationMillis * 1000000;
+        long    startGcCount        = getGcCount();
+        long    startGcMillis       = getGcMillis();
+        long    startAllocatedBytes = getAllocatedBytes();
+        long    startNanos          = System.nanoTime();
+        long    elapsedNanos;
+        long    operations          = 0;
+        
+        do
+        {
+            sink = benchmark.run();
+            operations++;
+            elapsedNanos = System.nanoTime() - startNanos;
+        } while (elapsedNanos < iterationNanos);
+        
+        if (result != null)
+        {
+            result.addIteration(operations, elapsedNanos, 
+                getAllocatedBytes() - startAllocatedBytes, 
+                getGcCount() - startGcCount, getGcMillis() - startGcMillis);
+        }
+    }
+    
+    private static long getAllocatedBytes()
+    {
+        if (THREADS instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) THREADS).
+                getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        
+        return 0;
+    }
+    
+    private static long getGcCount()
+    {
+        long count = 0;
+        
+        for (GarbageCollectorMXBean gc : 
+            ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        
+        return count;
+    }
+    
+    private static long getGcMillis()
+    {
+        long millis = 0;
+        
+        for (GarbageCollectorMXBean gc : 
+            ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        
+        return millis;
+    }
+    
+    private static final class Case
+    {
+        private final String    name;
+        private final Benchmark benchmark;
+        
+        private Case(String name, Benchmark benchmark)
+        {
+            this.name       = name;
+            this.benchmark  = benchmark;
+        }
+    }
+    
+    /**
+     * The measurement iterations of one benchmark.
+     */
+    public static final class Result
+    {
+        private final String            name;
+        private final ArrayList<Double> opsPerSecond;
+        private long                    operations;
+        private long                    nanos;
+        private long                    allocatedBytes;
+        private long                    gcCount;
+        private long                    gcMillis;
+        
+        private Result(String name)
+        {
+            this.name       = name;
+            opsPerSecond    = new ArrayList<>();
+        }
+        
+        private void addIteration(long operations, long nanos, 
+            long allocatedBytes, long gcCount, long gcMillis)
+        {
+            opsPerSecond.add(operations / (nanos / 1e9));
+            
+            this.operations     += operations;
+            this.nanos          += nanos;
+            this.allocatedBytes += allocatedBytes;
+            this.gcCount        += gcCount;
+            this.gcMillis       += gcMillis;
+        }
+        
+        public String getName()
+        {
+            return name;
+        }
+        
+        public double getOpsPerSecond()
+        {
+            double sum = 0;
+            
+            for (double iteration : opsPerSecond)
+            {
+                sum += iteration;
+            }
+            
+            return sum / opsPerSecond.size();
+        }
+        
+        public double getOpsPerSecondStddev()
+        {
+            double mean         = getOpsPerSecond();
+            double squaredSum   = 0;
+            
+            for (double iteration : opsPerSecond)
+            {
+                squaredSum += (iteration - mean) * (iteration - mean);
+            }
+            
+            return Math.sqrt(squaredSum / opsPerSecond.size());
+        }
+        
+        public double getBytesPerOp()
+        {
+            return (double) allocatedBytes / operations;
+        }
+        
+        public double getAllocatedMBPerSecond()
+        {
+            return allocatedBytes / (1024.0 * 1024.0) / (nanos / 1e9);
+        }
+        
+        public String format()
+        {
+            return String.format(Locale.ROOT, 
+                "%-32s %14.3f %12.3f %14.1f %10.1f %6d %8d", name, 
+                getOpsPerSecond(), getOpsPerSecondStddev(), getBytesPerOp(), 
+                getAllocatedMBPerSecond(), gcCount, gcMillis);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.bench;
+
+import bluC.Logger;
+import bluC.builders.ASTFragmentBuilder;
+import bluC.corpus.CorpusGenerator;
+import bluC.parser.Parser;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.transpiler.CommentsRemover;
+import bluC.transpiler.Lexer;
+import bluC.transpiler.Token;
+import bluC.transpiler.Transpiler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks of each stage of the compiler, on small, medium and huge 
+ *  synthetic inputs: programs of 10^3, 10^4 and 10^5 lines from the 
+ *  CorpusGenerator, and single-shape sources from SyntheticSources. Run 
+ *  with the compiled src and bench classes on the classpath:
+ * 
+ *  java -cp classes bluC.bench.CompilerBenchmarks [-wi N] [-i N] [-r ms] 
+ *      [-lines N] [-seed N] [filter]
+ * 
+ * where -wi and -i are the number of warmup and measurement iterations, -r
+ *  is the length of each iteration, and filter is a regular expression 
+ *  matched against the benchmark names (i.e. "lexer|transpile:huge"). 
+ *  -lines adds the program benchmarks for a program of N lines (i.e. 10^6),
+ *  named after N, and -seed changes which programs are generated.
+ * 
+ * @author John Schneider
+ */
+public class CompilerBenchmarks
+{
+    private static final String FILE_PATH = "benchmark.bluc";
+    
+    private static final String[]   SIZES                   = 
+                                        {"small", "medium", "huge"};
+    private static final long[]     PROGRAM_LINES           = 
+                                        {1000, 10000, 100000};
+    private static final int[]      NESTED_EXPRESSION_DEPTH = {10, 100, 1000};
+    private static final int[]      EXPRESSION_CHAIN_LENGTH = 
+                                        {10, 1000, 10000};
+    private static final int[]      STATEMENT_COUNT         = 
+                                        {10, 1000, 20000};
+    
+    public static void main(String[] args) throws Exception
+    {
+        BenchmarkRunner     runner      = new BenchmarkRunner();
+        Pattern             filter      = Pattern.compile("");
+        long                seed        = CorpusGenerator.DEFAULT_SEED;
+        ArrayList<Long>     extraLines  = new ArrayList<>();
+        
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-wi"))
+            {
+                runner.setWarmupIterations(Integer.parseInt(args[++i]));
+            }
+            else if (args[i].equals("-i"))
+            {
+                runner.setMeasurementIterations(Integer.parseInt(args[++i]));
+            }
+            else if (args[i].equals("-r"))
+            {
+                runner.setIterationMillis(Long.parseLong(args[++i]));
+            }
+            else if (args[i].equals("-lines"))
+            {
+                extraLines.add(Long.parseLong(args[++i]));
+            }
+            else if (args[i].equals("-seed"))
+            {
+                seed = Long.parseLong(args[++i]);
+            }
+            else
+            {
+                filter = Pattern.compile(args[i]);
+            }
+        }
+        
+        addBenchmarks(runner, seed);
+        
+        for (long lines : extraLines)
+        {
+            addProgramBenchmarks(runner, lines + "lines", 
+                generateProgram(seed, lines));
+        }
+        
+        runner.run(filter, System.out);
+    }
+    
+    public static void addBenchmarks(BenchmarkRunner runner, long seed)
+    {
+        for (int i = 0; i < SIZES.length; i++)
+        {
+            final ArrayList<Token>  nestedTokens    = lex(
+                SyntheticSources.nestedExpression(NESTED_EXPRESSION_DEPTH[i]));
+            final ArrayList<Token>  chainTokens     = lex(
+                SyntheticSources.expressionChain(EXPRESSION_CHAIN_LENGTH[i]));
+            final String            statements      = 
+                SyntheticSources.statements(STATEMENT_COUNT[i]);
+            
+            addProgramBenchmarks(runner, SIZES[i], 
+                generateProgram(seed, PROGRAM_LINES[i]));
+            
+            runner.add("expression.nested", SIZES[i], new Benchmark()
+            {
+                @Override
+                public Object run()
+                {
+                    return parse(nestedTokens);
+                }
+            });
+            
+            runner.add("expression.chain", SIZES[i], new Benchmark()
+            {
+                @Override
+                public Object run()
+                {
+                    return parse(chainTokens);
+                }
+            });
+            
+            runner.add("astFragmentBuilder", SIZES[i], new Benchmark()
+            {
+                @Override
+                public Object run()
+                {
+                    resetCompilerState();
+                    return new ASTFragmentBuilder().
+                        setFilePath(FILE_PATH).
+                        setFileContents(statements).
+                        build();
+                }
+            });
+        }
+    }
+    
+    /**
+     * Adds the benchmarks which run on a whole program.
+     */
+    private static void addProgramBenchmarks(BenchmarkRunner runner, 
+        String param, final ArrayList<String> program)
+    {
+        runner.add("lexer", param, new Benchmark()
+        {
+            @Override
+            public Object run()
+            {
+                return new Lexer(FILE_PATH, new ArrayList<>(program)).lex();
+            }
+        });
+        
+        runner.add("commentsRemover", param, new Benchmark()
+        {
+            @Override
+            public Object run()
+            {
+                // the lines are stripped in place, so strip a copy
+                ArrayList<String> lines = new ArrayList<>(program);
+                
+                CommentsRemover.run(FILE_PATH, lines);
+                return lines;
+            }
+        });
+        
+        runner.add("transpile", param, new Benchmark()
+        {
+            @Override
+            public Object run()
+            {
+                resetCompilerState();
+                return new Transpiler(FILE_PATH, new ArrayList<>(program)).
+                    transpile();
+            }
+        });
+    }
+    
+    private static ArrayList<String> generateProgram(long seed, long lines)
+    {
+        return new CorpusGenerator().
+            setSeed(seed).
+            setTargetLineCount(lines).
+            generateLines();
+    }
+    
+    /**
+     * Parses already lexed tokens, so that only the parser is measured. The
+     *  parser may insert tokens, so it's given a copy.
+     */
+    private static Object parse(ArrayList<Token> tokens)
+    {
+        resetCompilerState();
+        return new Parser(new ArrayList<>(tokens)).parse();
+    }
+    
+    private static ArrayList<Token> lex(String source)
+    {
+        return new Lexer(FILE_PATH, toLines(source)).lex();
+    }
+    
+    private static ArrayList<String> toLines(String source)
+    {
+        return new ArrayList<>(Arrays.asList(source.split("\n")));
+    }
+    
+    /**
+     * The compiler keeps what it has parsed in statics, which would 
+     *  otherwise grow with every operation.
+     */
+    private static void resetCompilerState()
+    {
+        Logger.reset();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.bench;
+
+import bluC.BluC;
+import bluC.process.ProcessResult;
+import bluC.process.ProcessRunner;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how fast the C that BluC generates runs, against hand-written C
+ *  doing the same work. Each program in the corpus directory is a pair: 
+ *  name.bluc, and its reference implementation name.c.
+ * 
+ * Each .bluc program is transpiled (in a scratch directory), then both 
+ *  versions are compiled by gcc with the same flags and run alternately.
+ *  The fastest run of each is reported, with the ratio between them (above 
+ *  1 means the BluC version is slower). Both versions must exit with the 
+ *  same code, which is how the programs report their result. Run with the
+ *  compiled src and bench classes on the classpath, from the repository 
+ *  root:
+ * 
+ *  java -cp classes bluC.bench.GeneratedCodeBenchmarks [-runs N] 
+ *      [-cflags "-O2 ..."] [-dir corpusDirectory] [filter]
+ * 
+ * where filter is a regular expression matched against the program names.
+ * 
+ * @author John Schneider
+ */
+public class GeneratedCodeBenchmarks
+{
+    public static final String  DEFAULT_CORPUS_DIRECTORY    = 
+                                    "bench/programs";
+    public static final String  DEFAULT_GCC_FLAGS           = "-O2";
+    public static final int     DEFAULT_RUNS                = 5;
+    
+    private static final long   RUN_TIMEOUT_MILLIS          = 60 * 1000;
+    
+    public static void main(String[] args) throws Exception
+    {
+        Path                corpus      = Paths.get(DEFAULT_CORPUS_DIRECTORY);
+        String[]            gccFlags    = DEFAULT_GCC_FLAGS.split(" ");
+        int                 runs        = DEFAULT_RUNS;
+        Pattern             filter      = Pattern.compile("");
+        ArrayList<Double>   ratios      = new ArrayList<>();
+        Path                scratch     = Files.createTempDirectory(
+                                            "bluc-generated-code");
+        
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-runs"))
+            {
+                runs = Integer.parseInt(args[++i]);
+            }
+            else if (args[i].equals("-cflags"))
+            {
+                gccFlags = args[++i].trim().split("\\s+");
+            }
+            else if (args[i].equals("-dir"))
+            {
+                corpus = Paths.get(args[++i]);
+            }
+            else
+            {
+                filter = Pattern.compile(args[i]);
+            }
+        }
+        
+        System.out.println("gcc " + String.join(" ", gccFlags) + ", best of " +
+            runs + " runs");
+        System.out.println(String.format(Locale.ROOT, "%-24s %12s %12s %8s", 
+            "program", "bluc (ms)", "c (ms)", "ratio"));
+        
+        try
+        {
+            for (String name : findPrograms(corpus))
+            {
+                if (filter.matcher(name).find())
+                {
+                    Double ratio = benchmark(corpus, scratch, name, gccFlags, 
+                        runs);
+                    
+                    if (ratio != null)
+                    {
+                        ratios.add(ratio);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            deleteScratch(scratch);
+        }
+        
+        if (!ratios.isEmpty())
+        {
+            System.out.println(String.format(Locale.ROOT, 
+                "%-24s %12s %12s %8.3f", "geometric mean", "", "", 
+                geometricMean(ratios)));
+        }
+    }
+    
+    /**
+     * Returns the name of every program in the corpus which has both a .bluc
+     *  file and a reference .c file, sorted.
+     */
+    private static ArrayList<String> findPrograms(Path corpus)
+    {
+        ArrayList<String>   names   = new ArrayList<>();
+        File[]              files   = corpus.toFile().listFiles();
+        
+        if (files == null)
+        {
+            throw new IllegalArgumentException("No such corpus directory: " + 
+                corpus);
+        }
+        
+        Arrays.sort(files);
+        
+        for (File file : files)
+        {
+            String fileName = file.getName();
+            
+            if (fileName.endsWith(".bluc"))
+            {
+                String name = fileName.substring(0, 
+                    fileName.length() - ".bluc".length());
+                
+                if (new File(file.getParentFile(), name + ".c").exists())
+                {
+                    names.add(name);
+                }
+            }
+        }
+        
+        return names;
+    }
+    
+    /**
+     * Builds and runs both versions of a program, and prints how they 
+     *  compare. Returns the ratio of their best times, or null if either 
+     *  couldn't be built or they disagree.
+     */
+    private static Double benchmark(Path corpus, Path scratch, String name, 
+        String[] gccFlags, int runs) throws IOException
+    {
+        Path    blucSource      = scratch.resolve(name + ".bluc");
+        Path    blucC           = scratch.resolve(name + ".c");
+        Path    blucExe         = scratch.resolve(name + ".bluc.out");
+        Path    referenceExe    = scratch.resolve(name + ".c.out");
+        long    blucNanos       = Long.MAX_VALUE;
+        long    cNanos          = Long.MAX_VALUE;
+        
+        Files.copy(corpus.resolve(name + ".bluc"), blucSource, 
+            StandardCopyOption.REPLACE_EXISTING);
+        
+        if (!transpile(blucSource) || 
+            !compile(gccFlags, blucC, blucExe) || 
+            !compile(gccFlags, corpus.resolve(name + ".c"), referenceExe))
+        {
+            System.out.println(String.format(Locale.ROOT, "%-24s %s", name, 
+                "build failed"));
+            return null;
+        }
+        
+        for (int i = 0; i < runs; i++)
+        {
+            ProcessResult bluc      = execute(blucExe);
+            ProcessResult reference = execute(referenceExe);
+            
+            if (bluc.hasTimedOut() || reference.hasTimedOut() || 
+                bluc.getExitCode() != reference.getExitCode())
+            {
+                System.out.println(String.format(Locale.ROOT, "%-24s %s", 
+                    name, "results differ: " + bluc.getSummary() + " vs " + 
+                    reference.getSummary()));
+                return null;
+            }
+            
+            blucNanos   = Math.min(blucNanos, bluc.getWallTimeNanos());
+            cNanos      = Math.min(cNanos, reference.getWallTimeNanos());
+        }
+        
+        System.out.println(String.format(Locale.ROOT, 
+            "%-24s %12.1f %12.1f %8.3f", name, blucNanos / 1e6, cNanos / 1e6, 
+            (double) blucNanos / cNanos));
+        
+        return (double) blucNanos / cNanos;
+    }
+    
+    /**
+     * Transpiles the program to a .c file beside it, the way "bluc -c" does,
+     *  printing what the compiler output only if it fails.
+     */
+    private static boolean transpile(Path source)
+    {
+        ByteArrayOutputStream   output      = new ByteArrayOutputStream();
+        PrintStream             captured    = new PrintStream(output, true);
+        PrintStream             out         = System.out;
+        PrintStream             err         = System.err;
+        int                     exitCode;
+        
+        System.setOut(captured);
+        System.setErr(captured);
+        
+        try
+        {
+            exitCode = BluC.run(new String[] {source.toString(), "-c"}, 
+                BluC.INHERITED_WORKING_DIRECTORY);
+        }
+        finally
+        {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        
+        if (exitCode != 0)
+        {
+            System.err.print(output);
+        }
+        
+        return exitCode == 0;
+    }
+    
+    private static boolean compile(String[] gccFlags, Path source, Path exe)
+        throws IOException
+    {
+        ArrayList<String> command = new ArrayList<>();
+        ProcessResult     result;
+        
+        command.add("gcc");
+        command.addAll(Arrays.asList(gccFlags));
+        command.addAll(Arrays.asList("-o", exe.toString(), source.toString()));
+        
+        result = new ProcessRunner(command.toArray(new String[0])).run();
+        
+        if (!result.succeeded())
+        {
+            System.err.println(result.getSummary());
+            System.err.print(result.getStderr());
+        }
+        
+        return result.succeeded();
+    }
+    
+    /**
+     * Runs the program with no arguments, so argc (which every program 
+     *  scales its work by) is 1.
+     */
+    private static ProcessResult execute(Path exe) throws IOException
+    {
+        return new ProcessRunner(exe.toString()).
+            setTimeoutMillis(RUN_TIMEOUT_MILLIS).
+            run();
+    }
+    
+    private static double geometricMean(ArrayList<Double> values)
+    {
+        double logSum = 0;
+        
+        for (double value : values)
+        {
+            logSum += Math.log(value);
+        }
+        
+        return Math.exp(logSum / values.size());
+    }
+    
+    private static void deleteScratch(Path scratch) throws IOException
+    {
+        File[] files = scratch.toFile().listFiles();
+        
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        
+        Files.deleteIfExists(scratch);
+    }
+}
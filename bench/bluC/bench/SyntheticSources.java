@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.bench;
+
+/**
+ * Builds synthetic BluC sources of a single shape (i.e. one deeply nested
+ *  expression), for the benchmarks of a single parser path. Each source is 
+ *  deterministic, so runs of the same benchmark are comparable. Whole 
+ *  programs come from bluC.corpus.CorpusGenerator.
+ * 
+ * @author John Schneider
+ */
+public class SyntheticSources
+{
+    /**
+     * A single declaration whose initializer is nested <b>depth</b> 
+     *  parentheses deep: ((1 + 1) * 2 - 3) ...
+     */
+    public static String nestedExpression(int depth)
+    {
+        StringBuilder source = new StringBuilder("int x = ");
+        
+        for (int i = 0; i < depth; i++)
+        {
+            source.append('(');
+        }
+        
+        source.append('1');
+        
+        for (int i = 0; i < depth; i++)
+        {
+            source.append(i % 2 == 0 ? " + " : " * ").append(i % 9 + 1).
+                append(')');
+        }
+        
+        return source.append(";\n").toString();
+    }
+    
+    /**
+     * A single declaration whose initializer is a chain of <b>length</b>
+     *  binary operators: 1 + 2 * 3 - 4 ...
+     */
+    public static String expressionChain(int length)
+    {
+        String[]        operators   = {" + ", " * ", " - ", " / "};
+        StringBuilder   source      = new StringBuilder("int x = 1");
+        
+        for (int i = 0; i < length; i++)
+        {
+            source.append(operators[i % operators.length]).append(i % 9 + 1);
+        }
+        
+        return source.append(";\n").toString();
+    }
+    
+    /**
+     * <b>count</b> initialized global variable declarations.
+     */
+    public static String statements(int count)
+    {
+        StringBuilder source = new StringBuilder();
+        
+        for (int i = 0; i < count; i++)
+        {
+            source.append("int variable").append(i).append(" = ").append(i).
+                append(" + 1;\n");
+        }
+        
+        return source.toString();
+    }
+}
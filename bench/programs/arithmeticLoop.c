@@ -0,0 +1,20 @@
+/*
+ * Reference implementation of arithmeticLoop.bluc.
+ */
+int main(int argc, char **argv)
+{
+    int n = argc * 300000000;
+    int sum = 0;
+    
+    for (int i = 0; i < n; i++)
+    {
+        sum += i * 3;
+        
+        if (sum > 100000)
+        {
+            sum -= 99991;
+        }
+    }
+    
+    return sum;
+}
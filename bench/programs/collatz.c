@@ -0,0 +1,24 @@
+/*
+ * Reference implementation of collatz.bluc.
+ */
+int main(int argc, char **argv)
+{
+    int limit = argc * 110000;
+    int totalSteps = 0;
+    
+    for (int round = 0; round < argc * 10; round++)
+    {
+        for (int start = 1; start < limit; start++)
+        {
+            int x = start;
+            
+            while (x > 1)
+            {
+                x = (x % 2 == 0) ? x / 2 : 3 * x + 1;
+                totalSteps++;
+            }
+        }
+    }
+    
+    return totalSteps;
+}
@@ -0,0 +1,42 @@
+/*
+ * Reference implementation of manyLocals.bluc, with the same eight scalar
+ *  locals and the same updates, so that only the code generation differs.
+ */
+int main(int argc, char **argv)
+{
+    int n = argc * 50000000;
+    int a = 1;
+    int b = 2;
+    int c = 3;
+    int d = 4;
+    int e = 5;
+    int f = 6;
+    int g = 7;
+    int h = 8;
+    
+    for (int i = 0; i < n; i++)
+    {
+        int next = a + b * 2 + c - d + e * 3 + f - g + h;
+        
+        while (next > 1000003)
+        {
+            next -= 1000003;
+        }
+        
+        while (next < 0)
+        {
+            next += 1000003;
+        }
+        
+        a = b;
+        b = c;
+        c = d;
+        d = e;
+        e = f;
+        f = g;
+        g = h;
+        h = next;
+    }
+    
+    return h;
+}
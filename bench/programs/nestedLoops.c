@@ -0,0 +1,25 @@
+/*
+ * Reference implementation of nestedLoops.bluc.
+ */
+int main(int argc, char **argv)
+{
+    int size = argc * 700;
+    int total = 0;
+    
+    for (int i = 0; i < size; i++)
+    {
+        for (int j = 0; j < size; j++)
+        {
+            int rowSum = 0;
+            
+            for (int k = 0; k < size; k++)
+            {
+                rowSum += (i - k) * (j + k);
+            }
+            
+            total += rowSum / size;
+        }
+    }
+    
+    return total;
+}
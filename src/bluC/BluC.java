@@ -1,14 +1,44 @@
 package bluC;
 
+import bluC.cache.BuildCache;
+import bluC.daemon.CompilerDaemon;
+import bluC.daemon.DaemonClient;
+import bluC.output.ChangedFileWriter;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.process.ProcessResult;
+import bluC.profile.BuildMetrics;
+import bluC.profile.FlightRecording;
+import bluC.profile.MemoryStats;
+import bluC.profile.Profiler;
+import bluC.profile.events.FileReadEvent;
+import bluC.profile.events.GccEvent;
+import bluC.process.ProcessRunner;
+import bluC.transpiler.TranslationUnits;
 import bluC.transpiler.Transpiler;
+import bluC.watch.SourceWatcher;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import bluC.transpiler.Token;
 import bluC.transpiler.TokenFileInfo;
 import bluC.transpiler.TokenInfo;
@@ -20,10 +50,31 @@ import bluC.transpiler.TokenInfo;
 public class BluC
 {
     public static final String  BLU_C_NAMESPACE_PREFIX  = "___bluC";
+    
+    /**
+     * Flags which don't change what a build outputs, and so aren't part of
+     *  its build cache key.
+     */
+    private static final String[] NON_OUTPUT_FLAGS = {"time", "parallel", 
+        "gccTimeout", "cache", "cacheDir", "cacheSizeMB", "noDaemon", "jfr", 
+        "debug", "memstats", "metrics"};
+    
+    /**
+     * For run: relative paths are relative to this JVM's working directory.
+     */
+    public static final File    INHERITED_WORKING_DIRECTORY = null;
+    
+    private static final FlightRecording NOT_RECORDING = null;
+    
     private static Transpiler   transpiler;
-    private static long         transpileStartTime      = -1;
-    private static long         transpileEndTime        = -1;
-    private static long         compileEndTime          = -1;
+    private static File         workingDirectory        = 
+                                    INHERITED_WORKING_DIRECTORY;
+    
+    /**
+     * Every file the current build produced (and kept), for the build cache.
+     */
+    private static final ArrayList<String> 
+                                builtOutputs            = new ArrayList<>();
     
     private static Token getNullTokenWithFilePath(String filePath)
     {
@@ -58,24 +109,363 @@ public class BluC
         return returnee;
     }
     
+    /**
+     * Writes each line followed by a newline. The file is only replaced (and
+     *  its modification time only updated) if its contents change.
+     */
     public static void writeFile(String fileName, ArrayList<String> contents)
     {
         try
         {
-            BufferedWriter bw = new BufferedWriter(new FileWriter(new File(
-                fileName)));
+            ChangedFileWriter writer = new ChangedFileWriter(
+                Paths.get(fileName));
+            
+            try
+            {
+                for (int i = 0; i < contents.size(); i++)
+                {
+                    writer.write(contents.get(i));
+                    writer.write('\n');
+                }
+
+                writer.close();
+            }
+            finally
+            {
+                writer.discard();
+            }
+        } catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        
+    }
+    
+    /**
+     * Streams the transpiler's output straight into the file, without
+     *  building the whole file in memory first. Like writeFile, an unchanged
+     *  file isn't touched.
+     */
+    private static void writeTranspiledFile(String fileName)
+    {
+        try
+        {
+            ChangedFileWriter writer = new ChangedFileWriter(
+                Paths.get(fileName));
             
-            for (int i = 0; i < contents.size(); i++)
+            try
+            {
+                Profiler.Measurement writing;
+                
+                transpiler.emit(writer);
+                
+                writing = Profiler.start(Profiler.Phase.WRITE);
+                writer.close();
+                writing.stop();
+            }
+            finally
             {
-                bw.append(contents.get(i) + "\n");
+                writer.discard();
             }
             
-            bw.close();
+            builtOutputs.add(fileName);
         } catch (IOException e)
         {
             e.printStackTrace();
         }
+    }
+    
+    /**
+     * Compiles without a temporary .c file: the transpiler's output is 
+     *  streamed into gcc's stdin while it's being generated, so gcc parses 
+     *  the start of the file while we're still emitting the rest of it.
+     */
+    private static void pipeTranspiledFileToGcc(String filePath, 
+        String exeFileName)
+    {
+        boolean succeeded = runGcc(filePath, Profiler.Phase.GCC, 
+            new ProcessRunner("gcc", "-x", "c", "-", "-o", exeFileName).
+            setInputWriter(new ProcessRunner.InputWriter()
+            {
+                @Override
+                public void write(Writer gccInput) throws IOException
+                {
+                    BufferedWriter bufferedInput = new BufferedWriter(
+                        gccInput);
+                    
+                    transpiler.emit(bufferedInput);
+                    bufferedInput.flush();
+                }
+            }));
+        
+        if (succeeded)
+        {
+            builtOutputs.add(exeFileName);
+        }
+    }
+    
+    /**
+     * Runs gcc (draining its output as it runs) as the given profiler phase,
+     *  prints what it output, and logs an error if it failed or timed out. 
+     *  Returns whether it succeeded.
+     */
+    private static boolean runGcc(String filePath, Profiler.Phase phase, 
+        ProcessRunner gcc)
+    {
+        try
+        {
+            return reportGccResult(filePath, runAndRecordGcc(phase, gcc));
+        } catch (IOException ex)
+        {
+            Logger.err(getNullTokenWithFilePath(filePath), 
+                "FATAL: Cannot run gcc: " + ex.getMessage());
+            
+            ex.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Runs gcc as the given profiler phase, and records the run in the 
+     *  -metrics file and the flight recording. Every gcc run goes through 
+     *  here, including -jN's unit compiles on their worker threads.
+     */
+    private static ProcessResult runAndRecordGcc(Profiler.Phase phase, 
+        ProcessRunner gcc) throws IOException
+    {
+        Profiler.Measurement    run         = Profiler.start(phase);
+        GccEvent                lifetime    = 
+            FlightRecording.isEnabled() ? new GccEvent() : null;
+        ProcessResult           result;
+        
+        if (lifetime != null)
+        {
+            lifetime.begin();
+        }
+        
+        result = applyGccTimeout(gcc).run();
+        run.stop();
+        BuildMetrics.recordGcc(result);
         
+        if (lifetime != null)
+        {
+            lifetime.end();
+            
+            if (lifetime.shouldCommit())
+            {
+                lifetime.command    = String.join(" ", result.getCommand());
+                lifetime.exitCode   = result.getExitCode();
+                lifetime.timedOut   = result.hasTimedOut();
+                lifetime.cpuTime    = result.getCpuTimeNanos();
+                lifetime.commit();
+            }
+        }
+        
+        return result;
+    }
+    
+    private static ProcessRunner applyGccTimeout(ProcessRunner gcc)
+    {
+        String timeout = Flags.get("gccTimeout");
+        
+        if (timeout != null)
+        {
+            gcc.setTimeoutMillis(Long.parseLong(timeout) * 1000);
+        }
+        
+        return gcc;
+    }
+    
+    /**
+     * Prints what gcc output (if anything) and logs an error if it failed. 
+     *  Returns whether it succeeded.
+     */
+    private static boolean reportGccResult(String filePath, 
+        ProcessResult result)
+    {
+        if (!result.getStdout().isEmpty() || !result.getStderr().isEmpty())
+        {
+            System.out.println("\n\ngcc output:");
+            System.out.print(result.getStdout());
+            System.out.print(result.getStderr());
+        }
+
+        if (Flags.get("time") != null)
+        {
+            System.out.println(result.getSummary());
+        }
+        else
+        {
+            Debug.printf(Debug.Category.GCC, "ran %s", result);
+        }
+
+        if (!result.succeeded())
+        {
+            Logger.err(getNullTokenWithFilePath(filePath), 
+                "FATAL: " + result.getSummary());
+        }
+        
+        return result.succeeded();
+    }
+    
+    /**
+     * The -jN mode: splits the output into at most N translation units 
+     *  (plus a header they all include), then writes and compiles the units
+     *  on N threads before linking them. With -c, only the .h and .c files 
+     *  are written (and kept); with -c -exe they're also compiled.
+     */
+    private static void compileAsTranslationUnits(String filePath, 
+        String filePathWithoutExtension, String exeFileName, int jobs)
+    {
+        final TranslationUnits  units           = 
+            transpiler.splitIntoTranslationUnits(jobs);
+        final String            headerFileName  = 
+            filePathWithoutExtension + ".h";
+        final boolean           compile         = 
+            Flags.get("c") == null || Flags.get("exe") != null;
+        ExecutorService         gccJobs         = 
+            Executors.newFixedThreadPool(jobs);
+        ArrayList<Future<ProcessResult>> 
+                                results         = new ArrayList<>();
+        ArrayList<String>       unitFileNames   = new ArrayList<>();
+        ArrayList<String>       objectFileNames = new ArrayList<>();
+        boolean                 unitsCompiled   = true;
+        Profiler.Measurement    stage           = Profiler.start(
+                                                    Profiler.Phase.UNITS);
+        
+        try
+        {
+            ChangedFileWriter header = new ChangedFileWriter(
+                Paths.get(headerFileName));
+            
+            try
+            {
+                Profiler.Measurement    emission    = Profiler.start(
+                                                        Profiler.Phase.EMIT);
+                Profiler.Measurement    writing;
+                
+                units.emitHeader(new File(headerFileName).getName(), header);
+                emission.stop();
+                
+                writing = Profiler.start(Profiler.Phase.WRITE);
+                header.close();
+                writing.stop();
+            }
+            finally
+            {
+                header.discard();
+            }
+            
+            for (int i = 0; i < units.getUnitCount(); i++)
+            {
+                final int       unitIndex       = i;
+                final String    unitFileName    = 
+                    filePathWithoutExtension + "_" + i + ".c";
+                final String    objectFileName  = 
+                    filePathWithoutExtension + "_" + i + ".o";
+                
+                unitFileNames.add(unitFileName);
+                objectFileNames.add(objectFileName);
+                
+                results.add(gccJobs.submit(new Callable<ProcessResult>()
+                {
+                    @Override
+                    public ProcessResult call() throws IOException
+                    {
+                        ChangedFileWriter unit = new ChangedFileWriter(
+                            Paths.get(unitFileName));
+                        
+                        try
+                        {
+                            Profiler.Measurement emission = Profiler.start(
+                                Profiler.Phase.EMIT);
+                            Profiler.Measurement writing;
+                            
+                            units.emitUnit(unitIndex, 
+                                new File(headerFileName).getName(), unit);
+                            emission.stop();
+                            
+                            writing = Profiler.start(Profiler.Phase.WRITE);
+                            unit.close();
+                            writing.stop();
+                        }
+                        finally
+                        {
+                            unit.discard();
+                        }
+                        
+                        if (!compile)
+                        {
+                            return null;
+                        }
+                        
+                        return runAndRecordGcc(Profiler.Phase.GCC, 
+                            new ProcessRunner("gcc", "-c", unitFileName, 
+                                "-o", objectFileName));
+                    }
+                }));
+            }
+            
+            // report in unit order, no matter which unit finished first
+            for (Future<ProcessResult> result : results)
+            {
+                if (result.get() != null)
+                {
+                    unitsCompiled &= reportGccResult(filePath, result.get());
+                }
+            }
+            
+            if (Flags.get("c") != null)
+            {
+                builtOutputs.add(headerFileName);
+                builtOutputs.addAll(unitFileNames);
+            }
+            
+            if (compile && unitsCompiled)
+            {
+                ArrayList<String> link = new ArrayList<>();
+                
+                link.add("gcc");
+                link.addAll(objectFileNames);
+                link.add("-o");
+                link.add(exeFileName);
+                
+                if (runGcc(filePath, Profiler.Phase.LINK, new ProcessRunner(
+                    link.toArray(new String[link.size()]))))
+                {
+                    builtOutputs.add(exeFileName);
+                }
+            }
+        } catch (IOException | ExecutionException ex)
+        {
+            Logger.err(getNullTokenWithFilePath(filePath), 
+                "FATAL: Cannot build translation units: " + ex.getMessage());
+            
+            ex.printStackTrace();
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            ex.printStackTrace();
+        } finally
+        {
+            stage.stop();
+            gccJobs.shutdownNow();
+            
+            for (String objectFileName : objectFileNames)
+            {
+                new File(objectFileName).delete();
+            }
+            
+            if (Flags.get("c") == null)
+            {
+                new File(headerFileName).delete();
+                
+                for (String unitFileName : unitFileNames)
+                {
+                    new File(unitFileName).delete();
+                }
+            }
+        }
     }
     
     private static void printfile(
@@ -91,94 +481,223 @@ public class BluC
         System.out.println();
     }
     
-    private static void compileExistingFile(
-        String[] args, File f)
-    {   
-        ArrayList<String> rawFileContents = readFile(f);
+    /**
+     * Builds the file, or (with -cache) restores its outputs from the build
+     *  cache if an identical build already ran.
+     */
+    private static void compileExistingFile(String[] args, File f)
+    {
+        BuildCache  cache;
+        String      cacheKey;
+        
+        builtOutputs.clear();
+        
+        if (Flags.get("cache") == null)
+        {
+            build(args, f);
+            return;
+        }
+        
+        cache       = getBuildCache();
+        cacheKey    = computeCacheKey(args[0], f);
+        
+        Debug.printf(Debug.Category.CACHE, "key of \"%s\" is %s", args[0], 
+            cacheKey);
+        
+        if (cacheKey != null && cache.restore(cacheKey))
+        {
+            BuildMetrics.recordCacheLookup(true);
+            System.out.println("Restored the outputs of \"" + args[0] + 
+                "\" from the build cache.");
+            return;
+        }
+        
+        BuildMetrics.recordCacheLookup(false);
+        build(args, f);
+        
+        if (cacheKey != null && !Logger.hasLoggedError())
+        {
+            ArrayList<Path> outputs = new ArrayList<>();
+            
+            for (String output : builtOutputs)
+            {
+                outputs.add(Paths.get(output));
+            }
+            
+            try
+            {
+                cache.store(cacheKey, outputs);
+            } catch (IOException ex)
+            {
+                // the build itself succeeded, so this isn't fatal
+                System.err.println("Couldn't store the build in the cache: " +
+                    ex.getMessage());
+            }
+        }
+    }
+    
+    private static BuildCache getBuildCache()
+    {
+        String directory    = Flags.get("cacheDir");
+        String maxSizeMB    = Flags.get("cacheSizeMB");
+        
+        return new BuildCache(
+            directory == null ? 
+                BuildCache.getDefaultDirectory() : Paths.get(directory),
+            maxSizeMB == null ? 
+                BuildCache.DEFAULT_MAX_SIZE_BYTES : 
+                Long.parseLong(maxSizeMB) * 1024 * 1024);
+    }
+    
+    /**
+     * The key covers everything a build's outputs depend on: the source, the
+     *  flags that change what's output, the path it was given as (outputs
+     *  are named after it), this compiler and (if it's run) gcc. Returns null
+     *  if the source can't be read.
+     */
+    private static String computeCacheKey(String sourcePath, File f)
+    {
+        TreeMap<String, String> flags       = Flags.getAll();
+        String                  gccVersion  = "";
+        
+        for (String flag : NON_OUTPUT_FLAGS)
+        {
+            flags.remove(flag);
+        }
+        
+        if (Flags.get("c") == null || Flags.get("exe") != null)
+        {
+            gccVersion = getGccVersion();
+        }
         
         try
         {
-            transpiler  = new Transpiler(f.getCanonicalPath(), rawFileContents);
-            rawFileContents
-                        = transpiler.transpile();
+            return BuildCache.computeKey(Files.readAllBytes(f.toPath()), 
+                flags, sourcePath, getCompilerFingerprint(), gccVersion);
+        } catch (IOException ex)
+        {
+            return null;
+        }
+    }
+    
+    private static String getGccVersion()
+    {
+        try
+        {
+            return new ProcessRunner("gcc", "--version").run().getStdout();
+        } catch (IOException ex)
+        {
+            return "gcc unavailable";
+        }
+    }
+    
+    /**
+     * Identifies this build of the compiler by the names, sizes and 
+     *  modification times of its class files (or jar), so that rebuilding
+     *  the compiler invalidates the cache without having to read every 
+     *  class file.
+     */
+    private static String getCompilerFingerprint() throws IOException
+    {
+        final StringBuilder fingerprint = new StringBuilder();
+        Path                codeSource;
+        
+        try
+        {
+            codeSource = Paths.get(BluC.class.getProtectionDomain().
+                getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException | RuntimeException ex)
+        {
+            return "unknown compiler location";
+        }
+        
+        Files.walkFileTree(codeSource, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, 
+                BasicFileAttributes attributes)
+            {
+                fingerprint.append(file).append(' ').
+                    append(attributes.size()).append(' ').
+                    append(attributes.lastModifiedTime().toMillis()).
+                    append('\n');
+                
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        
+        return fingerprint.toString();
+    }
+    
+    private static void build(String[] args, File f)
+    {   
+        Profiler.Measurement    reading         = Profiler.start(
+                                                    Profiler.Phase.READ);
+        FileReadEvent           readEvent       = 
+            FlightRecording.isEnabled() ? new FileReadEvent() : null;
+        ArrayList<String>       rawFileContents;
+        
+        if (readEvent != null)
+        {
+            readEvent.begin();
+        }
+        
+        rawFileContents = readFile(f);
+        reading.stop();
+        
+        if (readEvent != null)
+        {
+            readEvent.end();
             
-            if (Flags.get("time") != null)
+            if (readEvent.shouldCommit())
             {
-                transpileEndTime = System.currentTimeMillis();
+                readEvent.path      = f.getPath();
+                readEvent.lineCount = rawFileContents.size();
+                readEvent.commit();
             }
+        }
+        
+        MemoryStats.measureRetainedHeap(Profiler.Phase.READ);
+        
+        try
+        {
+            transpiler  = new Transpiler(f.getCanonicalPath(), rawFileContents);
 
-            if (!Logger.hasLoggedError())
+            if (transpiler.analyze())
             {
+                // only look for the extension in the file name itself, since
+                //  directories (i.e. "./") may contain dots too
                 String filePathWithoutExtension = args[0].substring(0, 
-                args[0].indexOf("."));
+                args[0].indexOf(".", args[0].lastIndexOf("/") + 1));
                 String fileNameWithoutExtension = filePathWithoutExtension.
                     substring(filePathWithoutExtension.lastIndexOf("/") + 1, 
                     filePathWithoutExtension.length());
                 String outputCFileName = filePathWithoutExtension + ".c";
+                String exeFileName = resolvePath(fileNameWithoutExtension);
 
-                writeFile(outputCFileName, rawFileContents);
-            
-                if (Flags.get("c") == null || Flags.get("exe") != null)
+                if (Flags.get("jobs") != null)
+                {
+                    compileAsTranslationUnits(f.getCanonicalPath(), 
+                        filePathWithoutExtension, exeFileName,
+                        Integer.parseInt(Flags.get("jobs")));
+                }
+                else if (Flags.get("c") == null)
+                {
+                    pipeTranspiledFileToGcc(f.getCanonicalPath(), 
+                        exeFileName);
+                }
+                else
                 {
-                    try
+                    writeTranspiledFile(outputCFileName);
+            
+                    if (Flags.get("exe") != null)
                     {
-                        Process p;
-                        p = Runtime.getRuntime().exec(new String[]{"gcc", 
-                            outputCFileName, "-o", fileNameWithoutExtension});
-
-                        try
-                        {
-                            p.waitFor();
-                        } catch (InterruptedException ex)
-                        {
-                            ex.printStackTrace();
-                        }
-
-                        compileEndTime = System.currentTimeMillis();
-
-                        Debug.out.println("[BluC.main]: ran " + "gcc \"" + 
-                            outputCFileName + "\" -o " + 
-                            fileNameWithoutExtension);
-
-                        BufferedReader input = new BufferedReader(new 
-                            InputStreamReader(p.getInputStream()));
-                        BufferedReader err = new BufferedReader(new 
-                            InputStreamReader(p.getErrorStream()));
-
-                        try 
-                        {
-                            String line;
-
-                            System.out.println("\n\ngcc output:");
-                            line = input.readLine();
-                            while (line != null)
-                            {
-                                System.out.println(line);
-                                line = input.readLine();
-                            }
-                            input.close();
-
-                            line = err.readLine();
-                            while (line != null)
-                            {
-                                System.out.println(line);
-                                line = err.readLine();
-                            }
-                            err.close();
-
-                            if (Flags.get("c") == null)
-                            {
-                                File outputCFile = new File(outputCFileName);
-                                outputCFile.delete();
-                            }
-                        } catch (IOException e) 
+                        if (runGcc(f.getCanonicalPath(), Profiler.Phase.GCC, 
+                            new ProcessRunner(
+                            "gcc", outputCFileName, "-o", exeFileName)))
                         {
-                            e.printStackTrace();
+                            builtOutputs.add(exeFileName);
                         }
-
-                    } catch (IOException ex)
-                    {
-                        ex.printStackTrace();
                     }
                 }
             }
@@ -192,36 +711,45 @@ public class BluC
         }
     }
     
-    private static void letJVMSpinUp()
+    /**
+     * Resolves a path given on the command line against the directory the 
+     *  command was run in. For a build forwarded to the daemon, that isn't
+     *  the daemon's own working directory.
+     */
+    private static String resolvePath(String path)
     {
-        try 
-        {
-            // let the JVM spin up so we get a more accurate measurement
-
-            System.out.println("Letting the JVM spin-up so more accurate " +
-                "timing can be recorded.");
-            
-            for (int i = 3; i > 0; i--)
-            {
-                System.out.println(i);
-                Thread.sleep(1000);
-            }
-            System.out.println("Spinup done.\n");
-            
-        } catch (InterruptedException ex)
+        if (workingDirectory == INHERITED_WORKING_DIRECTORY || 
+            new File(path).isAbsolute())
         {
-            ex.printStackTrace();
+            return path;
         }
+        
+        return new File(workingDirectory, path).getPath();
     }
     
-    public static void compile(String[] args)
+    /**
+     * Resets every static the compiler keeps, so that each build in a
+     *  long-running process (see CompilerDaemon) starts from scratch.
+     */
+    private static void resetState(File newWorkingDirectory)
     {
-        if (Flags.get("time") != null)
-        {
-            letJVMSpinUp();
-            transpileStartTime = System.currentTimeMillis();
-        }
+        Flags.clear();
+        Logger.reset();
+        Debug.reset();
+        Profiler.reset();
+        MemoryStats.reset();
+        BuildMetrics.reset();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
         
+        transpiler          = null;
+        workingDirectory    = newWorkingDirectory;
+        builtOutputs.clear();
+    }
+    
+    public static void compile(String[] args)
+    {
         File f = new File(args[0]);
         
         if (f.exists())
@@ -244,12 +772,6 @@ public class BluC
                 ex.printStackTrace();
             }
         }
-        
-        if (Flags.get("time") != null && !Logger.hasLoggedError())
-        {
-            System.out.println("\n\nTranspilation done in " + 
-                (transpileEndTime - transpileStartTime) + " ms.");
-        }
     }
     
     private static void printHelp()
@@ -265,14 +787,302 @@ public class BluC
             "\n\nFLAGS:\n" +
             "    -parseTree : outputs the parse tree of the file\n" +
             "    -c : outputs the transpiled c file instead of compiling to " +
-            "an exe\n" +
+            "an exe (without -c, the c code is piped straight into gcc and " +
+            "never written to disk)\n" +
             "    -exe : used in conjunction with -c flag to output both a .c " +
-            "and exe file" +
-            "    -time : outputs the number of milliseconds compilation took");
+            "and exe file\n" +
+            "    -time : outputs how long each phase of the build took and how " +
+            "much memory it allocated, as a table\n" +
+            "    -time=json : the same, as a JSON object\n" +
+            "    -memstats : outputs the number (and estimated size) of tokens, " +
+            "AST nodes, scopes and symbols, and how much heap was still in " +
+            "use after each phase (collecting garbage after each one, which " +
+            "slows the build down)\n" +
+            "    -metrics=file : writes the time and allocations of each " +
+            "phase, the token, statement and function counts, cache hits " +
+            "and misses, gcc's wall and CPU time and the peak heap use to " +
+            "the file, as JSON if it ends in .json and as OpenMetrics text " +
+            "otherwise\n" +
+            "    -jfr=file.jfr : records the build with Java Flight Recorder " +
+            "(file defaults to bluc.jfr), including an event for each file " +
+            "read, lex, top-level declaration parsed, function emitted and " +
+            "gcc run\n" +
+            "    -debug=category,category : prints debug output for the given " +
+            "categories (build, cache, gcc, lexer, parser, emitter, daemon, " +
+            "watch, or all). -Dbluc.debug=... does the same for every build " +
+            "of the JVM\n" +
+            "    -parallel : generates the c code for each top-level " +
+            "declaration on its own thread\n" +
+            "    -gccTimeout=seconds : kills gcc if it runs longer than this " +
+            "(default 300)\n" +
+            "    -jN : splits the c code into up to N files (plus a shared " +
+            "header) which are compiled by N parallel gcc processes and then " +
+            "linked (-time reports the whole stage as \"units\")\n" +
+            "    -cache : reuses the outputs of an earlier identical build " +
+            "instead of rebuilding\n" +
+            "    -cacheDir=path : where the build cache is kept (default " +
+            "~/.bluc/cache)\n" +
+            "    -cacheSize=MB : evicts the least recently used builds once " +
+            "the cache is larger than this (default 256)\n" +
+            "    -noDaemon : compiles in this process even if a bluc daemon " +
+            "is running\n" +
+            "    -watch : compiles, then recompiles whenever the source " +
+            "file changes (in the same process) until stopped with Ctrl+C" +
+                
+            "\n\nDAEMON:\n" +
+            "    bluc --daemon : keeps a compiler running which every later " +
+            "bluc command (from the same user) forwards its build to, so " +
+            "that builds don't pay for starting a new JVM\n" +
+            "    bluc --stop-daemon : stops the running daemon");
     }
     
     public static void main(String[] args)
     {
+        int exitCode;
+        
+        if (args.length > 0 && args[0].equalsIgnoreCase("--daemon"))
+        {
+            exitCode = CompilerDaemon.serve();
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("--stop-daemon"))
+        {
+            exitCode = DaemonClient.stopDaemon();
+        }
+        else if (hasArgument(args, "-watch"))
+        {
+            exitCode = watch(withoutArgument(args, "-watch"));
+        }
+        else
+        {
+            exitCode = DaemonClient.NOT_FORWARDED;
+            
+            if (args.length > 0 && !hasArgument(args, "-nodaemon"))
+            {
+                exitCode = DaemonClient.forward(args, 
+                    new File("").getAbsoluteFile());
+            }
+            
+            if (exitCode == DaemonClient.NOT_FORWARDED)
+            {
+                exitCode = run(args, INHERITED_WORKING_DIRECTORY);
+            }
+        }
+        
+        if (exitCode != 0)
+        {
+            System.exit(exitCode);
+        }
+    }
+    
+    private static boolean hasArgument(String[] args, String lowerCaseArg)
+    {
+        for (String arg : args)
+        {
+            if (arg.toLowerCase().equals(lowerCaseArg))
+            {
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    private static String[] withoutArgument(String[] args, 
+        String lowerCaseArg)
+    {
+        ArrayList<String> remainingArgs = new ArrayList<>();
+        
+        for (String arg : args)
+        {
+            if (!arg.toLowerCase().equals(lowerCaseArg))
+            {
+                remainingArgs.add(arg);
+            }
+        }
+        
+        return remainingArgs.toArray(new String[remainingArgs.size()]);
+    }
+    
+    /**
+     * The -watch mode: builds, then rebuilds in this same (by then warm) JVM
+     *  every time the source file changes, until the process is killed. A 
+     *  change which leaves the source as it was at the last build (i.e. it 
+     *  was only saved again) doesn't rebuild it. Only returns if the source
+     *  can't be watched.
+     */
+    private static int watch(String[] args)
+    {
+        SourceWatcher   watcher;
+        Path            source;
+        byte[]          builtSource;
+        
+        if (args.length == 0)
+        {
+            printHelp();
+            return 1;
+        }
+        
+        source = Paths.get(args[0]).toAbsolutePath();
+        
+        try
+        {
+            watcher = new SourceWatcher();
+            
+            // BluC has no includes yet, so the source is all there is to 
+            //  watch
+            watcher.watch(source);
+        } catch (IOException ex)
+        {
+            System.err.println("Cannot watch \"" + args[0] + "\": " + 
+                ex.getMessage());
+            return 1;
+        }
+        
+        builtSource = readSourceForWatch(source);
+        runWatchedBuild(args);
+        
+        try
+        {
+            while (true)
+            {
+                byte[] changedSource;
+                
+                watcher.awaitChanges(SourceWatcher.NO_TIMEOUT);
+                changedSource = readSourceForWatch(source);
+                
+                if (!Arrays.equals(changedSource, builtSource))
+                {
+                    builtSource = changedSource;
+                    runWatchedBuild(args);
+                }
+                else
+                {
+                    Debug.printf(Debug.Category.WATCH, 
+                        "\"%s\" changed on disk, but not its contents", 
+                        source);
+                }
+            }
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+    
+    /**
+     * Returns null if the source doesn't exist (i.e. between an editor 
+     *  deleting it and writing it again).
+     */
+    private static byte[] readSourceForWatch(Path source)
+    {
+        try
+        {
+            return Files.readAllBytes(source);
+        } catch (IOException ex)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Builds, then reports whether the build succeeded. Like the daemon, a
+     *  build which throws is reported as failed rather than ending the 
+     *  watch; run resets the compiler's state before the next build.
+     */
+    private static void runWatchedBuild(String[] args)
+    {
+        int exitCode;
+        
+        try
+        {
+            exitCode = run(args, INHERITED_WORKING_DIRECTORY);
+        } catch (RuntimeException ex)
+        {
+            ex.printStackTrace();
+            exitCode = 1;
+        }
+        
+        System.out.println("\n[" + (exitCode == 0 ? "Build succeeded" : 
+            "Build failed") + "] Watching \"" + args[0] + "\" for " +
+            "changes...");
+    }
+    
+    /**
+     * Starts the -jfr recording, if it was asked for. A build is never 
+     *  failed for want of a recording.
+     */
+    private static FlightRecording startFlightRecording()
+    {
+        if (Flags.get("jfr") == null)
+        {
+            return NOT_RECORDING;
+        }
+        
+        try
+        {
+            return FlightRecording.start(Paths.get(Flags.get("jfr")));
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            System.err.println("Cannot start the flight recording: " + 
+                ex.getMessage());
+            return NOT_RECORDING;
+        }
+    }
+    
+    private static void stopFlightRecording(FlightRecording recording)
+    {
+        if (recording == NOT_RECORDING)
+        {
+            return;
+        }
+        
+        try
+        {
+            recording.close();
+            System.out.println("Flight recording written to " + 
+                recording.getDestination());
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Cannot write the flight recording to " + 
+                recording.getDestination() + ": " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the -metrics file, if there is one.
+     */
+    private static void writeMetrics(String sourcePath)
+    {
+        String destination = Flags.get("metrics");
+        
+        if (destination == null)
+        {
+            return;
+        }
+        
+        try
+        {
+            BuildMetrics.write(Paths.get(destination), sourcePath, 
+                Logger.hasLoggedError() ? 1 : 0);
+        }
+        catch (IOException ex)
+        {
+            System.err.println("Cannot write the metrics to " + destination + 
+                ": " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Runs the command line in this JVM, as though it had been run in 
+     *  <b>workingDirectory</b>, and returns its exit code.
+     */
+    public static int run(String[] args, File workingDirectory)
+    {
+        resetState(workingDirectory);
+        args = args.clone();
+        
         for (int i = 0; i < args.length; i++)
         {
             String s = args[i].toLowerCase();
@@ -291,7 +1101,67 @@ public class BluC
             }
             else if (s.equals("-time"))
             {
-                Flags.set("time", "true");
+                Flags.set("time", "table");
+            }
+            else if (s.equals("-time=json"))
+            {
+                Flags.set("time", "json");
+            }
+            else if (s.equals("-memstats"))
+            {
+                Flags.set("memstats", "true");
+            }
+            else if (s.startsWith("-metrics="))
+            {
+                // paths are case sensitive, so use the original argument
+                Flags.set("metrics", resolvePath(
+                    args[i].substring("-metrics=".length())));
+            }
+            else if (s.equals("-jfr"))
+            {
+                Flags.set("jfr", resolvePath(
+                    FlightRecording.DEFAULT_FILE_NAME));
+            }
+            else if (s.startsWith("-jfr="))
+            {
+                // paths are case sensitive, so use the original argument
+                Flags.set("jfr", resolvePath(
+                    args[i].substring("-jfr=".length())));
+            }
+            else if (s.equals("-parallel"))
+            {
+                Flags.set("parallel", "true");
+            }
+            else if (s.matches("-j[1-9][0-9]*"))
+            {
+                Flags.set("jobs", s.substring("-j".length()));
+            }
+            else if (s.equals("-cache"))
+            {
+                Flags.set("cache", "true");
+            }
+            else if (s.startsWith("-cachedir="))
+            {
+                // paths are case sensitive, so use the original argument
+                Flags.set("cacheDir", resolvePath(
+                    args[i].substring("-cachedir=".length())));
+            }
+            else if (s.matches("-cachesize=[0-9]+"))
+            {
+                Flags.set("cacheSizeMB", s.substring("-cachesize=".length()));
+            }
+            else if (s.startsWith("-gcctimeout=") && 
+                s.substring("-gcctimeout=".length()).matches("[0-9]+"))
+            {
+                Flags.set("gccTimeout", s.substring("-gcctimeout=".length()));
+            }
+            else if (s.equals("-nodaemon"))
+            {
+                Flags.set("noDaemon", "true");
+            }
+            else if (s.startsWith("-debug="))
+            {
+                Flags.set("debug", s.substring("-debug=".length()));
             }
         }
         
@@ -301,30 +1171,61 @@ public class BluC
         }
         else
         {
-            //else just track transpile time
-            if (Flags.get("time") != null && 
-                (Flags.get("c") == null || Flags.get("exe") != null))
+            args[0] = resolvePath(args[0]);
+            
+            if (!Debug.enable(Flags.get("debug")))
             {
-                compile(args);
-                
-                if (!Logger.hasLoggedError())
-                {
-                    System.out.println("Compilation done in " + 
-                        (compileEndTime - transpileEndTime) + " ms");
-                    System.out.println("Total time elapsed is " + 
-                        (compileEndTime - transpileStartTime) + " ms");
-                }
+                System.err.println("Unknown debug category in -debug=" + 
+                    Flags.get("debug"));
+            }
+            
+            Debug.printf(Debug.Category.BUILD, "building %s", 
+                Arrays.asList(args));
+            
+            if (Flags.get("time") != null || Flags.get("metrics") != null)
+            {
+                Profiler.enable();
             }
-            else
+            
+            if (Flags.get("metrics") != null)
+            {
+                BuildMetrics.enable();
+            }
+            
+            if (Flags.get("memstats") != null)
+            {
+                MemoryStats.enable();
+            }
+            
+            FlightRecording recording = startFlightRecording();
+            
+            try
             {
                 compile(args);
+            } finally
+            {
+                Logger.flush();
+                stopFlightRecording(recording);
+                writeMetrics(args[0]);
+            }
+            
+            Debug.printf(Debug.Category.BUILD, "built %s", builtOutputs);
+            
+            if (Flags.get("time") != null)
+            {
+                System.out.println();
+                System.out.println(Flags.get("time").equals("json") ? 
+                    Profiler.formatJson() : Profiler.formatTable());
+            }
+            
+            if (Flags.get("memstats") != null)
+            {
+                System.out.println();
+                System.out.println(MemoryStats.formatTable());
             }
         }
         
-        if (Logger.hasLoggedError())
-        {
-            // return error code
-            System.exit(1);
-        }
+        // the error code
+        return Logger.hasLoggedError() ? 1 : 0;
     }
 }
@@ -5,50 +5,135 @@
  */
 package bluC;
 
+import java.util.function.Supplier;
+
 /**
- *
+ * Debug output, in categories which can be turned on for a single build 
+ *  (-debug=gcc,cache) or for the whole JVM (-Dbluc.debug=all).
+ * 
+ * Messages are only built if their category is on: either by a Supplier, or
+ *  from a format and arguments that are cheap to pass (format with 
+ *  "%s" and pass the object, rather than concatenating its toString). A
+ *  disabled call still costs a call, a field read and printf's argument 
+ *  array, since a category can be turned on for any build; where that 
+ *  matters, check isEnabled first.
+ * 
  * @author John Schneider
  */
 public class Debug
 {
-    private static final boolean DEBUG_ON = false;
+    /**
+     * The system property naming the categories that are on by default.
+     */
+    public static final String CATEGORIES_PROPERTY = "bluc.debug";
     
-    public static class Out
+    public static enum Category
     {
-        public void println(String... args)
+        BUILD("build"),
+        CACHE("cache"),
+        GCC("gcc"),
+        LEXER("lexer"),
+        PARSER("parser"),
+        EMITTER("emitter"),
+        DAEMON("daemon"),
+        WATCH("watch");
+        
+        private final String    name;
+        
+        /**
+         * Not volatile: it's only changed between builds, and a build that
+         *  races with the change may as well see either value.
+         */
+        private boolean         enabled;
+        
+        private Category(String name)
         {
-            if (DEBUG_ON)
-            {
-                String output = "";
-                
-                for (String s : args)
-                {
-                    output += s;
-                }
-                
-                System.out.println(output);
-            }
+            this.name = name;
+        }
+        
+        public String getName()
+        {
+            return name;
+        }
+        
+        public boolean isEnabled()
+        {
+            return enabled;
         }
     }
     
-    public static class Err
+    static
+    {
+        reset();
+    }
+    
+    /**
+     * Turns on only the categories named by the bluc.debug system property.
+     */
+    public static void reset()
     {
-        public void println(String... args)
+        for (Category category : Category.values())
         {
-            if (DEBUG_ON)
+            category.enabled = false;
+        }
+        
+        enable(System.getProperty(CATEGORIES_PROPERTY));
+    }
+    
+    /**
+     * Turns on each category in a comma separated list of names, or every 
+     *  category for "all". Returns false if any name isn't a category.
+     */
+    public static boolean enable(String categoryNames)
+    {
+        boolean allAreCategories = true;
+        
+        if (categoryNames == null)
+        {
+            return true;
+        }
+        
+        for (String name : categoryNames.split(","))
+        {
+            boolean isCategory = false;
+            
+            name = name.trim();
+            
+            for (Category category : Category.values())
             {
-                String output = "";
-                
-                for (String s : args)
+                if (name.equalsIgnoreCase("all") || 
+                    name.equalsIgnoreCase(category.getName()))
                 {
-                    output += s;
+                    category.enabled    = true;
+                    isCategory          = true;
                 }
-                
-                System.out.println(output);
             }
+            
+            allAreCategories &= isCategory || name.isEmpty();
+        }
+        
+        return allAreCategories;
+    }
+    
+    public static void println(Category category, Supplier<String> message)
+    {
+        if (category.enabled)
+        {
+            print(category, message.get());
         }
     }
     
-    public static final Out out = new Out();
-    public static final Err err = new Err();
+    public static void printf(Category category, String format, 
+        Object... args)
+    {
+        if (category.enabled)
+        {
+            print(category, String.format(format, args));
+        }
+    }
+    
+    private static void print(Category category, String message)
+    {
+        System.err.println("[" + category.getName() + "] " + message);
+    }
 }
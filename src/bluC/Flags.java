@@ -6,6 +6,7 @@
 package bluC;
 
 import java.util.HashMap;
+import java.util.TreeMap;
 
 /**
  *
@@ -20,8 +21,21 @@ public class Flags
         flags.put(flagName, value);
     }
     
+    public static void clear()
+    {
+        flags.clear();
+    }
+    
     public static String get(String flagName)
     {
         return flags.get(flagName);
     }
+    
+    /**
+     * Returns a copy of every flag that's set, sorted by name.
+     */
+    public static TreeMap<String, String> getAll()
+    {
+        return new TreeMap<>(flags);
+    }
 }
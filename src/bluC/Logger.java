@@ -5,92 +5,72 @@
  */
 package bluC;
 
+import bluC.diagnostics.Diagnostic;
+import bluC.diagnostics.DiagnosticBuffer;
 import bluC.transpiler.Token;
-import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 
 /**
- *
+ * Reports warnings and errors. They're buffered until flush is called (once
+ *  per build), and then printed together to System.err.
+ * 
  * @author John Schneider
  */
 public class Logger
 {
-    private static boolean      hasLoggedError          = false;
-    private static OutputStream lastStreamWroteTo       = System.out;
+    private static final DiagnosticBuffer diagnostics = new DiagnosticBuffer();
     
-    /**
-     * The number of milliseconds we wait for the current buffer to flush
-     *  output, have the console read that, and then swap to the new
-     *  OutputStream.
-     */
-    private static long         bufferSwapTimeMillis    = 200;
+    public static void warn(Token errAt, String message)
+    {
+        report(Diagnostic.Severity.WARNING, errAt, message);
+    }
     
-    /**
-     * Filepath of the previously logged message.
-     */
-    private static String       prevFilepath            = null;
+    public static void err(Token errAt, String message)
+    {
+        report(Diagnostic.Severity.ERROR, errAt, message);
+    }
     
-    public static void warn(Token errAt, String message)
+    private static void report(Diagnostic.Severity severity, Token errAt, 
+        String message)
     {
-        printPathIfNecessary(errAt, System.out);
-        
-        System.out.println("    (line " + (errAt.getLineIndex() + 1) + "): " + 
-            "Warning: On token \"" + errAt.getTextContent() + "\"\n\t" + 
-            message);
-        
-        ensureBufferSynchronization(System.out);
+        diagnostics.add(new Diagnostic(severity, errAt.getFilepath(), 
+            errAt.getLineIndex(), errAt.getTextContent(), message));
     }
     
-    private static void printPathIfNecessary(Token errAt, PrintStream printTo)
+    /**
+     * Prints every diagnostic reported since the last flush to System.err.
+     */
+    public static void flush()
     {
-        String newFilepath = errAt.getFilepath();
-        
-        if (!newFilepath.equals(prevFilepath))
-        {
-            printTo.println("[" + newFilepath + "]:");
-            prevFilepath = newFilepath;
-        }
+        flush(System.err);
     }
     
-    public static void err(Token errAt, String message)
+    public static void flush(PrintStream printTo)
     {
-        hasLoggedError = true;
-        
-        printPathIfNecessary(errAt, System.err);
-        
-        System.err.println("    (line " + 
-            (errAt.getLineIndex() + 1) + "): " + "Error: On token \"" + 
-            errAt.getTextContent() + "\"\n\t" + message);
-        
-        ensureBufferSynchronization(System.err);
+        diagnostics.flush(printTo);
     }
     
-    public static boolean hasLoggedError()
+    /**
+     * Forgets any logged error, and drops any diagnostic that hasn't been
+     *  flushed. Called before each file is compiled.
+     */
+    public static void reset()
     {
-        return hasLoggedError;
+        diagnostics.reset();
     }
     
-    private static void ensureBufferSynchronization(OutputStream currentBuffer)
+    public static boolean hasLoggedError()
     {
-        if (currentBuffer != lastStreamWroteTo)
-        {
-            synchronizeBuffer();
-            lastStreamWroteTo = currentBuffer;
-        }
+        return diagnostics.getErrorCount() > 0;
     }
     
-    private static void synchronizeBuffer()
+    /**
+     * Returns the diagnostics reported since the last flush, in the order
+     *  they'll be printed.
+     */
+    public static ArrayList<Diagnostic> getDiagnostics()
     {
-        try
-        {
-            lastStreamWroteTo.flush();
-            Thread.sleep(bufferSwapTimeMillis);
-        } catch (IOException | InterruptedException ex)
-        {
-            System.err.println("[" + Logger.class.getTypeName() + "] Fatal " +
-                "logging error resulted in failed buffer swap:\n");
-            ex.printStackTrace();
-        }
+        return diagnostics.getDiagnostics();
     }
 }
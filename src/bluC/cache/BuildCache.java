@@ -0,0 +1,421 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.cache;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A content-addressed cache of build outputs (.c files, headers and 
+ *  executables), shared by every bluc process that uses the same directory.
+ * 
+ * Each entry is a directory named after the key of the build that produced
+ *  it. It holds a copy of each output plus a manifest listing the size of
+ *  the entry and where each output goes. Entries are never modified once
+ *  they're published:
+ * 
+ *  - an entry is built in a temporary directory and renamed into place in
+ *     one atomic step, so other processes either see all of it or none of 
+ *     it (if two processes store the same key, the second one's copy is 
+ *     dropped);
+ *  - eviction first renames an entry away and only then deletes it;
+ *  - restoring copies each output next to its destination and renames it
+ *     over the destination, so outputs are never seen half-written.
+ * 
+ * A restore that races with an eviction simply fails and is treated as a 
+ *  miss. Eviction is least-recently-used (restoring an entry marks it as 
+ *  used) and holds a file lock so only one process evicts at a time.
+ * 
+ * @author John Schneider
+ */
+public class BuildCache
+{
+    public static final long DEFAULT_MAX_SIZE_BYTES = 256L * 1024 * 1024;
+    
+    private static final String MANIFEST_FILE_NAME  = "manifest";
+    private static final String LOCK_FILE_NAME      = ".lock";
+    private static final String TEMP_PREFIX         = ".tmp-";
+    
+    /**
+     * FileLocks are held per process, so threads of one process also have to
+     *  take turns.
+     */
+    private static final Object EVICTION_MONITOR = new Object();
+    
+    private final Path  directory;
+    private final long  maxSizeBytes;
+    
+    public BuildCache(Path directory, long maxSizeBytes)
+    {
+        this.directory      = directory;
+        this.maxSizeBytes   = maxSizeBytes;
+    }
+    
+    /**
+     * Returns ~/.bluc/cache
+     */
+    public static Path getDefaultDirectory()
+    {
+        return Paths.get(System.getProperty("user.home"), ".bluc", "cache");
+    }
+    
+    public Path getDirectory()
+    {
+        return directory;
+    }
+    
+    public long getMaxSizeBytes()
+    {
+        return maxSizeBytes;
+    }
+    
+    /**
+     * Hashes everything that determines a build's outputs into a key.
+     */
+    public static String computeKey(byte[] sourceContents, 
+        Map<String, String> flags, String... otherInputs)
+    {
+        MessageDigest digest = newDigest();
+        
+        // lengths are hashed too, so that the inputs can't run together
+        updateWithLength(digest, sourceContents);
+        
+        for (Map.Entry<String, String> flag : flags.entrySet())
+        {
+            updateWithLength(digest, flag.getKey().getBytes(
+                StandardCharsets.UTF_8));
+            updateWithLength(digest, String.valueOf(flag.getValue()).getBytes(
+                StandardCharsets.UTF_8));
+        }
+        
+        for (String input : otherInputs)
+        {
+            updateWithLength(digest, input.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        return toHex(digest.digest());
+    }
+    
+    /**
+     * Copies the outputs of the build with the given key to where they were
+     *  originally built. Returns false if there's no such entry (or it 
+     *  couldn't be restored), in which case the build has to be run.
+     */
+    public boolean restore(String key)
+    {
+        Path entry = directory.resolve(key);
+        
+        try
+        {
+            List<String> manifest = Files.readAllLines(
+                entry.resolve(MANIFEST_FILE_NAME), StandardCharsets.UTF_8);
+            
+            // the first line is the size of the entry
+            for (int i = 1; i < manifest.size(); i++)
+            {
+                restoreOutput(entry.resolve(Integer.toString(i)), 
+                    Paths.get(manifest.get(i)));
+            }
+            
+            Files.setLastModifiedTime(entry, 
+                FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        }
+        catch (IOException ex)
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * Stores the given outputs of the build with the given key, then evicts
+     *  entries until the cache fits under its size cap.
+     */
+    public void store(String key, List<Path> outputs) throws IOException
+    {
+        Path    entry       = directory.resolve(key);
+        Path    tempEntry   = directory.resolve(TEMP_PREFIX + 
+                                UUID.randomUUID());
+        long    size        = 0;
+        
+        ArrayList<String> manifest = new ArrayList<>();
+        
+        if (Files.isDirectory(entry))
+        {
+            return;
+        }
+        
+        Files.createDirectories(tempEntry);
+        manifest.add("");
+        
+        try
+        {
+            for (Path output : outputs)
+            {
+                Path copy = tempEntry.resolve(
+                    Integer.toString(manifest.size()));
+                
+                Files.copy(output, copy, StandardCopyOption.COPY_ATTRIBUTES);
+                manifest.add(output.toString());
+                size += Files.size(copy);
+            }
+            
+            manifest.set(0, Long.toString(size));
+            Files.write(tempEntry.resolve(MANIFEST_FILE_NAME), manifest, 
+                StandardCharsets.UTF_8);
+            
+            try
+            {
+                Files.move(tempEntry, entry, 
+                    StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException ex)
+            {
+                if (!Files.isDirectory(entry))
+                {
+                    throw ex;
+                }
+                //else another process stored the same build first
+            }
+        }
+        finally
+        {
+            deleteRecursively(tempEntry);
+        }
+        
+        evict();
+    }
+    
+    /**
+     * Deletes the least recently used entries until the cache is no larger
+     *  than its size cap.
+     */
+    public void evict() throws IOException
+    {
+        synchronized (EVICTION_MONITOR)
+        {
+            FileChannel lockFile = FileChannel.open(
+                directory.resolve(LOCK_FILE_NAME), 
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            
+            try
+            {
+                FileLock lock = lockFile.lock();
+                
+                try
+                {
+                    evictWhileLocked();
+                }
+                finally
+                {
+                    lock.release();
+                }
+            }
+            finally
+            {
+                lockFile.close();
+            }
+        }
+    }
+    
+    private void evictWhileLocked() throws IOException
+    {
+        ArrayList<Path> entries     = new ArrayList<>();
+        long            totalSize   = 0;
+        
+        DirectoryStream<Path> children = Files.newDirectoryStream(directory);
+        
+        try
+        {
+            for (Path child : children)
+            {
+                if (Files.isRegularFile(child.resolve(MANIFEST_FILE_NAME)) &&
+                    !child.getFileName().toString().startsWith(TEMP_PREFIX))
+                {
+                    entries.add(child);
+                    totalSize += getEntrySize(child);
+                }
+            }
+        }
+        finally
+        {
+            children.close();
+        }
+        
+        Collections.sort(entries, new Comparator<Path>()
+        {
+            @Override
+            public int compare(Path a, Path b)
+            {
+                return Long.compare(getLastUsedMillis(a), 
+                    getLastUsedMillis(b));
+            }
+        });
+        
+        for (int i = 0; i < entries.size() && totalSize > maxSizeBytes; i++)
+        {
+            Path entry  = entries.get(i);
+            Path doomed = directory.resolve(TEMP_PREFIX + UUID.randomUUID());
+            
+            totalSize -= getEntrySize(entry);
+            
+            // once it's renamed, no other process can start restoring it
+            Files.move(entry, doomed, StandardCopyOption.ATOMIC_MOVE);
+            deleteRecursively(doomed);
+        }
+    }
+    
+    private static void restoreOutput(Path cachedOutput, Path destination)
+        throws IOException
+    {
+        Path parent         = destination.toAbsolutePath().getParent();
+        Path tempOutput     = parent.resolve(TEMP_PREFIX + 
+                                destination.getFileName() + "-" + 
+                                UUID.randomUUID());
+        
+        try
+        {
+            Files.copy(cachedOutput, tempOutput, 
+                StandardCopyOption.COPY_ATTRIBUTES);
+            
+            try
+            {
+                Files.move(tempOutput, destination, 
+                    StandardCopyOption.REPLACE_EXISTING, 
+                    StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException ex)
+            {
+                Files.move(tempOutput, destination, 
+                    StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(tempOutput);
+        }
+    }
+    
+    private static long getEntrySize(Path entry)
+    {
+        try
+        {
+            return Long.parseLong(Files.readAllLines(
+                entry.resolve(MANIFEST_FILE_NAME), StandardCharsets.UTF_8).
+                get(0));
+        }
+        catch (IOException | RuntimeException ex)
+        {
+            return 0;
+        }
+    }
+    
+    private static long getLastUsedMillis(Path entry)
+    {
+        try
+        {
+            return Files.getLastModifiedTime(entry).toMillis();
+        }
+        catch (IOException ex)
+        {
+            return 0;
+        }
+    }
+    
+    private static void deleteRecursively(Path path) throws IOException
+    {
+        if (!Files.exists(path))
+        {
+            return;
+        }
+        
+        if (Files.isDirectory(path))
+        {
+            DirectoryStream<Path> children = Files.newDirectoryStream(path);
+            
+            try
+            {
+                for (Path child : children)
+                {
+                    deleteRecursively(child);
+                }
+            }
+            finally
+            {
+                children.close();
+            }
+        }
+        
+        Files.deleteIfExists(path);
+    }
+    
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private static void updateWithLength(MessageDigest digest, byte[] bytes)
+    {
+        long length = bytes.length;
+        
+        for (int i = 0; i < 8; i++)
+        {
+            digest.update((byte) (length >>> (8 * i)));
+        }
+        
+        digest.update(bytes);
+    }
+    
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        
+        for (byte b : bytes)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        
+        return hex.toString();
+    }
+}
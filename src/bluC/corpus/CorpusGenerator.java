@@ -0,0 +1,476 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.corpus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic BluC programs of a given size and shape, for scale 
+ *  and stress testing. The same parameters (including the seed) always 
+ *  generate the same program.
+ * 
+ * A program is a global, then classes (with fields and methods) and 
+ *  functions in a random order until it reaches the target line count, 
+ *  then a main. Each function and method body has locals, nested while 
+ *  loops, an if/else if chain and long expressions. Every shape parameter 
+ *  is a maximum: each body picks its own shape between 1 and it.
+ * 
+ * Classes only refer to earlier classes (and themselves), since BluC 
+ *  requires classes to be declared before they're used. Without syntax 
+ *  errors, generated programs transpile and compile without errors.
+ * 
+ * @author John Schneider
+ */
+public class CorpusGenerator
+{
+    public static final long    DEFAULT_SEED                = 1;
+    public static final long    DEFAULT_TARGET_LINE_COUNT   = 1000;
+    
+    private static final String[] INT_OPERATORS         = {"+", "-", "*", "/"};
+    private static final String[] COMPARISON_OPERATORS  = 
+                                    {"<", ">", "==", "<=", ">="};
+    
+    private long    seed;
+    private long    targetLineCount;
+    private double  classShare;
+    private int     maxFieldsPerClass;
+    private int     maxMethodsPerClass;
+    private int     maxLocalsPerFunction;
+    private int     maxIfChainLength;
+    private int     maxExpressionLength;
+    private int     maxLoopNestingDepth;
+    private double  syntaxErrorRate;
+    
+    /**
+     * State of the program being generated.
+     */
+    private Random          random;
+    private StringBuilder   program;
+    private long            lineCount;
+    private int             classCount;
+    private int             functionCount;
+    private int             syntaxErrorCount;
+    private String          indentation;
+    private ArrayList<String> 
+                            intLocals;
+    
+    public CorpusGenerator()
+    {
+        seed                    = DEFAULT_SEED;
+        targetLineCount         = DEFAULT_TARGET_LINE_COUNT;
+        classShare              = 0.3;
+        maxFieldsPerClass       = 4;
+        maxMethodsPerClass      = 3;
+        maxLocalsPerFunction    = 8;
+        maxIfChainLength        = 4;
+        maxExpressionLength     = 6;
+        maxLoopNestingDepth     = 3;
+        syntaxErrorRate         = 0;
+    }
+    
+    public long getSeed()
+    {
+        return seed;
+    }
+    
+    public CorpusGenerator setSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+    
+    public long getTargetLineCount()
+    {
+        return targetLineCount;
+    }
+    
+    /**
+     * Classes and functions are added until the program has at least this 
+     *  many lines (a few more for main).
+     */
+    public CorpusGenerator setTargetLineCount(long targetLineCount)
+    {
+        this.targetLineCount = targetLineCount;
+        return this;
+    }
+    
+    /**
+     * The chance that each top-level declaration is a class rather than a 
+     *  function (0 to 1).
+     */
+    public CorpusGenerator setClassShare(double classShare)
+    {
+        this.classShare = classShare;
+        return this;
+    }
+    
+    public CorpusGenerator setMaxFieldsPerClass(int maxFieldsPerClass)
+    {
+        this.maxFieldsPerClass = maxFieldsPerClass;
+        return this;
+    }
+    
+    public CorpusGenerator setMaxMethodsPerClass(int maxMethodsPerClass)
+    {
+        this.maxMethodsPerClass = maxMethodsPerClass;
+        return this;
+    }
+    
+    public CorpusGenerator setMaxLocalsPerFunction(int maxLocalsPerFunction)
+    {
+        this.maxLocalsPerFunction = maxLocalsPerFunction;
+        return this;
+    }
+    
+    /**
+     * The most branches in an if/else if/else chain (including the if).
+     */
+    public CorpusGenerator setMaxIfChainLength(int maxIfChainLength)
+    {
+        this.maxIfChainLength = maxIfChainLength;
+        return this;
+    }
+    
+    /**
+     * The most binary operators in an expression.
+     */
+    public CorpusGenerator setMaxExpressionLength(int maxExpressionLength)
+    {
+        this.maxExpressionLength = maxExpressionLength;
+        return this;
+    }
+    
+    public CorpusGenerator setMaxLoopNestingDepth(int maxLoopNestingDepth)
+    {
+        this.maxLoopNestingDepth = maxLoopNestingDepth;
+        return this;
+    }
+    
+    /**
+     * The chance that each statement in a function or method is replaced 
+     *  with one with a syntax error (0 to 1). The parser recovers from each
+     *  of them at the end of the statement. main never has errors, so the
+     *  parser never runs out of file while recovering.
+     */
+    public CorpusGenerator setSyntaxErrorRate(double syntaxErrorRate)
+    {
+        this.syntaxErrorRate = syntaxErrorRate;
+        return this;
+    }
+    
+    /**
+     * The number of syntax errors in the last program generated.
+     */
+    public int getSyntaxErrorCount()
+    {
+        return syntaxErrorCount;
+    }
+    
+    /**
+     * The number of lines in the last program generated.
+     */
+    public long getLineCount()
+    {
+        return lineCount;
+    }
+    
+    public String generate()
+    {
+        random              = new Random(seed);
+        program             = new StringBuilder();
+        lineCount           = 0;
+        classCount          = 0;
+        functionCount       = 0;
+        syntaxErrorCount    = 0;
+        indentation         = "";
+        
+        line("// generated by bluC.corpus.CorpusGenerator (seed " + seed + 
+            ")");
+        line("int counter = " + nextLiteral() + ";");
+        line("");
+        
+        while (lineCount < targetLineCount)
+        {
+            if (random.nextDouble() < classShare)
+            {
+                generateClass();
+            }
+            else
+            {
+                generateFunction();
+            }
+            
+            line("");
+        }
+        
+        generateMain();
+        return program.toString();
+    }
+    
+    /**
+     * Generates a program as the list of lines the compiler reads.
+     */
+    public ArrayList<String> generateLines()
+    {
+        return new ArrayList<>(Arrays.asList(generate().split("\n", -1)));
+    }
+    
+    private void generateClass()
+    {
+        String  className   = "Class" + classCount;
+        int     fieldCount  = 1 + random.nextInt(maxFieldsPerClass);
+        int     methodCount = 1 + random.nextInt(maxMethodsPerClass);
+        
+        line("class " + className);
+        open();
+        
+        for (int i = 0; i < fieldCount; i++)
+        {
+            line(nextType() + " field" + i + ";");
+        }
+        
+        // a pointer to itself, and maybe one to an earlier class
+        line(className + "* next;");
+        
+        if (classCount > 0)
+        {
+            line("Class" + random.nextInt(classCount) + "* link;");
+        }
+        
+        for (int i = 0; i < methodCount; i++)
+        {
+            line("");
+            generateBody("int method" + i + "(int a, int b)");
+        }
+        
+        close();
+        classCount++;
+    }
+    
+    private void generateFunction()
+    {
+        generateBody("int function" + functionCount + "(int a, int b)");
+        functionCount++;
+    }
+    
+    private void generateMain()
+    {
+        line("int main()");
+        open();
+        
+        if (classCount > 0)
+        {
+            line("Class" + (classCount - 1) + " object;");
+        }
+        
+        line("int x = counter;");
+        line("return 0;");
+        close();
+    }
+    
+    private void generateBody(String signature)
+    {
+        int localCount      = 1 + random.nextInt(maxLocalsPerFunction);
+        int loopDepth       = 1 + random.nextInt(maxLoopNestingDepth);
+        int ifChainLength   = 1 + random.nextInt(maxIfChainLength);
+        
+        intLocals = new ArrayList<>(Arrays.asList("a", "b"));
+        
+        line(signature);
+        open();
+        
+        for (int i = 0; i < localCount; i++)
+        {
+            String local = "local" + i;
+            
+            if (classCount > 0 && random.nextInt(8) == 0)
+            {
+                statement("Class" + random.nextInt(classCount) + " " + local +
+                    ";");
+            }
+            else if (random.nextInt(4) == 0)
+            {
+                statement("double " + local + " = " + nextExpression() + 
+                    " * 1.5;");
+            }
+            else
+            {
+                statement("int " + local + " = " + nextExpression() + ";");
+                intLocals.add(local);
+            }
+        }
+        
+        generateLoops(loopDepth);
+        generateIfChain(ifChainLength);
+        
+        statement("return " + nextIntLocal() + ";");
+        close();
+    }
+    
+    private void generateLoops(int depth)
+    {
+        String counter = nextIntLocal();
+        
+        statement("while (" + counter + " < " + (10 + random.nextInt(90)) + 
+            ")");
+        open();
+        
+        if (depth > 1)
+        {
+            generateLoops(depth - 1);
+        }
+        
+        statement(nextIntLocal() + " = " + nextExpression() + ";");
+        statement(counter + " = " + counter + " + 1;");
+        close();
+    }
+    
+    private void generateIfChain(int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            if (i == 0)
+            {
+                statement("if (" + nextCondition() + ")");
+            }
+            else if (i < length - 1 || length == 2)
+            {
+                statement("else if (" + nextCondition() + ")");
+            }
+            else
+            {
+                statement("else");
+            }
+            
+            open();
+            statement(nextIntLocal() + " = " + nextExpression() + ";");
+            close();
+        }
+    }
+    
+    private String nextCondition()
+    {
+        return nextIntLocal() + " " + 
+            COMPARISON_OPERATORS[random.nextInt(COMPARISON_OPERATORS.length)] + 
+            " " + nextOperand();
+    }
+    
+    /**
+     * A chain of binary operators, with a grouped subexpression now and 
+     *  then. Only divides by non-zero literals.
+     */
+    private String nextExpression()
+    {
+        int             length      = 1 + random.nextInt(maxExpressionLength);
+        StringBuilder   expression  = new StringBuilder(nextOperand());
+        
+        for (int i = 0; i < length; i++)
+        {
+            String operator = INT_OPERATORS[random.nextInt(
+                                INT_OPERATORS.length)];
+            
+            expression.append(' ').append(operator).append(' ');
+            
+            if (operator.equals("/"))
+            {
+                expression.append(nextLiteral());
+            }
+            else if (random.nextInt(5) == 0)
+            {
+                expression.append('(').append(nextOperand()).append(" + ").
+                    append(nextOperand()).append(')');
+            }
+            else
+            {
+                expression.append(nextOperand());
+            }
+        }
+        
+        return expression.toString();
+    }
+    
+    private String nextOperand()
+    {
+        return random.nextBoolean() ? nextIntLocal() : nextLiteral();
+    }
+    
+    private String nextIntLocal()
+    {
+        return intLocals.get(random.nextInt(intLocals.size()));
+    }
+    
+    private String nextLiteral()
+    {
+        return Integer.toString(1 + random.nextInt(9));
+    }
+    
+    private String nextType()
+    {
+        return random.nextBoolean() ? "int" : "double";
+    }
+    
+    /**
+     * Adds a statement of a function or method body, unless it's replaced
+     *  with a syntax error.
+     */
+    private void statement(String statement)
+    {
+        if (syntaxErrorRate > 0 && random.nextDouble() < syntaxErrorRate)
+        {
+            syntaxErrorCount++;
+            
+            // the statements replaced are balanced (so don't replace a
+            //  block's header, which the parser can't recover from)
+            if (statement.endsWith(";"))
+            {
+                line(random.nextBoolean() ? 
+                    "int broken" + syntaxErrorCount + " = 1 +;" : 
+                    nextIntLocal() + " = = " + nextLiteral() + ";");
+                return;
+            }
+            
+            syntaxErrorCount--;
+        }
+        
+        line(statement);
+    }
+    
+    private void open()
+    {
+        line("{");
+        indentation += "    ";
+    }
+    
+    private void close()
+    {
+        indentation = indentation.substring(4);
+        line("}");
+    }
+    
+    private void line(String line)
+    {
+        if (!line.isEmpty())
+        {
+            program.append(indentation).append(line);
+        }
+        
+        program.append('\n');
+        lineCount++;
+    }
+}
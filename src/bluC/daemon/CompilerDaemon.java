@@ -0,0 +1,344 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.daemon;
+
+import bluC.BluC;
+import bluC.Debug;
+import bluC.daemon.DaemonProtocol.FrameOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The bluc --daemon server. Compiling a file in a fresh JVM mostly measures
+ *  class loading and the JIT warming up; the daemon instead keeps one JVM
+ *  running and builds whatever DaemonClient forwards to it, so every build 
+ *  after the first runs on already compiled code.
+ * 
+ * The compiler keeps its state in statics (and writes to System.out and
+ *  System.err), so builds are run one at a time, each with both streams 
+ *  redirected to the client that asked for it.
+ * 
+ * The daemon only listens on the loopback address, and only accepts 
+ *  requests carrying the random token from its daemon file (see 
+ *  DaemonProtocol.getDaemonFile).
+ * 
+ * @author John Schneider
+ */
+public class CompilerDaemon
+{
+    /**
+     * How long a client has to send its request once it's connected, so a
+     *  stuck client can't hold up every build after it.
+     */
+    private static final int REQUEST_TIMEOUT_MILLIS = 10 * 1000;
+    private static final int CONNECTION_BACKLOG     = 50;
+    private static final int TOKEN_SIZE_BYTES       = 16;
+    
+    private final ServerSocket  serverSocket;
+    private final String        token;
+    private boolean             isStopped;
+    
+    public CompilerDaemon() throws IOException
+    {
+        serverSocket    = new ServerSocket(0, CONNECTION_BACKLOG, 
+                            InetAddress.getLoopbackAddress());
+        token           = newToken();
+        isStopped       = false;
+    }
+    
+    /**
+     * Runs a daemon until it's sent a stop request (see 
+     *  DaemonClient.stopDaemon). Returns the process exit code.
+     */
+    public static int serve()
+    {
+        if (DaemonClient.isDaemonRunning())
+        {
+            System.err.println("A bluc daemon is already running.");
+            return 1;
+        }
+        
+        try
+        {
+            new CompilerDaemon().run();
+            return 0;
+        } catch (IOException ex)
+        {
+            System.err.println("The bluc daemon failed: " + ex.getMessage());
+            return 1;
+        }
+    }
+    
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Advertises this daemon in the daemon file, then serves requests until
+     *  it's stopped.
+     */
+    public void run() throws IOException
+    {
+        Thread unadvertiser = new Thread("bluC-daemon-shutdown")
+        {
+            @Override
+            public void run()
+            {
+                unadvertise();
+            }
+        };
+        
+        advertise();
+        Runtime.getRuntime().addShutdownHook(unadvertiser);
+        System.out.println("bluc daemon listening on port " + getPort());
+        
+        try
+        {
+            while (!isStopped)
+            {
+                Socket client = serverSocket.accept();
+                
+                try
+                {
+                    handle(client);
+                } catch (IOException ex)
+                {
+                    System.err.println("Dropped a request: " + 
+                        ex.getMessage());
+                } finally
+                {
+                    client.close();
+                }
+            }
+        } finally
+        {
+            serverSocket.close();
+            unadvertise();
+            Runtime.getRuntime().removeShutdownHook(unadvertiser);
+        }
+        
+        System.out.println("bluc daemon stopped");
+    }
+    
+    private void handle(Socket client) throws IOException
+    {
+        DataInputStream     request;
+        DataOutputStream    response;
+        String              requestToken;
+        byte                requestKind;
+        
+        client.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+        request     = new DataInputStream(new BufferedInputStream(
+                        client.getInputStream()));
+        response    = new DataOutputStream(new BufferedOutputStream(
+                        client.getOutputStream()));
+        
+        try
+        {
+            requestToken = request.readUTF();
+        } catch (EOFException ex)
+        {
+            // DaemonClient.isDaemonRunning connects without sending anything
+            return;
+        }
+        
+        if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), 
+            requestToken.getBytes(StandardCharsets.UTF_8)))
+        {
+            System.err.println("Refused a request with the wrong token.");
+            return;
+        }
+        
+        requestKind = request.readByte();
+        
+        if (requestKind == DaemonProtocol.STOP_REQUEST)
+        {
+            isStopped = true;
+            writeExitCode(response, 0);
+        }
+        else if (requestKind == DaemonProtocol.COMPILE_REQUEST)
+        {
+            File        workingDirectory    = new File(request.readUTF());
+            String[]    args                = new String[request.readInt()];
+            int         exitCode;
+            
+            for (int i = 0; i < args.length; i++)
+            {
+                args[i] = request.readUTF();
+            }
+            
+            // the build itself may take as long as it needs to
+            client.setSoTimeout(0);
+            exitCode = compile(args, workingDirectory, response);
+            
+            System.out.println("Built " + Arrays.toString(args) + " in " + 
+                workingDirectory + " (exit code " + exitCode + ")");
+            writeExitCode(response, exitCode);
+        }
+        else
+        {
+            System.err.println("Refused a request of unknown kind " + 
+                requestKind);
+        }
+    }
+    
+    /**
+     * Runs the build with System.out and System.err sent to the client, and
+     *  returns its exit code. The compiler is left in a usable state even if 
+     *  the build throws.
+     */
+    private static int compile(String[] args, File workingDirectory, 
+        DataOutputStream response)
+    {
+        PrintStream daemonOut   = System.out;
+        PrintStream daemonErr   = System.err;
+        PrintStream clientOut   = new PrintStream(new BufferedOutputStream(
+                                    new FrameOutputStream(response, 
+                                        DaemonProtocol.STDOUT_FRAME)), true);
+        PrintStream clientErr   = new PrintStream(new BufferedOutputStream(
+                                    new FrameOutputStream(response, 
+                                        DaemonProtocol.STDERR_FRAME)), true);
+        int         exitCode;
+        
+        System.setOut(clientOut);
+        System.setErr(clientErr);
+        
+        try
+        {
+            exitCode = BluC.run(args, workingDirectory);
+            
+            // after the build, which turns on its own -debug categories
+            Debug.printf(Debug.Category.DAEMON, 
+                "built by daemon %d, up for %d ms", 
+                ProcessHandle.current().pid(), 
+                ManagementFactory.getRuntimeMXBean().getUptime());
+        } catch (RuntimeException ex)
+        {
+            ex.printStackTrace();
+            exitCode = 1;
+        } finally
+        {
+            clientOut.flush();
+            clientErr.flush();
+            System.setOut(daemonOut);
+            System.setErr(daemonErr);
+        }
+        
+        return exitCode;
+    }
+    
+    private static void writeExitCode(DataOutputStream response, int exitCode)
+        throws IOException
+    {
+        synchronized (response)
+        {
+            response.writeByte(DaemonProtocol.EXIT_FRAME);
+            response.writeInt(exitCode);
+            response.flush();
+        }
+    }
+    
+    /**
+     * Atomically replaces the daemon file with this daemon's port and token.
+     *  The file is created readable by its owner only (where the file system
+     *  supports POSIX permissions).
+     */
+    private void advertise() throws IOException
+    {
+        Path    daemonFile  = DaemonProtocol.getDaemonFile();
+        Path    tempFile    = daemonFile.resolveSibling("." + 
+                                daemonFile.getFileName() + "-" + 
+                                UUID.randomUUID() + ".tmp");
+        
+        Files.createDirectories(daemonFile.getParent());
+        
+        try
+        {
+            Files.createFile(tempFile, PosixFilePermissions.asFileAttribute(
+                PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException ex)
+        {
+            Files.createFile(tempFile);
+        }
+        
+        try
+        {
+            Files.write(tempFile, (getPort() + "\n" + token + "\n").
+                getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, daemonFile, StandardCopyOption.ATOMIC_MOVE);
+        } finally
+        {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    /**
+     * Deletes the daemon file, unless another daemon has replaced it since.
+     */
+    private synchronized void unadvertise()
+    {
+        try
+        {
+            DaemonProtocol.Endpoint advertised = DaemonProtocol.readEndpoint();
+            
+            if (advertised != DaemonProtocol.NO_ENDPOINT && 
+                advertised.getToken().equals(token))
+            {
+                Files.deleteIfExists(DaemonProtocol.getDaemonFile());
+            }
+        } catch (IOException ex)
+        {
+            System.err.println("Couldn't delete the daemon file: " + 
+                ex.getMessage());
+        }
+    }
+    
+    private static String newToken()
+    {
+        byte[]          random  = new byte[TOKEN_SIZE_BYTES];
+        StringBuilder   hex     = new StringBuilder();
+        
+        new SecureRandom().nextBytes(random);
+        
+        for (byte b : random)
+        {
+            hex.append(String.format("%02x", b));
+        }
+        
+        return hex.toString();
+    }
+}
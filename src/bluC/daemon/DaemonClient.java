@@ -0,0 +1,254 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Forwards builds to a running CompilerDaemon, so that they don't pay for
+ *  a cold JVM.
+ * 
+ * @author John Schneider
+ */
+public class DaemonClient
+{
+    /**
+     * Returned by forward when no daemon took the build, in which case the 
+     *  caller builds it itself.
+     */
+    public static final int     NOT_FORWARDED           = -1;
+    
+    private static final Socket NO_CONNECTION           = null;
+    private static final int    CONNECT_TIMEOUT_MILLIS  = 1000;
+    
+    /**
+     * Sends the build to the daemon (if one is running) and copies its 
+     *  output to System.out and System.err as it arrives. Returns the 
+     *  build's exit code, or NOT_FORWARDED if there's no daemon or it failed
+     *  before starting the build.
+     */
+    public static int forward(String[] args, File workingDirectory)
+    {
+        DaemonProtocol.Endpoint endpoint    = readEndpoint();
+        Socket                  connection  = connect(endpoint);
+        
+        if (connection == NO_CONNECTION)
+        {
+            return NOT_FORWARDED;
+        }
+        
+        try
+        {
+            DataOutputStream request = openRequest(connection, endpoint, 
+                DaemonProtocol.COMPILE_REQUEST);
+            
+            request.writeUTF(workingDirectory.getAbsolutePath());
+            request.writeInt(args.length);
+            
+            for (String arg : args)
+            {
+                request.writeUTF(arg);
+            }
+            
+            request.flush();
+            return readResponse(connection);
+        } catch (IOException ex)
+        {
+            return NOT_FORWARDED;
+        } finally
+        {
+            close(connection);
+        }
+    }
+    
+    /**
+     * Asks the running daemon to stop once it has finished its current 
+     *  build. Returns the process exit code.
+     */
+    public static int stopDaemon()
+    {
+        DaemonProtocol.Endpoint endpoint    = readEndpoint();
+        Socket                  connection  = connect(endpoint);
+        
+        if (connection == NO_CONNECTION)
+        {
+            System.err.println("No bluc daemon is running.");
+            return 1;
+        }
+        
+        try
+        {
+            openRequest(connection, endpoint, DaemonProtocol.STOP_REQUEST).
+                flush();
+            readResponse(connection);
+            
+            System.out.println("Stopped the bluc daemon.");
+            return 0;
+        } catch (EOFException ex)
+        {
+            System.err.println("The bluc daemon refused to stop.");
+            return 1;
+        } catch (IOException ex)
+        {
+            System.err.println("Couldn't stop the bluc daemon: " + 
+                ex.getMessage());
+            return 1;
+        } finally
+        {
+            close(connection);
+        }
+    }
+    
+    public static boolean isDaemonRunning()
+    {
+        Socket connection = connect(readEndpoint());
+        
+        close(connection);
+        return connection != NO_CONNECTION;
+    }
+    
+    private static DaemonProtocol.Endpoint readEndpoint()
+    {
+        try
+        {
+            return DaemonProtocol.readEndpoint();
+        } catch (IOException ex)
+        {
+            // an unreadable daemon file is as good as none
+            return DaemonProtocol.NO_ENDPOINT;
+        }
+    }
+    
+    /**
+     * Returns NO_CONNECTION if there's no endpoint, or nothing is listening
+     *  on it (i.e. a daemon was killed before it could delete its file).
+     */
+    private static Socket connect(DaemonProtocol.Endpoint endpoint)
+    {
+        Socket connection;
+        
+        if (endpoint == DaemonProtocol.NO_ENDPOINT)
+        {
+            return NO_CONNECTION;
+        }
+        
+        connection = new Socket();
+        
+        try
+        {
+            connection.connect(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), endpoint.getPort()), 
+                CONNECT_TIMEOUT_MILLIS);
+            
+            return connection;
+        } catch (IOException ex)
+        {
+            close(connection);
+            return NO_CONNECTION;
+        }
+    }
+    
+    private static DataOutputStream openRequest(Socket connection, 
+        DaemonProtocol.Endpoint endpoint, byte requestKind) throws IOException
+    {
+        DataOutputStream request = new DataOutputStream(
+            new BufferedOutputStream(connection.getOutputStream()));
+        
+        request.writeUTF(endpoint.getToken());
+        request.writeByte(requestKind);
+        
+        return request;
+    }
+    
+    /**
+     * Copies output frames until the exit frame, and returns its exit code.
+     *  If the daemon disconnects before sending anything, an IOException is
+     *  thrown (the build can still be run locally); once output has been 
+     *  copied, a disconnect is reported as a failed build instead.
+     */
+    private static int readResponse(Socket connection) throws IOException
+    {
+        DataInputStream response        = new DataInputStream(
+                                            new BufferedInputStream(
+                                                connection.getInputStream()));
+        boolean         receivedOutput  = false;
+        
+        try
+        {
+            while (true)
+            {
+                byte frameKind = response.readByte();
+                
+                if (frameKind == DaemonProtocol.EXIT_FRAME)
+                {
+                    System.out.flush();
+                    System.err.flush();
+                    return response.readInt();
+                }
+                else if (frameKind == DaemonProtocol.STDOUT_FRAME)
+                {
+                    System.out.write(DaemonProtocol.readOutputFrame(response));
+                    System.out.flush();
+                }
+                else if (frameKind == DaemonProtocol.STDERR_FRAME)
+                {
+                    System.err.write(DaemonProtocol.readOutputFrame(response));
+                    System.err.flush();
+                }
+                else
+                {
+                    throw new IOException("Unknown frame kind " + frameKind);
+                }
+                
+                receivedOutput = true;
+            }
+        } catch (IOException ex)
+        {
+            if (!receivedOutput)
+            {
+                throw ex;
+            }
+            
+            System.err.println("\nLost the connection to the bluc daemon: " + 
+                ex.getMessage());
+            return 1;
+        }
+    }
+    
+    private static void close(Socket connection)
+    {
+        if (connection != NO_CONNECTION)
+        {
+            try
+            {
+                connection.close();
+            } catch (IOException ex)
+            {
+                // nothing left to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The wire format spoken between DaemonClient and CompilerDaemon over a 
+ *  localhost socket. Every message is written with DataOutputStream.
+ * 
+ * A request is the daemon's token, then a request kind. A COMPILE_REQUEST
+ *  is followed by the client's working directory and its arguments.
+ * 
+ * The response is a sequence of frames, each one a frame kind followed by
+ *  its data: STDOUT_FRAME and STDERR_FRAME carry a length and that many 
+ *  bytes of output, and the final EXIT_FRAME carries the exit code.
+ * 
+ * @author John Schneider
+ */
+final class DaemonProtocol
+{
+    static final byte   COMPILE_REQUEST = 1;
+    static final byte   STOP_REQUEST    = 2;
+    
+    static final byte   STDOUT_FRAME    = 1;
+    static final byte   STDERR_FRAME    = 2;
+    static final byte   EXIT_FRAME      = 3;
+    
+    /**
+     * Returned by readEndpoint when no daemon file exists.
+     */
+    static final Endpoint NO_ENDPOINT   = null;
+    
+    private DaemonProtocol()
+    {
+    }
+    
+    /**
+     * Where a running daemon advertises its endpoint: ~/.bluc/daemon. The 
+     *  file holds the port on its first line and the token on its second,
+     *  and is only readable by its owner, so that only the user who started
+     *  the daemon can send it builds.
+     */
+    static Path getDaemonFile()
+    {
+        return Paths.get(System.getProperty("user.home"), ".bluc", "daemon");
+    }
+    
+    static Endpoint readEndpoint() throws IOException
+    {
+        List<String> lines;
+        
+        try
+        {
+            lines = Files.readAllLines(getDaemonFile(), 
+                StandardCharsets.UTF_8);
+        } catch (NoSuchFileException ex)
+        {
+            return NO_ENDPOINT;
+        }
+        
+        if (lines.size() < 2 || !lines.get(0).matches("[0-9]+"))
+        {
+            throw new IOException("Malformed daemon file " + getDaemonFile());
+        }
+        
+        return new Endpoint(Integer.parseInt(lines.get(0)), lines.get(1));
+    }
+    
+    /**
+     * Where (and with what token) a running daemon accepts requests.
+     */
+    static final class Endpoint
+    {
+        private final int       port;
+        private final String    token;
+        
+        Endpoint(int port, String token)
+        {
+            this.port   = port;
+            this.token  = token;
+        }
+        
+        int getPort()
+        {
+            return port;
+        }
+        
+        String getToken()
+        {
+            return token;
+        }
+    }
+    
+    /**
+     * Sends everything written to it as frames of one kind. Several of these
+     *  can share a connection; each frame is written atomically.
+     */
+    static final class FrameOutputStream extends OutputStream
+    {
+        private final DataOutputStream  connection;
+        private final byte              frameKind;
+        
+        FrameOutputStream(DataOutputStream connection, byte frameKind)
+        {
+            this.connection = connection;
+            this.frameKind  = frameKind;
+        }
+        
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) 
+            throws IOException
+        {
+            if (length == 0)
+            {
+                return;
+            }
+            
+            synchronized (connection)
+            {
+                connection.writeByte(frameKind);
+                connection.writeInt(length);
+                connection.write(bytes, offset, length);
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException
+        {
+            synchronized (connection)
+            {
+                connection.flush();
+            }
+        }
+    }
+    
+    /**
+     * Reads the data of an output frame whose kind has already been read.
+     */
+    static byte[] readOutputFrame(DataInputStream connection) 
+        throws IOException
+    {
+        byte[] output = new byte[connection.readInt()];
+        
+        connection.readFully(output);
+        return output;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.diagnostics;
+
+/**
+ * A warning or error reported against a line of a source file.
+ * 
+ * @author John Schneider
+ */
+public final class Diagnostic
+{
+    public static enum Severity
+    {
+        WARNING("Warning"),
+        ERROR("Error");
+        
+        private final String label;
+        
+        private Severity(String label)
+        {
+            this.label = label;
+        }
+        
+        public String getLabel()
+        {
+            return label;
+        }
+    }
+    
+    private final Severity  severity;
+    private final String    filePath;
+    private final int       lineIndex;
+    private final String    tokenText;
+    private final String    message;
+    
+    public Diagnostic(Severity severity, String filePath, int lineIndex, 
+        String tokenText, String message)
+    {
+        this.severity   = severity;
+        this.filePath   = filePath;
+        this.lineIndex  = lineIndex;
+        this.tokenText  = tokenText;
+        this.message    = message;
+    }
+    
+    public Severity getSeverity()
+    {
+        return severity;
+    }
+    
+    /**
+     * The file this was reported against, which identifies it when 
+     *  diagnostics of several files are flushed together.
+     */
+    public String getFilePath()
+    {
+        return filePath;
+    }
+    
+    public int getLineIndex()
+    {
+        return lineIndex;
+    }
+    
+    public String getTokenText()
+    {
+        return tokenText;
+    }
+    
+    public String getMessage()
+    {
+        return message;
+    }
+    
+    /**
+     * Formats this the way the compiler always has, minus the file path 
+     *  (which is printed once above each file's diagnostics).
+     */
+    @Override
+    public String toString()
+    {
+        return "    (line " + (lineIndex + 1) + "): " + severity.getLabel() + 
+            ": On token \"" + tokenText + "\"\n\t" + message;
+    }
+}
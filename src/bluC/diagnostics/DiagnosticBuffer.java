@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.diagnostics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+
+/**
+ * Collects diagnostics in memory, so that they can be printed all at once to
+ *  a single stream.
+ * 
+ * Printing each diagnostic as it's reported, to System.out or System.err by
+ *  severity, meant waiting for the console to catch up every time the two 
+ *  alternated (or else the lines came out interleaved in any order).
+ * 
+ * Thread safe, since gcc failures are reported from -jN's worker threads.
+ * 
+ * @author John Schneider
+ */
+public class DiagnosticBuffer
+{
+    private final ArrayList<Diagnostic> diagnostics;
+    private int                         errorCount;
+    
+    public DiagnosticBuffer()
+    {
+        diagnostics = new ArrayList<>();
+        errorCount  = 0;
+    }
+    
+    public synchronized void add(Diagnostic diagnostic)
+    {
+        diagnostics.add(diagnostic);
+        
+        if (diagnostic.getSeverity() == Diagnostic.Severity.ERROR)
+        {
+            errorCount++;
+        }
+    }
+    
+    public synchronized int getErrorCount()
+    {
+        return errorCount;
+    }
+    
+    public synchronized boolean isEmpty()
+    {
+        return diagnostics.isEmpty();
+    }
+    
+    /**
+     * Returns the buffered diagnostics in the order they'll be printed: 
+     *  grouped by file (in the order each file was first reported against)
+     *  and then by line. Diagnostics on the same line keep the order they 
+     *  were reported in.
+     */
+    public synchronized ArrayList<Diagnostic> getDiagnostics()
+    {
+        final LinkedHashMap<String, Integer>    fileOrder   = 
+            new LinkedHashMap<>();
+        ArrayList<Diagnostic>                   ordered     = 
+            new ArrayList<>(diagnostics);
+        
+        for (Diagnostic diagnostic : diagnostics)
+        {
+            fileOrder.putIfAbsent(diagnostic.getFilePath(), fileOrder.size());
+        }
+        
+        // a stable sort, so same-line diagnostics stay in order
+        Collections.sort(ordered, new Comparator<Diagnostic>()
+        {
+            @Override
+            public int compare(Diagnostic a, Diagnostic b)
+            {
+                int byFile = Integer.compare(fileOrder.get(a.getFilePath()), 
+                    fileOrder.get(b.getFilePath()));
+                
+                if (byFile != 0)
+                {
+                    return byFile;
+                }
+                
+                return Integer.compare(a.getLineIndex(), b.getLineIndex());
+            }
+        });
+        
+        return ordered;
+    }
+    
+    /**
+     * Prints then forgets every buffered diagnostic, with a line naming the 
+     *  file above each file's diagnostics.
+     */
+    public synchronized void flush(PrintStream printTo)
+    {
+        String          prevFilePath    = null;
+        StringBuilder   output          = new StringBuilder();
+        
+        for (Diagnostic diagnostic : getDiagnostics())
+        {
+            if (!diagnostic.getFilePath().equals(prevFilePath))
+            {
+                prevFilePath = diagnostic.getFilePath();
+                output.append("[").append(prevFilePath).append("]:\n");
+            }
+            
+            output.append(diagnostic).append("\n");
+        }
+        
+        printTo.print(output);
+        printTo.flush();
+        
+        // the error count is kept, since the errors still happened
+        diagnostics.clear();
+    }
+    
+    /**
+     * Forgets every diagnostic (printed or not) and error.
+     */
+    public synchronized void reset()
+    {
+        diagnostics.clear();
+        errorCount = 0;
+    }
+}
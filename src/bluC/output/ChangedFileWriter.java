@@ -0,0 +1,386 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Writes a file only if its contents actually change.
+ * 
+ * Characters are encoded straight into a large direct ByteBuffer and 
+ *  written to a temporary file next to the destination through a 
+ *  FileChannel, hashing them on the way. On close, the hash is compared to 
+ *  the existing file's: if they're the same, the temporary file is dropped
+ *  and the existing file (and its modification time) is left alone. 
+ *  Otherwise the temporary file is given the destination's permissions and
+ *  renamed over it in one atomic step, so readers never see a half-written
+ *  file. The file isn't synced to disk, since every output can be rebuilt:
+ *  after a crash the destination may be stale, but never partial to other
+ *  processes.
+ * 
+ * If writing fails part way through, call discard instead of close so that
+ *  the destination isn't replaced by partial output.
+ * 
+ * @author John Schneider
+ */
+public class ChangedFileWriter extends Writer
+{
+    private static final int BYTE_BUFFER_SIZE = 256 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 16 * 1024;
+    
+    private final Path              destination;
+    private final Path              tempFile;
+    private final FileChannel       channel;
+    private final CharsetEncoder    encoder;
+    private final CharBuffer        chars;
+    private final ByteBuffer        bytes;
+    private final MessageDigest     digest;
+    
+    private long    size;
+    private boolean isClosed;
+    private boolean wasChanged;
+    
+    public ChangedFileWriter(Path destination) throws IOException
+    {
+        this(destination, Charset.defaultCharset());
+    }
+    
+    public ChangedFileWriter(Path destination, Charset charset) 
+        throws IOException
+    {
+        Path directory = destination.toAbsolutePath().getParent();
+        
+        this.destination    = destination;
+        // not Files.createTempFile, which would make the file private
+        tempFile            = directory.resolve("." + 
+                                destination.getFileName() + "-" + 
+                                UUID.randomUUID() + ".tmp");
+        channel             = FileChannel.open(tempFile, 
+                                StandardOpenOption.WRITE, 
+                                StandardOpenOption.CREATE_NEW);
+        encoder             = charset.newEncoder();
+        chars               = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        bytes               = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+        digest              = newDigest();
+        size                = 0;
+        isClosed            = false;
+        wasChanged          = false;
+    }
+    
+    public Path getDestination()
+    {
+        return destination;
+    }
+    
+    /**
+     * Whether close replaced the destination. Always false before close.
+     */
+    public boolean wasChanged()
+    {
+        return wasChanged;
+    }
+    
+    @Override
+    public void write(int c) throws IOException
+    {
+        ensureOpen();
+        
+        if (!chars.hasRemaining())
+        {
+            encodeChars(false);
+        }
+        
+        chars.put((char) c);
+    }
+    
+    @Override
+    public void write(char[] source, int offset, int length) 
+        throws IOException
+    {
+        ensureOpen();
+        
+        while (length > 0)
+        {
+            if (!chars.hasRemaining())
+            {
+                encodeChars(false);
+            }
+            
+            int count = Math.min(length, chars.remaining());
+            
+            chars.put(source, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+    
+    @Override
+    public void write(String source, int offset, int length) 
+        throws IOException
+    {
+        ensureOpen();
+        
+        while (length > 0)
+        {
+            if (!chars.hasRemaining())
+            {
+                encodeChars(false);
+            }
+            
+            int count = Math.min(length, chars.remaining());
+            
+            // copies directly into the buffer's backing array
+            source.getChars(offset, offset + count, chars.array(), 
+                chars.arrayOffset() + chars.position());
+            chars.position(chars.position() + count);
+            offset += count;
+            length -= count;
+        }
+    }
+    
+    @Override
+    public Writer append(CharSequence sequence) throws IOException
+    {
+        if (sequence instanceof String)
+        {
+            String string = (String) sequence;
+            write(string, 0, string.length());
+        }
+        else
+        {
+            super.append(sequence);
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Only encodes buffered characters -- nothing reaches the destination 
+     *  until close.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        ensureOpen();
+        encodeChars(false);
+    }
+    
+    /**
+     * Finishes the temporary file, then either replaces the destination with
+     *  it or (if their contents are the same) drops it.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (isClosed)
+        {
+            return;
+        }
+        
+        try
+        {
+            encodeChars(true);
+            
+            while (encoder.flush(bytes) == CoderResult.OVERFLOW)
+            {
+                drainBytes();
+            }
+            
+            drainBytes();
+            channel.close();
+            isClosed = true;
+            
+            if (hasSameContents(destination, size, digest.digest()))
+            {
+                Files.delete(tempFile);
+            }
+            else
+            {
+                replaceDestination();
+                wasChanged = true;
+            }
+        }
+        finally
+        {
+            discard();
+        }
+    }
+    
+    /**
+     * Drops everything written so far, leaving the destination untouched. 
+     *  Does nothing once the writer is closed.
+     */
+    public void discard() throws IOException
+    {
+        if (channel.isOpen())
+        {
+            channel.close();
+        }
+        
+        isClosed = true;
+        Files.deleteIfExists(tempFile);
+    }
+    
+    private void ensureOpen() throws IOException
+    {
+        if (isClosed)
+        {
+            throw new IOException("Writer for \"" + destination + 
+                "\" is closed");
+        }
+    }
+    
+    private void encodeChars(boolean endOfInput) throws IOException
+    {
+        chars.flip();
+        
+        while (true)
+        {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            
+            if (result.isOverflow())
+            {
+                drainBytes();
+            }
+            else if (result.isUnderflow())
+            {
+                break;
+            }
+            else
+            {
+                result.throwException();
+            }
+        }
+        
+        // a lone high surrogate stays behind until its pair is written
+        chars.compact();
+    }
+    
+    private void drainBytes() throws IOException
+    {
+        bytes.flip();
+        
+        size += bytes.remaining();
+        
+        digest.update(bytes.duplicate());
+        
+        while (bytes.hasRemaining())
+        {
+            channel.write(bytes);
+        }
+        
+        bytes.clear();
+    }
+    
+    private void replaceDestination() throws IOException
+    {
+        copyPermissions();
+        
+        try
+        {
+            Files.move(tempFile, destination, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException ex)
+        {
+            Files.move(tempFile, destination, 
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * The temporary file was created with the default permissions, so an 
+     *  existing destination's (i.e. an executable bit) would otherwise be 
+     *  lost when it's replaced.
+     */
+    private void copyPermissions() throws IOException
+    {
+        if (!Files.exists(destination))
+        {
+            return;
+        }
+        
+        try
+        {
+            Files.setPosixFilePermissions(tempFile, 
+                Files.getPosixFilePermissions(destination));
+        }
+        catch (UnsupportedOperationException ex)
+        {
+            // not a POSIX file system, so there are no permissions to copy
+        }
+    }
+    
+    private static boolean hasSameContents(Path file, long size, byte[] hash)
+        throws IOException
+    {
+        if (!Files.isRegularFile(file) || Files.size(file) != size)
+        {
+            return false;
+        }
+        
+        MessageDigest   fileDigest  = newDigest();
+        ByteBuffer      buffer      = ByteBuffer.allocateDirect(
+                                        BYTE_BUFFER_SIZE);
+        FileChannel     fileChannel = FileChannel.open(file, 
+                                        StandardOpenOption.READ);
+        
+        try
+        {
+            while (fileChannel.read(buffer) != -1)
+            {
+                buffer.flip();
+                fileDigest.update(buffer);
+                buffer.clear();
+            }
+        }
+        finally
+        {
+            fileChannel.close();
+        }
+        
+        return Arrays.equals(hash, fileDigest.digest());
+    }
+    
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -16,10 +16,11 @@
 
 package bluC.parser;
 
-import bluC.Flags;
 import java.util.ArrayList;
 import bluC.Logger;
 import bluC.Utils;
+import bluC.profile.FlightRecording;
+import bluC.profile.events.DeclarationParseEvent;
 import bluC.transpiler.AstPrinter;
 import bluC.transpiler.Scope;
 import bluC.transpiler.statements.Statement;
@@ -27,6 +28,7 @@ import bluC.transpiler.Token;
 import bluC.parser.handlers.statement.StatementHandler;
 import bluC.parser.handlers.statement.StatementHandler.JustParseExprResult;
 import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.parser.exceptions.ParseAborted;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -48,14 +50,6 @@ public class Parser
     private String  curTokText;
     private Scope   currentScope;
     
-    /**
-     * Whether or not this is the topmost parser (the root of all other 
-     *  parser classes). Currently only used if -time flag is set, to
-     *  measure only the parse time as a whole, and not that of each parser.
-     */
-    private static  boolean isFirstParserInitialized = false;
-    private final   boolean thisInstanceIsFirstParser;
-    
     private final StatementHandler handler;
     
     public Parser(ArrayList<Token> lexedTokens)
@@ -65,16 +59,6 @@ public class Parser
         curTokIndex         = -1;
         currentScope        = new Scope(Scope.NO_PARENT, Scope.NO_SCOPE_TYPE);
         handler             = new StatementHandler(this);
-        
-        if (isFirstParserInitialized == false)
-        {
-            thisInstanceIsFirstParser   = true;
-            isFirstParserInitialized    = true;
-        }
-        else
-        {
-            thisInstanceIsFirstParser = false;
-        }
     }
     
     public Parser(ArrayList<Token> lexedTokens, Scope parentScope)
@@ -85,34 +69,6 @@ public class Parser
     
     
     public ArrayList<Statement> parse()
-    {
-        if (doesParseTimeNeedTracked()) 
-        {
-            return parseWhileTrackingTime();
-        }
-        else
-        {
-            return parseWithoutTrackingTime();
-        }
-    }
-    
-    private boolean doesParseTimeNeedTracked()
-    {
-        return thisInstanceIsFirstParser && (Flags.get("time") != null);
-    }
-    
-    private ArrayList<Statement> parseWhileTrackingTime()
-    {
-        long                    parserStartTime = System.currentTimeMillis();
-        ArrayList<Statement>    statements;
-        
-        statements = parseWithoutTrackingTime();
-        outputParseTime(parserStartTime);
-        
-        return statements;
-    }
-    
-    private ArrayList<Statement> parseWithoutTrackingTime()
     {
         // as of right now each Parser object should only be used once, so if we
         //  try to parse an empty file it's most likely an error in the compiler
@@ -123,9 +79,32 @@ public class Parser
 
         while (!eof)
         {
+            DeclarationParseEvent   declarationParse    = 
+                                        FlightRecording.isEnabled() ?
+                                        new DeclarationParseEvent() : null;
+            int                     firstTokenIndex     = curTokIndex + 1;
+            
+            if (declarationParse != null)
+            {
+                declarationParse.begin();
+            }
+            
             try
             { 
-                abstractSyntaxTree.add(handler.handleStatement(true));
+                Statement declaration = handler.handleStatement(true);
+                
+                abstractSyntaxTree.add(declaration);
+                
+                if (declarationParse != null)
+                {
+                    commitDeclarationParse(declarationParse, declaration, 
+                        firstTokenIndex);
+                }
+            }
+            catch (ParseAborted ex)
+            {
+                // the error which caused it has already been logged
+                break;
             }
             catch (Exception ex)
             {
@@ -162,28 +141,51 @@ public class Parser
         return abstractSyntaxTree;
     }
     
+    /**
+     * Records the declaration just parsed, if a flight recording wants it
+     *  (see FlightRecording).
+     */
+    private void commitDeclarationParse(DeclarationParseEvent event, 
+        Statement declaration, int firstTokenIndex)
+    {
+        event.end();
+        
+        if (event.shouldCommit())
+        {
+            event.kind              = declaration.getClass().getSimpleName();
+            event.name              = Statement.getDeclaredName(
+                                        declaration);
+            event.firstTokenIndex   = firstTokenIndex;
+            event.lastTokenIndex    = curTokIndex;
+            event.firstLine         = lexedTokens.get(firstTokenIndex).
+                                        getLineIndex() + 1;
+            event.lastLine          = curToken.getLineIndex() + 1;
+            event.commit();
+        }
+    }
+    
     public String dumpAstToString()
     {
-        AstPrinter  printer     = new AstPrinter();
-        String      dumpedAst   = "Dumping parse tree below:\n\n" ;
+        AstPrinter      printer     = new AstPrinter();
+        StringBuilder   dumpedAst   = new StringBuilder(
+                                        "Dumping parse tree below:\n\n");
         
         if (abstractSyntaxTree.isEmpty())
         {
-            dumpedAst += "<no elements in parse tree>";
+            dumpedAst.append("<no elements in parse tree>");
         }
         else
         {
-            dumpedAst += printer.printToString(
-                abstractSyntaxTree.get(0)) + "\n";
-
-            for (int i = 1; i < abstractSyntaxTree.size(); i++)
+            // appended rather than concatenated, since the dump is built 
+            //  from the whole tree
+            for (Statement statement : abstractSyntaxTree)
             {
-                dumpedAst += printer.printToString(abstractSyntaxTree.get(i)) +
-                    "\n";
+                dumpedAst.append(printer.printToString(statement)).
+                    append("\n");
             }
         }
         
-        return dumpedAst;
+        return dumpedAst.toString();
     }
     
     public void dumpAstToStdout()
@@ -191,14 +193,6 @@ public class Parser
         System.out.println(dumpAstToString());
     }
     
-    private void outputParseTime(long parserStartTime)
-    {
-        long parserEndTime  = System.currentTimeMillis();
-        long elapsedTime    = parserEndTime - parserStartTime;
-        
-        System.out.println("Parsing done in " + elapsedTime + "ms.");
-    }
-    
     public boolean peekMatches(String... textToMatch)
     {
         Token t = peek();
@@ -497,6 +491,11 @@ public class Parser
     @Override
     public boolean equals(Object other)
     {
+        if (this == other)
+        {
+            return true;
+        }
+        
         if (other instanceof Parser)
         {
             Parser otherParser = (Parser) other;
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.parser.exceptions;
+
+/**
+ * Thrown when the parser can't recover from a syntax error, i.e. it ran out
+ *  of tokens while skipping to the end of the broken statement. The error
+ *  has already been logged by then; Parser.parse catches this and stops 
+ *  parsing, so the build fails like any other build with errors (rather 
+ *  than ending the JVM, which may be a daemon or watcher serving other 
+ *  builds).
+ * 
+ * Unchecked, since it has to unwind through every handler between the one
+ *  that gave up and Parser.parse.
+ * 
+ * @author John Schneider
+ */
+public class ParseAborted extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+    
+    public ParseAborted(String msg)
+    {
+        super(msg);
+    }
+}
@@ -16,6 +16,7 @@
 
 package bluC.parser.handlers.expression;
 
+import bluC.Debug;
 import bluC.Logger;
 import bluC.transpiler.Expression;
 import bluC.transpiler.Token;
@@ -23,6 +24,7 @@ import bluC.transpiler.TokenFileInfo;
 import bluC.transpiler.TokenInfo;
 import bluC.parser.Parser;
 import bluC.parser.exceptions.MalformedNumber;
+import bluC.parser.exceptions.ParseAborted;
 import bluC.parser.handlers.statement.StatementHandler;
 import bluC.parser.handlers.statement.VariableHandler;
 import bluC.transpiler.Expression.Binary;
@@ -66,10 +68,10 @@ public class ExpressionHandler
         }
 
         result = handlePostDeclAssignmentOrHigher();
-        if (result == null)
+        if (result == null && Debug.Category.PARSER.isEnabled())
         {
-            // TODO - temp test for debugging
-            System.err.println("RESULT IS NULL:");
+            Debug.printf(Debug.Category.PARSER, "expression is null at %s", 
+                parser.getCurToken().getTextContent());
             new NullPointerException().printStackTrace();
         }
         
@@ -477,13 +479,9 @@ public class ExpressionHandler
         
         if (parser.atEOF())
         {
-            //this should never happen so dump ast and stack trace
-            parser.dumpAstToStdout();
-            new Exception("Fatal parse error: prematurely reached end of " +
-                "file").printStackTrace();
-            
-            //exit because otherwise our parser goes into an infinite loop
-            System.exit(1);
+            // there's nothing left to synchronize on, and carrying on would 
+            //  loop forever
+            throw new ParseAborted("Prematurely reached end of file");
         }
         
         return new Expression.Literal(new Token(
@@ -124,12 +124,8 @@ public class ClassHandler
     
     private Token getAutoGeneratedName(Token classKeyword) 
     {
-        Token returnee = new Token(
-            new TokenInfo("unresolvedClassName" + 
-                Long.toUnsignedString(unresolvedClassNames), true),
-                
-            new TokenFileInfo(classKeyword.getFilepath(), 
-                classKeyword.getLineIndex()));
+        Token returnee = classKeyword.withTextContent("unresolvedClassName" + 
+            Long.toUnsignedString(unresolvedClassNames), true);
         unresolvedClassNames++;
         
         return returnee;
@@ -161,6 +157,16 @@ public class ClassHandler
             new TokenFileInfo(next.getFilepath(), next.getLineIndex()));
     }
     
+    /**
+     * Forgets every class parsed so far, so that another file can be compiled
+     *  by the same process.
+     */
+    public static void reset()
+    {
+        CLASS_DEFINITIONS.clear();
+        unresolvedClassNames = Long.MIN_VALUE + 1;
+    }
+    
     public static ArrayList<ClassDef> getCLASS_DEFINITIONS()
     {
         return CLASS_DEFINITIONS;
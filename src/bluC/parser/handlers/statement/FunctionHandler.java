@@ -55,6 +55,15 @@ public class FunctionHandler
         varHandler = statementHandler.getVarHandler();
     }
     
+    /**
+     * Restarts the unresolved function names, so that compiling a file again 
+     *  in the same process gives the same names.
+     */
+    public static void reset()
+    {
+        unresolvedFunctionNamesCount = Long.MIN_VALUE;
+    }
+    
     public Statement handleFunctionOrMethod(Sign returnSign, 
         SimplifiedType returnSimplifiedType)
     {
@@ -327,11 +336,8 @@ public class FunctionHandler
     
     private Token getAutoGeneratedName(Token funcName)
     {
-        Token returnee = new Token(
-            new TokenInfo("unresolvedFunctionName" +
-                Long.toUnsignedString(unresolvedFunctionNamesCount), true), 
-                
-            new TokenFileInfo(funcName.getFilepath(), funcName.getLineIndex()));
+        Token returnee = funcName.withTextContent("unresolvedFunctionName" +
+            Long.toUnsignedString(unresolvedFunctionNamesCount), true);
         
         unresolvedFunctionNamesCount++;
         
@@ -27,6 +27,7 @@ import bluC.transpiler.Token;
 import bluC.transpiler.TokenFileInfo;
 import bluC.transpiler.TokenInfo;
 import bluC.parser.Parser;
+import bluC.parser.exceptions.ParseAborted;
 import bluC.transpiler.statements.ExpressionStatement;
 import bluC.transpiler.statements.Package;
 import bluC.transpiler.statements.Return;
@@ -280,20 +281,9 @@ public class StatementHandler
         
         if (parser.atEOF())
         {
-            //this should never happen so dump ast and stack trace
-            parser.dumpAstToStdout();
-            try
-            { 
-                throw new Exception("Fatal parse error: prematurely reached " +
-                    "end of file");
-            }
-            catch (Exception ex)
-            {
-                ex.printStackTrace();
-            }
-            
-            //exit because otherwise our parser goes into an infinite loop
-            System.exit(1);
+            // there's nothing left to synchronize on, and carrying on would 
+            //  loop forever
+            throw new ParseAborted("Prematurely reached end of file");
         }
         
         //try to synchronize parser
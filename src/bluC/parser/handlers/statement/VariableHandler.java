@@ -24,8 +24,6 @@ import bluC.transpiler.Token;
 import bluC.parser.Parser;
 import bluC.parser.exceptions.InvalidSizeModifier;
 import bluC.transpiler.statements.vars.VarDeclaration;
-import bluC.transpiler.TokenFileInfo;
-import bluC.transpiler.TokenInfo;
 import bluC.parser.handlers.expression.ExpressionHandler;
 import bluC.transpiler.Expression;
 import bluC.transpiler.statements.ExpressionStatement;
@@ -74,6 +72,15 @@ public class VariableHandler
         this.parser = parser;
         this.statementHandler = statementHandler;
     }
+    
+    /**
+     * Restarts the unresolved variable names, so that compiling a file again 
+     *  in the same process gives the same names.
+     */
+    public static void reset()
+    {
+        unresolvedVariableNamesCount = Long.MIN_VALUE;
+    }
             
     
     public void initHandlers()
@@ -251,11 +258,8 @@ public class VariableHandler
     
     private Token getAutoGeneratedName(Token varName)
     {
-        Token returnee = new Token(
-            new TokenInfo("unresolvedVariableName" + 
-                Long.toUnsignedString(unresolvedVariableNamesCount), true),
-                
-            new TokenFileInfo(varName.getFilepath(), varName.getLineIndex()));
+        Token returnee = varName.withTextContent("unresolvedVariableName" + 
+            Long.toUnsignedString(unresolvedVariableNamesCount), true);
         
         unresolvedVariableNamesCount++;
         
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What happened when a ProcessRunner ran a process.
+ * 
+ * @author John Schneider
+ */
+public class ProcessResult
+{
+    public static final long CPU_TIME_UNAVAILABLE = -1;
+    
+    private final List<String>  command;
+    private final int           exitCode;
+    private final boolean       timedOut;
+    private final long          wallTimeNanos;
+    private final long          cpuTimeNanos;
+    private final String        stdout;
+    private final String        stderr;
+    
+    public ProcessResult(List<String> command, int exitCode, boolean timedOut,
+        long wallTimeNanos, long cpuTimeNanos, String stdout, String stderr)
+    {
+        this.command        = new ArrayList<>(command);
+        this.exitCode       = exitCode;
+        this.timedOut       = timedOut;
+        this.wallTimeNanos  = wallTimeNanos;
+        this.cpuTimeNanos   = cpuTimeNanos;
+        this.stdout         = stdout;
+        this.stderr         = stderr;
+    }
+    
+    public List<String> getCommand()
+    {
+        return command;
+    }
+    
+    public int getExitCode()
+    {
+        return exitCode;
+    }
+    
+    public boolean hasTimedOut()
+    {
+        return timedOut;
+    }
+    
+    public boolean succeeded()
+    {
+        return !timedOut && exitCode == 0;
+    }
+    
+    public long getWallTimeNanos()
+    {
+        return wallTimeNanos;
+    }
+    
+    /**
+     * Returns the CPU time the process and its children used, as last 
+     *  sampled before each of them exited, or CPU_TIME_UNAVAILABLE if the
+     *  platform doesn't report it. Sampling misses the work done since a
+     *  process' last sample (and short-lived children entirely), so this is
+     *  a lower bound.
+     */
+    public long getCpuTimeNanos()
+    {
+        return cpuTimeNanos;
+    }
+    
+    public String getStdout()
+    {
+        return stdout;
+    }
+    
+    public String getStderr()
+    {
+        return stderr;
+    }
+    
+    /**
+     * A one-line description of the run, i.e. 
+     *  "`gcc a.c -o a` exited with code 0 after 95 ms (cpu >= 80 ms)".
+     */
+    public String getSummary()
+    {
+        String summary = "`" + String.join(" ", command) + "` ";
+        
+        if (timedOut)
+        {
+            summary += "timed out";
+        }
+        else
+        {
+            summary += "exited with code " + exitCode;
+        }
+        
+        summary += " after " + 
+            TimeUnit.NANOSECONDS.toMillis(wallTimeNanos) + " ms";
+        
+        if (cpuTimeNanos != CPU_TIME_UNAVAILABLE)
+        {
+            summary += " (cpu >= " + 
+                TimeUnit.NANOSECONDS.toMillis(cpuTimeNanos) + " ms)";
+        }
+        
+        return summary;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getSummary();
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs an external process (i.e. gcc) to completion.
+ * 
+ * The process' stdin, stdout and stderr are each serviced by their own 
+ *  thread, so the process can never block on a full pipe while we're 
+ *  blocked on another one. The calling thread only waits for the process,
+ *  killing it if it runs longer than the timeout.
+ * 
+ * @author John Schneider
+ */
+public class ProcessRunner
+{
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    
+    /**
+     * How often the CPU time of the process (and its children) is sampled 
+     *  while waiting for it. The CPU time of a process is no longer 
+     *  available once it has exited, so the last sample of each process is
+     *  what's reported. Whatever a process did after its last sample (or 
+     *  all of it, for a child which lived less than one interval) is missed,
+     *  so the reported CPU time is a lower bound.
+     */
+    private static final long CPU_SAMPLE_INTERVAL_MILLIS = 10;
+    
+    /**
+     * How long to wait for the stream threads once the process has exited 
+     *  (or been killed) and the deadline has passed. A stray grandchild can
+     *  keep the pipes open indefinitely, in which case their output so far 
+     *  is used and the threads (which are daemons) are abandoned.
+     */
+    private static final long STREAM_GRACE_MILLIS = 1000;
+    
+    public static final InputWriter NO_INPUT            = null;
+    public static final File        INHERIT_DIRECTORY   = null;
+    
+    /**
+     * Writes the input of a process. Runs on its own thread; the writer is
+     *  closed (sending EOF to the process) once write returns.
+     */
+    public static interface InputWriter
+    {
+        void write(Writer processInput) throws IOException;
+    }
+    
+    private final List<String>  command;
+    private long                timeoutMillis;
+    private File                workingDirectory;
+    private InputWriter         inputWriter;
+    
+    public ProcessRunner(String... command)
+    {
+        this.command        = new ArrayList<>(Arrays.asList(command));
+        timeoutMillis       = DEFAULT_TIMEOUT_MILLIS;
+        workingDirectory    = INHERIT_DIRECTORY;
+        inputWriter         = NO_INPUT;
+    }
+    
+    public List<String> getCommand()
+    {
+        return command;
+    }
+    
+    public long getTimeoutMillis()
+    {
+        return timeoutMillis;
+    }
+    
+    public ProcessRunner setTimeoutMillis(long timeoutMillis)
+    {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+    
+    public File getWorkingDirectory()
+    {
+        return workingDirectory;
+    }
+    
+    public ProcessRunner setWorkingDirectory(File workingDirectory)
+    {
+        this.workingDirectory = workingDirectory;
+        return this;
+    }
+    
+    public InputWriter getInputWriter()
+    {
+        return inputWriter;
+    }
+    
+    public ProcessRunner setInputWriter(InputWriter inputWriter)
+    {
+        this.inputWriter = inputWriter;
+        return this;
+    }
+    
+    /**
+     * Runs the process and waits for it to exit or time out. Throws an
+     *  IOException if the process can't be started, or if writing its input
+     *  failed even though the process didn't.
+     */
+    public ProcessResult run() throws IOException
+    {
+        long            startTime   = System.nanoTime();
+        Process         process     = new ProcessBuilder(command).
+                                        directory(workingDirectory).
+                                        start();
+        String          name        = new File(command.get(0)).getName();
+        StreamDrainer   stdout      = new StreamDrainer(
+                                        process.getInputStream(), 
+                                        name + "-stdout");
+        StreamDrainer   stderr      = new StreamDrainer(
+                                        process.getErrorStream(), 
+                                        name + "-stderr");
+        InputFeeder     stdin       = new InputFeeder(process, inputWriter, 
+                                        name + "-stdin");
+        boolean         timedOut    = false;
+        
+        HashMap<Long, Long> cpuTimeByPid = new HashMap<>();
+        
+        stdout.start();
+        stderr.start();
+        stdin.start();
+        
+        try
+        {
+            long deadline = startTime + 
+                TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            
+            while (true)
+            {
+                sampleCpuTime(process, cpuTimeByPid);
+                
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(
+                    deadline - System.nanoTime());
+                
+                if (process.waitFor(
+                    Math.max(0, Math.min(remainingMillis, 
+                        CPU_SAMPLE_INTERVAL_MILLIS)), 
+                    TimeUnit.MILLISECONDS))
+                {
+                    break;
+                }
+                else if (remainingMillis <= 0)
+                {
+                    timedOut = true;
+                    destroyTree(process);
+                    process.waitFor();
+                    break;
+                }
+            }
+            
+            long wallTime       = System.nanoTime() - startTime;
+            long joinDeadline   = Math.max(deadline, System.nanoTime() + 
+                                    TimeUnit.MILLISECONDS.toNanos(
+                                    STREAM_GRACE_MILLIS));
+            
+            join(stdin, joinDeadline);
+            join(stdout, joinDeadline);
+            join(stderr, joinDeadline);
+            
+            stdin.rethrowFailure(timedOut || process.exitValue() != 0);
+            
+            return new ProcessResult(command, process.exitValue(), timedOut,
+                wallTime, getTotalCpuTime(cpuTimeByPid), 
+                stdout.getOutput(), stderr.getOutput());
+        }
+        catch (InterruptedException ex)
+        {
+            destroyTree(process);
+            Thread.currentThread().interrupt();
+            
+            throw new InterruptedIOException("Interrupted while running `" + 
+                String.join(" ", command) + "`");
+        }
+    }
+    
+    /**
+     * Kills the process and every process it spawned. The descendants are
+     *  found first, since they're reparented (and so no longer descendants)
+     *  once the process dies. Otherwise gcc's children (cc1, as, collect2) 
+     *  would survive it, holding its stdout and stderr open.
+     */
+    private static void destroyTree(Process process)
+    {
+        Iterator<ProcessHandle>     descendants = process.descendants().
+                                                    iterator();
+        ArrayList<ProcessHandle>    found       = new ArrayList<>();
+        
+        while (descendants.hasNext())
+        {
+            found.add(descendants.next());
+        }
+        
+        process.destroyForcibly();
+        
+        for (ProcessHandle descendant : found)
+        {
+            descendant.destroyForcibly();
+        }
+    }
+    
+    /**
+     * Waits for <b>thread</b> until <b>deadline</b> (in System.nanoTime 
+     *  terms) at most.
+     */
+    private static void join(Thread thread, long deadline) 
+        throws InterruptedException
+    {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(
+            deadline - System.nanoTime());
+        
+        // join(0) would wait forever
+        thread.join(Math.max(1, remainingMillis));
+    }
+    
+    /**
+     * Records the CPU time of the process and of every process it spawned
+     *  (gcc itself does little work; its cc1/as/ld children do the rest).
+     */
+    private static void sampleCpuTime(Process process, 
+        HashMap<Long, Long> cpuTimeByPid)
+    {
+        Iterator<ProcessHandle> descendants = 
+            process.descendants().iterator();
+        
+        sampleCpuTime(process.toHandle(), cpuTimeByPid);
+        
+        while (descendants.hasNext())
+        {
+            sampleCpuTime(descendants.next(), cpuTimeByPid);
+        }
+    }
+    
+    private static void sampleCpuTime(ProcessHandle handle, 
+        HashMap<Long, Long> cpuTimeByPid)
+    {
+        Optional<Duration> cpuTime = handle.info().totalCpuDuration();
+        
+        if (cpuTime.isPresent())
+        {
+            cpuTimeByPid.put(handle.pid(), cpuTime.get().toNanos());
+        }
+    }
+    
+    private static long getTotalCpuTime(HashMap<Long, Long> cpuTimeByPid)
+    {
+        if (cpuTimeByPid.isEmpty())
+        {
+            return ProcessResult.CPU_TIME_UNAVAILABLE;
+        }
+        
+        long total = 0;
+        
+        for (long cpuTime : cpuTimeByPid.values())
+        {
+            total += cpuTime;
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Reads a stream of the process into memory until the process closes it.
+     */
+    private static class StreamDrainer extends Thread
+    {
+        private final InputStream           stream;
+        private final ByteArrayOutputStream contents;
+        
+        public StreamDrainer(InputStream stream, String threadName)
+        {
+            super(threadName);
+            setDaemon(true);
+            
+            this.stream = stream;
+            contents    = new ByteArrayOutputStream();
+        }
+        
+        @Override
+        public void run()
+        {
+            byte[] buffer = new byte[8192];
+            
+            try
+            {
+                int bytesRead = stream.read(buffer);
+                
+                while (bytesRead != -1)
+                {
+                    contents.write(buffer, 0, bytesRead);
+                    bytesRead = stream.read(buffer);
+                }
+                
+                stream.close();
+            } catch (IOException ex)
+            {
+                // the process was killed while we were reading from it; 
+                //  keep whatever it wrote so far
+            }
+        }
+        
+        public String getOutput()
+        {
+            return contents.toString();
+        }
+    }
+    
+    /**
+     * Runs the InputWriter (if any) against the process' stdin, then closes 
+     *  stdin.
+     */
+    private static class InputFeeder extends Thread
+    {
+        private final Process       process;
+        private final InputWriter   inputWriter;
+        private IOException         ioFailure;
+        private RuntimeException    runtimeFailure;
+        
+        public InputFeeder(Process process, InputWriter inputWriter, 
+            String threadName)
+        {
+            super(threadName);
+            setDaemon(true);
+            
+            this.process        = process;
+            this.inputWriter    = inputWriter;
+        }
+        
+        @Override
+        public void run()
+        {
+            Writer processInput = new OutputStreamWriter(
+                process.getOutputStream());
+            
+            try
+            {
+                try
+                {
+                    if (inputWriter != NO_INPUT)
+                    {
+                        inputWriter.write(processInput);
+                    }
+                }
+                finally
+                {
+                    processInput.close();
+                }
+            } catch (IOException ex)
+            {
+                ioFailure = ex;
+            } catch (RuntimeException ex)
+            {
+                runtimeFailure = ex;
+            }
+        }
+        
+        /**
+         * An IOException is expected if the process exited (or was killed)
+         *  before reading all of its input, so it's only rethrown if the
+         *  process didn't fail.
+         */
+        public void rethrowFailure(boolean processFailed) throws IOException
+        {
+            if (runtimeFailure != null)
+            {
+                throw runtimeFailure;
+            }
+            
+            if (ioFailure != null && !processFailed)
+            {
+                throw ioFailure;
+            }
+        }
+    }
+}
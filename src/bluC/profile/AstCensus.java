@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile;
+
+import bluC.staticAnalysis.AstWalker;
+import bluC.transpiler.Expression;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Block;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.blocks.If.Else;
+import bluC.transpiler.statements.blocks.If.ElseIf;
+import bluC.transpiler.statements.blocks.Method;
+import java.util.ArrayList;
+import java.util.TreeMap;
+
+/**
+ * Counts the nodes of an AST by type, and the scopes they open (the same 
+ *  scopes SymbolResolver mirrors, plus the root scope).
+ * 
+ * @author John Schneider
+ */
+class AstCensus extends AstWalker
+{
+    private final TreeMap<String, Integer>  nodeCounts;
+    private int                             nodeCount;
+    private int                             statementCount;
+    private int                             scopeCount;
+    
+    AstCensus()
+    {
+        nodeCounts      = new TreeMap<>();
+        nodeCount       = 0;
+        statementCount  = 0;
+        scopeCount      = 1;
+    }
+    
+    void count(ArrayList<Statement> abstractSyntaxTree)
+    {
+        for (Statement statement : abstractSyntaxTree)
+        {
+            walk(statement);
+        }
+    }
+    
+    /**
+     * Returns how many nodes there are of each type, by simple class name.
+     */
+    TreeMap<String, Integer> getNodeCounts()
+    {
+        return nodeCounts;
+    }
+    
+    int getNodeCount()
+    {
+        return nodeCount;
+    }
+    
+    int getStatementCount()
+    {
+        return statementCount;
+    }
+    
+    /**
+     * Returns how many functions and methods there are.
+     */
+    int getFunctionCount()
+    {
+        return nodeCounts.getOrDefault(Function.class.getSimpleName(), 0) + 
+            nodeCounts.getOrDefault(Method.class.getSimpleName(), 0);
+    }
+    
+    int getScopeCount()
+    {
+        return scopeCount;
+    }
+    
+    @Override
+    protected void walk(Statement statement)
+    {
+        if (statement != null)
+        {
+            countNode(statement);
+            statement.accept(this);
+        }
+    }
+    
+    @Override
+    protected void walk(Expression expression)
+    {
+        if (expression != null)
+        {
+            countNode(expression);
+            expression.accept(this);
+        }
+    }
+    
+    private void countNode(Object node)
+    {
+        String type = node.getClass().getSimpleName();
+        
+        nodeCounts.put(type, nodeCounts.getOrDefault(type, 0) + 1);
+        nodeCount++;
+        
+        if (node instanceof Statement)
+        {
+            statementCount++;
+        }
+    }
+    
+    /**
+     * Counts the statements of <b>block</b>, and the scope it opens. Else-ifs
+     *  and elses are only ever walked as scopes, so they're counted here.
+     */
+    @Override
+    protected void walkScope(Block block)
+    {
+        if (block instanceof ElseIf || block instanceof Else)
+        {
+            countNode(block);
+        }
+        
+        scopeCount++;
+        walkBody(block);
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile;
+
+import bluC.output.ChangedFileWriter;
+import bluC.process.ProcessResult;
+import bluC.transpiler.statements.Statement;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The -metrics mode: a machine readable summary of one compiler invocation,
+ *  written to a file so that CI can collect the metrics of every file it 
+ *  builds.
+ * 
+ * The file is JSON if its name ends in ".json", and OpenMetrics text 
+ *  otherwise (ready for a node exporter's textfile collector, say). Either 
+ *  way it's written to a temporary file and renamed into place in one step,
+ *  so a scraper never reads half of it.
+ * 
+ * The times and allocations of each phase come from the Profiler, which 
+ *  must be enabled too.
+ * 
+ * @author John Schneider
+ */
+public class BuildMetrics
+{
+    private static volatile boolean     isEnabled   = false;
+    private static long                 tokenCount;
+    private static AstCensus            census;
+    private static int                  cacheHits;
+    private static int                  cacheMisses;
+    private static int                  gccRuns;
+    private static long                 gccWallNanos;
+    private static long                 gccCpuNanos;
+    private static boolean              isGccCpuTimeAvailable;
+    
+    static
+    {
+        reset();
+    }
+    
+    /**
+     * Starts collecting, and starts tracking the peak heap use from here.
+     */
+    public static synchronized void enable()
+    {
+        reset();
+        isEnabled = true;
+        
+        for (MemoryPoolMXBean pool : getHeapPools())
+        {
+            pool.resetPeakUsage();
+        }
+    }
+    
+    public static synchronized void reset()
+    {
+        isEnabled               = false;
+        tokenCount              = 0;
+        census                  = new AstCensus();
+        cacheHits               = 0;
+        cacheMisses             = 0;
+        gccRuns                 = 0;
+        gccWallNanos            = 0;
+        gccCpuNanos             = 0;
+        isGccCpuTimeAvailable   = true;
+    }
+    
+    public static boolean isEnabled()
+    {
+        return isEnabled;
+    }
+    
+    public static synchronized void countTokens(int count)
+    {
+        if (isEnabled)
+        {
+            tokenCount += count;
+        }
+    }
+    
+    public static synchronized void countAst(
+        ArrayList<Statement> abstractSyntaxTree)
+    {
+        if (isEnabled)
+        {
+            census.count(abstractSyntaxTree);
+        }
+    }
+    
+    public static synchronized void recordCacheLookup(boolean wasHit)
+    {
+        if (isEnabled)
+        {
+            if (wasHit)
+            {
+                cacheHits++;
+            }
+            else
+            {
+                cacheMisses++;
+            }
+        }
+    }
+    
+    public static synchronized void recordGcc(ProcessResult result)
+    {
+        if (isEnabled)
+        {
+            gccRuns++;
+            gccWallNanos += result.getWallTimeNanos();
+            
+            if (result.getCpuTimeNanos() == 
+                ProcessResult.CPU_TIME_UNAVAILABLE)
+            {
+                isGccCpuTimeAvailable = false;
+            }
+            else
+            {
+                gccCpuNanos += result.getCpuTimeNanos();
+            }
+        }
+    }
+    
+    private static ArrayList<MemoryPoolMXBean> getHeapPools()
+    {
+        ArrayList<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+            {
+                heapPools.add(pool);
+            }
+        }
+        
+        return heapPools;
+    }
+    
+    /**
+     * The sum of each heap pool's peak since enable. The pools peak at 
+     *  different times, so this is an upper bound on the actual peak.
+     */
+    private static long getPeakHeapBytes()
+    {
+        long peak = 0;
+        
+        for (MemoryPoolMXBean pool : getHeapPools())
+        {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        
+        return peak;
+    }
+    
+    /**
+     * Writes the metrics of the build of <b>sourcePath</b> to 
+     *  <b>destination</b>, replacing it atomically. Must be called on the 
+     *  thread which enabled the Profiler.
+     */
+    public static void write(Path destination, String sourcePath, 
+        int exitCode) throws IOException
+    {
+        String              metrics = destination.getFileName().toString().
+                                        endsWith(".json") ? 
+                                        formatJson(sourcePath, exitCode) : 
+                                        formatOpenMetrics(sourcePath, 
+                                            exitCode);
+        ChangedFileWriter   writer  = new ChangedFileWriter(destination, 
+                                        StandardCharsets.UTF_8);
+        
+        try
+        {
+            writer.write(metrics);
+        }
+        catch (IOException ex)
+        {
+            writer.discard();
+            throw ex;
+        }
+        
+        writer.close();
+    }
+    
+    /**
+     * Formats the metrics as a single JSON object, with the Profiler's 
+     *  formatJson as its "profile". Times are in nanoseconds; anything 
+     *  unavailable is null.
+     */
+    public static synchronized String formatJson(String sourcePath, 
+        int exitCode)
+    {
+        StringBuilder json = new StringBuilder();
+        
+        json.append("{\"source\":\"").append(escapeJson(sourcePath)).
+            append("\",\"exitCode\":").append(exitCode).
+            append(",\"profile\":").append(Profiler.formatJson()).
+            append(",\"tokens\":").append(tokenCount).
+            append(",\"statements\":").append(census.getStatementCount()).
+            append(",\"functions\":").append(census.getFunctionCount()).
+            append(",\"cacheHits\":").append(cacheHits).
+            append(",\"cacheMisses\":").append(cacheMisses).
+            append(",\"gccRuns\":").append(gccRuns).
+            append(",\"gccWallNanos\":").append(gccWallNanos).
+            append(",\"gccCpuNanos\":").
+            append(isGccCpuTimeAvailable ? Long.toString(gccCpuNanos) : 
+                "null").
+            append(",\"peakHeapBytes\":").append(getPeakHeapBytes()).
+            append("}\n");
+        
+        return json.toString();
+    }
+    
+    private static String escapeJson(String string)
+    {
+        StringBuilder escaped = new StringBuilder();
+        
+        for (int i = 0; i < string.length(); i++)
+        {
+            char c = string.charAt(i);
+            
+            if (c == '"' || c == '\\')
+            {
+                escaped.append('\\').append(c);
+            }
+            else if (c < ' ')
+            {
+                escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            }
+            else
+            {
+                escaped.append(c);
+            }
+        }
+        
+        return escaped.toString();
+    }
+    
+    /**
+     * Formats the metrics in the OpenMetrics text format. Every metric is a
+     *  gauge describing this one invocation; the source file is only named
+     *  by bluc_build_info, which can be joined on by whatever collects 
+     *  these.
+     */
+    public static synchronized String formatOpenMetrics(String sourcePath, 
+        int exitCode)
+    {
+        StringBuilder text = new StringBuilder();
+        
+        appendFamily(text, "bluc_build_info", "The file that was built.");
+        text.append("bluc_build_info{source=\"").
+            append(escapeLabelValue(sourcePath)).append("\"} 1\n");
+        
+        appendGauge(text, "bluc_exit_code", "The compiler's exit code.", 
+            exitCode);
+        appendGauge(text, "bluc_build_seconds", 
+            "Time from the start of the build to its end.", 
+            Profiler.getTotalNanos() / 1e9);
+        
+        if (Profiler.getTotalAllocatedBytes() != 
+            Profiler.ALLOCATIONS_UNAVAILABLE)
+        {
+            appendGauge(text, "bluc_build_allocated_bytes", 
+                "Bytes the build's thread allocated.", 
+                Profiler.getTotalAllocatedBytes());
+        }
+        
+        appendPhases(text);
+        
+        appendGauge(text, "bluc_tokens", "Tokens lexed.", tokenCount);
+        appendGauge(text, "bluc_statements", "Statements parsed.", 
+            census.getStatementCount());
+        appendGauge(text, "bluc_functions", 
+            "Functions and methods parsed.", census.getFunctionCount());
+        appendGauge(text, "bluc_cache_hits", 
+            "Builds restored from the build cache.", cacheHits);
+        appendGauge(text, "bluc_cache_misses", 
+            "Builds not found in the build cache.", cacheMisses);
+        appendGauge(text, "bluc_gcc_runs", "Times gcc was run.", gccRuns);
+        appendGauge(text, "bluc_gcc_wall_seconds", 
+            "Wall time of every gcc run.", gccWallNanos / 1e9);
+        
+        if (isGccCpuTimeAvailable)
+        {
+            appendGauge(text, "bluc_gcc_cpu_seconds", 
+                "Sampled CPU time of every gcc run and its child " +
+                "processes (a lower bound).", 
+                gccCpuNanos / 1e9);
+        }
+        
+        appendGauge(text, "bluc_peak_heap_bytes", 
+            "The sum of each heap pool's peak use.", getPeakHeapBytes());
+        text.append("# EOF\n");
+        
+        return text.toString();
+    }
+    
+    private static void appendPhases(StringBuilder text)
+    {
+        String[] names = 
+        {
+            "bluc_phase_calls", 
+            "bluc_phase_seconds", 
+            "bluc_phase_allocated_bytes"
+        };
+        String[] descriptions = 
+        {
+            "Times each phase ran.", 
+            "Time spent in each phase.", 
+            "Bytes allocated by each phase."
+        };
+        
+        for (int metric = 0; metric < names.length; metric++)
+        {
+            appendFamily(text, names[metric], descriptions[metric]);
+            
+            for (Map.Entry<Profiler.Phase, Profiler.Totals> entry : 
+                Profiler.getTotals().entrySet())
+            {
+                Profiler.Totals totals  = entry.getValue();
+                String          value;
+                
+                if (metric == 0)
+                {
+                    value = Long.toString(totals.getCalls());
+                }
+                else if (metric == 1)
+                {
+                    value = formatDouble(totals.getNanos() / 1e9);
+                }
+                else if (totals.getAllocatedBytes() != 
+                    Profiler.ALLOCATIONS_UNAVAILABLE)
+                {
+                    value = Long.toString(totals.getAllocatedBytes());
+                }
+                else
+                {
+                    continue;
+                }
+                
+                text.append(names[metric]).append("{phase=\"").
+                    append(entry.getKey().getName()).append("\"} ").
+                    append(value).append('\n');
+            }
+        }
+    }
+    
+    private static void appendFamily(StringBuilder text, String name, 
+        String description)
+    {
+        text.append("# TYPE ").append(name).append(" gauge\n");
+        text.append("# HELP ").append(name).append(' ').append(description).
+            append('\n');
+    }
+    
+    private static void appendGauge(StringBuilder text, String name, 
+        String description, long value)
+    {
+        appendFamily(text, name, description);
+        text.append(name).append(' ').append(value).append('\n');
+    }
+    
+    private static void appendGauge(StringBuilder text, String name, 
+        String description, double value)
+    {
+        appendFamily(text, name, description);
+        text.append(name).append(' ').append(formatDouble(value)).append('\n');
+    }
+    
+    private static String formatDouble(double value)
+    {
+        return String.format(Locale.ROOT, "%.9f", value);
+    }
+    
+    private static String escapeLabelValue(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").
+            replace("\n", "\\n");
+    }
+}
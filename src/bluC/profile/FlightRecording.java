@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile;
+
+import bluC.profile.events.DeclarationParseEvent;
+import bluC.profile.events.FileReadEvent;
+import bluC.profile.events.FunctionEmitEvent;
+import bluC.profile.events.GccEvent;
+import bluC.profile.events.LexEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+/**
+ * The -jfr mode: a Java Flight Recording of a single build, written to a 
+ *  file when it's closed.
+ * 
+ * The compiler's own events (see bluC.profile.events) are recorded along 
+ *  with the JDK's usual "profile" events. They're only created while a 
+ *  recording is running (see isEnabled): creating the first one starts JFR,
+ *  which loads about a hundred classes and adds a few hundred milliseconds
+ *  to every build. Checking isEnabled doesn't load any of jdk.jfr.
+ * 
+ * @author John Schneider
+ */
+public class FlightRecording implements Closeable
+{
+    public static final String DEFAULT_FILE_NAME = "bluc.jfr";
+    
+    private static volatile boolean isEnabled = false;
+    
+    private final Recording recording;
+    private final Path      destination;
+    
+    private FlightRecording(Recording recording, Path destination)
+    {
+        this.recording      = recording;
+        this.destination    = destination;
+    }
+    
+    /**
+     * Returns whether a recording is running, i.e. whether the compiler's 
+     *  events should be created at all.
+     */
+    public static boolean isEnabled()
+    {
+        return isEnabled;
+    }
+    
+    /**
+     * Starts recording. Throws an IOException if the JDK's "profile" 
+     *  configuration can't be read.
+     */
+    public static FlightRecording start(Path destination) throws IOException
+    {
+        List<Class<? extends Event>>    compilerEvents  = Arrays.asList(
+            FileReadEvent.class,
+            LexEvent.class,
+            DeclarationParseEvent.class,
+            FunctionEmitEvent.class,
+            GccEvent.class);
+        Recording                       recording;
+        
+        try
+        {
+            recording = new Recording(Configuration.getConfiguration(
+                "profile"));
+        }
+        catch (ParseException ex)
+        {
+            throw new IOException("Cannot read the JFR profile " + 
+                "configuration: " + ex.getMessage(), ex);
+        }
+        
+        for (Class<? extends Event> event : compilerEvents)
+        {
+            recording.enable(event).withoutThreshold();
+        }
+        
+        recording.setName("bluc");
+        recording.start();
+        isEnabled = true;
+        
+        return new FlightRecording(recording, destination);
+    }
+    
+    public Path getDestination()
+    {
+        return destination;
+    }
+    
+    /**
+     * Stops recording and writes the recording to its destination.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        isEnabled = false;
+        
+        try
+        {
+            recording.stop();
+            recording.dump(destination);
+        }
+        finally
+        {
+            recording.close();
+        }
+    }
+}
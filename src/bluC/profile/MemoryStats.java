@@ -0,0 +1,272 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile;
+
+import bluC.staticAnalysis.SymbolResolver;
+import bluC.transpiler.Token;
+import bluC.transpiler.TokenFileInfo;
+import bluC.transpiler.TokenInfo;
+import bluC.transpiler.statements.Statement;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The -memstats mode: what the compiler keeps in memory for a file (tokens,
+ *  AST nodes, scopes and symbols), and how much heap is still in use after
+ *  each phase.
+ * 
+ * The heap is measured after a forced garbage collection, so it only counts
+ *  what's actually retained -- at the cost of slowing the build down, which
+ *  is why this is only done in this mode.
+ * 
+ * Byte sizes of tokens are estimates, assuming a 64-bit JVM with compressed
+ *  pointers (12 byte object headers, 4 byte references, 8 byte alignment) 
+ *  and compact (one byte per character) strings.
+ * 
+ * @author John Schneider
+ */
+public class MemoryStats
+{
+    private static final MemoryMXBean MEMORY = 
+        ManagementFactory.getMemoryMXBean();
+    
+    private static final int OBJECT_HEADER_BYTES    = 12;
+    private static final int REFERENCE_BYTES        = 4;
+    private static final int ARRAY_HEADER_BYTES     = 16;
+    private static final int OBJECT_ALIGNMENT       = 8;
+    
+    private static final EnumMap<Profiler.Phase, Long> RETAINED_BYTES = 
+        new EnumMap<>(Profiler.Phase.class);
+    
+    private static volatile boolean     isEnabled           = false;
+    private static long                 tokenCount;
+    private static long                 tokenBytes;
+    private static long                 tokenTextBytes;
+    private static long                 distinctTokenTextBytes;
+    private static long                 distinctTokenTextCount;
+    private static AstCensus            census;
+    private static int                  symbolCount;
+    
+    static
+    {
+        reset();
+    }
+    
+    public static synchronized void enable()
+    {
+        reset();
+        isEnabled = true;
+    }
+    
+    public static synchronized void reset()
+    {
+        RETAINED_BYTES.clear();
+        
+        isEnabled               = false;
+        tokenCount              = 0;
+        tokenBytes              = 0;
+        tokenTextBytes          = 0;
+        distinctTokenTextBytes  = 0;
+        distinctTokenTextCount  = 0;
+        census                  = new AstCensus();
+        symbolCount             = 0;
+    }
+    
+    public static boolean isEnabled()
+    {
+        return isEnabled;
+    }
+    
+    /**
+     * Counts the tokens of a lexed file, and the strings holding their text.
+     *  Each token's text is its own String, so the "interned" figure is what
+     *  the text would take if equal strings were shared.
+     */
+    public static synchronized void countTokens(List<Token> tokens)
+    {
+        HashSet<String> distinctTexts   = new HashSet<>();
+        long            perTokenBytes;
+        
+        if (!isEnabled)
+        {
+            return;
+        }
+        
+        perTokenBytes = estimateShallowBytes(Token.class) + 
+            estimateShallowBytes(TokenInfo.class) + 
+            estimateShallowBytes(TokenFileInfo.class);
+        
+        for (Token token : tokens)
+        {
+            String  text        = token.getTextContent();
+            long    textBytes   = estimateStringBytes(text);
+            
+            tokenCount++;
+            tokenBytes      += perTokenBytes + textBytes;
+            tokenTextBytes  += textBytes;
+            
+            if (distinctTexts.add(text))
+            {
+                distinctTokenTextBytes += textBytes;
+                distinctTokenTextCount++;
+            }
+        }
+    }
+    
+    /**
+     * Counts the nodes and scopes of a resolved AST, and its symbols.
+     */
+    public static synchronized void countAst(
+        ArrayList<Statement> abstractSyntaxTree, SymbolResolver resolver)
+    {
+        if (isEnabled)
+        {
+            census.count(abstractSyntaxTree);
+            symbolCount += resolver.getSymbols().size();
+        }
+    }
+    
+    /**
+     * Collects garbage and records how much heap is still in use, as of the
+     *  end of the given phase.
+     */
+    public static void measureRetainedHeap(Profiler.Phase phase)
+    {
+        if (!isEnabled)
+        {
+            return;
+        }
+        
+        // a second collection picks up what finalization released
+        System.gc();
+        System.gc();
+        
+        synchronized (MemoryStats.class)
+        {
+            RETAINED_BYTES.put(phase, MEMORY.getHeapMemoryUsage().getUsed());
+        }
+    }
+    
+    /**
+     * An estimate of the bytes an instance of the class takes by itself, not
+     *  counting the objects it references.
+     */
+    static long estimateShallowBytes(Class<?> class_)
+    {
+        long bytes = OBJECT_HEADER_BYTES;
+        
+        for (Class<?> c = class_; c != null; c = c.getSuperclass())
+        {
+            for (Field field : c.getDeclaredFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()))
+                {
+                    bytes += getFieldBytes(field.getType());
+                }
+            }
+        }
+        
+        return align(bytes);
+    }
+    
+    private static int getFieldBytes(Class<?> type)
+    {
+        if (type == long.class || type == double.class)
+        {
+            return 8;
+        }
+        else if (type == int.class || type == float.class)
+        {
+            return 4;
+        }
+        else if (type == short.class || type == char.class)
+        {
+            return 2;
+        }
+        else if (type == byte.class || type == boolean.class)
+        {
+            return 1;
+        }
+        
+        return REFERENCE_BYTES;
+    }
+    
+    private static long estimateStringBytes(String string)
+    {
+        return estimateShallowBytes(String.class) + 
+            align(ARRAY_HEADER_BYTES + string.length());
+    }
+    
+    private static long align(long bytes)
+    {
+        return (bytes + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT * 
+            OBJECT_ALIGNMENT;
+    }
+    
+    public static synchronized String formatTable()
+    {
+        StringBuilder table = new StringBuilder();
+        
+        table.append(String.format(Locale.ROOT, "%-28s %12s %14s%n", 
+            "", "count", "bytes"));
+        table.append(String.format(Locale.ROOT, "%-28s %12d %14s%n", 
+            "tokens", tokenCount, formatKilobytes(tokenBytes)));
+        table.append(String.format(Locale.ROOT, "%-28s %12d %14s%n", 
+            "  token text strings", tokenCount, 
+            formatKilobytes(tokenTextBytes)));
+        table.append(String.format(Locale.ROOT, "%-28s %12d %14s%n", 
+            "  if interned", distinctTokenTextCount, 
+            formatKilobytes(distinctTokenTextBytes)));
+        table.append(String.format(Locale.ROOT, "%-28s %12d%n", 
+            "AST nodes", census.getNodeCount()));
+        
+        for (Map.Entry<String, Integer> entry : 
+            census.getNodeCounts().entrySet())
+        {
+            table.append(String.format(Locale.ROOT, "%-28s %12d%n", 
+                "  " + entry.getKey(), entry.getValue()));
+        }
+        
+        table.append(String.format(Locale.ROOT, "%-28s %12d%n", 
+            "scopes", census.getScopeCount()));
+        table.append(String.format(Locale.ROOT, "%-28s %12d%n", 
+            "symbols", symbolCount));
+        
+        for (Map.Entry<Profiler.Phase, Long> entry : 
+            RETAINED_BYTES.entrySet())
+        {
+            table.append(String.format(Locale.ROOT, "%-28s %12s %14s%n", 
+                "heap after " + entry.getKey().getName(), "", 
+                formatKilobytes(entry.getValue())));
+        }
+        
+        return table.toString();
+    }
+    
+    private static String formatKilobytes(long bytes)
+    {
+        return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The -time profiler: records how long each phase of a build took (with 
+ *  System.nanoTime) and how many bytes it allocated (with HotSpot's 
+ *  per-thread allocation counter), and reports them as a table or as JSON.
+ * 
+ * A phase is measured on the thread that runs it: start and stop must be
+ *  called on the same thread, and only that thread's allocations are 
+ *  counted. Phases may run any number of times (i.e. gcc once per 
+ *  translation unit), on any number of threads; their totals are summed.
+ *  Phases can overlap (when piping into gcc, emit runs while gcc does), so
+ *  the total is measured separately rather than summed.
+ * 
+ * While disabled, start and stop do nothing.
+ * 
+ * @author John Schneider
+ */
+public class Profiler
+{
+    private static final ThreadMXBean THREADS = 
+        ManagementFactory.getThreadMXBean();
+    
+    /**
+     * Reported instead of a byte count if the JVM can't count allocations.
+     */
+    public static final long        ALLOCATIONS_UNAVAILABLE = -1;
+    
+    public static final Measurement NOT_MEASURED            = 
+                                        new Measurement(null);
+    
+    public static enum Phase
+    {
+        READ("read"),
+        STRIP_COMMENTS("stripComments"),
+        LEX("lex"),
+        PARSE("parse"),
+        
+        /**
+         * Everything between parsing and emission. There's no type checker
+         *  yet, so this is symbol resolution and the declaration graph.
+         */
+        ANALYZE("analyze"),
+        
+        EMIT("emit"),
+        WRITE("write"),
+        GCC("gcc"),
+        LINK("link"),
+        
+        /**
+         * With -jN, the wall time of the whole stage which writes, compiles
+         *  and links the translation units. The emit, write and gcc phases 
+         *  inside it run on several threads at once and are summed, so they
+         *  can add up to more than this.
+         */
+        UNITS("units");
+        
+        private final String name;
+        
+        private Phase(String name)
+        {
+            this.name = name;
+        }
+        
+        public String getName()
+        {
+            return name;
+        }
+    }
+    
+    private static final EnumMap<Phase, Totals> TOTALS              = 
+                                                    new EnumMap<>(Phase.class);
+    
+    private static volatile boolean             isEnabled           = false;
+    private static Measurement                  total               = 
+                                                    NOT_MEASURED;
+    
+    /**
+     * Discards everything recorded so far and starts measuring the total,
+     *  on the calling thread.
+     */
+    public static synchronized void enable()
+    {
+        TOTALS.clear();
+        isEnabled   = true;
+        total       = new Measurement(null);
+    }
+    
+    public static synchronized void reset()
+    {
+        TOTALS.clear();
+        isEnabled   = false;
+        total       = NOT_MEASURED;
+    }
+    
+    public static boolean isEnabled()
+    {
+        return isEnabled;
+    }
+    
+    /**
+     * Starts measuring the phase on the calling thread. Call stop on the 
+     *  result (on the same thread) once the phase is done.
+     */
+    public static Measurement start(Phase phase)
+    {
+        if (!isEnabled)
+        {
+            return NOT_MEASURED;
+        }
+        
+        return new Measurement(phase);
+    }
+    
+    private static synchronized void record(Phase phase, long nanos, 
+        long allocatedBytes)
+    {
+        Totals totals = TOTALS.get(phase);
+        
+        if (totals == null)
+        {
+            totals = new Totals();
+            TOTALS.put(phase, totals);
+        }
+        
+        totals.add(nanos, allocatedBytes);
+    }
+    
+    /**
+     * Returns the bytes the calling thread has allocated since it started, 
+     *  or ALLOCATIONS_UNAVAILABLE.
+     */
+    private static long getAllocatedBytes()
+    {
+        if (THREADS instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean threads = 
+                (com.sun.management.ThreadMXBean) THREADS;
+            
+            if (threads.isThreadAllocatedMemorySupported() && 
+                threads.isThreadAllocatedMemoryEnabled())
+            {
+                return threads.getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+            }
+        }
+        
+        return ALLOCATIONS_UNAVAILABLE;
+    }
+    
+    /**
+     * Returns a copy of the totals of each phase which ran, in the order they
+     *  run in a build.
+     */
+    public static synchronized EnumMap<Phase, Totals> getTotals()
+    {
+        EnumMap<Phase, Totals> totals = new EnumMap<>(Phase.class);
+        
+        for (Map.Entry<Phase, Totals> entry : TOTALS.entrySet())
+        {
+            totals.put(entry.getKey(), new Totals(entry.getValue()));
+        }
+        
+        return totals;
+    }
+    
+    /**
+     * Returns the time since enable, or 0 if the profiler isn't enabled.
+     */
+    public static synchronized long getTotalNanos()
+    {
+        return total.getElapsedNanos();
+    }
+    
+    /**
+     * Returns the bytes the calling thread allocated since enable, or 
+     *  ALLOCATIONS_UNAVAILABLE. Must be called on the thread which called 
+     *  enable.
+     */
+    public static synchronized long getTotalAllocatedBytes()
+    {
+        return total.getAllocatedBytes();
+    }
+    
+    /**
+     * Formats the phases which ran (in the order they run in a build), 
+     *  followed by the total since enable, as a table. Must be called on
+     *  the thread which called enable.
+     */
+    public static synchronized String formatTable()
+    {
+        StringBuilder   table           = new StringBuilder();
+        long            totalNanos      = total.getElapsedNanos();
+        long            totalAllocated  = total.getAllocatedBytes();
+        
+        table.append(String.format(Locale.ROOT, "%-14s %6s %12s %16s%n", 
+            "phase", "calls", "time (ms)", "allocated (KB)"));
+        
+        for (Map.Entry<Phase, Totals> entry : TOTALS.entrySet())
+        {
+            Totals totals = entry.getValue();
+            
+            table.append(String.format(Locale.ROOT, "%-14s %6d %12.3f %16s%n",
+                entry.getKey().getName(), totals.calls, 
+                totals.nanos / 1e6, formatKilobytes(totals.allocatedBytes)));
+        }
+        
+        table.append(String.format(Locale.ROOT, "%-14s %6s %12.3f %16s%n", 
+            "total", "", totalNanos / 1e6, formatKilobytes(totalAllocated)));
+        
+        return table.toString();
+    }
+    
+    private static String formatKilobytes(long bytes)
+    {
+        if (bytes == ALLOCATIONS_UNAVAILABLE)
+        {
+            return "n/a";
+        }
+        
+        return String.format(Locale.ROOT, "%.1f", bytes / 1024.0);
+    }
+    
+    /**
+     * Formats the same data as formatTable as a single JSON object, with 
+     *  times in nanoseconds. Allocations are null if unavailable.
+     */
+    public static synchronized String formatJson()
+    {
+        StringBuilder   json    = new StringBuilder("{\"phases\":[");
+        boolean         isFirst = true;
+        
+        for (Map.Entry<Phase, Totals> entry : TOTALS.entrySet())
+        {
+            Totals totals = entry.getValue();
+            
+            if (!isFirst)
+            {
+                json.append(',');
+            }
+            
+            json.append("{\"name\":\"").append(entry.getKey().getName()).
+                append("\",\"calls\":").append(totals.calls).
+                append(",\"nanos\":").append(totals.nanos).
+                append(",\"allocatedBytes\":").
+                append(formatJsonBytes(totals.allocatedBytes)).
+                append('}');
+            
+            isFirst = false;
+        }
+        
+        json.append("],\"totalNanos\":").append(total.getElapsedNanos()).
+            append(",\"totalAllocatedBytes\":").
+            append(formatJsonBytes(total.getAllocatedBytes())).
+            append('}');
+        
+        return json.toString();
+    }
+    
+    private static String formatJsonBytes(long bytes)
+    {
+        return bytes == ALLOCATIONS_UNAVAILABLE ? "null" : 
+            Long.toString(bytes);
+    }
+    
+    /**
+     * One run of a phase, started by Profiler.start.
+     */
+    public static final class Measurement
+    {
+        private final Phase phase;
+        private final long  startNanos;
+        private final long  startAllocatedBytes;
+        
+        private Measurement(Phase phase)
+        {
+            this.phase          = phase;
+            startNanos          = System.nanoTime();
+            startAllocatedBytes = getAllocatedBytes();
+        }
+        
+        public void stop()
+        {
+            if (this != NOT_MEASURED)
+            {
+                record(phase, getElapsedNanos(), getAllocatedBytes());
+            }
+        }
+        
+        private long getElapsedNanos()
+        {
+            return this == NOT_MEASURED ? 0 : System.nanoTime() - startNanos;
+        }
+        
+        /**
+         * The bytes the calling thread allocated since this started.
+         */
+        private long getAllocatedBytes()
+        {
+            long allocatedBytes = Profiler.getAllocatedBytes();
+            
+            if (this == NOT_MEASURED || 
+                allocatedBytes == ALLOCATIONS_UNAVAILABLE || 
+                startAllocatedBytes == ALLOCATIONS_UNAVAILABLE)
+            {
+                return ALLOCATIONS_UNAVAILABLE;
+            }
+            
+            return allocatedBytes - startAllocatedBytes;
+        }
+    }
+    
+    /**
+     * What every run of a phase added up to.
+     */
+    public static final class Totals
+    {
+        private long calls          = 0;
+        private long nanos          = 0;
+        private long allocatedBytes = 0;
+        
+        private Totals()
+        {
+        }
+        
+        private Totals(Totals copyThis)
+        {
+            calls           = copyThis.calls;
+            nanos           = copyThis.nanos;
+            allocatedBytes  = copyThis.allocatedBytes;
+        }
+        
+        public long getCalls()
+        {
+            return calls;
+        }
+        
+        public long getNanos()
+        {
+            return nanos;
+        }
+        
+        /**
+         * Returns the bytes allocated, or ALLOCATIONS_UNAVAILABLE.
+         */
+        public long getAllocatedBytes()
+        {
+            return allocatedBytes;
+        }
+        
+        private void add(long nanos, long allocatedBytes)
+        {
+            calls++;
+            this.nanos += nanos;
+            
+            if (allocatedBytes == ALLOCATIONS_UNAVAILABLE || 
+                this.allocatedBytes == ALLOCATIONS_UNAVAILABLE)
+            {
+                this.allocatedBytes = ALLOCATIONS_UNAVAILABLE;
+            }
+            else
+            {
+                this.allocatedBytes += allocatedBytes;
+            }
+        }
+    }
+}
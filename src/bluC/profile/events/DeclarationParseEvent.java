@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Parsing one top-level declaration (a class, function or global variable),
+ *  including everything nested in it.
+ * 
+ * @author John Schneider
+ */
+@Name("bluC.DeclarationParse")
+@Label("Parse Declaration")
+@Category({"BluC", "Compiler"})
+@StackTrace(false)
+public class DeclarationParseEvent extends jdk.jfr.Event
+{
+    @Label("Kind")
+    @Description("The declaration's AST node type")
+    public String kind;
+    
+    @Label("Name")
+    public String name;
+    
+    @Label("First Token")
+    @Description("Index of the declaration's first token in the file")
+    public int firstTokenIndex;
+    
+    @Label("Last Token")
+    @Description("Index of the declaration's last token in the file")
+    public int lastTokenIndex;
+    
+    @Label("First Line")
+    public int firstLine;
+    
+    @Label("Last Line")
+    public int lastLine;
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitting the C definition of one function or method.
+ * 
+ * @author John Schneider
+ */
+@Name("bluC.FunctionEmit")
+@Label("Emit Function")
+@Category({"BluC", "Compiler"})
+@StackTrace(false)
+public class FunctionEmitEvent extends jdk.jfr.Event
+{
+    /**
+     * The name it's emitted as (mangled, for methods).
+     */
+    @Label("Name")
+    public String name;
+    
+    @Label("Line")
+    public int line;
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The lifetime of a gcc process, from starting it to its exit (or being 
+ *  killed on a timeout).
+ * 
+ * @author John Schneider
+ */
+@Name("bluC.Gcc")
+@Label("Run gcc")
+@Category({"BluC", "Compiler"})
+@StackTrace(false)
+public class GccEvent extends jdk.jfr.Event
+{
+    @Label("Command")
+    public String command;
+    
+    @Label("Exit Code")
+    public int exitCode;
+    
+    @Label("Timed Out")
+    public boolean timedOut;
+    
+    @Label("CPU Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long cpuTime;
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.profile.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Lexing a whole source file.
+ * 
+ * @author John Schneider
+ */
+@Name("bluC.Lex")
+@Label("Lex")
+@Category({"BluC", "Compiler"})
+@StackTrace(false)
+public class LexEvent extends jdk.jfr.Event
+{
+    @Label("Path")
+    public String path;
+    
+    @Label("Token Count")
+    public int tokenCount;
+}
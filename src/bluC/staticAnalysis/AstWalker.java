@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.Expression;
+
+/**
+ * A StatementWalker which also walks every expression and its operands, so
+ *  that a pass only has to override the nodes it cares about.
+ * 
+ * @author John Schneider
+ */
+public abstract class AstWalker extends StatementWalker 
+    implements Expression.Visitor<Void>
+{
+    @Override
+    protected void walk(Expression expression)
+    {
+        if (expression != null)
+        {
+            expression.accept(this);
+        }
+    }
+    
+    @Override
+    public Void visitAssignment(Expression.Assignment visitor)
+    {
+        walk(visitor.getOperand1());
+        walk(visitor.getOperand2());
+        return null;
+    }
+
+    @Override
+    public Void visitBinary(Expression.Binary visitor)
+    {
+        walk(visitor.getOperand1());
+        walk(visitor.getOperand2());
+        return null;
+    }
+
+    @Override
+    public Void visitUnary(Expression.Unary visitor)
+    {
+        walk(visitor.getOperand1());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(Expression.Literal visitor)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitVar(Expression.Variable visitor)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitGrouping(Expression.Grouping visitor)
+    {
+        walk(visitor.getOperand1());
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.Expression;
+import bluC.transpiler.statements.Statement;
+import java.util.ArrayList;
+
+/**
+ * A straight-line run of statements in a control flow graph, optionally
+ *  ending in a branch on a condition.
+ * 
+ * The statements are only ever variable declarations, expression statements
+ *  and returns (which end their block). A conditional block has exactly two
+ *  successors: the one taken when the condition is true, then the one taken
+ *  when it's false.
+ * 
+ * @author John Schneider
+ */
+public class BasicBlock
+{
+    public static final Expression NO_CONDITION = null;
+    
+    private int                             id;
+    private final ArrayList<Statement>      statements;
+    private Expression                      condition;
+    private final ArrayList<BasicBlock>     successors;
+    private final ArrayList<BasicBlock>     predecessors;
+    
+    BasicBlock(int id)
+    {
+        this.id         = id;
+        statements      = new ArrayList<>();
+        condition       = NO_CONDITION;
+        successors      = new ArrayList<>();
+        predecessors    = new ArrayList<>();
+    }
+    
+    /**
+     * Returns this block's index in ControlFlowGraph.getBlocks.
+     */
+    public int getID()
+    {
+        return id;
+    }
+    
+    void setID(int id)
+    {
+        this.id = id;
+    }
+    
+    public ArrayList<Statement> getStatements()
+    {
+        return statements;
+    }
+    
+    void addStatement(Statement statement)
+    {
+        statements.add(statement);
+    }
+    
+    /**
+     * Returns the condition this block branches on after its statements, or
+     *  NO_CONDITION if it falls through to its only successor (if any).
+     */
+    public Expression getCondition()
+    {
+        return condition;
+    }
+    
+    void setCondition(Expression condition)
+    {
+        this.condition = condition;
+    }
+    
+    public boolean isConditional()
+    {
+        return condition != NO_CONDITION;
+    }
+    
+    public BasicBlock getTrueSuccessor()
+    {
+        return successors.get(0);
+    }
+    
+    public BasicBlock getFalseSuccessor()
+    {
+        return successors.get(1);
+    }
+    
+    public ArrayList<BasicBlock> getSuccessors()
+    {
+        return successors;
+    }
+    
+    public ArrayList<BasicBlock> getPredecessors()
+    {
+        return predecessors;
+    }
+    
+    void addSuccessor(BasicBlock successor)
+    {
+        successors.add(successor);
+        successor.predecessors.add(this);
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "B" + id;
+    }
+}
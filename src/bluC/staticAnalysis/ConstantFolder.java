@@ -0,0 +1,929 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.Expression;
+import bluC.transpiler.Token;
+import bluC.transpiler.statements.ExpressionStatement;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.If;
+import bluC.transpiler.statements.blocks.If.ElseIf;
+import bluC.transpiler.statements.blocks.While;
+import bluC.transpiler.statements.vars.SimplifiedType;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Folds constant subexpressions, simplifies identities and removes redundant
+ *  groupings, so that the C code is smaller (and gcc has less to do).
+ * 
+ * Constants are evaluated the way C evaluates them: int, float and double 
+ *  operands are converted to their common type first, and float arithmetic
+ *  is done in single precision. Anything C doesn't define, or this pass can't 
+ *  write back as an equivalent literal, is left for gcc: signed overflow, 
+ *  division by zero, results which aren't finite and INT_MIN. Literals too
+ *  large for an int (whose type depends on the width of long) and long 
+ *  double are never folded.
+ * 
+ * The identities x * 1, 1 * x, x / 1, x - 0, x + 0 and 0 + x are only 
+ *  simplified when x has a known arithmetic type at least as wide as the
+ *  constant's, so the result's value doesn't change. x + 0 is kept for 
+ *  floating x, where it turns -0.0 into 0.0. !!b is simplified when b is 
+ *  already 0 or 1 (a comparison, say), or when it's an if or while 
+ *  condition.
+ * 
+ * Must be run before the AST is frozen.
+ * 
+ * @author John Schneider
+ */
+public class ConstantFolder extends StatementWalker 
+    implements Expression.Visitor<Expression>
+{
+    private static final Constant       NOT_CONSTANT    = null;
+    private static final SimplifiedType UNKNOWN_TYPE    = null;
+    
+    /**
+     * Binary operator precedences, from loosest to tightest. Operators this
+     *  pass doesn't know (member access) are never folded.
+     */
+    private static final int NOT_FOLDABLE               = -1;
+    private static final int ASSIGNMENT_PRECEDENCE      = 0;
+    private static final int EQUALITY_PRECEDENCE        = 1;
+    private static final int COMPARISON_PRECEDENCE      = 2;
+    private static final int ADDITIVE_PRECEDENCE        = 3;
+    private static final int MULTIPLICATIVE_PRECEDENCE  = 4;
+    
+    /**
+     * Folds every expression in the given AST, in place.
+     */
+    public void fold(ArrayList<Statement> abstractSyntaxTree)
+    {
+        for (Statement statement : abstractSyntaxTree)
+        {
+            walk(statement);
+        }
+    }
+    
+    private Expression fold(Expression expression)
+    {
+        return expression == null ? null : expression.accept(this);
+    }
+    
+    /**
+     * Folds an expression which isn't the operand of another one, so any 
+     *  grouping around it is redundant (except around an assignment, where
+     *  it's usually there to silence gcc). The truth of a condition is all
+     *  that matters, so double negations are removed from those too.
+     */
+    private Expression foldRoot(Expression expression, boolean isCondition)
+    {
+        expression = fold(expression);
+        
+        while (expression != null)
+        {
+            if (expression instanceof Expression.Grouping && 
+                !isAssignment(expression.getOperand1()))
+            {
+                expression = expression.getOperand1();
+            }
+            else if (isCondition && isNot(expression) && 
+                isNot(stripGroupings(expression.getOperand1())))
+            {
+                expression = stripGroupings(expression.getOperand1()).
+                    getOperand1();
+            }
+            else
+            {
+                break;
+            }
+        }
+        
+        return expression;
+    }
+    
+    @Override
+    public Void visitIf(If statement)
+    {
+        statement.setCondition(foldRoot(statement.getCondition(), true));
+        walkScope(statement);
+        
+        for (ElseIf elseIf : statement.getElseIfs())
+        {
+            elseIf.setCondition(foldRoot(elseIf.getCondition(), true));
+            walkScope(elseIf);
+        }
+        
+        if (statement.getElse() != null)
+        {
+            walkScope(statement.getElse());
+        }
+        
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While statement)
+    {
+        statement.setExitCondition(foldRoot(statement.getExitCondition(), 
+            true));
+        walkScope(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement statement)
+    {
+        statement.setExpression(foldRoot(statement.getExpression(), false));
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement)
+    {
+        statement.setValue(foldRoot(statement.getValue(), false));
+        return null;
+    }
+
+    @Override
+    public Expression visitAssignment(Expression.Assignment visitor)
+    {
+        visitor.setOperand2(foldRoot(visitor.getOperand2(), false));
+        return visitor;
+    }
+
+    @Override
+    public Expression visitBinary(Expression.Binary visitor)
+    {
+        Token       operator    = visitor.getOperator();
+        int         precedence  = getPrecedence(operator.getTextContent());
+        Expression  left;
+        Expression  right;
+        Constant    leftValue;
+        Constant    rightValue;
+        
+        if (precedence == NOT_FOLDABLE)
+        {
+            return visitor;
+        }
+        else if (precedence == ASSIGNMENT_PRECEDENCE)
+        {
+            // the target is left alone, it has to stay an lvalue
+            visitor.setOperand2(foldRoot(visitor.getOperand2(), false));
+            return visitor;
+        }
+        
+        left        = unwrapOperand(fold(visitor.getOperand1()), precedence,
+                        true);
+        right       = unwrapOperand(fold(visitor.getOperand2()), precedence,
+                        false);
+        leftValue   = getConstant(left);
+        rightValue  = getConstant(right);
+        
+        visitor.setOperand1(left);
+        visitor.setOperand2(right);
+        
+        if (leftValue != NOT_CONSTANT && rightValue != NOT_CONSTANT)
+        {
+            Constant result = Constant.evaluate(operator.getTextContent(), 
+                leftValue, rightValue);
+            
+            if (result != NOT_CONSTANT)
+            {
+                return result.toExpression(operator);
+            }
+        }
+        
+        return simplifyIdentity(visitor, left, leftValue, right, rightValue);
+    }
+    
+    private Expression simplifyIdentity(Expression.Binary expression, 
+        Expression left, Constant leftValue, Expression right, 
+        Constant rightValue)
+    {
+        String          operator    = expression.getOperator().getTextContent();
+        SimplifiedType  leftType    = getType(left);
+        SimplifiedType  rightType   = getType(right);
+        
+        if (operator.equals("*"))
+        {
+            if (isIdentity(rightValue, 1, leftType))
+            {
+                return left;
+            }
+            else if (isIdentity(leftValue, 1, rightType))
+            {
+                return right;
+            }
+        }
+        else if (operator.equals("/"))
+        {
+            if (isIdentity(rightValue, 1, leftType))
+            {
+                return left;
+            }
+        }
+        else if (operator.equals("+"))
+        {
+            if (isIdentity(rightValue, 0, leftType) && 
+                !isFloating(leftType))
+            {
+                return left;
+            }
+            else if (isIdentity(leftValue, 0, rightType) && 
+                !isFloating(rightType))
+            {
+                return right;
+            }
+        }
+        else if (operator.equals("-"))
+        {
+            if (isIdentity(rightValue, 0, leftType))
+            {
+                return left;
+            }
+        }
+        
+        return expression;
+    }
+    
+    /**
+     * Whether an operand of type <b>otherType</b> is left unchanged by 
+     *  <b>constant</b>, which is <b>identity</b> (and not -0.0).
+     */
+    private static boolean isIdentity(Constant constant, int identity, 
+        SimplifiedType otherType)
+    {
+        otherType = promote(otherType);
+        
+        return constant != NOT_CONSTANT && constant.isExactly(identity) &&
+            otherType != UNKNOWN_TYPE && 
+            otherType.ordinal() >= constant.getType().ordinal();
+    }
+
+    @Override
+    public Expression visitUnary(Expression.Unary visitor)
+    {
+        String      operator    = visitor.getOperator().getTextContent();
+        Expression  operand;
+        Constant    value;
+        
+        if (visitor.isOperatorOnRight() || 
+            !(operator.equals("-") || operator.equals("!")))
+        {
+            return visitor;
+        }
+        
+        operand = fold(visitor.getOperand1());
+        
+        // a negative literal is already as simple as it gets
+        if (operator.equals("-") && operand instanceof Expression.Literal)
+        {
+            return visitor;
+        }
+        
+        operand = unwrapUnaryOperand(operand);
+        value   = getConstant(operand);
+        visitor.setOperand1(operand);
+        
+        if (value != NOT_CONSTANT)
+        {
+            Constant result = Constant.evaluate(operator, value);
+            
+            if (result != NOT_CONSTANT)
+            {
+                return result.toExpression(visitor.getOperator());
+            }
+        }
+        
+        if (isNot(visitor) && isNot(stripGroupings(operand)) && 
+            isBoolean(stripGroupings(operand).getOperand1()))
+        {
+            return stripGroupings(operand).getOperand1();
+        }
+        
+        return visitor;
+    }
+
+    @Override
+    public Expression visitLiteral(Expression.Literal visitor)
+    {
+        return visitor;
+    }
+
+    @Override
+    public Expression visitVar(Expression.Variable visitor)
+    {
+        return visitor;
+    }
+
+    @Override
+    public Expression visitGrouping(Expression.Grouping visitor)
+    {
+        Expression groupee = fold(visitor.getOperand1());
+        
+        if (groupee instanceof Expression.Grouping)
+        {
+            return groupee;
+        }
+        
+        visitor.setOperand1(groupee);
+        return visitor;
+    }
+    
+    /**
+     * Removes the groupings around an operand of a binary operator with the
+     *  given precedence which don't change how it parses. Groupings around
+     *  comparisons are kept, since gcc warns about those.
+     */
+    private static Expression unwrapOperand(Expression operand, 
+        int parentPrecedence, boolean isLeftOperand)
+    {
+        while (operand instanceof Expression.Grouping)
+        {
+            Expression  groupee     = operand.getOperand1();
+            int         precedence;
+            
+            if (groupee instanceof Expression.Binary)
+            {
+                precedence = getPrecedence(groupee.getOperator().
+                    getTextContent());
+                
+                if (precedence < ADDITIVE_PRECEDENCE && 
+                    precedence != NOT_FOLDABLE)
+                {
+                    break;
+                }
+                else if (precedence < parentPrecedence && 
+                    precedence != NOT_FOLDABLE)
+                {
+                    break;
+                }
+                else if (precedence == parentPrecedence && !isLeftOperand)
+                {
+                    break;
+                }
+            }
+            else if (groupee instanceof Expression.Assignment)
+            {
+                break;
+            }
+            
+            operand = groupee;
+        }
+        
+        return operand;
+    }
+    
+    /**
+     * Removes the groupings around the operand of a prefix operator, if it's
+     *  a literal or variable. (Any other unary operand has to stay grouped,
+     *  else -(-x) would become --x.)
+     */
+    private static Expression unwrapUnaryOperand(Expression operand)
+    {
+        while (operand instanceof Expression.Grouping && 
+            (operand.getOperand1() instanceof Expression.Grouping ||
+            operand.getOperand1() instanceof Expression.Literal ||
+            operand.getOperand1() instanceof Expression.Variable))
+        {
+            operand = operand.getOperand1();
+        }
+        
+        return operand;
+    }
+    
+    private static Expression stripGroupings(Expression expression)
+    {
+        while (expression instanceof Expression.Grouping)
+        {
+            expression = expression.getOperand1();
+        }
+        
+        return expression;
+    }
+    
+    private static int getPrecedence(String operator)
+    {
+        if (operator.equals("*") || operator.equals("/"))
+        {
+            return MULTIPLICATIVE_PRECEDENCE;
+        }
+        else if (operator.equals("+") || operator.equals("-"))
+        {
+            return ADDITIVE_PRECEDENCE;
+        }
+        else if (operator.equals("<") || operator.equals("<=") || 
+            operator.equals(">") || operator.equals(">="))
+        {
+            return COMPARISON_PRECEDENCE;
+        }
+        else if (operator.equals("==") || operator.equals("!="))
+        {
+            return EQUALITY_PRECEDENCE;
+        }
+        else if (operator.equals("="))
+        {
+            return ASSIGNMENT_PRECEDENCE;
+        }
+        
+        return NOT_FOLDABLE;
+    }
+    
+    private static boolean isAssignment(Expression expression)
+    {
+        return expression instanceof Expression.Assignment || 
+            (expression instanceof Expression.Binary && 
+            getPrecedence(expression.getOperator().getTextContent()) == 
+                ASSIGNMENT_PRECEDENCE);
+    }
+    
+    private static boolean isNot(Expression expression)
+    {
+        return expression instanceof Expression.Unary && 
+            !((Expression.Unary) expression).isOperatorOnRight() &&
+            expression.getOperator().getTextContent().equals("!");
+    }
+    
+    /**
+     * Whether the expression can only be 0 or 1, so that !! leaves it as is.
+     */
+    private static boolean isBoolean(Expression expression)
+    {
+        Constant value;
+        
+        expression  = stripGroupings(expression);
+        value       = getConstant(expression);
+        
+        if (value != NOT_CONSTANT)
+        {
+            return value.getType() == SimplifiedType.INT && 
+                (value.isExactly(0) || value.isExactly(1));
+        }
+        else if (expression instanceof Expression.Binary)
+        {
+            int precedence = getPrecedence(expression.getOperator().
+                getTextContent());
+            
+            return precedence == COMPARISON_PRECEDENCE || 
+                precedence == EQUALITY_PRECEDENCE;
+        }
+        
+        return isNot(expression);
+    }
+    
+    /**
+     * Returns the value of a literal (or negated literal), or NOT_CONSTANT.
+     */
+    private static Constant getConstant(Expression expression)
+    {
+        expression = stripGroupings(expression);
+        
+        if (expression instanceof Expression.Literal)
+        {
+            return Constant.parse(((Expression.Literal) expression).
+                getTextContent());
+        }
+        else if (expression instanceof Expression.Unary && 
+            !((Expression.Unary) expression).isOperatorOnRight() &&
+            expression.getOperator().getTextContent().equals("-"))
+        {
+            Constant operand = getConstant(expression.getOperand1());
+            
+            return operand == NOT_CONSTANT ? NOT_CONSTANT : 
+                Constant.evaluate("-", operand);
+        }
+        
+        return NOT_CONSTANT;
+    }
+    
+    /**
+     * Returns the arithmetic type of an expression (ignoring its signedness),
+     *  or UNKNOWN_TYPE if it isn't one or can't be worked out.
+     */
+    private static SimplifiedType getType(Expression expression)
+    {
+        Constant value = getConstant(expression);
+        
+        expression = stripGroupings(expression);
+        
+        if (value != NOT_CONSTANT)
+        {
+            return value.getType();
+        }
+        else if (expression instanceof Expression.Variable)
+        {
+            VarDeclaration variable = 
+                ((Expression.Variable) expression).getVariableInfo();
+            
+            if (variable.getPointerLevel() == 0 && 
+                isArithmetic(variable.getSimplifiedType()))
+            {
+                return variable.getSimplifiedType();
+            }
+        }
+        else if (expression instanceof Expression.Unary)
+        {
+            String operator = expression.getOperator().getTextContent();
+            
+            if (operator.equals("!"))
+            {
+                return SimplifiedType.INT;
+            }
+            else if (operator.equals("-"))
+            {
+                return promote(getType(expression.getOperand1()));
+            }
+            
+            return getType(expression.getOperand1());
+        }
+        else if (expression instanceof Expression.Binary)
+        {
+            int precedence = getPrecedence(expression.getOperator().
+                getTextContent());
+            
+            if (precedence == ASSIGNMENT_PRECEDENCE)
+            {
+                return getType(expression.getOperand1());
+            }
+            else if (precedence == COMPARISON_PRECEDENCE || 
+                precedence == EQUALITY_PRECEDENCE)
+            {
+                return SimplifiedType.INT;
+            }
+            else if (precedence != NOT_FOLDABLE)
+            {
+                return getCommonType(getType(expression.getOperand1()), 
+                    getType(expression.getOperand2()));
+            }
+        }
+        
+        return UNKNOWN_TYPE;
+    }
+    
+    /**
+     * The arithmetic types are declared from narrowest to widest, with the
+     *  floating types last, so C's usual arithmetic conversions (ignoring
+     *  signedness) pick the later of the two promoted types.
+     */
+    private static boolean isArithmetic(SimplifiedType type)
+    {
+        return type != UNKNOWN_TYPE && 
+            type.ordinal() <= SimplifiedType.LONG_DOUBLE.ordinal();
+    }
+    
+    private static boolean isFloating(SimplifiedType type)
+    {
+        return type != UNKNOWN_TYPE && 
+            type.ordinal() >= SimplifiedType.FLOAT.ordinal() &&
+            isArithmetic(type);
+    }
+    
+    private static SimplifiedType promote(SimplifiedType type)
+    {
+        if (!isArithmetic(type))
+        {
+            return UNKNOWN_TYPE;
+        }
+        
+        return type.ordinal() < SimplifiedType.INT.ordinal() ? 
+            SimplifiedType.INT : type;
+    }
+    
+    private static SimplifiedType getCommonType(SimplifiedType left, 
+        SimplifiedType right)
+    {
+        left    = promote(left);
+        right   = promote(right);
+        
+        if (left == UNKNOWN_TYPE || right == UNKNOWN_TYPE)
+        {
+            return UNKNOWN_TYPE;
+        }
+        
+        return left.ordinal() >= right.ordinal() ? left : right;
+    }
+    
+    /**
+     * A constant int, float or double.
+     */
+    private static final class Constant
+    {
+        private static final String FLOATING_LITERAL = 
+            "[0-9]+\\.[0-9]+([eE][-+]?[0-9]+)?";
+        
+        private final SimplifiedType    type;
+        private final long              integerValue;
+        private final double            floatingValue;
+        
+        private Constant(SimplifiedType type, long integerValue, 
+            double floatingValue)
+        {
+            this.type           = type;
+            this.integerValue   = integerValue;
+            this.floatingValue  = floatingValue;
+        }
+        
+        /**
+         * Returns an int constant, or NOT_CONSTANT if it overflowed. INT_MIN 
+         *  is excluded too: there's no int literal for it, -2147483648 is 
+         *  the negation of a long.
+         */
+        private static Constant ofInt(long value)
+        {
+            if (value <= Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            {
+                return NOT_CONSTANT;
+            }
+            
+            return new Constant(SimplifiedType.INT, value, 0);
+        }
+        
+        private static Constant ofFloating(SimplifiedType type, double value)
+        {
+            if (Double.isNaN(value) || Double.isInfinite(value))
+            {
+                return NOT_CONSTANT;
+            }
+            
+            return new Constant(type, 0, value);
+        }
+        
+        /**
+         * Parses a BluC number literal: decimal or octal ints, doubles, and
+         *  floats (which may leave out the fraction, as in 3f). Exponents are
+         *  accepted too, since folded literals may have them. Returns
+         *  NOT_CONSTANT for anything else.
+         */
+        static Constant parse(String literal)
+        {
+            if (literal.matches("0[0-7]+"))
+            {
+                return parseInt(literal.substring(1), 8);
+            }
+            else if (literal.matches("[1-9][0-9]*|0"))
+            {
+                return parseInt(literal, 10);
+            }
+            else if (literal.matches(FLOATING_LITERAL))
+            {
+                return ofFloating(SimplifiedType.DOUBLE, 
+                    Double.parseDouble(literal));
+            }
+            else if (literal.matches("[0-9]+f|" + FLOATING_LITERAL + "f"))
+            {
+                return ofFloating(SimplifiedType.FLOAT, Float.parseFloat(
+                    literal.substring(0, literal.length() - 1)));
+            }
+            
+            return NOT_CONSTANT;
+        }
+        
+        private static Constant parseInt(String digits, int radix)
+        {
+            try
+            {
+                return ofInt(Integer.parseInt(digits, radix));
+            }
+            catch (NumberFormatException ex)
+            {
+                // too large for an int
+                return NOT_CONSTANT;
+            }
+        }
+        
+        SimplifiedType getType()
+        {
+            return type;
+        }
+        
+        boolean isExactly(int value)
+        {
+            if (type == SimplifiedType.INT)
+            {
+                return integerValue == value;
+            }
+            
+            return floatingValue == value && 
+                Math.copySign(1.0, floatingValue) > 0;
+        }
+        
+        private boolean isZero()
+        {
+            return type == SimplifiedType.INT ? integerValue == 0 : 
+                floatingValue == 0;
+        }
+        
+        private double toFloating(SimplifiedType floatingType)
+        {
+            if (type != SimplifiedType.INT)
+            {
+                return floatingValue;
+            }
+            
+            return floatingType == SimplifiedType.FLOAT ? 
+                (float) integerValue : (double) integerValue;
+        }
+        
+        static Constant evaluate(String operator, Constant operand)
+        {
+            if (operator.equals("!"))
+            {
+                return ofInt(operand.isZero() ? 1 : 0);
+            }
+            else if (operator.equals("-"))
+            {
+                return operand.type == SimplifiedType.INT ? 
+                    ofInt(-operand.integerValue) : 
+                    ofFloating(operand.type, -operand.floatingValue);
+            }
+            
+            return NOT_CONSTANT;
+        }
+        
+        static Constant evaluate(String operator, Constant left, 
+            Constant right)
+        {
+            SimplifiedType type = getCommonType(left.type, right.type);
+            
+            if (type == SimplifiedType.INT)
+            {
+                return evaluateInt(operator, left.integerValue, 
+                    right.integerValue);
+            }
+            
+            return evaluateFloating(operator, type, left.toFloating(type),
+                right.toFloating(type));
+        }
+        
+        private static Constant evaluateInt(String operator, long left, 
+            long right)
+        {
+            if (operator.equals("+"))
+            {
+                return ofInt(left + right);
+            }
+            else if (operator.equals("-"))
+            {
+                return ofInt(left - right);
+            }
+            else if (operator.equals("*"))
+            {
+                return ofInt(left * right);
+            }
+            else if (operator.equals("/"))
+            {
+                // Java's division truncates towards zero, like C's
+                return right == 0 ? NOT_CONSTANT : ofInt(left / right);
+            }
+            
+            return compare(operator, Long.compare(left, right));
+        }
+        
+        private static Constant evaluateFloating(String operator, 
+            SimplifiedType type, double left, double right)
+        {
+            double result;
+            
+            if (operator.equals("+"))
+            {
+                result = left + right;
+            }
+            else if (operator.equals("-"))
+            {
+                result = left - right;
+            }
+            else if (operator.equals("*"))
+            {
+                result = left * right;
+            }
+            else if (operator.equals("/"))
+            {
+                result = left / right;
+            }
+            else
+            {
+                // neither operand can be NaN, so this is a total order
+                return compare(operator, Double.compare(left + 0.0, 
+                    right + 0.0));
+            }
+            
+            // rounding the exact double result to float gives the same 
+            //  result as float arithmetic for +, -, * and /
+            return ofFloating(type, type == SimplifiedType.FLOAT ? 
+                (float) result : result);
+        }
+        
+        private static Constant compare(String operator, int comparison)
+        {
+            boolean result;
+            
+            if (operator.equals("<"))
+            {
+                result = comparison < 0;
+            }
+            else if (operator.equals("<="))
+            {
+                result = comparison <= 0;
+            }
+            else if (operator.equals(">"))
+            {
+                result = comparison > 0;
+            }
+            else if (operator.equals(">="))
+            {
+                result = comparison >= 0;
+            }
+            else if (operator.equals("=="))
+            {
+                result = comparison == 0;
+            }
+            else if (operator.equals("!="))
+            {
+                result = comparison != 0;
+            }
+            else
+            {
+                return NOT_CONSTANT;
+            }
+            
+            return ofInt(result ? 1 : 0);
+        }
+        
+        /**
+         * Writes this constant as a literal, negated if it's negative. The
+         *  new tokens take their position from <b>origin</b>.
+         */
+        Expression toExpression(Token origin)
+        {
+            boolean             isNegative;
+            String              text;
+            Expression.Literal  literal;
+            
+            if (type == SimplifiedType.INT)
+            {
+                isNegative  = integerValue < 0;
+                text        = Long.toString(Math.abs(integerValue));
+            }
+            else
+            {
+                double magnitude = Math.abs(floatingValue);
+                
+                isNegative  = Math.copySign(1.0, floatingValue) < 0;
+                text        = type == SimplifiedType.FLOAT ? 
+                                formatFloat((float) magnitude) + "f" : 
+                                formatDouble(magnitude);
+            }
+            
+            literal = new Expression.Literal(origin.withTextContent(text, 
+                true));
+            
+            return isNegative ? 
+                new Expression.Unary(origin.withTextContent("-", true), 
+                    literal) : 
+                literal;
+        }
+        
+        /**
+         * Java's shortest representation, unless it doesn't read back as the
+         *  same value, in which case enough digits that it does.
+         */
+        private static String formatDouble(double value)
+        {
+            String text = Double.toString(value);
+            
+            if (Double.parseDouble(text) != value)
+            {
+                text = String.format(Locale.ROOT, "%.17g", value);
+            }
+            
+            return text;
+        }
+        
+        private static String formatFloat(float value)
+        {
+            String text = Float.toString(value);
+            
+            if (Float.parseFloat(text) != value)
+            {
+                text = String.format(Locale.ROOT, "%.9g", value);
+            }
+            
+            return text;
+        }
+    }
+}
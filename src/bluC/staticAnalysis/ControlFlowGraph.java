@@ -0,0 +1,298 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.statements.ExpressionStatement;
+import bluC.transpiler.statements.Return;
+import bluC.transpiler.statements.blocks.Block;
+import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.blocks.If;
+import bluC.transpiler.statements.blocks.If.ElseIf;
+import bluC.transpiler.statements.blocks.StructDef;
+import bluC.transpiler.statements.blocks.While;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * The control flow graph of one function or method body, for data-flow 
+ *  analyses (see DataFlowAnalysis).
+ * 
+ * Every graph has an empty entry block and an empty exit block. Returns 
+ *  jump to the exit, as does falling off the end of the body. An if (and 
+ *  each else-if) branches on its condition at the end of the block before 
+ *  it, and a while loop gets a header block of its own which branches on 
+ *  the loop condition, so that its body can jump back to it.
+ * 
+ * Blocks which can't be reached from the entry (statements after a return,
+ *  say) are left out, except for the exit. The rest are numbered in reverse
+ *  postorder, so the entry is block 0 and every edge other than a loop's 
+ *  back edge goes to a higher-numbered block. Blocks may be empty.
+ * 
+ * @author John Schneider
+ */
+public class ControlFlowGraph extends StatementWalker
+{
+    private final ArrayList<BasicBlock> createdBlocks;
+    private final ArrayList<BasicBlock> blocks;
+    
+    private Function    function;
+    private BasicBlock  entry;
+    private BasicBlock  exit;
+    private BasicBlock  current;
+    
+    public ControlFlowGraph()
+    {
+        createdBlocks   = new ArrayList<>();
+        blocks          = new ArrayList<>();
+    }
+    
+    /**
+     * Builds the graph of <b>function</b>'s body (which may be a Method). 
+     *  Returns the blocks in reverse postorder.
+     */
+    public ArrayList<BasicBlock> build(Function function)
+    {
+        this.function   = function;
+        entry           = newBlock();
+        exit            = newBlock();
+        current         = newBlock();
+        
+        entry.addSuccessor(current);
+        walkBody(function);
+        current.addSuccessor(exit);
+        
+        orderReachableBlocks();
+        return blocks;
+    }
+    
+    public Function getFunction()
+    {
+        return function;
+    }
+    
+    public BasicBlock getEntry()
+    {
+        return entry;
+    }
+    
+    public BasicBlock getExit()
+    {
+        return exit;
+    }
+    
+    /**
+     * Returns every block reachable from the entry, plus the exit, in 
+     *  reverse postorder (indexed by BasicBlock.getID).
+     */
+    public ArrayList<BasicBlock> getBlocks()
+    {
+        return blocks;
+    }
+    
+    private BasicBlock newBlock()
+    {
+        BasicBlock block = new BasicBlock(createdBlocks.size());
+        
+        createdBlocks.add(block);
+        return block;
+    }
+    
+    /**
+     * Visits <b>branch</b>'s body in a new block which <b>from</b> jumps to,
+     *  and then continues on to <b>join</b>.
+     */
+    private void visitBranch(BasicBlock from, Block branch, BasicBlock join)
+    {
+        current = newBlock();
+        from.addSuccessor(current);
+        
+        walkBody(branch);
+        current.addSuccessor(join);
+    }
+    
+    /**
+     * Numbers the blocks reachable from the entry in reverse postorder, and 
+     *  unlinks the unreachable ones from the blocks they jump to.
+     */
+    private void orderReachableBlocks()
+    {
+        boolean[]               isVisited       = 
+                                    new boolean[createdBlocks.size()];
+        ArrayList<BasicBlock>   postorder       = new ArrayList<>();
+        ArrayList<BasicBlock>   stack           = new ArrayList<>();
+        ArrayList<Integer>      nextSuccessors  = new ArrayList<>();
+        
+        // iterative, since a long function can nest blocks deeper than the
+        //  call stack allows
+        isVisited[entry.getID()] = true;
+        stack.add(entry);
+        nextSuccessors.add(0);
+        
+        while (!stack.isEmpty())
+        {
+            int         top         = stack.size() - 1;
+            BasicBlock  block       = stack.get(top);
+            int         next        = nextSuccessors.get(top);
+            
+            if (next < block.getSuccessors().size())
+            {
+                BasicBlock successor = block.getSuccessors().get(next);
+                
+                nextSuccessors.set(top, next + 1);
+                
+                if (!isVisited[successor.getID()])
+                {
+                    isVisited[successor.getID()] = true;
+                    stack.add(successor);
+                    nextSuccessors.add(0);
+                }
+            }
+            else
+            {
+                postorder.add(block);
+                stack.remove(top);
+                nextSuccessors.remove(top);
+            }
+        }
+        
+        for (BasicBlock block : createdBlocks)
+        {
+            if (!isVisited[block.getID()])
+            {
+                for (BasicBlock successor : block.getSuccessors())
+                {
+                    successor.getPredecessors().remove(block);
+                }
+            }
+        }
+        
+        Collections.reverse(postorder);
+        blocks.addAll(postorder);
+        
+        if (!isVisited[exit.getID()])
+        {
+            // the function never returns, but backward analyses still 
+            //  start from the exit
+            blocks.add(exit);
+        }
+        
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            blocks.get(i).setID(i);
+        }
+    }
+    
+    /**
+     * Nested declarations don't execute, so they're left out of the graph
+     *  (a Method is visited as a Function).
+     */
+    @Override
+    public Void visitFunction(Function statement)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If statement)
+    {
+        BasicBlock test = current;
+        BasicBlock join = newBlock();
+        
+        test.setCondition(statement.getCondition());
+        visitBranch(test, statement, join);
+        
+        for (ElseIf elseIf : statement.getElseIfs())
+        {
+            BasicBlock elseIfTest = newBlock();
+            
+            test.addSuccessor(elseIfTest);
+            test = elseIfTest;
+            
+            test.setCondition(elseIf.getCondition());
+            visitBranch(test, elseIf, join);
+        }
+        
+        if (statement.getElse() != null)
+        {
+            visitBranch(test, statement.getElse(), join);
+        }
+        else
+        {
+            test.addSuccessor(join);
+        }
+        
+        current = join;
+        return null;
+    }
+
+    @Override
+    public Void visitClassDef(ClassDef statement)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitStructDef(StructDef statement)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While statement)
+    {
+        BasicBlock header   = newBlock();
+        BasicBlock after    = newBlock();
+        
+        current.addSuccessor(header);
+        header.setCondition(statement.getExitCondition());
+        
+        // the body jumps back to the header
+        visitBranch(header, statement, header);
+        header.addSuccessor(after);
+        
+        current = after;
+        return null;
+    }
+
+    /**
+     * Anything after a return goes in a new block, with no predecessors.
+     */
+    @Override
+    public Void visitReturn(Return statement)
+    {
+        current.addStatement(statement);
+        current.addSuccessor(exit);
+        current = newBlock();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement statement)
+    {
+        current.addStatement(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement)
+    {
+        current.addStatement(statement);
+        return null;
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.Expression;
+import bluC.transpiler.ResolvedSymbol;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * A data-flow analysis over a ControlFlowGraph, where each fact is a set of
+ *  the function's local variables: bit n is the local in slot n of the 
+ *  function's frame (see SymbolResolver). Subclasses give the direction, 
+ *  how facts from several blocks are combined, and what each block does to
+ *  them; solve then runs a worklist until nothing changes.
+ * 
+ * For a forward analysis, a block's input is its "in" set and its output is
+ *  its "out" set; for a backward analysis it's the other way around. A 
+ *  may-analysis (such as liveness) combines with UNION and starts every 
+ *  block out empty; a must-analysis combines with INTERSECTION and starts 
+ *  every block out with every slot set.
+ * 
+ * Transfer functions must be monotone, or solve may not terminate.
+ * 
+ * @author John Schneider
+ */
+public abstract class DataFlowAnalysis
+{
+    /**
+     * What getSlot returns for a variable which isn't a local (or parameter)
+     *  of the analyzed function.
+     */
+    public static final int NOT_LOCAL = -1;
+    
+    public static enum Direction
+    {
+        FORWARD,
+        BACKWARD;
+    }
+    
+    public static enum Meet
+    {
+        UNION,
+        INTERSECTION;
+    }
+    
+    private final ControlFlowGraph  graph;
+    private final SymbolResolver    symbolResolver;
+    private final Direction         direction;
+    private final Meet              meet;
+    private final int               slotCount;
+    private final BitSet[]          ins;
+    private final BitSet[]          outs;
+    
+    /**
+     * <b>symbolResolver</b> must have resolved the AST the graph's function
+     *  is in.
+     */
+    protected DataFlowAnalysis(ControlFlowGraph graph, 
+        SymbolResolver symbolResolver, Direction direction, Meet meet)
+    {
+        this.graph          = graph;
+        this.symbolResolver = symbolResolver;
+        this.direction      = direction;
+        this.meet           = meet;
+        slotCount           = symbolResolver.getFrameSize(graph.getFunction());
+        ins                 = new BitSet[graph.getBlocks().size()];
+        outs                = new BitSet[graph.getBlocks().size()];
+    }
+    
+    /**
+     * Applies <b>block</b>'s effect to <b>facts</b> in place, turning its
+     *  input into its output.
+     */
+    protected abstract void transfer(BasicBlock block, BitSet facts);
+    
+    /**
+     * Returns the facts at the function's entry (for a forward analysis) or
+     *  exit (for a backward one). No slots, by default.
+     */
+    protected BitSet getBoundaryFacts()
+    {
+        return new BitSet(slotCount);
+    }
+    
+    /**
+     * Solves the analysis, after which getIn and getOut can be used.
+     */
+    public void solve()
+    {
+        ArrayList<BasicBlock>   blocks      = graph.getBlocks();
+        ArrayDeque<BasicBlock>  worklist    = new ArrayDeque<>();
+        BitSet                  isQueued    = new BitSet(blocks.size());
+        
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            ins[i]  = getInitialFacts();
+            outs[i] = getInitialFacts();
+        }
+        
+        // the blocks are in reverse postorder, so this visits most of a 
+        //  block's inputs before the block itself
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            worklist.add(blocks.get(direction == Direction.FORWARD ? 
+                i : blocks.size() - 1 - i));
+            isQueued.set(i);
+        }
+        
+        while (!worklist.isEmpty())
+        {
+            BasicBlock  block   = worklist.poll();
+            BitSet      input   = computeInput(block);
+            BitSet      output  = (BitSet) input.clone();
+            
+            isQueued.clear(block.getID());
+            transfer(block, output);
+            getInputs()[block.getID()] = input;
+            
+            if (!output.equals(getOutputs()[block.getID()]))
+            {
+                getOutputs()[block.getID()] = output;
+                
+                for (BasicBlock dependent : getDependents(block))
+                {
+                    if (!isQueued.get(dependent.getID()))
+                    {
+                        isQueued.set(dependent.getID());
+                        worklist.add(dependent);
+                    }
+                }
+            }
+        }
+    }
+    
+    private BitSet getInitialFacts()
+    {
+        BitSet facts = new BitSet(slotCount);
+        
+        if (meet == Meet.INTERSECTION)
+        {
+            facts.set(0, slotCount);
+        }
+        
+        return facts;
+    }
+    
+    /**
+     * Combines the outputs of the blocks which flow into <b>block</b>.
+     */
+    private BitSet computeInput(BasicBlock block)
+    {
+        BitSet                  input       = null;
+        ArrayList<BasicBlock>   sources     = direction == Direction.FORWARD ? 
+                                                block.getPredecessors() : 
+                                                block.getSuccessors();
+        BasicBlock              boundary    = direction == Direction.FORWARD ? 
+                                                graph.getEntry() : 
+                                                graph.getExit();
+        
+        if (block == boundary)
+        {
+            return getBoundaryFacts();
+        }
+        
+        for (BasicBlock source : sources)
+        {
+            BitSet sourceOutput = getOutputs()[source.getID()];
+            
+            if (input == null)
+            {
+                input = (BitSet) sourceOutput.clone();
+            }
+            else if (meet == Meet.UNION)
+            {
+                input.or(sourceOutput);
+            }
+            else
+            {
+                input.and(sourceOutput);
+            }
+        }
+        
+        return input == null ? getInitialFacts() : input;
+    }
+    
+    private ArrayList<BasicBlock> getDependents(BasicBlock block)
+    {
+        return direction == Direction.FORWARD ? block.getSuccessors() : 
+            block.getPredecessors();
+    }
+    
+    private BitSet[] getInputs()
+    {
+        return direction == Direction.FORWARD ? ins : outs;
+    }
+    
+    private BitSet[] getOutputs()
+    {
+        return direction == Direction.FORWARD ? outs : ins;
+    }
+    
+    /**
+     * Returns a copy of the facts on entry to <b>block</b>.
+     */
+    public BitSet getIn(BasicBlock block)
+    {
+        return (BitSet) ins[block.getID()].clone();
+    }
+    
+    /**
+     * Returns a copy of the facts on exit from <b>block</b>.
+     */
+    public BitSet getOut(BasicBlock block)
+    {
+        return (BitSet) outs[block.getID()].clone();
+    }
+    
+    public ControlFlowGraph getGraph()
+    {
+        return graph;
+    }
+    
+    /**
+     * Returns how many slots the function's frame has (the size of the 
+     *  domain).
+     */
+    public int getSlotCount()
+    {
+        return slotCount;
+    }
+    
+    /**
+     * Returns the slot of the local <b>variable</b> refers to, or NOT_LOCAL.
+     */
+    public int getSlot(Expression.Variable variable)
+    {
+        return getSlot(variable.getResolvedSymbol());
+    }
+    
+    /**
+     * Returns the slot of <b>declaration</b>, or NOT_LOCAL if it isn't a 
+     *  local of the analyzed function.
+     */
+    public int getSlot(VarDeclaration declaration)
+    {
+        return getSlot(symbolResolver.getSymbol(declaration));
+    }
+    
+    private int getSlot(ResolvedSymbol symbol)
+    {
+        if (symbol == Expression.Variable.NOT_RESOLVED || 
+            symbol.getFrame() != graph.getFunction())
+        {
+            return NOT_LOCAL;
+        }
+        
+        return symbol.getSlotIndex();
+    }
+}
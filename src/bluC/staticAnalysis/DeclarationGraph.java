@@ -0,0 +1,253 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.transpiler.Expression;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.blocks.Method;
+import bluC.transpiler.statements.blocks.StructDef;
+import bluC.transpiler.statements.vars.SimplifiedType;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Records which top-level declarations (classes, functions, methods and 
+ *  global variables) each top-level declaration uses, and from that which
+ *  of them are used before the C compiler will have seen their definition.
+ * 
+ * Declarations are visited in the order the C code is emitted in: top-level
+ *  statements in source order, except that a class' methods are emitted
+ *  after its struct. A class is only defined once its struct is complete, 
+ *  so a class with a field of its own type has to be forward declared. A 
+ *  function or method is declared as soon as its signature is seen.
+ * 
+ * The language doesn't have function calls yet, so right now only classes
+ *  and global variables are ever used by other declarations.
+ * 
+ * @author John Schneider
+ */
+public class DeclarationGraph extends AstWalker
+{
+    /**
+     * Declarations are tracked by identity -- Statement.equals is structural.
+     */
+    private final ArrayList<Statement>  declarations;
+    private final IdentityHashMap<Statement, ArrayList<Statement>>
+                                        uses;
+    private final IdentityHashMap<Statement, Boolean>
+                                        defined;
+    private final ArrayList<Statement>  forwardDeclarations;
+    private final IdentityHashMap<Statement, Boolean>
+                                        needsForwardDeclaration;
+    private final IdentityHashMap<VarDeclaration, Boolean>
+                                        globals;
+    
+    private ArrayList<Statement>                currentUses;
+    private IdentityHashMap<Statement, Boolean> currentUsesSet;
+    
+    public DeclarationGraph()
+    {
+        declarations            = new ArrayList<>();
+        uses                    = new IdentityHashMap<>();
+        defined                 = new IdentityHashMap<>();
+        forwardDeclarations     = new ArrayList<>();
+        needsForwardDeclaration = new IdentityHashMap<>();
+        globals                 = new IdentityHashMap<>();
+    }
+    
+    /**
+     * Builds the graph for the given AST. Returns the declarations which
+     *  need to be forward declared, in the order they're first used.
+     */
+    public ArrayList<Statement> build(ArrayList<Statement> abstractSyntaxTree)
+    {
+        for (Statement statement : abstractSyntaxTree)
+        {
+            if (statement instanceof VarDeclaration)
+            {
+                globals.put((VarDeclaration) statement, true);
+            }
+        }
+        
+        for (Statement statement : abstractSyntaxTree)
+        {
+            if (statement instanceof ClassDef ||
+                statement instanceof Function ||
+                statement instanceof VarDeclaration)
+            {
+                addDeclaration(statement);
+            }
+        }
+        
+        return forwardDeclarations;
+    }
+    
+    /**
+     * Returns every top-level declaration, in the order they're emitted.
+     */
+    public ArrayList<Statement> getDeclarations()
+    {
+        return declarations;
+    }
+    
+    /**
+     * Returns the declarations which <b>declaration</b> uses, in the order
+     *  it first uses them.
+     */
+    public ArrayList<Statement> getUses(Statement declaration)
+    {
+        ArrayList<Statement> usesOfDeclaration = uses.get(declaration);
+        
+        return usesOfDeclaration == null ? new ArrayList<Statement>() : 
+            usesOfDeclaration;
+    }
+    
+    public ArrayList<Statement> getForwardDeclarations()
+    {
+        return forwardDeclarations;
+    }
+    
+    public boolean needsForwardDeclaration(Statement declaration)
+    {
+        return needsForwardDeclaration.containsKey(declaration);
+    }
+    
+    private void addDeclaration(Statement declaration)
+    {
+        if (declaration instanceof ClassDef)
+        {
+            ClassDef            class_  = (ClassDef) declaration;
+            ArrayList<Method>   methods = new ArrayList<>();
+            
+            startDeclaration(class_);
+            
+            for (Statement s : class_.getBody())
+            {
+                if (s instanceof Method)
+                {
+                    methods.add((Method) s);
+                }
+                else
+                {
+                    walk(s);
+                }
+            }
+            
+            endDeclaration(class_);
+            
+            for (Method method : methods)
+            {
+                addDeclaration(method);
+            }
+        }
+        else
+        {
+            if (declaration instanceof Function)
+            {
+                // a function's name is in scope from its signature onwards
+                defined.put(declaration, true);
+            }
+            
+            startDeclaration(declaration);
+            walk(declaration);
+            endDeclaration(declaration);
+        }
+    }
+    
+    private void startDeclaration(Statement declaration)
+    {
+        declarations.add(declaration);
+        
+        currentUses     = new ArrayList<>();
+        currentUsesSet  = new IdentityHashMap<>();
+    }
+    
+    private void endDeclaration(Statement declaration)
+    {
+        uses.put(declaration, currentUses);
+        
+        for (Statement used : currentUses)
+        {
+            if (!defined.containsKey(used) && 
+                !needsForwardDeclaration.containsKey(used))
+            {
+                needsForwardDeclaration.put(used, true);
+                forwardDeclarations.add(used);
+            }
+        }
+        
+        defined.put(declaration, true);
+    }
+    
+    private void use(Statement declaration)
+    {
+        if (declaration != null && !currentUsesSet.containsKey(declaration))
+        {
+            currentUsesSet.put(declaration, true);
+            currentUses.add(declaration);
+        }
+    }
+    
+    @Override
+    public Void visitFunction(Function statement)
+    {
+        walk(statement.getReturnType());
+        return super.visitFunction(statement);
+    }
+    
+    @Override
+    public Void visitClassDef(ClassDef statement)
+    {
+        // nested classes aren't supported by the parser
+        return null;
+    }
+    
+    @Override
+    public Void visitStructDef(StructDef statement)
+    {
+        return null;
+    }
+    
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement)
+    {
+        if (statement.getSimplifiedType() == SimplifiedType.CLASS)
+        {
+            use(ClassHandler.getClassDefinition(statement.getClassID()));
+        }
+        
+        return super.visitVarDeclaration(statement);
+    }
+    
+    @Override
+    public Void visitVar(Expression.Variable expression)
+    {
+        VarDeclaration variable = expression.getVariableInfo();
+        
+        // only global variables are declarations of their own
+        if (globals.containsKey(variable))
+        {
+            use(variable);
+        }
+        
+        return null;
+    }
+}
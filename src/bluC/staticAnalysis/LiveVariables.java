@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.Expression;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Finds which locals are live on entry to and exit from each block: those
+ *  which may still be read before they're next assigned.
+ * 
+ * Each block's reads and writes are summarized once, up front: "gen" holds
+ *  the locals read before the block writes them, and "kill" the locals the
+ *  block writes. Within a statement, everything it reads is read before the
+ *  statement writes anything, and a block's condition is read last.
+ * 
+ * @author John Schneider
+ */
+public class LiveVariables extends DataFlowAnalysis
+{
+    private final BitSet[]      gens;
+    private final BitSet[]      kills;
+    private final Summarizer    summarizer;
+    
+    private BitSet              gen;
+    private BitSet              kill;
+    
+    public LiveVariables(ControlFlowGraph graph, SymbolResolver symbolResolver)
+    {
+        super(graph, symbolResolver, Direction.BACKWARD, Meet.UNION);
+        
+        ArrayList<BasicBlock> blocks = graph.getBlocks();
+        
+        gens        = new BitSet[blocks.size()];
+        kills       = new BitSet[blocks.size()];
+        summarizer  = new Summarizer();
+        
+        for (BasicBlock block : blocks)
+        {
+            summarize(block);
+        }
+    }
+    
+    @Override
+    protected void transfer(BasicBlock block, BitSet facts)
+    {
+        facts.andNot(kills[block.getID()]);
+        facts.or(gens[block.getID()]);
+    }
+    
+    /**
+     * Returns whether the local declared by <b>declaration</b> is live on 
+     *  entry to <b>block</b>.
+     */
+    public boolean isLiveIn(BasicBlock block, VarDeclaration declaration)
+    {
+        int slot = getSlot(declaration);
+        
+        return slot != NOT_LOCAL && getIn(block).get(slot);
+    }
+    
+    private void summarize(BasicBlock block)
+    {
+        gen     = new BitSet(getSlotCount());
+        kill    = new BitSet(getSlotCount());
+        
+        for (Statement statement : block.getStatements())
+        {
+            summarizer.walk(statement);
+        }
+        
+        if (block.isConditional())
+        {
+            summarizer.walk(block.getCondition());
+        }
+        
+        gens[block.getID()]     = gen;
+        kills[block.getID()]    = kill;
+    }
+    
+    private void read(int slot)
+    {
+        if (slot != NOT_LOCAL && !kill.get(slot))
+        {
+            gen.set(slot);
+        }
+    }
+    
+    private void write(int slot)
+    {
+        if (slot != NOT_LOCAL)
+        {
+            kill.set(slot);
+        }
+    }
+    
+    /**
+     * Records what each statement reads and writes in gen and kill. Only 
+     *  the statements a block can hold are ever walked (declarations, 
+     *  expression statements and returns).
+     */
+    private class Summarizer extends AstWalker
+    {
+        @Override
+        public Void visitVarDeclaration(VarDeclaration statement)
+        {
+            walk(statement.getValue());
+            write(getSlot(statement));
+            return null;
+        }
+        
+        @Override
+        public Void visitAssignment(Expression.Assignment visitor)
+        {
+            visitAssignment(visitor.getOperand1(), visitor.getOperand2());
+            return null;
+        }
+        
+        private void visitAssignment(Expression target, Expression value)
+        {
+            walk(value);
+            
+            if (target instanceof Expression.Variable)
+            {
+                write(getSlot((Expression.Variable) target));
+            }
+            else
+            {
+                // storing through a member or pointer reads the object 
+                //  it's in
+                walk(target);
+            }
+        }
+        
+        @Override
+        public Void visitBinary(Expression.Binary visitor)
+        {
+            String operator = visitor.getOperator().getTextContent();
+            
+            if (operator.equals("="))
+            {
+                visitAssignment(visitor.getOperand1(), visitor.getOperand2());
+            }
+            else if (operator.equals(".") || operator.equals("->"))
+            {
+                // the right side names a field, not a variable
+                walk(visitor.getOperand1());
+            }
+            else
+            {
+                walk(visitor.getOperand1());
+                walk(visitor.getOperand2());
+            }
+            
+            return null;
+        }
+        
+        @Override
+        public Void visitUnary(Expression.Unary visitor)
+        {
+            walk(visitor.getOperand1());
+            
+            if (isIncrementOrDecrement(visitor) && 
+                visitor.getOperand1() instanceof Expression.Variable)
+            {
+                write(getSlot((Expression.Variable) visitor.getOperand1()));
+            }
+            
+            return null;
+        }
+        
+        @Override
+        public Void visitVar(Expression.Variable visitor)
+        {
+            read(getSlot(visitor));
+            return null;
+        }
+        
+        private boolean isIncrementOrDecrement(Expression.Unary expression)
+        {
+            String operator = expression.getOperator().getTextContent();
+            
+            return operator.equals("++") || operator.equals("--");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.Expression;
+import bluC.transpiler.statements.ExpressionStatement;
+import bluC.transpiler.statements.Package;
+import bluC.transpiler.statements.ParameterList;
+import bluC.transpiler.statements.Return;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Block;
+import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.blocks.If;
+import bluC.transpiler.statements.blocks.If.ElseIf;
+import bluC.transpiler.statements.blocks.Method;
+import bluC.transpiler.statements.blocks.StructDef;
+import bluC.transpiler.statements.blocks.While;
+import bluC.transpiler.statements.vars.VarDeclaration;
+
+/**
+ * Walks every statement of an AST, in source order, so that a pass only has
+ *  to override the statements it cares about.
+ * 
+ * Every body which opens a scope of its own (a function's, an if's, each
+ *  else-if's...) is walked by walkScope, and a function's parameters are 
+ *  walked just before its body's scope. The expressions in a statement are
+ *  handed to walk(Expression), which ignores them; see AstWalker for a 
+ *  walker which descends into them too.
+ * 
+ * @author John Schneider
+ */
+public abstract class StatementWalker implements Statement.Visitor<Void>
+{
+    protected void walk(Statement statement)
+    {
+        if (statement != null)
+        {
+            statement.accept(this);
+        }
+    }
+    
+    protected void walk(Expression expression)
+    {
+    }
+    
+    /**
+     * Walks the statements of <b>block</b>, in the current scope.
+     */
+    protected void walkBody(Block block)
+    {
+        for (Statement statement : block.getBody())
+        {
+            walk(statement);
+        }
+    }
+    
+    /**
+     * Walks the statements of <b>block</b>, which open a new scope.
+     */
+    protected void walkScope(Block block)
+    {
+        walkBody(block);
+    }
+    
+    @Override
+    public Void visitBlock(Block statement)
+    {
+        walkScope(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitFunction(Function statement)
+    {
+        walk(statement.getParameters());
+        walkScope(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitMethod(Method statement)
+    {
+        return visitFunction(statement);
+    }
+
+    @Override
+    public Void visitParameterList(ParameterList statement)
+    {
+        for (VarDeclaration parameter : statement.getParameters())
+        {
+            walk(parameter);
+        }
+        
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If statement)
+    {
+        walk(statement.getCondition());
+        walkScope(statement);
+        
+        for (ElseIf elseIf : statement.getElseIfs())
+        {
+            walk(elseIf.getCondition());
+            walkScope(elseIf);
+        }
+        
+        if (statement.getElse() != null)
+        {
+            walkScope(statement.getElse());
+        }
+        
+        return null;
+    }
+
+    @Override
+    public Void visitClassDef(ClassDef statement)
+    {
+        walkScope(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitStructDef(StructDef statement)
+    {
+        walkScope(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While statement)
+    {
+        walk(statement.getExitCondition());
+        walkScope(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Return statement)
+    {
+        walk(statement.getReturnedStatement());
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement statement)
+    {
+        walk(statement.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitPackage(Package statement)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement)
+    {
+        walk(statement.getValue());
+        return null;
+    }
+}
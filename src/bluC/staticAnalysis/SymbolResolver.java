@@ -0,0 +1,189 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.staticAnalysis;
+
+import bluC.transpiler.Expression;
+import bluC.transpiler.ResolvedSymbol;
+import bluC.transpiler.statements.ParameterList;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Block;
+import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Binds every variable declaration to a ResolvedSymbol, and annotates every
+ *  Expression.Variable with the symbol of the declaration it refers to.
+ * 
+ * The parser already links each use to its VarDeclaration, but only by
+ *  walking the scope chain by name. This pass gives each symbol a stable
+ *  numbering (scope depth, slot within its frame, and symbol ID) so that
+ *  later passes can index locals directly instead of searching for them.
+ * 
+ * Scopes are mirrored from the ones the parser pushes: functions and methods
+ *  share one scope between their parameters and body, while blocks, if/else-if
+ *  /else bodies, while loops and classes each push their own.
+ * 
+ * @author John Schneider
+ */
+public class SymbolResolver extends AstWalker
+{
+    /**
+     * Symbols are looked up by identity -- VarDeclaration.equals is
+     *  structural, so two different variables could compare equal.
+     */
+    private final IdentityHashMap<VarDeclaration, ResolvedSymbol> 
+                                        symbols;
+    private final IdentityHashMap<Statement, Integer>
+                                        frameSizes;
+    private final ArrayList<ResolvedSymbol>
+                                        symbolsInOrder;
+    
+    private int         scopeDepth;
+    private Statement   currentFrame;
+    private int         nextSlotIndex;
+    
+    public SymbolResolver()
+    {
+        symbols         = new IdentityHashMap<>();
+        frameSizes      = new IdentityHashMap<>();
+        symbolsInOrder  = new ArrayList<>();
+        scopeDepth      = 0;
+        currentFrame    = ResolvedSymbol.ROOT_FRAME;
+        nextSlotIndex   = 0;
+    }
+    
+    /**
+     * Resolves every symbol in the given AST. Returns all of the symbols that
+     *  were declared, ordered by symbol ID.
+     */
+    public ArrayList<ResolvedSymbol> resolve(ArrayList<Statement> 
+        abstractSyntaxTree)
+    {
+        for (Statement statement : abstractSyntaxTree)
+        {
+            walk(statement);
+        }
+        
+        frameSizes.put(ResolvedSymbol.ROOT_FRAME, nextSlotIndex);
+        return symbolsInOrder;
+    }
+    
+    /**
+     * Returns the symbol bound to <b>declaration</b>, or 
+     *  Expression.Variable.NOT_RESOLVED if it wasn't reached by this pass.
+     */
+    public ResolvedSymbol getSymbol(VarDeclaration declaration)
+    {
+        ResolvedSymbol symbol = symbols.get(declaration);
+        
+        return symbol == null ? Expression.Variable.NOT_RESOLVED : symbol;
+    }
+    
+    public ArrayList<ResolvedSymbol> getSymbols()
+    {
+        return symbolsInOrder;
+    }
+    
+    /**
+     * Returns how many slots were handed out in <b>frame</b> (a Function, 
+     *  Method, ClassDef or ResolvedSymbol.ROOT_FRAME).
+     */
+    public int getFrameSize(Statement frame)
+    {
+        Integer size = frameSizes.get(frame);
+        
+        return size == null ? 0 : size;
+    }
+    
+    private void declare(VarDeclaration declaration)
+    {
+        ResolvedSymbol symbol = new ResolvedSymbol(symbolsInOrder.size(), 
+            scopeDepth, nextSlotIndex, currentFrame, declaration);
+        
+        nextSlotIndex++;
+        symbols.put(declaration, symbol);
+        symbolsInOrder.add(symbol);
+    }
+    
+    /**
+     * Resolves the statements of <b>block</b> in a new child scope.
+     */
+    @Override
+    protected void walkScope(Block block)
+    {
+        scopeDepth++;
+        walkBody(block);
+        scopeDepth--;
+    }
+    
+    /**
+     * Resolves <b>frame</b>'s parameters (if any) and body with fresh slot
+     *  numbering, then restores the enclosing frame's numbering.
+     */
+    private void resolveFrame(Block frame, ParameterList parameters)
+    {
+        Statement   enclosingFrame          = currentFrame;
+        int         enclosingNextSlotIndex  = nextSlotIndex;
+        
+        currentFrame    = frame;
+        nextSlotIndex   = 0;
+        scopeDepth++;
+        
+        walk(parameters);
+        walkBody(frame);
+        
+        scopeDepth--;
+        frameSizes.put(frame, nextSlotIndex);
+        
+        currentFrame    = enclosingFrame;
+        nextSlotIndex   = enclosingNextSlotIndex;
+    }
+    
+    @Override
+    public Void visitFunction(Function statement)
+    {
+        resolveFrame(statement, statement.getParameters());
+        return null;
+    }
+
+    @Override
+    public Void visitClassDef(ClassDef statement)
+    {
+        resolveFrame(statement, null);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement)
+    {
+        // the value is resolved first, the same way the parser parses it 
+        //  before adding the new variable to the scope
+        walk(statement.getValue());
+        declare(statement);
+        return null;
+    }
+
+    @Override
+    public Void visitVar(Expression.Variable visitor)
+    {
+        visitor.setResolvedSymbol(getSymbol(visitor.getVariableInfo()));
+        return null;
+    }
+}
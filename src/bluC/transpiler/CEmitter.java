@@ -0,0 +1,697 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.transpiler;
+
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.profile.FlightRecording;
+import bluC.profile.events.FunctionEmitEvent;
+import bluC.staticAnalysis.DeclarationGraph;
+import bluC.transpiler.statements.ExpressionStatement;
+import bluC.transpiler.statements.Package;
+import bluC.transpiler.statements.ParameterList;
+import bluC.transpiler.statements.Return;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Block;
+import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.blocks.If;
+import bluC.transpiler.statements.blocks.If.ElseIf;
+import bluC.transpiler.statements.blocks.Method;
+import bluC.transpiler.statements.blocks.StructDef;
+import bluC.transpiler.statements.blocks.While;
+import bluC.transpiler.statements.vars.SimplifiedType;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the C translation of an AST straight to an Appendable.
+ * 
+ * Nothing is built up as an intermediate String, so each character of the
+ *  output is copied a constant number of times no matter how deeply the
+ *  source is nested.
+ * 
+ * Each top-level statement is emitted as one "chunk". Trailing newlines of a
+ *  chunk are dropped and replaced by a single newline, which matches the
+ *  output of the old String-based transpiler (which split each top-level
+ *  statement into lines and wrote each line followed by a newline).
+ * 
+ * An emitter is not thread-safe, but separate emitters can be used on 
+ *  separate threads.
+ * 
+ * @author John Schneider
+ */
+public class CEmitter implements Expression.Visitor<Void>, 
+    Statement.Visitor<Void>
+{
+    private static final String INDENT = "    ";
+    
+    public static final DeclarationGraph NO_FORWARD_DECLARATIONS = null;
+    
+    private final Appendable        output;
+    private final DeclarationGraph  declarationGraph;
+    private final ArrayList<String> indentStrings;
+    
+    /**
+     * How many blocks the emitter is currently inside
+     */
+    private int indentationLevel = 0;
+    
+    /**
+     * Newlines at the end of what was written so far in the current chunk.
+     *  They're only written once something else follows them in the same 
+     *  chunk.
+     */
+    private int     pendingNewlines;
+    private boolean chunkIsEmpty;
+    private boolean chunkHasContent;
+    
+    public CEmitter(Appendable output)
+    {
+        this(output, NO_FORWARD_DECLARATIONS);
+    }
+    
+    /**
+     * Classes that <b>declarationGraph</b> says need forward declarations 
+     *  are emitted as tagged structs so that they can be forward declared.
+     */
+    public CEmitter(Appendable output, DeclarationGraph declarationGraph)
+    {
+        this.output             = output;
+        this.declarationGraph   = declarationGraph;
+        indentStrings           = new ArrayList<>();
+        indentStrings.add("");
+    }
+    
+    /**
+     * Emits a top-level statement as its own chunk.
+     */
+    public void emitTopLevel(Statement statement) throws IOException
+    {
+        startChunk();
+        
+        try
+        {
+            statement.accept(this);
+
+            if (statement.needsSemicolon())
+            {
+                write(";");
+            }
+        }
+        catch (UncheckedIOException ex)
+        {
+            throw ex.getCause();
+        }
+        
+        endChunk();
+    }
+    
+    /**
+     * Emits a chunk which declares (without defining) each of the given 
+     *  top-level declarations, one per line. Emits nothing if there are no
+     *  declarations.
+     */
+    public void emitForwardDeclarations(List<Statement> declarations) 
+        throws IOException
+    {
+        if (declarations.isEmpty())
+        {
+            return;
+        }
+        
+        startChunk();
+        
+        try
+        {
+            for (Statement declaration : declarations)
+            {
+                writeForwardDeclaration(declaration);
+                write("\n");
+            }
+            
+            write(" \n");
+        }
+        catch (UncheckedIOException ex)
+        {
+            throw ex.getCause();
+        }
+        
+        endChunk();
+    }
+    
+    /**
+     * Emits only the struct of a class (without its methods) as a chunk.
+     */
+    public void emitClassStruct(ClassDef class_) throws IOException
+    {
+        startChunk();
+        
+        try
+        {
+            writeClassStruct(class_);
+        }
+        catch (UncheckedIOException ex)
+        {
+            throw ex.getCause();
+        }
+        
+        endChunk();
+    }
+    
+    /**
+     * Emits a preprocessor directive (i.e. "#include \"a.h\"") as a chunk.
+     */
+    public void emitDirective(String directive) throws IOException
+    {
+        startChunk();
+        
+        try
+        {
+            write(directive);
+        }
+        catch (UncheckedIOException ex)
+        {
+            throw ex.getCause();
+        }
+        
+        endChunk();
+    }
+    
+    private void startChunk()
+    {
+        pendingNewlines = 0;
+        chunkIsEmpty    = true;
+        chunkHasContent = false;
+    }
+    
+    private void endChunk() throws IOException
+    {
+        if (chunkHasContent || chunkIsEmpty)
+        {
+            output.append('\n');
+        }
+    }
+    
+    /**
+     * A class becomes "typedef struct Name Name;", a function or method 
+     *  becomes its prototype and a global variable becomes an extern 
+     *  declaration.
+     */
+    private void writeForwardDeclaration(Statement declaration)
+    {
+        if (declaration instanceof ClassDef)
+        {
+            String className = 
+                ((ClassDef) declaration).getClassName().getTextContent();
+            
+            write("typedef struct ");
+            write(className);
+            write(" ");
+            write(className);
+            write(";");
+        }
+        else if (declaration instanceof Function)
+        {
+            Function function = (Function) declaration;
+            
+            function.getReturnType().accept(this);
+            write(" ");
+            write(function instanceof Method ? 
+                ((Method) function).getMangledName() : 
+                function.getNameText());
+            function.getParameters().accept(this);
+            write(";");
+        }
+        else if (declaration instanceof VarDeclaration)
+        {
+            write("extern ");
+            writeDeclarator((VarDeclaration) declaration);
+            write(";");
+        }
+        else
+        {
+            throw new IllegalArgumentException("Can't forward declare a " +
+                declaration.getClass().getSimpleName());
+        }
+    }
+    
+    public int getIndentationLevel()
+    {
+        return indentationLevel;
+    }
+    
+    private void write(String text)
+    {
+        int length = text.length();
+        
+        if (length == 0)
+        {
+            return;
+        }
+        
+        chunkIsEmpty = false;
+        
+        int contentEnd = length;
+        while (contentEnd > 0 && text.charAt(contentEnd - 1) == '\n')
+        {
+            contentEnd--;
+        }
+        
+        try
+        {
+            if (contentEnd > 0)
+            {
+                for (; pendingNewlines > 0; pendingNewlines--)
+                {
+                    output.append('\n');
+                }
+                
+                output.append(text, 0, contentEnd);
+                chunkHasContent = true;
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        
+        pendingNewlines += length - contentEnd;
+    }
+    
+    private void indent()
+    {
+        while (indentStrings.size() <= indentationLevel)
+        {
+            indentStrings.add(
+                indentStrings.get(indentStrings.size() - 1) + INDENT);
+        }
+        
+        write(indentStrings.get(indentationLevel));
+    }
+    
+    @Override
+    public Void visitBlock(Block statement)
+    {
+        //indent opening brace
+        indent();
+        write("{\n");
+        indentationLevel ++;
+        
+        for (Statement s : statement.getBody())
+        {
+            if (!(s instanceof Block))
+            {
+                //indent code
+                indent();
+            }
+            
+            s.accept(this);
+            
+            if (!(s instanceof Block))
+            {
+                if (s.needsSemicolon())
+                {
+                    write(";");
+                }
+
+                write("\n");
+            }
+            //else blocks add a newline to themselves
+        }
+        
+        indentationLevel --;
+        
+        //indent closing brace
+        indent();
+        write("}\n");
+        
+        if (statement.needsExtraSpace())
+        {
+            write(" \n");
+        }
+        
+        return null;
+    }
+
+    @Override
+    public Void visitFunction(Function statement)
+    {
+        writeFunction(statement, statement.getNameText());
+        return null;
+    }
+    
+    @Override
+    public Void visitMethod(Method statement)
+    {
+        writeFunction(statement, statement.getMangledName());
+        return null;
+    }
+    
+    private void writeFunction(Function statement, String name)
+    {
+        FunctionEmitEvent emission = 
+            FlightRecording.isEnabled() ? new FunctionEmitEvent() : null;
+        
+        if (emission != null)
+        {
+            emission.begin();
+        }
+        
+        indent();
+        statement.getReturnType().accept(this);
+        write(" ");
+        write(name);
+        statement.getParameters().accept(this);
+        write("\n");
+        statement.acceptBlock(this);
+        
+        if (emission != null)
+        {
+            emission.end();
+            
+            if (emission.shouldCommit())
+            {
+                emission.name   = name;
+                emission.line   = statement.getNameToken().getLineIndex() + 1;
+                emission.commit();
+            }
+        }
+    }
+    
+    @Override
+    public Void visitParameterList(ParameterList statement)
+    {
+        ArrayList<VarDeclaration> params = statement.getParameters();
+        
+        write("(");
+        
+        for (int i = 0; i < params.size() - 1; i++)
+        {
+            params.get(i).accept(this);
+            write(", ");
+        }
+        
+        if (!params.isEmpty())
+        {
+            params.get(params.size() - 1).accept(this);
+        }
+        
+        write(")");
+        return null;
+    }
+    
+    @Override
+    public Void visitIf(If statement)
+    {
+        //indent "if" token and "condition" tokens
+        indent();
+        write("if (");
+        statement.getCondition().accept(this);
+        write(")\n");
+        statement.acceptBlock(this);
+        
+        for (ElseIf elseIf : statement.getElseIfs())
+        {
+            visitElseIf(elseIf);
+        }
+        
+        visitElse(statement);
+        write("\n");
+        
+        return null;
+    }
+    
+    private void visitElseIf(ElseIf elseIf)
+    {
+        //indent "else if" token and "condition" tokens
+        indent();
+        write("else if (");
+        elseIf.getCondition().accept(this);
+        write(")\n");
+        elseIf.acceptBlock(this);
+    }
+    
+    private void visitElse(If statement)
+    {
+        Block else_ = statement.getElse();
+        
+        if (else_ != null)
+        {
+            //indent "else" token
+            indent();
+            write("else\n");
+            else_.acceptBlock(this);
+        }
+    }
+    
+    @Override
+    public Void visitClassDef(ClassDef statement)
+    {
+        writeClassStruct(statement);
+        
+        for (Statement s : statement.getBody()) 
+        {
+            if (s instanceof Method)
+            {
+                indent();
+                s.accept(this);
+            }
+        }
+        
+        return null;
+    }
+    
+    private void writeClassStruct(ClassDef statement)
+    {
+        boolean isForwardDeclared = 
+            declarationGraph != NO_FORWARD_DECLARATIONS &&
+            declarationGraph.needsForwardDeclaration(statement);
+        
+        if (isForwardDeclared)
+        {
+            // the typedef is part of the forward declaration
+            write("struct ");
+            write(statement.getClassName().getTextContent());
+            write("\n");
+        }
+        else
+        {
+            write("typedef struct\n");
+        }
+        
+        write("{\n");
+        
+        indentationLevel++;
+        
+        for (Statement s : statement.getBody()) 
+        {
+            if (!(s instanceof Method))
+            {
+                indent();
+                s.accept(this);
+
+                if (s.needsSemicolon())
+                {
+                    write(";\n");
+                }
+            }
+        }
+        
+        indentationLevel--;
+        
+        if (isForwardDeclared)
+        {
+            write("};\n \n");
+        }
+        else
+        {
+            write("} ");
+            write(statement.getClassName().getTextContent());
+            write(";\n \n");
+        }
+    }
+    
+    @Override
+    public Void visitStructDef(StructDef statement)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+    
+    @Override
+    public Void visitWhile(While statement)
+    {
+        // indent while
+        indent();
+        write("while (");
+        statement.getExitCondition().accept(this);
+        write(")\n");
+        statement.acceptBlock(this);
+        
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Return statement)
+    {
+        write("return ");
+        statement.getReturnedStatement().accept(this);
+        
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement statement)
+    {
+        statement.getExpression().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement)
+    {
+        Expression value = statement.getValue();
+        
+        writeDeclarator(statement);
+        
+        if (value != null)
+        {
+            write(" ");
+            write(statement.getAssignmentOperator().getTextContent());
+            write(" ");
+            value.accept(this);
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Writes the type and name of a variable, without its value.
+     */
+    private void writeDeclarator(VarDeclaration statement)
+    {
+        String sign = statement.getSign().name().toLowerCase();
+        
+        if (!sign.equals("unspecified"))
+        {
+            write(sign);
+            write(" ");
+        }
+        
+        if (statement.getSimplifiedType() == SimplifiedType.CLASS)
+        {
+            write(ClassHandler.getClassDefinition(statement.getClassID()).
+                getClassName().getTextContent());
+        }
+        else 
+        {
+            write(statement.getSimplifiedType().name().toLowerCase().
+                replace("_", " "));
+        }
+        
+        if (!statement.isReturnVar())
+        {
+            write(" ");
+        }
+        //else it's a return declaration
+        
+        for (int i = 0; i < statement.getPointerLevel(); i++)
+        {
+            write("*");
+        }
+        
+        write(statement.getNameText());
+    }
+    
+    @Override
+    public Void visitAssignment(Expression.Assignment visitor)
+    {
+        visitor.getOperand1().accept(this);
+        write(" ");
+        write(visitor.getOperator().getTextContent());
+        write(" ");
+        visitor.getOperand2().accept(this);
+        
+        return null;
+    }
+    
+    @Override
+    public Void visitBinary(Expression.Binary visitor)
+    {
+        visitor.getOperand1().accept(this);
+        write(" ");
+        write(visitor.getOperator().getTextContent());
+        write(" ");
+        visitor.getOperand2().accept(this);
+        
+        return null;
+    }
+
+    @Override
+    public Void visitGrouping(Expression.Grouping visitor)
+    {
+        write("(");
+        visitor.getOperand1().accept(this);
+        write(")");
+        
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(Expression.Literal visitor)
+    {
+        write(visitor.getTextContent());
+        return null;
+    }
+
+    @Override
+    public Void visitUnary(Expression.Unary visitor)
+    {
+        if (visitor.isOperatorOnRight())
+        {
+            visitor.getOperand1().accept(this);
+            write(visitor.getOperator().getTextContent());
+        }
+        else
+        {
+            write(visitor.getOperator().getTextContent());
+            visitor.getOperand1().accept(this);
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public Void visitVar(Expression.Variable expression)
+    {
+        write(expression.getOperator().getTextContent());
+        return null;
+    }
+
+    @Override
+    public Void visitPackage(Package statement)
+    {
+        /**
+         * there's no concept of a package in c, and our package keyword
+         *  is basically just an additional string to mangle onto mangled names
+         */
+        write(statement.getFullyQualifiedPackageName());
+        return null;
+    }
+}
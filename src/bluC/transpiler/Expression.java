@@ -28,6 +28,12 @@ public abstract class Expression
     private Token operator;
     private Expression operand1, operand2;
     
+    /**
+     * See Statement.freeze -- frozen expressions cache their structural hash.
+     */
+    private boolean isFrozen = false;
+    private int     frozenHash;
+    
     public static interface Visitor<T>
     {
         T visitAssignment(Expression.Assignment visitor);
@@ -117,7 +123,7 @@ public abstract class Expression
         }
 
         @Override
-        public int hashCode()
+        protected int computeHashCode()
         {
             int hash = 7;
             hash = 89 * hash + Objects.hashCode(this.value);
@@ -161,12 +167,21 @@ public abstract class Expression
      */
     public static class Variable extends Expression
     {
+        public static final ResolvedSymbol NOT_RESOLVED = null;
+        
         private VarDeclaration variableInfo;
-
+        
+        /**
+         * Set by the symbol resolution pass, not by the parser. Not part of
+         *  .equals or .hashCode since it's derived from variableInfo.
+         */
+        private ResolvedSymbol resolvedSymbol;
+        
         public Variable(VarDeclaration variableInfo)
         {
             super(variableInfo.getName(), null, null);
             this.variableInfo   = variableInfo;
+            this.resolvedSymbol = NOT_RESOLVED;
         }
         
         public VarDeclaration getVariableInfo()
@@ -174,6 +189,21 @@ public abstract class Expression
             return variableInfo;
         }
         
+        public ResolvedSymbol getResolvedSymbol()
+        {
+            return resolvedSymbol;
+        }
+        
+        public void setResolvedSymbol(ResolvedSymbol resolvedSymbol)
+        {
+            this.resolvedSymbol = resolvedSymbol;
+        }
+        
+        public boolean isResolved()
+        {
+            return resolvedSymbol != NOT_RESOLVED;
+        }
+        
         @Override
         public <T> T accept(Visitor<T> visitor)
         {
@@ -181,7 +211,7 @@ public abstract class Expression
         }
 
         @Override
-        public int hashCode()
+        protected int computeHashCode()
         {
             int hash = 3;
             hash = 67 * hash + Objects.hashCode(this.variableInfo);
@@ -249,7 +279,7 @@ public abstract class Expression
         }
 
         @Override
-        public int hashCode()
+        protected int computeHashCode()
         {
             int hash = 7;
             hash = 47 * hash + (this.operatorIsOnRight ? 1 : 0);
@@ -306,6 +336,7 @@ public abstract class Expression
 
     public void setOperator(Token operator)
     {
+        checkNotFrozen();
         this.operator = operator;
     }
 
@@ -316,6 +347,7 @@ public abstract class Expression
 
     public void setOperand1(Expression operand1)
     {
+        checkNotFrozen();
         this.operand1 = operand1;
     }
 
@@ -326,13 +358,60 @@ public abstract class Expression
 
     public void setOperand2(Expression operand2)
     {
+        checkNotFrozen();
         this.operand2 = operand2;
     }
     
     public abstract <T> T accept(Visitor<T> visitor);
+    
+    /**
+     * Freezes this expression and its operands, caching their structural
+     *  hashes. Frozen expressions must not be modified afterwards.
+     */
+    public final void freeze()
+    {
+        if (!isFrozen)
+        {
+            if (operand1 != null)
+            {
+                operand1.freeze();
+            }
+            
+            if (operand2 != null)
+            {
+                operand2.freeze();
+            }
+            
+            frozenHash  = computeHashCode();
+            isFrozen    = true;
+        }
+    }
+    
+    public boolean isFrozen()
+    {
+        return isFrozen;
+    }
+    
+    protected void checkNotFrozen()
+    {
+        if (isFrozen)
+        {
+            throw new IllegalStateException("Tried to modify a frozen " + 
+                getClass().getSimpleName());
+        }
+    }
 
     @Override
-    public int hashCode()
+    public final int hashCode()
+    {
+        return isFrozen ? frozenHash : computeHashCode();
+    }
+    
+    /**
+     * Computes the structural hash of this expression. Subclasses override
+     *  this instead of hashCode (see Statement.computeHashCode).
+     */
+    protected int computeHashCode()
     {
         int hash = 5;
         hash = 11 * hash + Objects.hashCode(this.operator);
@@ -357,6 +436,10 @@ public abstract class Expression
             return false;
         }
         final Expression other = (Expression) obj;
+        if (isFrozen && other.isFrozen && frozenHash != other.frozenHash)
+        {
+            return false;
+        }
         if (!Objects.equals(this.operator, other.operator))
         {
             return false;
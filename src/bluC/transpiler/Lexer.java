@@ -39,6 +39,15 @@ public class Lexer
     //The value is whitespace since whitespace is ignored by the lexer
     private static final char END_OF_LINE = ' ';
     
+    /**
+     * The system property naming the file debug_writeOutput writes to, so 
+     *  that a run outside the compiler's own checkout (a test, say) needn't
+     *  overwrite DEFAULT_DEBUG_OUTPUT.
+     */
+    public static final String DEBUG_OUTPUT_PROPERTY    = "bluc.lexer.output";
+    public static final String DEFAULT_DEBUG_OUTPUT     = 
+                                    "src/lexerContents.txt";
+    
     public Lexer(String filePath, ArrayList<String> fileContents)
     {
         this.filePath = filePath;
@@ -554,6 +563,10 @@ public class Lexer
         }
     }
     
+    /**
+     * Writes the tokens, a statement to a line, to the file named by the
+     *  DEBUG_OUTPUT_PROPERTY system property (or DEFAULT_DEBUG_OUTPUT).
+     */
     public void debug_writeOutput()
     {
         ArrayList<String> output = new ArrayList<>();
@@ -583,12 +596,18 @@ public class Lexer
         }
         
         output.add(curLine);
-        bluC.BluC.writeFile("src/lexerContents.txt", output);
+        bluC.BluC.writeFile(System.getProperty(DEBUG_OUTPUT_PROPERTY, 
+            DEFAULT_DEBUG_OUTPUT), output);
     }
 
     @Override
     public boolean equals(Object other)
     {
+        if (this == other)
+        {
+            return true;
+        }
+        
         if (other instanceof Lexer)
         {
             Lexer otherLexer = (Lexer) other;
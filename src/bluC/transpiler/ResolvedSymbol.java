@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.transpiler;
+
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.vars.VarDeclaration;
+
+/**
+ * The binding of a variable, as computed by the symbol resolution pass.
+ * 
+ * Later passes use this instead of walking the scope chain again, e.g. a local
+ *  can be looked up directly by its slot within the enclosing frame.
+ * 
+ * @author John Schneider
+ */
+public class ResolvedSymbol
+{
+    /**
+     * The frame of a variable declared at the root (global) scope.
+     */
+    public static final Statement ROOT_FRAME = null;
+    
+    private final int               symbolID;
+    private final int               scopeDepth;
+    private final int               slotIndex;
+    private final Statement         frame;
+    private final VarDeclaration    declaration;
+    
+    public ResolvedSymbol(int symbolID, int scopeDepth, int slotIndex, 
+        Statement frame, VarDeclaration declaration)
+    {
+        this.symbolID       = symbolID;
+        this.scopeDepth     = scopeDepth;
+        this.slotIndex      = slotIndex;
+        this.frame          = frame;
+        this.declaration    = declaration;
+    }
+    
+    /**
+     * Returns the ID of this symbol, which is unique across the translation
+     *  unit it was resolved in.
+     */
+    public int getSymbolID()
+    {
+        return symbolID;
+    }
+    
+    /**
+     * Returns how many scopes deep the declaration is (the root scope is 0).
+     */
+    public int getScopeDepth()
+    {
+        return scopeDepth;
+    }
+    
+    /**
+     * Returns the index of this symbol within its frame. Slots are numbered
+     *  in declaration order, starting at 0, and are never reused within the
+     *  same frame.
+     */
+    public int getSlotIndex()
+    {
+        return slotIndex;
+    }
+    
+    /**
+     * Returns the Function, Method or ClassDef that owns this symbol's slot, or
+     *  ROOT_FRAME if it was declared in the root scope.
+     */
+    public Statement getFrame()
+    {
+        return frame;
+    }
+    
+    public VarDeclaration getDeclaration()
+    {
+        return declaration;
+    }
+    
+    public boolean isGlobal()
+    {
+        return frame == ROOT_FRAME;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "[symbol #" + symbolID + " \"" + declaration.getNameText() + 
+            "\", depth " + scopeDepth + ", slot " + slotIndex + "]";
+    }
+}
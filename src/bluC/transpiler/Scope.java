@@ -39,12 +39,19 @@ public class Scope
     private final Scope     parent;
     private final ArrayList<VarDeclaration>
                             variablesInThisScope;
+    
+    /**
+     * Frozen scopes can't have variables added to them, and cache their hash.
+     */
+    private boolean         isFrozen;
+    private int             frozenHash;
             
     public Scope(Scope parent, Statement scopeType)
     {
         this.parent             = parent;
         this.scopeType          = scopeType;
         variablesInThisScope    = new ArrayList<>();
+        isFrozen                = false;
     }
     
     public Statement getScopeType()
@@ -64,9 +71,34 @@ public class Scope
     
     public void addVariableToScope(VarDeclaration variable)
     {
+        if (isFrozen)
+        {
+            throw new IllegalStateException("Tried to add variable \"" + 
+                variable.getNameText() + "\" to frozen scope " + 
+                getPrettyScopeName());
+        }
+        
         variablesInThisScope.add(variable);
     }
     
+    /**
+     * Freezes this scope, caching its hash. Should only be called once
+     *  nothing will be declared in this scope anymore (i.e. after parsing).
+     */
+    public void freeze()
+    {
+        if (!isFrozen)
+        {
+            frozenHash  = computeHashCode();
+            isFrozen    = true;
+        }
+    }
+    
+    public boolean isFrozen()
+    {
+        return isFrozen;
+    }
+    
     public String getPrettyScopeName()
     {
         Statement type = getScopeType();
@@ -145,6 +177,11 @@ public class Scope
 
     @Override
     public int hashCode()
+    {
+        return isFrozen ? frozenHash : computeHashCode();
+    }
+    
+    private int computeHashCode()
     {
         int hash = 7;
         hash = 59 * hash + Objects.hashCode(this.scopeType);
@@ -169,6 +206,10 @@ public class Scope
             return false;
         }
         final Scope other = (Scope) obj;
+        if (isFrozen && other.isFrozen && frozenHash != other.frozenHash)
+        {
+            return false;
+        }
         if (!Objects.equals(this.scopeType, other.scopeType))
         {
             return false;
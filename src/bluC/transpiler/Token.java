@@ -24,7 +24,11 @@ import bluC.transpiler.statements.Package;
 import java.util.Objects;
 
 /**
- *
+ * Tokens are immutable (as are their TokenInfo and TokenFileInfo), so they 
+ *  can be cached, used as hash keys, and shared between threads. Their hash
+ *  is computed once, on construction. Use withTextContent to derive a token
+ *  with different text.
+ * 
  * @author John Schneider
  */
 public class Token
@@ -35,12 +39,14 @@ public class Token
     private final TokenInfo       tokenInfo;
     private final TokenFileInfo   fileInfo;
     private final String          package_;
+    private final int             hash;
     
     public Token(TokenInfo tokenInfo, TokenFileInfo fileInfo, String package_)
     {
         this.tokenInfo  = tokenInfo;
         this.fileInfo   = fileInfo;
         this.package_   = package_;
+        hash            = computeHash();
     }
     
     /**
@@ -52,6 +58,7 @@ public class Token
         this.tokenInfo  = tokenInfo;
         this.fileInfo   = fileInfo;
         this.package_   = Package.NO_PACKAGE;
+        hash            = computeHash();
     }
     
     
@@ -60,29 +67,43 @@ public class Token
         return tokenInfo.getTextContent();
     }
 
-    public void setTextContent(String textContent)
-    {
-        tokenInfo.setTextContent(textContent);
-    }
-    
     public String getFilepath()
     {
         return fileInfo.getFilePath();
     }
 
-    public void setFilepath(String filepath)
-    {
-        fileInfo.setFilePath(filepath);
-    }
-
     public int getLineIndex()
     {
         return fileInfo.getLineIndex();
     }
 
-    public void setLineIndex(int lineIndex)
+    public boolean getWasEmittedByCompiler()
     {
-        fileInfo.setLineIndex(lineIndex);
+        return tokenInfo.getWasEmittedByCompiler();
+    }
+    
+    public String getPackage()
+    {
+        return package_;
+    }
+    
+    /**
+     * Returns a new token with the same file info and package as this one, 
+     *  but with the given text. This token is left untouched.
+     */
+    public Token withTextContent(String textContent, 
+        boolean wasEmittedByCompiler)
+    {
+        return new Token(
+            new TokenInfo(textContent, wasEmittedByCompiler),
+            
+            new TokenFileInfo(getFilepath(), getLineIndex()),
+            package_);
+    }
+    
+    public Token withTextContent(String textContent)
+    {
+        return withTextContent(textContent, getWasEmittedByCompiler());
     }
     
     public boolean isNumber() throws MalformedNumber
@@ -262,11 +283,16 @@ public class Token
     @Override
     public boolean equals(Object other)
     {
-        if (other instanceof Token)
+        if (this == other)
+        {
+            return true;
+        }
+        else if (other instanceof Token)
         {
             Token otherToken = (Token) other;
             
             return
+                hash == otherToken.hash &&
                 fileInfo.equals(otherToken.fileInfo) &&
                 tokenInfo.equals(otherToken.tokenInfo) &&
                 
@@ -288,6 +314,11 @@ public class Token
 
     @Override
     public int hashCode()
+    {
+        return hash;
+    }
+    
+    private int computeHash()
     {
         int hash = 7;
         hash = 89 * hash + Objects.hashCode(this.tokenInfo);
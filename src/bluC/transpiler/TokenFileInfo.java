@@ -19,16 +19,17 @@ package bluC.transpiler;
 import java.util.Objects;
 
 /**
- *
+ * Immutable, so that the tokens built from it are too (see Token).
+ * 
  * @author John Schneider
  */
-public class TokenFileInfo
+public final class TokenFileInfo
 {
     public static final String  NO_FILEPATH = "n/a";
     public static final int     NO_LINE_INDEX = -1;
     
-    private String  filePath;
-    private int     lineIndex;
+    private final String    filePath;
+    private final int       lineIndex;
     
     public TokenFileInfo(String filePath, int lineIndex)
     {
@@ -41,21 +42,11 @@ public class TokenFileInfo
         return filePath;
     }
     
-    public void setFilePath(String filePath)
-    {
-        this.filePath = filePath;
-    }
-    
     public int getLineIndex()
     {
         return lineIndex;
     }
     
-    public void setLineIndex(int lineIndex)
-    {
-        this.lineIndex = lineIndex;
-    }
-    
     @Override
     public boolean equals(Object other)
     {
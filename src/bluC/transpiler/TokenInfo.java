@@ -19,15 +19,16 @@ package bluC.transpiler;
 import java.util.Objects;
 
 /**
- *
+ * Immutable, so that the tokens built from it are too (see Token).
+ * 
  * @author John Schneider
  */
-public class TokenInfo
+public final class TokenInfo
 {
     public static final String NO_TEXT_CONTENT = "<n/a>";
     
-    private String  textContent;
-    private boolean wasEmittedByCompiler;
+    private final String    textContent;
+    private final boolean   wasEmittedByCompiler;
     
     public TokenInfo(String textContent, boolean wasEmittedByCompiler)
     {
@@ -41,21 +42,11 @@ public class TokenInfo
         return textContent;
     }
 
-    public void setTextContent(String textContent)
-    {
-        this.textContent = textContent;
-    }
-
     public boolean getWasEmittedByCompiler()
     {
         return wasEmittedByCompiler;
     }
 
-    public void setWasEmittedByCompiler(boolean wasEmittedByCompiler)
-    {
-        this.wasEmittedByCompiler = wasEmittedByCompiler;
-    }
-    
     @Override
     public boolean equals(Object other)
     {
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.transpiler;
+
+import bluC.staticAnalysis.DeclarationGraph;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.transpiler.statements.blocks.Method;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+/**
+ * Splits a transpiled program into several C translation units which can be
+ *  compiled in parallel, plus one header that every unit includes.
+ * 
+ * The header holds everything a unit might need from another unit: the 
+ *  forward declarations, every class' struct, a prototype for every 
+ *  function and method and an extern declaration for every global variable.
+ *  The definitions themselves are spread over the units.
+ * 
+ * Definitions that depend on each other (right now, a class' methods) are 
+ *  kept in the same unit. These clusters are handed out largest first to 
+ *  whichever unit has the fewest lines so far, which keeps the units close
+ *  in size. Within a unit, definitions keep their source order.
+ * 
+ * @author John Schneider
+ */
+public class TranslationUnits
+{
+    private final ArrayList<Statement>              statements;
+    private final DeclarationGraph                  declarationGraph;
+    private final ArrayList<ArrayList<Statement>>   units;
+    
+    /**
+     * <b>statements</b> is the analyzed AST, and <b>declarationGraph</b> is
+     *  the graph built from it. At most <b>maxUnitCount</b> units are 
+     *  created (fewer if there aren't enough definitions to go around).
+     */
+    public TranslationUnits(ArrayList<Statement> statements, 
+        DeclarationGraph declarationGraph, int maxUnitCount)
+    {
+        this.statements         = statements;
+        this.declarationGraph   = declarationGraph;
+        this.units              = partition(Math.max(1, maxUnitCount));
+    }
+    
+    public int getUnitCount()
+    {
+        return units.size();
+    }
+    
+    /**
+     * Returns the top-level definitions that unit <b>unitIndex</b> contains,
+     *  in source order.
+     */
+    public ArrayList<Statement> getUnit(int unitIndex)
+    {
+        return units.get(unitIndex);
+    }
+    
+    /**
+     * Emits the header shared by every unit. <b>headerName</b> is only used
+     *  for the include guard.
+     */
+    public void emitHeader(String headerName, Appendable output) 
+        throws IOException
+    {
+        CEmitter                emitter         = new CEmitter(output, 
+                                                    declarationGraph);
+        ArrayList<Statement>    declarations    = new ArrayList<>();
+        String                  includeGuard    = getIncludeGuard(headerName);
+        
+        emitter.emitDirective("#ifndef " + includeGuard);
+        emitter.emitDirective("#define " + includeGuard);
+        emitter.emitForwardDeclarations(
+            declarationGraph.getForwardDeclarations());
+        
+        for (Statement statement : declarationGraph.getDeclarations())
+        {
+            if (statement instanceof ClassDef)
+            {
+                emitter.emitClassStruct((ClassDef) statement);
+            }
+            else if (!declarationGraph.needsForwardDeclaration(statement))
+            {
+                declarations.add(statement);
+            }
+        }
+        
+        emitter.emitForwardDeclarations(declarations);
+        emitter.emitDirective("#endif");
+    }
+    
+    /**
+     * Emits unit <b>unitIndex</b>, which includes the header 
+     *  <b>headerFileName</b>.
+     */
+    public void emitUnit(int unitIndex, String headerFileName, 
+        Appendable output) throws IOException
+    {
+        CEmitter emitter = new CEmitter(output, declarationGraph);
+        
+        emitter.emitDirective("#include \"" + headerFileName + "\"");
+        
+        for (Statement definition : units.get(unitIndex))
+        {
+            emitter.emitTopLevel(definition);
+        }
+    }
+    
+    private static String getIncludeGuard(String headerName)
+    {
+        return headerName.toUpperCase().replaceAll("[^A-Z0-9]", "_") + "_";
+    }
+    
+    private ArrayList<ArrayList<Statement>> partition(int maxUnitCount)
+    {
+        ArrayList<Cluster>              clusters    = getClusters();
+        ArrayList<ArrayList<Statement>> partitions  = new ArrayList<>();
+        long[]                          unitSizes;
+        
+        Collections.sort(clusters, new Comparator<Cluster>()
+        {
+            @Override
+            public int compare(Cluster a, Cluster b)
+            {
+                return Long.compare(b.size, a.size);
+            }
+        });
+        
+        int unitCount = Math.max(1, Math.min(maxUnitCount, clusters.size()));
+        unitSizes = new long[unitCount];
+        
+        IdentityHashMap<Statement, Integer> unitOf = new IdentityHashMap<>();
+        
+        for (Cluster cluster : clusters)
+        {
+            int smallestUnit = 0;
+            
+            for (int i = 1; i < unitCount; i++)
+            {
+                if (unitSizes[i] < unitSizes[smallestUnit])
+                {
+                    smallestUnit = i;
+                }
+            }
+            
+            unitSizes[smallestUnit] += cluster.size;
+            
+            for (Statement definition : cluster.definitions)
+            {
+                unitOf.put(definition, smallestUnit);
+            }
+        }
+        
+        for (int i = 0; i < unitCount; i++)
+        {
+            partitions.add(new ArrayList<Statement>());
+        }
+        
+        // walk the definitions in source order so each unit keeps it
+        for (Statement definition : getDefinitionsInSourceOrder())
+        {
+            partitions.get(unitOf.get(definition)).add(definition);
+        }
+        
+        return partitions;
+    }
+    
+    /**
+     * Every top-level statement that defines something (as opposed to a 
+     *  class, whose struct goes in the header), with methods taking the 
+     *  place of their class.
+     */
+    private ArrayList<Statement> getDefinitionsInSourceOrder()
+    {
+        ArrayList<Statement> definitions = new ArrayList<>();
+        
+        for (Statement statement : statements)
+        {
+            if (statement instanceof ClassDef)
+            {
+                for (Statement member : ((ClassDef) statement).getBody())
+                {
+                    if (member instanceof Method)
+                    {
+                        definitions.add(member);
+                    }
+                }
+            }
+            else
+            {
+                definitions.add(statement);
+            }
+        }
+        
+        return definitions;
+    }
+    
+    private ArrayList<Cluster> getClusters()
+    {
+        ArrayList<Cluster>                  clusters    = new ArrayList<>();
+        IdentityHashMap<ClassDef, Cluster>  methodsOf   = 
+                                                new IdentityHashMap<>();
+        
+        for (Statement definition : getDefinitionsInSourceOrder())
+        {
+            Cluster cluster;
+            
+            if (definition instanceof Method)
+            {
+                ClassDef class_ = ((Method) definition).getClass_();
+                
+                cluster = methodsOf.get(class_);
+                
+                if (cluster == null)
+                {
+                    cluster = new Cluster();
+                    methodsOf.put(class_, cluster);
+                    clusters.add(cluster);
+                }
+            }
+            else
+            {
+                cluster = new Cluster();
+                clusters.add(cluster);
+            }
+            
+            cluster.add(definition);
+        }
+        
+        return clusters;
+    }
+    
+    /**
+     * Definitions which have to end up in the same unit.
+     */
+    private static class Cluster
+    {
+        private final ArrayList<Statement>  definitions = new ArrayList<>();
+        private long                        size        = 0;
+        
+        private void add(Statement definition)
+        {
+            definitions.add(definition);
+            size += getSize(definition);
+        }
+        
+        /**
+         * How many source lines a definition spans, as a rough estimate of 
+         *  how long it takes to compile.
+         */
+        private static long getSize(Statement definition)
+        {
+            long start  = definition.getStartingLineIndex();
+            long end    = definition.getEndingLineIndex();
+            
+            if (start == Statement.NO_STARTING_LINE_INDEX || 
+                end == Statement.NO_ENDING_LINE_INDEX || end < start)
+            {
+                return 1;
+            }
+            
+            return end - start + 1;
+        }
+    }
+}
@@ -17,31 +17,35 @@
 package bluC.transpiler;
 
 import bluC.transpiler.statements.Statement;
-import bluC.transpiler.statements.blocks.Block;
+import bluC.Debug;
+import bluC.Flags;
 import bluC.Logger;
 import bluC.parser.Parser;
+import bluC.profile.BuildMetrics;
+import bluC.profile.FlightRecording;
+import bluC.profile.MemoryStats;
+import bluC.profile.Profiler;
+import bluC.profile.events.LexEvent;
+import bluC.staticAnalysis.ConstantFolder;
+import bluC.staticAnalysis.DeclarationGraph;
+import bluC.staticAnalysis.SymbolResolver;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
-import bluC.transpiler.statements.blocks.If.ElseIf;
-import bluC.transpiler.statements.vars.SimplifiedType;
-import bluC.parser.handlers.statement.ClassHandler;
-import bluC.transpiler.statements.ExpressionStatement;
-import bluC.transpiler.statements.Package;
-import bluC.transpiler.statements.blocks.ClassDef;
-import bluC.transpiler.statements.blocks.If;
-import bluC.transpiler.statements.blocks.Method;
-import bluC.transpiler.statements.blocks.Function;
-import bluC.transpiler.statements.ParameterList;
-import bluC.transpiler.statements.Return;
-import bluC.transpiler.statements.vars.VarDeclaration;
-import bluC.transpiler.statements.blocks.While;
-import bluC.transpiler.statements.blocks.StructDef;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
  * @author John Schneider
  */
-public class Transpiler implements Expression.Visitor<String>,
-    Statement.Visitor<String>
+public class Transpiler
 {
     private String filepath;
     private ArrayList<String> rawFileContents;
@@ -49,462 +53,372 @@ public class Transpiler implements Expression.Visitor<String>,
     private ArrayList<Token> lexedTokens;
     private Parser parser;
     private ArrayList<Statement> statements;
-    private ArrayList<String> outputFileContents;
-    
-    /**
-     * How many blocks the transpiler is currently inside
-     */
-    private int indentationLevel = 0;
+    private SymbolResolver symbolResolver;
+    private DeclarationGraph declarationGraph;
     
     public Transpiler(String filepath, ArrayList<String> rawFileContents)
     {
         this.filepath = filepath;
         this.rawFileContents = rawFileContents;
         lexer = new Lexer(filepath, rawFileContents);
-        outputFileContents = new ArrayList<>();
     }
     
+    /**
+     * Convenience wrapper around analyze and emit which returns the
+     *  transpiled file as a list of lines (empty if there was an error).
+     */
     public ArrayList<String> transpile()
     {
-        AstPrinter printer;
-        
-        importCoreLanguageDependencies();
-        lex();
-        parse();
+        ArrayList<String>   outputFileContents  = new ArrayList<>();
+        StringBuilder       output              = new StringBuilder();
         
-        if (!Logger.hasLoggedError())
+        if (analyze())
         {
-            // TODO : only forward-declare funcs/methods/classes that
-            //  require forward declaration to work right (right now 
-            //  we forward-declare all of them)
-            forwardDeclareFuncsClassesAndMethods();
-            printer = new AstPrinter();
-
-            for (Statement statement : statements)
+            try
             {
-                String output = statement.accept(this);
-
-                if (statement.needsSemicolon())
+                emit(output);
+            }
+            catch (IOException ex)
+            {
+                // a StringBuilder never throws
+                ex.printStackTrace();
+            }
+            
+            int lineStart = 0;
+            for (int i = 0; i < output.length(); i++)
+            {
+                if (output.charAt(i) == '\n')
                 {
-                    output += ";";
+                    outputFileContents.add(output.substring(lineStart, i));
+                    lineStart = i + 1;
                 }
-
-                addToOutputFileContents(output);
-
-                printer.print(statement);
             }
         }
-        else
-        {
-            parser.dumpAstToStdout();
-        }
         
         return outputFileContents;
     }
     
-    private void addToOutputFileContents(String strToSplit)
+    /**
+     * Runs every phase before code generation. Returns false (after dumping
+     *  the AST) if an error was logged, in which case emit must not be 
+     *  called.
+     */
+    public boolean analyze()
     {
-        String[] splitStr = strToSplit.split("\n");
+        importCoreLanguageDependencies();
+        lex();
+        parse();
         
-        for (String s : splitStr)
+        if (!Logger.hasLoggedError())
         {
-            outputFileContents.add(s);
+            Profiler.Measurement analysis = Profiler.start(
+                Profiler.Phase.ANALYZE);
+            
+            resolveSymbols();
+            foldConstants();
+            freezeAst();
+            buildDeclarationGraph();
+            
+            analysis.stop();
+            
+            MemoryStats.countAst(statements, symbolResolver);
+            BuildMetrics.countAst(statements);
+            MemoryStats.measureRetainedHeap(Profiler.Phase.ANALYZE);
+            return true;
         }
-    }
-    
-    private void lex()
-    {
-        CommentsRemover.run(filepath, rawFileContents);
-        for (String s : rawFileContents)
+        else
         {
-            System.out.println(s);
+            parser.dumpAstToStdout();
+            return false;
         }
-        
-        lexedTokens = lexer.lex();
-        lexer.debug_writeOutput();
-    }
-    
-    private void parse()
-    {
-        parser      = new Parser(lexedTokens);
-        statements  = parser.parse();
-    }
-    
-    private void importCoreLanguageDependencies()
-    {
-        
     }
     
-    private void forwardDeclareFuncsClassesAndMethods()
+    /**
+     * Streams the C translation of the analyzed file to output. If the 
+     *  "parallel" flag is set, top-level declarations are emitted on a 
+     *  worker pool instead (see emitInParallel).
+     * 
+     * Profiled as the emit phase, on the calling thread (so when emitting in
+     *  parallel, the workers' allocations aren't counted).
+     */
+    public void emit(Appendable output) throws IOException
     {
+        AstPrinter              printer     = new AstPrinter();
+        Profiler.Measurement    emission    = Profiler.start(
+                                                Profiler.Phase.EMIT);
         
-    }
-    
-    @Override
-    public String visitBlock(Block statement)
-    {
-        String output = "";
+        forwardDeclareFuncsClassesAndMethods(output);
         
-        //indent opening brace
-        for (int i = 0; i < indentationLevel; i++)
+        if (Flags.get("parallel") != null)
         {
-            output += "    ";
+            int workerCount = Runtime.getRuntime().availableProcessors();
+            
+            Debug.printf(Debug.Category.EMITTER, 
+                "emitting %d declarations on %d threads", statements.size(),
+                workerCount);
+            emitInParallel(output, workerCount);
         }
-        
-        output += "{\n";
-        indentationLevel ++;
-        
-        for (Statement s : statement.getBody())
+        else
         {
-            if (!(s instanceof Block))
-            {
-                //indent code
-                for (int i = 0; i < indentationLevel; i++)
-                {
-                    output += "    ";
-                }
-            }
+            CEmitter emitter = new CEmitter(output, declarationGraph);
             
-            output += s.accept(this);
-            
-            if (!(s instanceof Block))
+            for (Statement statement : statements)
             {
-                if (s.needsSemicolon())
+                if (Debug.Category.EMITTER.isEnabled())
                 {
-                    output += ";";
+                    Debug.printf(Debug.Category.EMITTER, "emitting %s %s", 
+                        statement.getClass().getSimpleName(), 
+                        Statement.getDeclaredName(statement));
                 }
-
-                output += "\n";
+                
+                emitter.emitTopLevel(statement);
             }
-            //else blocks add a newline to themselves
-        }
-        
-        indentationLevel --;
-        
-        //indent closing brace
-        for (int i = 0; i < indentationLevel; i++)
-        {
-            output += "    ";
         }
         
-        output += "}\n";
+        emission.stop();
+        MemoryStats.measureRetainedHeap(Profiler.Phase.EMIT);
         
-        if (statement.needsExtraSpace())
+        for (Statement statement : statements)
         {
-            output += " \n";
+            printer.print(statement);
         }
-        
-        return output;
     }
-
-    @Override
-    public String visitFunction(Function statement)
+    
+    /**
+     * Emits each top-level declaration on a pool of workerCount threads, 
+     *  each with its own CEmitter (and so its own indentation state). The
+     *  AST is frozen by now, so the workers only ever read it.
+     * 
+     * Chunks are appended to output in source order, each one as soon as it 
+     *  and every chunk before it are done. The result is identical to the
+     *  sequential emission.
+     */
+    public void emitInParallel(Appendable output, int workerCount) 
+        throws IOException
     {
-        String output = "";
-        
-        for (int i = 0; i < indentationLevel; i++)
-        {
-            output += "    ";
-        }
-        
-        output += statement.getReturnType().accept(this) + " " + 
-                statement.getNameText() + 
-                statement.getParameters().accept(this) + "\n" +
-                statement.acceptBlock(this);
-        
-        return output;
+        emitInParallel(output, statements, declarationGraph, workerCount);
     }
     
-    @Override
-    public String visitMethod(Method statement)
+    /**
+     * Emits each of <b>statements</b> on a pool of workerCount threads (see
+     *  the public emitInParallel). If a worker throws, the first failure in
+     *  source order is rethrown and the rest of the emission is abandoned.
+     */
+    static void emitInParallel(Appendable output, 
+        List<Statement> statements, final DeclarationGraph declarationGraph,
+        int workerCount) throws IOException
     {
-        String output = "";
+        ExecutorService             workers = Executors.newFixedThreadPool(
+                                                workerCount, 
+                                                new EmitterThreadFactory());
+        ArrayList<Future<String>>   chunks  = new ArrayList<>();
         
-        for (int i = 0; i < indentationLevel; i++)
+        try
         {
-            output += "    ";
+            for (final Statement statement : statements)
+            {
+                chunks.add(workers.submit(new Callable<String>()
+                {
+                    @Override
+                    public String call() throws IOException
+                    {
+                        StringBuilder chunk = new StringBuilder();
+                        new CEmitter(chunk, declarationGraph).
+                            emitTopLevel(statement);
+                        
+                        return chunk.toString();
+                    }
+                }));
+            }
+            
+            for (Future<String> chunk : chunks)
+            {
+                output.append(chunk.get());
+            }
         }
-        
-        output += statement.getReturnType().accept(this) + " " + 
-                statement.getMangledName() + 
-                statement.getParameters().accept(this) + "\n" +
-                statement.acceptBlock(this);
-        
-        return output;
-    }
-    
-    @Override
-    public String visitParameterList(ParameterList statement)
-    {
-        String output = "(";
-        ArrayList<VarDeclaration> params = statement.getParameters();
-        
-        for (int i = 0; i < params.size() - 1; i++)
+        catch (InterruptedException ex)
         {
-            VarDeclaration param = params.get(i);
-            output += param.accept(this) + ", ";
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                "Interrupted while emitting in parallel");
         }
-        
-        if (!params.isEmpty())
+        catch (ExecutionException ex)
         {
-            output += params.get(params.size() - 1).accept(this);
+            Throwable cause = ex.getCause();
+            
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            else
+            {
+                throw new IllegalStateException(cause);
+            }
         }
-        
-        output += ")";
-        return output;
-    }
-    
-    @Override
-    public String visitIf(If statement)
-    {
-        String output = "";
-        
-        //indent "if" token and "condition" tokens
-        for (int i = 0; i < indentationLevel; i++)
+        finally
         {
-            output += "    ";
+            workers.shutdownNow();
         }
-        
-        output += "if (" + statement.getCondition().accept(this) + ")\n";
-        output += statement.acceptBlock(this);
-        
-        output += visitElseIfs(statement);
-        output += visitElse(statement);
-        output += "\n";
-        
-        return output;
     }
     
-    private String visitElseIfs(If statement)
+    /**
+     * Splits the analyzed file into at most <b>maxUnitCount</b> translation
+     *  units that can be compiled separately.
+     */
+    public TranslationUnits splitIntoTranslationUnits(int maxUnitCount)
     {
-        String output = "";
-        ArrayList<ElseIf> elseIfs = statement.getElseIfs();
-        
-        for (ElseIf elseIf : elseIfs)
-        {
-            output += visitElseIf(elseIf);
-        }
-        
-        return output;
+        return new TranslationUnits(statements, declarationGraph, 
+            maxUnitCount);
     }
     
-    private String visitElseIf(ElseIf elseIf)
+    private void lex()
     {
-        String output = "";
+        Profiler.Measurement commentStripping   = Profiler.start(
+                                                    Profiler.Phase.
+                                                    STRIP_COMMENTS);
+        Profiler.Measurement lexing;
+        LexEvent             lexEvent           = 
+            FlightRecording.isEnabled() ? new LexEvent() : null;
+        
+        CommentsRemover.run(filepath, rawFileContents);
+        commentStripping.stop();
         
-        //indent "else if" token and "condition" tokens
-        for (int i = 0; i < indentationLevel; i++)
+        if (Debug.Category.LEXER.isEnabled())
         {
-            output += "    ";
+            for (String s : rawFileContents)
+            {
+                Debug.printf(Debug.Category.LEXER, "%s", s);
+            }
         }
         
-        output += "else if (" + elseIf.getCondition().accept(this) + ")\n";
-        output += elseIf.acceptBlock(this);
+        lexing      = Profiler.start(Profiler.Phase.LEX);
         
-        return output;
-    }
-    
-    private String visitElse(If statement)
-    {
-        Block else_ = statement.getElse();
-        String output = "";
-        
-        //indent "else if" token and "condition" tokens
-        for (int i = 0; i < indentationLevel; i++)
+        if (lexEvent != null)
         {
-            output += "    ";
+            lexEvent.begin();
         }
         
-        output += "else\n";
-        output += else_.acceptBlock(this);
-        
-        return output;
-    }
-    
-    @Override
-    public String visitClassDef(ClassDef statement)
-    {
-        ArrayList<Method> methods = new ArrayList<>();
-        String output = "typedef struct\n" +
-                        "{\n";
-        
-        indentationLevel++;
+        lexedTokens = lexer.lex();
+        lexing.stop();
         
-        for (Statement s : statement.getBody()) 
+        if (lexEvent != null)
         {
-            if (s instanceof Method)
-            {
-                methods.add((Method) s);
-            }
-            else
+            lexEvent.end();
+            
+            if (lexEvent.shouldCommit())
             {
-                for (int i = 0; i < indentationLevel; i++)
-                {
-                    output += "    ";
-                }
-
-                output += s.accept(this);
-
-                if (s.needsSemicolon())
-                {
-                    output += ";\n";
-                }
+                lexEvent.path       = filepath;
+                lexEvent.tokenCount = lexedTokens.size();
+                lexEvent.commit();
             }
         }
         
-        indentationLevel--;
-        output += "} " + statement.getClassName().getTextContent() + ";\n \n";
+        MemoryStats.countTokens(lexedTokens);
+        BuildMetrics.countTokens(lexedTokens.size());
+        MemoryStats.measureRetainedHeap(Profiler.Phase.LEX);
         
-        for (Method m : methods)
+        if (Debug.Category.LEXER.isEnabled())
         {
-            for (int i = 0; i < indentationLevel; i++)
-            {
-                output += "    ";
-            }
-
-            output += m.accept(this);
+            lexer.debug_writeOutput();
         }
-        
-        return output;
-    }
-    
-    @Override
-    public String visitStructDef(StructDef statement)
-    {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
     
-    @Override
-    public String visitWhile(While statement)
+    private void parse()
     {
-        String output = "";
-        
-        // indent while
-        for (int i = 0; i < indentationLevel; i++)
-        {
-            output += "    ";
-        }
+        Profiler.Measurement parsing = Profiler.start(Profiler.Phase.PARSE);
         
-        output += "while (" + statement.getExitCondition().accept(this) + ")\n";
-        output += statement.acceptBlock(this);
+        parser      = new Parser(lexedTokens);
+        statements  = parser.parse();
         
-        return output;
+        parsing.stop();
+        MemoryStats.measureRetainedHeap(Profiler.Phase.PARSE);
     }
-
-    @Override
-    public String visitReturn(Return statement)
+    
+    private void resolveSymbols()
     {
-        return "return " + statement.getReturnedStatement().accept(this);
+        symbolResolver = new SymbolResolver();
+        symbolResolver.resolve(statements);
     }
-
-    @Override
-    public String visitExpressionStatement(ExpressionStatement 
-        statement)
+    
+    private void foldConstants()
     {
-        return statement.getExpression().accept(this);
+        new ConstantFolder().fold(statements);
     }
-
-    @Override
-    public String visitVarDeclaration(VarDeclaration statement)
+    
+    /**
+     * The AST is complete at this point, so freeze it. Any later use of its
+     *  nodes as hash keys (or comparing subtrees) is then cheap.
+     */
+    private void freezeAst()
     {
-        String sign = statement.getSign().name().toLowerCase();
-        String output = "";
-        Expression value = statement.getValue();
-        
-        if (!sign.equals("unspecified"))
-        {
-            output = sign + " ";
-        }
-        
-        if (statement.getSimplifiedType() == SimplifiedType.CLASS)
-        {
-            output += ClassHandler.getClassDefinition(statement.getClassID()).
-                getClassName().getTextContent();
-        }
-        else 
-        {
-            output += statement.getSimplifiedType().name().toLowerCase().
-                replace("_", " ");
-        }
-        
-        if (!statement.isReturnVar())
-        {
-            output += " ";
-        }
-        //else it's a return declaration
-        
-        for (int i = 0; i < statement.getPointerLevel(); i++)
+        for (Statement statement : statements)
         {
-            output += "*";
+            statement.freeze();
         }
         
-        output += statement.getNameText();
-        
-        if (value != null)
-        {
-            output += " " + statement.getAssignmentOperator().getTextContent() +
-                " " + value.accept(this);
-        }
-        
-        return output;
+        parser.getCurrentScope().freeze();
     }
     
-    @Override
-    public String visitAssignment(Expression.Assignment visitor)
+    private void buildDeclarationGraph()
     {
-        return visitor.getOperand1().accept(this) + " " +
-            visitor.getOperator().getTextContent() + " " +
-            visitor.getOperand2().accept(this);
+        declarationGraph = new DeclarationGraph();
+        declarationGraph.build(statements);
     }
     
-    @Override
-    public String visitBinary(Expression.Binary visitor)
-    {
-        return visitor.getOperand1().accept(this) + " " +
-            visitor.getOperator().getTextContent() + " " +
-            visitor.getOperand2().accept(this);
-    }
-
-    @Override
-    public String visitGrouping(Expression.Grouping visitor)
-    {
-        return "(" + visitor.getOperand1().accept(this) + ")";
-    }
-
-    @Override
-    public String visitLiteral(Expression.Literal visitor)
+    /**
+     * Returns the symbols resolved for the transpiled AST, or null if the
+     *  AST couldn't be resolved due to a parse error.
+     */
+    public SymbolResolver getSymbolResolver()
     {
-        return visitor.getTextContent();
+        return symbolResolver;
     }
-
-    @Override
-    public String visitUnary(Expression.Unary visitor)
+    
+    /**
+     * Emitter threads are daemons so that a failed emission can never keep 
+     *  the compiler alive.
+     */
+    private static class EmitterThreadFactory implements ThreadFactory
     {
-        if (visitor.isOperatorOnRight())
-        {
-            return visitor.getOperand1().accept(this) +
-                visitor.getOperator().getTextContent();
-        }
-        else
+        private static final AtomicInteger threadCount = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable)
         {
-            return visitor.getOperator().getTextContent() +
-                visitor.getOperand1().accept(this);
+            Thread thread = new Thread(runnable, "bluC-emitter-" + 
+                threadCount.incrementAndGet());
+            
+            thread.setDaemon(true);
+            return thread;
         }
     }
     
-    @Override
-    public String visitVar(Expression.Variable expression)
+    /**
+     * Returns the dependencies between the top-level declarations of the
+     *  transpiled AST, or null if there was a parse error.
+     */
+    public DeclarationGraph getDeclarationGraph()
     {
-        return expression.getOperator().getTextContent();
+        return declarationGraph;
     }
-
-    @Override
-    public String visitPackage(Package statement)
+    
+    private void importCoreLanguageDependencies()
+    {
+        
+    }
+    
+    /**
+     * Only declarations which are used before they're defined are forward
+     *  declared (see DeclarationGraph).
+     */
+    private void forwardDeclareFuncsClassesAndMethods(Appendable output) 
+        throws IOException
     {
-        /**
-         * there's no concept of a package in c, and our package keyword
-         *  is basically just an additional string to mangle onto mangled names
-         */
-        return statement.getFullyQualifiedPackageName();
+        new CEmitter(output, declarationGraph).emitForwardDeclarations(
+            declarationGraph.getForwardDeclarations());
     }
 }
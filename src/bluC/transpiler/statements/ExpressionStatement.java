@@ -24,7 +24,7 @@ import java.util.Objects;
  */
 public class ExpressionStatement extends Statement
 {
-    private final Expression expression;
+    private Expression expression;
 
     public ExpressionStatement(Expression expression, long startingLineIndex)
     {
@@ -43,8 +43,23 @@ public class ExpressionStatement extends Statement
         return expression;
     }
 
+    public void setExpression(Expression expression)
+    {
+        checkNotFrozen();
+        this.expression = expression;
+    }
+
+    @Override
+    protected void freezeChildren()
+    {
+        if (expression != null)
+        {
+            expression.freeze();
+        }
+    }
+
     @Override
-    public int hashCode()
+    protected int computeHashCode()
     {
         int hash = 3;
         hash = 89 * hash + Objects.hashCode(this.expression);
@@ -45,7 +45,7 @@ public class Package extends Statement
     }
 
     @Override
-    public int hashCode()
+    protected int computeHashCode()
     {
         int hash = 3;
         hash = 41 * hash + Objects.hashCode(this.fullyQualifiedPackageName);
@@ -35,6 +35,7 @@ public class ParameterList extends Statement
 
     public void addParameter(VarDeclaration param)
     {
+        checkNotFrozen();
         parameters.add(param);
     }
 
@@ -44,7 +45,16 @@ public class ParameterList extends Statement
     }
 
     @Override
-    public int hashCode()
+    protected void freezeChildren()
+    {
+        for (VarDeclaration param : parameters)
+        {
+            param.freeze();
+        }
+    }
+
+    @Override
+    protected int computeHashCode()
     {
         int hash = 3;
         hash = 13 * hash + Objects.hashCode(this.parameters);
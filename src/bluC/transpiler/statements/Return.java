@@ -37,7 +37,16 @@ public class Return extends Statement
     }
 
     @Override
-    public int hashCode()
+    protected void freezeChildren()
+    {
+        if (returnedStatement != null)
+        {
+            returnedStatement.freeze();
+        }
+    }
+
+    @Override
+    protected int computeHashCode()
     {
         int hash = 3;
         hash = 79 * hash + Objects.hashCode(this.returnedStatement);
@@ -43,6 +43,35 @@ public abstract class Statement
     private long startingLineIndex  = NO_STARTING_LINE_INDEX;
     private long endingLineIndex    = NO_ENDING_LINE_INDEX;
     
+    /**
+     * Once a statement is frozen its structural hash is computed a single
+     *  time and cached, since nothing under it is allowed to change anymore.
+     */
+    private boolean isFrozen        = false;
+    private int     frozenHash;
+    
+    /**
+     * Returns the name a top-level statement declares, or "" if it doesn't
+     *  declare one.
+     */
+    public static String getDeclaredName(Statement statement)
+    {
+        if (statement instanceof ClassDef)
+        {
+            return ((ClassDef) statement).getClassNameText();
+        }
+        else if (statement instanceof Function)
+        {
+            return ((Function) statement).getNameText();
+        }
+        else if (statement instanceof VarDeclaration)
+        {
+            return ((VarDeclaration) statement).getNameText();
+        }
+        
+        return "";
+    }
+    
     public static interface Visitor<T>
     {
         //blocks
@@ -91,6 +120,7 @@ public abstract class Statement
     
     public void setStartingLineIndex(long startingLineIndex)
     {
+        checkNotFrozen();
         this.startingLineIndex = startingLineIndex;
     }
     
@@ -104,15 +134,73 @@ public abstract class Statement
     
     public void setEndingLineIndex(long endingLineIndex)
     {
+        checkNotFrozen();
         this.endingLineIndex = endingLineIndex;
     }
     
+    /**
+     * Freezes this statement and every statement and expression under it,
+     *  caching their structural hashes. Frozen statements must not be
+     *  modified afterwards; the setters enforce this by throwing an
+     *  IllegalStateException.
+     * 
+     * Should only be called once the AST is complete (i.e. after parsing).
+     */
+    public final void freeze()
+    {
+        if (!isFrozen)
+        {
+            // children first, so that our own hash uses their cached hashes
+            freezeChildren();
+            frozenHash  = computeHashCode();
+            isFrozen    = true;
+        }
+    }
+    
+    public boolean isFrozen()
+    {
+        return isFrozen;
+    }
+    
+    /**
+     * Freezes every statement and expression directly under this one.
+     */
+    protected void freezeChildren()
+    {
+        
+    }
+    
+    protected void checkNotFrozen()
+    {
+        if (isFrozen)
+        {
+            throw new IllegalStateException("Tried to modify a frozen " + 
+                getClass().getSimpleName() + " starting on line " + 
+                (startingLineIndex + 1));
+        }
+    }
+    
     @Override
     public boolean equals(Object other)
     {
+        if (this == other)
+        {
+            return true;
+        }
+        
         if (other instanceof Statement)
         {
             Statement otherStmt = (Statement) other;
+            
+            // every subclass's .equals calls this one before comparing its
+            //  own (possibly deep) fields, so this rejects most unequal
+            //  frozen subtrees without walking them
+            if (isFrozen && otherStmt.isFrozen && 
+                frozenHash != otherStmt.frozenHash)
+            {
+                return false;
+            }
+            
             return 
                 getStartingLineIndex() == otherStmt.getStartingLineIndex() &&
                 getEndingLineIndex() == otherStmt.getEndingLineIndex();
@@ -124,7 +212,17 @@ public abstract class Statement
     }
 
     @Override
-    public int hashCode()
+    public final int hashCode()
+    {
+        return isFrozen ? frozenHash : computeHashCode();
+    }
+    
+    /**
+     * Computes the structural hash of this statement. Subclasses override
+     *  this instead of hashCode, so that hashCode can return the cached
+     *  hash once the statement is frozen.
+     */
+    protected int computeHashCode()
     {
         int hash = 7;
         hash = 83 * hash + (int) (this.startingLineIndex ^ 
@@ -51,9 +51,22 @@ public class Block extends Statement
 
     public void addStatement(Statement statement)
     {
+        checkNotFrozen();
         body.add(statement);
     }
 
+    @Override
+    protected void freezeChildren()
+    {
+        for (Statement statement : body)
+        {
+            if (statement != null)
+            {
+                statement.freeze();
+            }
+        }
+    }
+
     @Override
     public boolean needsSemicolon()
     {
@@ -66,7 +79,7 @@ public class Block extends Statement
     }
 
     @Override
-    public int hashCode()
+    protected int computeHashCode()
     {
         int hash = 3;
         hash = 79 * hash + Objects.hashCode(this.body);
@@ -104,6 +104,7 @@ public class ClassDef extends Block
 
     public void setBaseClass(Token baseClass)
     {
+        checkNotFrozen();
         this.baseClass = baseClass;
     }
 
@@ -154,7 +155,7 @@ public class ClassDef extends Block
     }
 
     @Override
-    public int hashCode()
+    protected int computeHashCode()
     {
         int hash = 7;
         hash = 19 * hash + Objects.hashCode(this.className);
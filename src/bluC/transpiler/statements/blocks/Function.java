@@ -60,11 +60,13 @@ public class Function extends Block
 
     public void setName(Token newName)
     {
+        checkNotFrozen();
         functionName = newName;
     }
 
     public void setParameters(ParameterList parameters)
     {
+        checkNotFrozen();
         parameterList = parameters;
     }
 
@@ -74,7 +76,19 @@ public class Function extends Block
     }
 
     @Override
-    public int hashCode()
+    protected void freezeChildren()
+    {
+        super.freezeChildren();
+        returnType.freeze();
+
+        if (parameterList != null)
+        {
+            parameterList.freeze();
+        }
+    }
+
+    @Override
+    protected int computeHashCode()
     {
         int hash = 3;
         hash = 37 * hash + Objects.hashCode(this.returnType);
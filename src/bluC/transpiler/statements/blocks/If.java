@@ -25,7 +25,7 @@ import java.util.Objects;
  */
 public class If extends Block
 {
-    private final Expression        condition;
+    private Expression              condition;
     private final ArrayList<ElseIf> elseIfs;
     private Else else_;
     
@@ -44,6 +44,23 @@ public class If extends Block
             return condition;
         }
 
+        public void setCondition(Expression condition)
+        {
+            checkNotFrozen();
+            this.condition = condition;
+        }
+
+        @Override
+        protected void freezeChildren()
+        {
+            super.freezeChildren();
+            
+            if (condition != null)
+            {
+                condition.freeze();
+            }
+        }
+
         @Override
         public boolean needsExtraSpace()
         {
@@ -51,7 +68,7 @@ public class If extends Block
         }
 
         @Override
-        public int hashCode()
+        protected int computeHashCode()
         {
             int hash = 5;
             hash = 59 * hash + Objects.hashCode(this.condition);
@@ -121,8 +138,15 @@ public class If extends Block
         return condition;
     }
 
+    public void setCondition(Expression condition)
+    {
+        checkNotFrozen();
+        this.condition = condition;
+    }
+
     public void addElseIf(ElseIf elseIf)
     {
+        checkNotFrozen();
         elseIfs.add(elseIf);
     }
 
@@ -133,6 +157,7 @@ public class If extends Block
 
     public void setElse(Else else_)
     {
+        checkNotFrozen();
         this.else_ = else_;
     }
 
@@ -142,7 +167,28 @@ public class If extends Block
     }
 
     @Override
-    public int hashCode()
+    protected void freezeChildren()
+    {
+        super.freezeChildren();
+        
+        if (condition != null)
+        {
+            condition.freeze();
+        }
+        
+        for (ElseIf elseIf : elseIfs)
+        {
+            elseIf.freeze();
+        }
+        
+        if (else_ != null)
+        {
+            else_.freeze();
+        }
+    }
+
+    @Override
+    protected int computeHashCode()
     {
         int hash = 3;
         hash = 53 * hash + (int) (this.getStartingLineIndex() ^ 
@@ -99,12 +99,13 @@ public class Method extends Function
     }
 
     @Override
-    public int hashCode()
+    protected int computeHashCode()
     {
         int hash = 7;
         hash = 53 * hash + Objects.hashCode(this.class_);
         hash = 53 * hash + Objects.hashCode(this.mangledName);
-        hash = 53 * hash + Objects.hashCode(this.parser);
+        // the parser isn't hashed since its hash includes its AST, which
+        //  includes this method
         hash = 53 * hash + Objects.hashCode(this.getReturnType());
         hash = 53 * hash + Objects.hashCode(this.getParameters());
         hash = 53 * hash + Objects.hashCode(this.getNameToken());
@@ -51,11 +51,23 @@ public class While extends Block
 
     public void setExitCondition(Expression exitCondition)
     {
+        checkNotFrozen();
         this.exitCondition = exitCondition;
     }
 
     @Override
-    public int hashCode()
+    protected void freezeChildren()
+    {
+        super.freezeChildren();
+        
+        if (exitCondition != null)
+        {
+            exitCondition.freeze();
+        }
+    }
+
+    @Override
+    protected int computeHashCode()
     {
         int hash = 7;
         hash = 47 * hash + Objects.hashCode(this.exitCondition);
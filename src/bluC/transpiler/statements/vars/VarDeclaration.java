@@ -43,7 +43,7 @@ public class VarDeclaration extends Statement
     private final SimplifiedType simplifiedType;
     private final Token          varName;
     private final Token          assignmentOperator;
-    private final Expression     value;
+    private Expression           value;
     
     /**
      * If the SimplifiedType is CLASS, then this is set to the classID,
@@ -94,6 +94,12 @@ public class VarDeclaration extends Statement
         return value;
     }
 
+    public void setValue(Expression value)
+    {
+        checkNotFrozen();
+        this.value = value;
+    }
+
     public Token getAssignmentOperator()
     {
         return assignmentOperator;
@@ -106,6 +112,7 @@ public class VarDeclaration extends Statement
 
     public void setClassID(String classID)
     {
+        checkNotFrozen();
         this.classID = classID;
     }
 
@@ -114,6 +121,15 @@ public class VarDeclaration extends Statement
         return classID;
     }
 
+    @Override
+    protected void freezeChildren()
+    {
+        if (value != null)
+        {
+            value.freeze();
+        }
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -166,7 +182,7 @@ public class VarDeclaration extends Statement
     }
 
     @Override
-    public int hashCode()
+    protected int computeHashCode()
     {
         int hash = 7;
         hash = 23 * hash + this.pointerLevel;
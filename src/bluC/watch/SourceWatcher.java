@@ -0,0 +1,191 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package bluC.watch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for source files to change, for the -watch mode.
+ * 
+ * A WatchService can only watch directories, so the directory of each 
+ *  watched file is registered and events for any other file in it are 
+ *  ignored. Files are matched by name rather than by being modified in 
+ *  place, since many editors save by writing a new file and renaming it
+ *  over the old one.
+ * 
+ * Saving a file usually raises a burst of events, so changes are debounced:
+ *  awaitChanges only returns once no watched file has changed for 
+ *  debounceMillis.
+ * 
+ * @author John Schneider
+ */
+public class SourceWatcher implements Closeable
+{
+    public static final long DEFAULT_DEBOUNCE_MILLIS    = 100;
+    
+    /**
+     * For awaitChanges: wait for however long it takes.
+     */
+    public static final long NO_TIMEOUT                 = -1;
+    
+    private final WatchService                      watchService;
+    private final long                              debounceMillis;
+    private final HashMap<WatchKey, Path>           directoriesByKey;
+    private final HashMap<Path, HashSet<Path>>      fileNamesByDirectory;
+    
+    public SourceWatcher() throws IOException
+    {
+        this(DEFAULT_DEBOUNCE_MILLIS);
+    }
+    
+    public SourceWatcher(long debounceMillis) throws IOException
+    {
+        this.debounceMillis     = debounceMillis;
+        watchService            = FileSystems.getDefault().newWatchService();
+        directoriesByKey        = new HashMap<>();
+        fileNamesByDirectory    = new HashMap<>();
+    }
+    
+    /**
+     * Starts watching the file. Its directory must exist, but the file 
+     *  itself doesn't have to yet.
+     */
+    public void watch(Path file) throws IOException
+    {
+        Path directory  = file.toAbsolutePath().normalize().getParent();
+        Path fileName   = file.getFileName();
+        
+        if (!fileNamesByDirectory.containsKey(directory))
+        {
+            WatchKey key = directory.register(watchService, 
+                StandardWatchEventKinds.ENTRY_CREATE, 
+                StandardWatchEventKinds.ENTRY_MODIFY);
+            
+            directoriesByKey.put(key, directory);
+            fileNamesByDirectory.put(directory, new HashSet<Path>());
+        }
+        
+        fileNamesByDirectory.get(directory).add(fileName);
+    }
+    
+    /**
+     * Blocks until at least one watched file has changed and then nothing 
+     *  has for debounceMillis, and returns the absolute paths of every 
+     *  watched file that changed. Returns an empty set if nothing changed 
+     *  within <b>timeoutMillis</b> (unless it's NO_TIMEOUT).
+     */
+    public LinkedHashSet<Path> awaitChanges(long timeoutMillis) 
+        throws InterruptedException
+    {
+        LinkedHashSet<Path> changedFiles    = new LinkedHashSet<>();
+        long                deadlineNanos   = System.nanoTime() + 
+                                TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        WatchKey            key;
+        
+        try
+        {
+            // events for files in the same directory that aren't watched 
+            //  don't count as changes
+            while (changedFiles.isEmpty())
+            {
+                if (timeoutMillis == NO_TIMEOUT)
+                {
+                    key = watchService.take();
+                }
+                else
+                {
+                    key = watchService.poll(deadlineNanos - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+                    
+                    if (key == null)
+                    {
+                        return changedFiles;
+                    }
+                }
+                
+                addChangedFiles(key, changedFiles);
+            }
+            
+            key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            
+            while (key != null)
+            {
+                addChangedFiles(key, changedFiles);
+                key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (ClosedWatchServiceException ex)
+        {
+            // closed while waiting, so nothing more will change
+        }
+        
+        return changedFiles;
+    }
+    
+    private void addChangedFiles(WatchKey key, LinkedHashSet<Path> changedFiles)
+    {
+        Path            directory   = directoriesByKey.get(key);
+        HashSet<Path>   fileNames   = fileNamesByDirectory.get(directory);
+        
+        if (fileNames == null)
+        {
+            // its directory was already deleted
+            key.pollEvents();
+            return;
+        }
+        
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+            {
+                // events were lost, so any of the files may have changed
+                for (Path fileName : fileNames)
+                {
+                    changedFiles.add(directory.resolve(fileName));
+                }
+            }
+            else if (fileNames.contains((Path) event.context()))
+            {
+                changedFiles.add(directory.resolve((Path) event.context()));
+            }
+        }
+        
+        if (!key.reset())
+        {
+            // the directory is gone, and with it every file watched in it
+            directoriesByKey.remove(key);
+            fileNamesByDirectory.remove(directory);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException
+    {
+        watchService.close();
+    }
+}
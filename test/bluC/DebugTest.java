@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC;
+
+import java.util.function.Supplier;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class DebugTest
+{
+    @After
+    public void tearDown()
+    {
+        Debug.reset();
+    }
+    
+    @Test
+    public void testEnablesNamedCategories()
+    {
+        assertTrue(Debug.enable("gcc, Cache"));
+        
+        assertTrue(Debug.Category.GCC.isEnabled());
+        assertTrue(Debug.Category.CACHE.isEnabled());
+        assertFalse(Debug.Category.PARSER.isEnabled());
+    }
+    
+    @Test
+    public void testEnablesAll()
+    {
+        assertTrue(Debug.enable("all"));
+        
+        for (Debug.Category category : Debug.Category.values())
+        {
+            assertTrue(category.isEnabled());
+        }
+    }
+    
+    @Test
+    public void testRejectsUnknownCategories()
+    {
+        assertFalse(Debug.enable("lexer,nonexistent"));
+        assertTrue(Debug.Category.LEXER.isEnabled());
+    }
+    
+    @Test
+    public void testDisabledMessageIsNeverBuilt()
+    {
+        Debug.reset();
+        Debug.println(Debug.Category.EMITTER, 
+            new Supplier<String>()
+        {
+            @Override
+            public String get()
+            {
+                throw new AssertionError("built a disabled message");
+            }
+        });
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.TreeMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class BuildCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private Path output;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        output = folder.newFile("buildCacheTest.c").toPath();
+        Files.write(output, "int main() {}\n".getBytes(
+            StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void testKeyDependsOnEveryInput()
+    {
+        TreeMap<String, String> flags       = new TreeMap<>();
+        byte[]                  source      = {1, 2, 3};
+        String                  key         = BuildCache.computeKey(source, 
+                                                flags, "a.bluc");
+        
+        assertEquals(key, BuildCache.computeKey(source, flags, "a.bluc"));
+        assertNotEquals(key, BuildCache.computeKey(new byte[] {1, 2}, flags,
+            "a.bluc"));
+        assertNotEquals(key, BuildCache.computeKey(source, flags, "b.bluc"));
+        
+        flags.put("c", "true");
+        assertNotEquals(key, BuildCache.computeKey(source, flags, "a.bluc"));
+    }
+    
+    @Test
+    public void testRestoreAfterStore() throws IOException
+    {
+        BuildCache testThis = new BuildCache(
+            folder.newFolder("cache").toPath(), 
+            BuildCache.DEFAULT_MAX_SIZE_BYTES);
+        
+        assertFalse(testThis.restore("someKey"));
+        
+        testThis.store("someKey", Arrays.asList(output));
+        Files.delete(output);
+        
+        assertTrue(testThis.restore("someKey"));
+        assertEquals("int main() {}\n", new String(Files.readAllBytes(output),
+            StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException
+    {
+        Path        directory   = folder.newFolder("cache").toPath();
+        long        outputSize  = Files.size(output);
+        BuildCache  testThis    = new BuildCache(directory, outputSize * 2);
+        
+        testThis.store("first", Arrays.asList(output));
+        testThis.store("second", Arrays.asList(output));
+        
+        // make "first" the most recently used entry
+        Files.setLastModifiedTime(directory.resolve("second"), 
+            FileTime.fromMillis(0));
+        assertTrue(testThis.restore("first"));
+        
+        testThis.store("third", Arrays.asList(output));
+        
+        assertTrue(Files.isDirectory(directory.resolve("first")));
+        assertFalse(Files.exists(directory.resolve("second")));
+        assertTrue(Files.isDirectory(directory.resolve("third")));
+    }
+}
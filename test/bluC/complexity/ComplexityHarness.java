@@ -0,0 +1,365 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.complexity;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures how a workload's time and allocations grow with its input size,
+ *  to catch phases which have become (or still are) worse than a bound like
+ *  n log n.
+ * 
+ * The workload is run on inputs doubling in size. Once it's warmed up on all
+ *  of them, every size is measured in each of several rounds, keeping the 
+ *  median time and the median allocation, so that a run disturbed by GC or 
+ *  the JIT can't skew the result either way. The growth exponent is the 
+ *  slope of a least squares fit of log(cost) against log(size): about 1 for
+ *  linear growth, 2 for quadratic.
+ * 
+ * A bound allows the exponent its own model has over the same sizes (n log n
+ *  grows a little faster than linearly), plus a tolerance for noise.
+ * 
+ * @author John Schneider
+ */
+public class ComplexityHarness
+{
+    /**
+     * How far past its bound's exponent a measured exponent may be before
+     *  it fails. Allocations are deterministic for a given input, so their
+     *  tolerance is tight; time is still noisy, even as a median.
+     */
+    public static final double TIME_TOLERANCE       = 0.25;
+    public static final double ALLOCATION_TOLERANCE = 0.05;
+    
+    private static final ThreadMXBean THREADS = 
+        ManagementFactory.getThreadMXBean();
+    
+    public static enum Bound
+    {
+        LINEAR("n")
+        {
+            @Override
+            double cost(double n)
+            {
+                return n;
+            }
+        },
+        N_LOG_N("n log n")
+        {
+            @Override
+            double cost(double n)
+            {
+                return n * Math.log(n);
+            }
+        },
+        QUADRATIC("n^2")
+        {
+            @Override
+            double cost(double n)
+            {
+                return n * n;
+            }
+        };
+        
+        private final String name;
+        
+        private Bound(String name)
+        {
+            this.name = name;
+        }
+        
+        abstract double cost(double n);
+        
+        /**
+         * The growth exponent this bound itself has over the sizes.
+         */
+        public double getExponent(long[] sizes)
+        {
+            double[] costs = new double[sizes.length];
+            
+            for (int i = 0; i < sizes.length; i++)
+            {
+                costs[i] = cost(sizes[i]);
+            }
+            
+            return fitExponent(sizes, costs);
+        }
+        
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+    
+    /**
+     * Prepares the input of the given size (untimed) and returns the work
+     *  to be measured on it. The work must be repeatable.
+     */
+    public static interface WorkloadFactory
+    {
+        Workload create(long size) throws Exception;
+    }
+    
+    public static interface Workload
+    {
+        Object run() throws Exception;
+    }
+    
+    /**
+     * Keeps results alive, so the JIT can't eliminate the work.
+     */
+    public static volatile Object sink;
+    
+    private final long  baseSize;
+    private final int   sizeCount;
+    private int         warmupRuns;
+    private int         measuredRuns;
+    
+    public ComplexityHarness(long baseSize, int sizeCount)
+    {
+        this.baseSize   = baseSize;
+        this.sizeCount  = sizeCount;
+        warmupRuns      = 5;
+        measuredRuns    = 9;
+    }
+    
+    public ComplexityHarness setWarmupRuns(int warmupRuns)
+    {
+        this.warmupRuns = warmupRuns;
+        return this;
+    }
+    
+    public ComplexityHarness setMeasuredRuns(int measuredRuns)
+    {
+        this.measuredRuns = measuredRuns;
+        return this;
+    }
+    
+    /**
+     * Runs the workload at every size, with System.out and System.err 
+     *  silenced (the compiler prints as it goes).
+     */
+    public Growth measure(String name, WorkloadFactory factory) 
+        throws Exception
+    {
+        long[]      sizes       = new long[sizeCount];
+        double[]    nanos       = new double[sizeCount];
+        double[]    allocated   = new double[sizeCount];
+        PrintStream out         = System.out;
+        PrintStream err         = System.err;
+        PrintStream silenced    = new PrintStream(new OutputStream()
+        {
+            @Override
+            public void write(int b)
+            {
+            }
+            
+            @Override
+            public void write(byte[] bytes, int offset, int length)
+            {
+            }
+        });
+        
+        System.setOut(silenced);
+        System.setErr(silenced);
+        
+        try
+        {
+            Workload[] workloads = new Workload[sizeCount];
+            
+            for (int i = 0; i < sizeCount; i++)
+            {
+                sizes[i]        = baseSize << i;
+                workloads[i]    = factory.create(sizes[i]);
+            }
+            
+            // warm up on every size before measuring any, so the smaller 
+            //  sizes aren't measured before the JIT has compiled the code
+            for (int run = 0; run < warmupRuns; run++)
+            {
+                for (Workload workload : workloads)
+                {
+                    sink = workload.run();
+                }
+            }
+            
+            double[][] runNanos     = new double[sizeCount][measuredRuns];
+            double[][] runAllocated = new double[sizeCount][measuredRuns];
+            
+            // each round runs every size once, so that a slow patch of the 
+            //  machine's (another process, say) is spread across the sizes
+            //  instead of inflating just one of them
+            for (int run = 0; run < measuredRuns; run++)
+            {
+                System.gc();
+                
+                for (int i = 0; i < sizeCount; i++)
+                {
+                    long startAllocated = getAllocatedBytes();
+                    long startNanos     = System.nanoTime();
+                    
+                    sink = workloads[i].run();
+                    
+                    runNanos[i][run]        = System.nanoTime() - startNanos;
+                    runAllocated[i][run]    = getAllocatedBytes() - 
+                                                startAllocated;
+                }
+            }
+            
+            for (int i = 0; i < sizeCount; i++)
+            {
+                nanos[i]        = median(runNanos[i]);
+                allocated[i]    = median(runAllocated[i]);
+            }
+        } finally
+        {
+            System.setOut(out);
+            System.setErr(err);
+        }
+        
+        return new Growth(name, sizes, nanos, allocated);
+    }
+    
+    private static long getAllocatedBytes()
+    {
+        if (THREADS instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) THREADS).
+                getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        
+        return 0;
+    }
+    
+    static double median(double[] values)
+    {
+        double[]    sorted  = values.clone();
+        int         middle  = sorted.length / 2;
+        
+        Arrays.sort(sorted);
+        
+        if (sorted.length % 2 == 0)
+        {
+            return (sorted[middle - 1] + sorted[middle]) / 2;
+        }
+        
+        return sorted[middle];
+    }
+    
+    /**
+     * The least squares slope of log(costs) against log(sizes).
+     */
+    static double fitExponent(long[] sizes, double[] costs)
+    {
+        double meanX   = 0;
+        double meanY   = 0;
+        double covXY   = 0;
+        double varX    = 0;
+        
+        for (int i = 0; i < sizes.length; i++)
+        {
+            meanX += Math.log(sizes[i]) / sizes.length;
+            meanY += Math.log(Math.max(costs[i], 1)) / sizes.length;
+        }
+        
+        for (int i = 0; i < sizes.length; i++)
+        {
+            double x = Math.log(sizes[i]) - meanX;
+            double y = Math.log(Math.max(costs[i], 1)) - meanY;
+            
+            covXY   += x * y;
+            varX    += x * x;
+        }
+        
+        return covXY / varX;
+    }
+    
+    /**
+     * The measured cost of a workload at each size.
+     */
+    public static final class Growth
+    {
+        private final String    name;
+        private final long[]    sizes;
+        private final double[]  nanos;
+        private final double[]  allocatedBytes;
+        
+        private Growth(String name, long[] sizes, double[] nanos, 
+            double[] allocatedBytes)
+        {
+            this.name           = name;
+            this.sizes          = sizes;
+            this.nanos          = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+        
+        public double getTimeExponent()
+        {
+            return fitExponent(sizes, nanos);
+        }
+        
+        public double getAllocationExponent()
+        {
+            return fitExponent(sizes, allocatedBytes);
+        }
+        
+        /**
+         * Returns null if both exponents are within their bounds, or else a
+         *  description of how the workload grew.
+         */
+        public String checkWithin(Bound timeBound, Bound allocationBound)
+        {
+            boolean timeIsWithin        = getTimeExponent() <= 
+                timeBound.getExponent(sizes) + TIME_TOLERANCE;
+            boolean allocationIsWithin  = getAllocationExponent() <= 
+                allocationBound.getExponent(sizes) + ALLOCATION_TOLERANCE;
+            
+            if (timeIsWithin && allocationIsWithin)
+            {
+                return null;
+            }
+            
+            return String.format(Locale.ROOT, 
+                "%s grows worse than its bounds (time %s, allocations %s):%n" +
+                "%s", name, timeBound, allocationBound, toString());
+        }
+        
+        @Override
+        public String toString()
+        {
+            StringBuilder description = new StringBuilder();
+            
+            description.append(String.format(Locale.ROOT, 
+                "%s: time ~ n^%.2f, allocations ~ n^%.2f%n", name, 
+                getTimeExponent(), getAllocationExponent()));
+            
+            for (int i = 0; i < sizes.length; i++)
+            {
+                description.append(String.format(Locale.ROOT, 
+                    "    n = %8d: %10.3f ms, %12.0f bytes%n", sizes[i], 
+                    nanos[i] / 1e6, allocatedBytes[i]));
+            }
+            
+            return description.toString();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.complexity;
+
+import bluC.complexity.ComplexityHarness.Bound;
+import bluC.complexity.ComplexityHarness.Growth;
+import bluC.complexity.ComplexityHarness.Workload;
+import bluC.complexity.ComplexityHarness.WorkloadFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class ComplexityHarnessTest
+{
+    private static final double DELTA = 1e-9;
+    
+    /**
+     * Builds a string of the given size by concatenating one character at a
+     *  time, like the String += loops this harness is meant to catch.
+     */
+    private static final WorkloadFactory quadraticConcatenation = 
+        new WorkloadFactory()
+    {
+        @Override
+        public Workload create(final long size)
+        {
+            return new Workload()
+            {
+                @Override
+                public Object run()
+                {
+                    String built = "";
+                    
+                    for (long i = 0; i < size; i++)
+                    {
+                        built += "x";
+                    }
+                    
+                    return built;
+                }
+            };
+        }
+    };
+    
+    @Test
+    public void testFitExponent()
+    {
+        long[] sizes = {10, 20, 40, 80};
+        
+        assertEquals(1, ComplexityHarness.fitExponent(sizes, 
+            new double[] {30, 60, 120, 240}), DELTA);
+        assertEquals(2, ComplexityHarness.fitExponent(sizes, 
+            new double[] {100, 400, 1600, 6400}), DELTA);
+    }
+    
+    @Test
+    public void testMedian()
+    {
+        assertEquals(3, ComplexityHarness.median(
+            new double[] {9, 1, 3, 2, 100}), DELTA);
+        assertEquals(2.5, ComplexityHarness.median(
+            new double[] {4, 1, 3, 2}), DELTA);
+    }
+    
+    @Test
+    public void testBoundExponents()
+    {
+        long[] sizes = {250, 500, 1000, 2000, 4000};
+        
+        assertEquals(1, Bound.LINEAR.getExponent(sizes), DELTA);
+        assertEquals(2, Bound.QUADRATIC.getExponent(sizes), DELTA);
+        
+        // n log n grows faster than n, but not by much
+        assertEquals(1.15, Bound.N_LOG_N.getExponent(sizes), 0.05);
+    }
+    
+    @Test
+    public void testQuadraticWorkloadIsCaught() throws Exception
+    {
+        Growth growth = new ComplexityHarness(1000, 4).
+            measure("quadraticConcatenation", quadraticConcatenation);
+        
+        assertEquals(2, growth.getAllocationExponent(), 0.2);
+        assertNotNull(growth.checkWithin(Bound.QUADRATIC, Bound.N_LOG_N));
+        assertNull(growth.checkWithin(Bound.QUADRATIC, Bound.QUADRATIC));
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.complexity;
+
+import bluC.Logger;
+import bluC.complexity.ComplexityHarness.Bound;
+import bluC.complexity.ComplexityHarness.Growth;
+import bluC.complexity.ComplexityHarness.Workload;
+import bluC.complexity.ComplexityHarness.WorkloadFactory;
+import bluC.corpus.CorpusGenerator;
+import bluC.parser.Parser;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.staticAnalysis.DeclarationGraph;
+import bluC.staticAnalysis.SymbolResolver;
+import bluC.transpiler.CommentsRemover;
+import bluC.transpiler.Lexer;
+import bluC.transpiler.Token;
+import bluC.transpiler.Transpiler;
+import bluC.transpiler.statements.Statement;
+import java.util.ArrayList;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs each phase of the compiler on generated programs doubling in size, 
+ *  and fails if its time or allocations grow worse than the phase's bound.
+ * 
+ * @author John Schneider
+ */
+public class PhaseComplexityTest
+{
+    private static final String FILE_PATH = "phaseComplexityTest.bluc";
+    
+    /**
+     * Programs of 250 to 8000 lines. Big enough for each phase's growth to
+     *  show, small enough to keep the suite fast.
+     */
+    private static final ComplexityHarness harness = 
+        new ComplexityHarness(250, 6);
+    
+    @Before
+    @After
+    public void resetBetweenTests()
+    {
+        resetCompilerState();
+    }
+    
+    private static void resetCompilerState()
+    {
+        // every generated program defines Class0, Class1...
+        Logger.reset();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
+    }
+    
+    private static ArrayList<String> generate(long lineCount)
+    {
+        return new CorpusGenerator().
+            setTargetLineCount((int) lineCount).
+            generateLines();
+    }
+    
+    private static ArrayList<Token> lex(ArrayList<String> lines)
+    {
+        CommentsRemover.run(FILE_PATH, lines);
+        return new Lexer(FILE_PATH, lines).lex();
+    }
+    
+    private static ArrayList<Statement> parse(ArrayList<Token> tokens)
+    {
+        resetCompilerState();
+        return new Parser(new ArrayList<>(tokens)).parse();
+    }
+    
+    private static void assertWithin(String phase, Bound timeBound, 
+        Bound allocationBound, WorkloadFactory factory) throws Exception
+    {
+        Growth growth = harness.measure(phase, factory);
+        
+        assertNull(growth.checkWithin(timeBound, allocationBound));
+    }
+    
+    @Test
+    public void testStripCommentsIsLinear() throws Exception
+    {
+        assertWithin("stripComments", Bound.LINEAR, Bound.LINEAR, 
+            new WorkloadFactory()
+        {
+            @Override
+            public Workload create(long size)
+            {
+                final ArrayList<String> lines = generate(size);
+                
+                return new Workload()
+                {
+                    @Override
+                    public Object run()
+                    {
+                        ArrayList<String> copy = new ArrayList<>(lines);
+                        
+                        CommentsRemover.run(FILE_PATH, copy);
+                        return copy;
+                    }
+                };
+            }
+        });
+    }
+    
+    @Test
+    public void testLexIsLinear() throws Exception
+    {
+        assertWithin("lex", Bound.LINEAR, Bound.LINEAR, new WorkloadFactory()
+        {
+            @Override
+            public Workload create(long size)
+            {
+                final ArrayList<String> lines = generate(size);
+                
+                return new Workload()
+                {
+                    @Override
+                    public Object run()
+                    {
+                        return new Lexer(FILE_PATH, lines).lex();
+                    }
+                };
+            }
+        });
+    }
+    
+    @Test
+    public void testParseIsWithinNLogN() throws Exception
+    {
+        assertWithin("parse", Bound.N_LOG_N, Bound.N_LOG_N, 
+            new WorkloadFactory()
+        {
+            @Override
+            public Workload create(long size)
+            {
+                final ArrayList<Token> tokens = lex(generate(size));
+                
+                return new Workload()
+                {
+                    @Override
+                    public Object run()
+                    {
+                        return parse(tokens);
+                    }
+                };
+            }
+        });
+    }
+    
+    @Test
+    public void testAnalyzeIsWithinNLogN() throws Exception
+    {
+        assertWithin("analyze", Bound.N_LOG_N, Bound.N_LOG_N, 
+            new WorkloadFactory()
+        {
+            @Override
+            public Workload create(long size)
+            {
+                final ArrayList<Statement> ast = parse(lex(generate(size)));
+                
+                return new Workload()
+                {
+                    @Override
+                    public Object run()
+                    {
+                        new SymbolResolver().resolve(ast);
+                        return new DeclarationGraph().build(ast);
+                    }
+                };
+            }
+        });
+    }
+    
+    @Test
+    public void testEmitIsWithinNLogN() throws Exception
+    {
+        assertWithin("emit", Bound.N_LOG_N, Bound.N_LOG_N, 
+            new WorkloadFactory()
+        {
+            @Override
+            public Workload create(long size)
+            {
+                final Transpiler transpiler = new Transpiler(FILE_PATH, 
+                    generate(size));
+                
+                resetCompilerState();
+                transpiler.analyze();
+                
+                return new Workload()
+                {
+                    @Override
+                    public Object run() throws Exception
+                    {
+                        StringBuilder output = new StringBuilder();
+                        
+                        transpiler.emit(output);
+                        return output;
+                    }
+                };
+            }
+        });
+    }
+    
+    /**
+     * The AST is dumped whenever analysis fails, so a file with an error 
+     *  near its end dumps nearly all of it.
+     */
+    @Test
+    public void testAstDumpIsWithinNLogN() throws Exception
+    {
+        assertWithin("astDump", Bound.N_LOG_N, Bound.N_LOG_N, 
+            new WorkloadFactory()
+        {
+            @Override
+            public Workload create(long size)
+            {
+                final Parser parser = new Parser(lex(generate(size)));
+                
+                resetCompilerState();
+                parser.parse();
+                
+                return new Workload()
+                {
+                    @Override
+                    public Object run()
+                    {
+                        return parser.dumpAstToString();
+                    }
+                };
+            }
+        });
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.corpus;
+
+import bluC.Logger;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.transpiler.Transpiler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class CorpusGeneratorTest
+{
+    @Before
+    @After
+    public void resetCompilerState()
+    {
+        // every generated program defines Class0, Class1...
+        Logger.reset();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
+    }
+    
+    private static boolean analyze(CorpusGenerator generator)
+    {
+        return new Transpiler("corpusGeneratorTest.bluc", 
+            generator.generateLines()).analyze();
+    }
+    
+    @Test
+    public void testSameSeedGeneratesSameProgram()
+    {
+        CorpusGenerator generator = new CorpusGenerator().
+            setTargetLineCount(500);
+        
+        assertEquals(generator.generate(), generator.generate());
+        assertEquals(generator.setSeed(2).generate(), 
+            new CorpusGenerator().setTargetLineCount(500).setSeed(2).
+                generate());
+        assertNotEquals(generator.setSeed(3).generate(), 
+            generator.setSeed(4).generate());
+    }
+    
+    @Test
+    public void testReachesTargetLineCount()
+    {
+        CorpusGenerator generator   = new CorpusGenerator().
+                                        setTargetLineCount(1000000);
+        String          program     = generator.generate();
+        long            lineCount   = program.split("\n", -1).length - 1;
+        
+        assertEquals(generator.getLineCount(), lineCount);
+        assertTrue(lineCount >= 1000000);
+        
+        // one top-level declaration (plus main) past the target at most
+        assertTrue(lineCount < 1000000 + 500);
+    }
+    
+    @Test
+    public void testShapeParameters()
+    {
+        String program = new CorpusGenerator().
+            setTargetLineCount(2000).
+            setClassShare(1).
+            setMaxMethodsPerClass(1).
+            setMaxLoopNestingDepth(1).
+            setMaxIfChainLength(1).
+            generate();
+        
+        assertTrue(program.contains("class Class0"));
+        assertFalse(program.contains("int function0("));
+        assertFalse(program.contains("int method1("));
+        assertFalse(program.contains("else"));
+        
+        // one loop (and so one method) per class
+        assertEquals(program.split("class Class").length, 
+            program.split("while \\(").length);
+    }
+    
+    @Test
+    public void testProgramWithoutErrorsAnalyzes()
+    {
+        CorpusGenerator generator = new CorpusGenerator().
+            setTargetLineCount(150).
+            setClassShare(0.5);
+        
+        assertTrue(analyze(generator));
+        assertEquals(0, generator.getSyntaxErrorCount());
+    }
+    
+    @Test
+    public void testSyntaxErrorsAreReported()
+    {
+        CorpusGenerator generator = new CorpusGenerator().
+            setTargetLineCount(150).
+            setSyntaxErrorRate(0.05);
+        
+        assertFalse(analyze(generator));
+        assertTrue(generator.getSyntaxErrorCount() > 0);
+        assertTrue(Logger.hasLoggedError());
+    }
+}
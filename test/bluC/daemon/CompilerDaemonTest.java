@@ -0,0 +1,227 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.daemon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Builds are only forwarded to a daemon in a JVM of its own: one in this JVM
+ *  would share its System.out with the client, so the client would echo the
+ *  daemon's output back to it.
+ * 
+ * @author John Schneider
+ */
+public class CompilerDaemonTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private String userHome;
+    
+    @Before
+    public void setUp()
+    {
+        // keep the daemon file away from any real daemon's
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", folder.getRoot().getAbsolutePath());
+    }
+    
+    @After
+    public void tearDown()
+    {
+        System.setProperty("user.home", userHome);
+    }
+    
+    @Test
+    public void testNotForwardedWithoutDaemon()
+    {
+        assertFalse(DaemonClient.isDaemonRunning());
+        assertEquals(DaemonClient.NOT_FORWARDED, DaemonClient.forward(
+            new String[] {"a.bluc"}, folder.getRoot()));
+    }
+    
+    @Test
+    public void testNotForwardedToDeadDaemon() throws IOException
+    {
+        // a daemon file left behind by a killed daemon
+        DaemonProtocol.getDaemonFile().getParent().toFile().mkdirs();
+        Files.write(DaemonProtocol.getDaemonFile(), "1\nnotAToken\n".
+            getBytes(StandardCharsets.UTF_8));
+        
+        assertFalse(DaemonClient.isDaemonRunning());
+        assertEquals(DaemonClient.NOT_FORWARDED, DaemonClient.forward(
+            new String[] {"a.bluc"}, folder.getRoot()));
+    }
+    
+    @Test(timeout = 10000)
+    public void testAdvertisesUntilStopped() throws Exception
+    {
+        final CompilerDaemon    daemon  = new CompilerDaemon();
+        Thread                  server  = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    daemon.run();
+                } catch (IOException ex)
+                {
+                    ex.printStackTrace();
+                }
+            }
+        };
+        
+        server.start();
+        
+        while (!DaemonClient.isDaemonRunning())
+        {
+            Thread.sleep(10);
+        }
+        
+        assertEquals(daemon.getPort(), 
+            DaemonProtocol.readEndpoint().getPort());
+        assertEquals(0, DaemonClient.stopDaemon());
+        
+        server.join();
+        assertFalse(new File(DaemonProtocol.getDaemonFile().toString()).
+            exists());
+    }
+    
+    @Test(timeout = 10000)
+    public void testRefusesWrongToken() throws Exception
+    {
+        final CompilerDaemon    daemon  = new CompilerDaemon();
+        Thread                  server  = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    daemon.run();
+                } catch (IOException ex)
+                {
+                    ex.printStackTrace();
+                }
+            }
+        };
+        
+        server.start();
+        
+        while (!DaemonClient.isDaemonRunning())
+        {
+            Thread.sleep(10);
+        }
+        
+        // a stop request from someone who couldn't read the daemon file
+        String token = DaemonProtocol.readEndpoint().getToken();
+        Files.write(DaemonProtocol.getDaemonFile(), (daemon.getPort() + 
+            "\nnotTheToken\n").getBytes(StandardCharsets.UTF_8));
+        
+        assertEquals(1, DaemonClient.stopDaemon());
+        assertTrue(server.isAlive());
+        
+        Files.write(DaemonProtocol.getDaemonFile(), (daemon.getPort() + 
+            "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, DaemonClient.stopDaemon());
+        server.join();
+    }
+    
+    /**
+     * Forwards the build with System.out and System.err captured (the 
+     *  client copies the daemon's output to them) into <b>output</b>, and 
+     *  returns its exit code.
+     */
+    private int forwardQuietly(ByteArrayOutputStream output, String... args)
+    {
+        PrintStream out         = System.out;
+        PrintStream err         = System.err;
+        PrintStream captured    = new PrintStream(output, true);
+        
+        System.setOut(captured);
+        System.setErr(captured);
+        
+        try
+        {
+            return DaemonClient.forward(args, folder.getRoot());
+        } finally
+        {
+            System.setOut(out);
+            System.setErr(err);
+        }
+    }
+    
+    @Test(timeout = 60000)
+    public void testSurvivesTruncatedFile() throws Exception
+    {
+        File                    root        = folder.getRoot();
+        ByteArrayOutputStream   output      = new ByteArrayOutputStream();
+        Process                 daemon      = new ProcessBuilder(
+                                                System.getProperty(
+                                                "java.home") + "/bin/java",
+                                                "-Duser.home=" + root,
+                                                "-cp", System.getProperty(
+                                                "java.class.path"),
+                                                "bluC.BluC", "--daemon").
+                                                directory(root).
+                                                redirectErrorStream(true).
+                                                redirectOutput(new File(root, 
+                                                "daemon.log")).
+                                                start();
+        
+        Files.write(new File(root, "truncated.bluc").toPath(), 
+            "int x = 1 +".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(root, "valid.bluc").toPath(), 
+            "int main()\n{\n    return 0;\n}\n".getBytes(
+            StandardCharsets.UTF_8));
+        
+        try
+        {
+            while (!DaemonClient.isDaemonRunning())
+            {
+                assertTrue(daemon.isAlive());
+                Thread.sleep(10);
+            }
+            
+            assertEquals(1, forwardQuietly(output, "truncated.bluc", "-c"));
+            assertTrue(output.toString().contains("cannot be the start"));
+            assertTrue(daemon.isAlive());
+            
+            assertEquals(0, forwardQuietly(output, "valid.bluc", "-c"));
+            assertTrue(new File(root, "valid.c").exists());
+            
+            assertEquals(0, DaemonClient.stopDaemon());
+            assertEquals(0, daemon.waitFor());
+        } finally
+        {
+            daemon.destroyForcibly();
+        }
+    }
+}
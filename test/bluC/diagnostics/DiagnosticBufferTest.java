@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.diagnostics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class DiagnosticBufferTest
+{
+    private static Diagnostic error(String filePath, int lineIndex, 
+        String message)
+    {
+        return new Diagnostic(Diagnostic.Severity.ERROR, filePath, lineIndex, 
+            ";", message);
+    }
+    
+    private static Diagnostic warning(String filePath, int lineIndex, 
+        String message)
+    {
+        return new Diagnostic(Diagnostic.Severity.WARNING, filePath, 
+            lineIndex, "{", message);
+    }
+    
+    @Test
+    public void testOrderedByFileThenLine()
+    {
+        DiagnosticBuffer testThis = new DiagnosticBuffer();
+        
+        testThis.add(error  ("b.bluc", 9, "first"));
+        testThis.add(warning("a.bluc", 2, "second"));
+        testThis.add(error  ("b.bluc", 3, "third"));
+        testThis.add(warning("b.bluc", 9, "fourth"));
+        
+        ArrayList<Diagnostic> ordered = testThis.getDiagnostics();
+        
+        assertEquals("third",   ordered.get(0).getMessage());
+        assertEquals("first",   ordered.get(1).getMessage());
+        assertEquals("fourth",  ordered.get(2).getMessage());
+        assertEquals("second",  ordered.get(3).getMessage());
+        assertEquals(2, testThis.getErrorCount());
+    }
+    
+    @Test
+    public void testFlushPrintsOnceAndKeepsErrorCount()
+    {
+        DiagnosticBuffer        testThis    = new DiagnosticBuffer();
+        ByteArrayOutputStream   printed     = new ByteArrayOutputStream();
+        
+        testThis.add(error  ("a.bluc", 4, "expected \";\""));
+        testThis.add(warning("a.bluc", 0, "Empty block"));
+        testThis.flush(new PrintStream(printed, true));
+        
+        assertEquals(
+            "[a.bluc]:\n" +
+            "    (line 1): Warning: On token \"{\"\n\tEmpty block\n" +
+            "    (line 5): Error: On token \";\"\n\texpected \";\"\n", 
+            printed.toString());
+        
+        assertTrue(testThis.isEmpty());
+        assertEquals(1, testThis.getErrorCount());
+        
+        testThis.reset();
+        assertEquals(0, testThis.getErrorCount());
+    }
+}
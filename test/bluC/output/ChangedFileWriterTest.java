@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class ChangedFileWriterTest
+{
+    private static final FileTime OLD_TIME = FileTime.fromMillis(1000000000L);
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private Path file;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        file = folder.getRoot().toPath().resolve("changedFileWriterTest.c");
+    }
+    
+    private boolean write(String contents) throws IOException
+    {
+        ChangedFileWriter testThis = new ChangedFileWriter(file, 
+            StandardCharsets.UTF_8);
+        
+        testThis.append(contents);
+        testThis.close();
+        
+        return testThis.wasChanged();
+    }
+    
+    private String read() throws IOException
+    {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testUnchangedFileIsNotTouched() throws IOException
+    {
+        assertTrue(write("int main()\n{\n}\n"));
+        Files.setLastModifiedTime(file, OLD_TIME);
+        
+        assertFalse(write("int main()\n{\n}\n"));
+        assertEquals(OLD_TIME, Files.getLastModifiedTime(file));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+    
+    @Test
+    public void testChangedFileIsReplaced() throws IOException
+    {
+        write("int main()\n{\n}\n");
+        Files.setLastModifiedTime(file, OLD_TIME);
+        
+        assertTrue(write("int main()\n{\n    return 1;\n}\n"));
+        assertEquals("int main()\n{\n    return 1;\n}\n", read());
+        assertFalse(OLD_TIME.equals(Files.getLastModifiedTime(file)));
+    }
+    
+    @Test
+    public void testReplacedFileKeepsItsPermissions() throws IOException
+    {
+        Set<PosixFilePermission> permissions = 
+            PosixFilePermissions.fromString("rwxr-x---");
+        
+        write("int main()\n{\n}\n");
+        Files.setPosixFilePermissions(file, permissions);
+        
+        assertTrue(write("int main()\n{\n    return 1;\n}\n"));
+        assertEquals(permissions, Files.getPosixFilePermissions(file));
+    }
+    
+    @Test
+    public void testLargeMultiByteContents() throws IOException
+    {
+        StringBuilder contents = new StringBuilder();
+        
+        // crosses both buffers' boundaries, including inside surrogate pairs
+        for (int i = 0; i < 100000; i++)
+        {
+            contents.append("a\u00e9\ud83d\ude00");
+        }
+        
+        assertTrue(write(contents.toString()));
+        assertEquals(contents.toString(), read());
+    }
+    
+    @Test
+    public void testDiscardKeepsOriginal() throws IOException
+    {
+        write("original\n");
+        
+        ChangedFileWriter testThis = new ChangedFileWriter(file);
+        testThis.write("partial");
+        testThis.discard();
+        
+        assertEquals("original\n", read());
+        assertEquals(1, folder.getRoot().list().length);
+    }
+}
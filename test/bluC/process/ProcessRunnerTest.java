@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.process;
+
+import java.io.IOException;
+import java.io.Writer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class ProcessRunnerTest
+{
+    @Test
+    public void testInputIsPipedThrough() throws IOException
+    {
+        ProcessResult testThis = new ProcessRunner("cat").
+            setInputWriter(new ProcessRunner.InputWriter()
+            {
+                @Override
+                public void write(Writer processInput) throws IOException
+                {
+                    processInput.write("int main() { return 0; }\n");
+                }
+            }).
+            run();
+        
+        assertTrue(testThis.succeeded());
+        assertEquals("int main() { return 0; }\n", testThis.getStdout());
+    }
+    
+    @Test
+    public void testLargeOutputOnBothStreamsDoesNotDeadlock() 
+        throws IOException
+    {
+        // far more than a pipe buffer on each stream
+        ProcessResult testThis = new ProcessRunner("sh", "-c", 
+            "head -c 1000000 /dev/zero >&2; head -c 1000000 /dev/zero; " +
+            "exit 3").
+            setTimeoutMillis(30 * 1000).
+            run();
+        
+        assertFalse(testThis.hasTimedOut());
+        assertEquals(3, testThis.getExitCode());
+        assertEquals(1000000, testThis.getStdout().length());
+        assertEquals(1000000, testThis.getStderr().length());
+    }
+    
+    @Test
+    public void testTimeout() throws IOException
+    {
+        ProcessResult testThis = new ProcessRunner("sleep", "30").
+            setTimeoutMillis(200).
+            run();
+        
+        assertTrue(testThis.hasTimedOut());
+        assertFalse(testThis.succeeded());
+        assertTrue(testThis.getWallTimeNanos() < 30L * 1000 * 1000 * 1000);
+    }
+    
+    @Test
+    public void testTimeoutKillsChildProcesses() throws IOException
+    {
+        long            startTime   = System.nanoTime();
+        
+        // the shell forks sleep, which inherits its stdout and stderr
+        ProcessResult   testThis    = new ProcessRunner("sh", "-c", 
+                                        "sleep 30; echo done").
+                                        setTimeoutMillis(200).
+                                        run();
+        
+        assertTrue(testThis.hasTimedOut());
+        assertEquals("", testThis.getStdout());
+        assertTrue(System.nanoTime() - startTime < 10L * 1000 * 1000 * 1000);
+    }
+    
+    @Test
+    public void testDetachedGrandchildDoesNotOutliveTheTimeout() 
+        throws IOException
+    {
+        long            startTime   = System.nanoTime();
+        
+        // the subshell exits at once, so sleep is no longer a descendant by
+        //  the time the shell exits, but it still holds the pipes open
+        ProcessResult   testThis    = new ProcessRunner("sh", "-c", 
+                                        "(sleep 10 &); echo started").
+                                        setTimeoutMillis(500).
+                                        run();
+        
+        assertFalse(testThis.hasTimedOut());
+        assertEquals(0, testThis.getExitCode());
+        assertEquals("started\n", testThis.getStdout());
+        assertTrue(System.nanoTime() - startTime < 5L * 1000 * 1000 * 1000);
+    }
+}
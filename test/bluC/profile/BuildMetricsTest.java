@@ -0,0 +1,218 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.profile;
+
+import bluC.BluC;
+import bluC.Logger;
+import bluC.builders.ASTFragmentBuilder;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.process.ProcessResult;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class BuildMetricsTest
+{
+    private static final String FILE_PATH = "buildMetricsTest.bluc";
+    
+    private static final String[] SOURCE = 
+    {
+        "int buildMetricsGlobal = 1;",
+        "int buildMetricsFunction(int a)",
+        "{",
+        "    while (a < 10)",
+        "    {",
+        "        a = a + 1;",
+        "    }",
+        "    return a;",
+        "}"
+    };
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Before
+    @After
+    public void resetState()
+    {
+        BuildMetrics.reset();
+        Profiler.reset();
+        Logger.reset();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
+    }
+    
+    private static ProcessResult gccResult(long wallNanos, long cpuNanos)
+    {
+        return new ProcessResult(Arrays.asList("gcc"), 0, false, wallNanos, 
+            cpuNanos, "", "");
+    }
+    
+    private void recordBuild()
+    {
+        Profiler.enable();
+        BuildMetrics.enable();
+        
+        Profiler.start(Profiler.Phase.LEX).stop();
+        BuildMetrics.countTokens(31);
+        BuildMetrics.countAst(new ASTFragmentBuilder().
+            setFilePath     (FILE_PATH).
+            setFileContents (String.join("\n", SOURCE)).
+            build());
+        BuildMetrics.recordCacheLookup(false);
+        BuildMetrics.recordGcc(gccResult(2_000_000_000L, 500_000_000L));
+    }
+    
+    @Test
+    public void testDisabledRecordsNothing()
+    {
+        BuildMetrics.countTokens(31);
+        BuildMetrics.recordCacheLookup(true);
+        
+        String metrics = BuildMetrics.formatOpenMetrics(FILE_PATH, 0);
+        
+        assertTrue(metrics.contains("\nbluc_tokens 0\n"));
+        assertTrue(metrics.contains("\nbluc_cache_hits 0\n"));
+    }
+    
+    @Test
+    public void testFormatsOpenMetrics()
+    {
+        recordBuild();
+        
+        String metrics = BuildMetrics.formatOpenMetrics(FILE_PATH, 1);
+        
+        assertTrue(metrics.contains(
+            "\nbluc_build_info{source=\"" + FILE_PATH + "\"} 1\n"));
+        assertTrue(metrics.contains("\nbluc_exit_code 1\n"));
+        assertTrue(metrics.contains("\nbluc_phase_calls{phase=\"lex\"} 1\n"));
+        assertTrue(metrics.contains("\nbluc_tokens 31\n"));
+        assertTrue(metrics.contains("\nbluc_functions 1\n"));
+        assertTrue(metrics.contains("\nbluc_cache_hits 0\n"));
+        assertTrue(metrics.contains("\nbluc_cache_misses 1\n"));
+        assertTrue(metrics.contains("\nbluc_gcc_runs 1\n"));
+        assertTrue(metrics.contains(
+            "\nbluc_gcc_wall_seconds 2.000000000\n"));
+        assertTrue(metrics.contains("\nbluc_gcc_cpu_seconds 0.500000000\n"));
+        assertTrue(metrics.contains("\n# TYPE bluc_peak_heap_bytes gauge\n"));
+        assertTrue(metrics.endsWith("\n# EOF\n"));
+    }
+    
+    @Test
+    public void testOmitsUnavailableGccCpuTime()
+    {
+        recordBuild();
+        BuildMetrics.recordGcc(gccResult(1, ProcessResult.
+            CPU_TIME_UNAVAILABLE));
+        
+        assertFalse(BuildMetrics.formatOpenMetrics(FILE_PATH, 0).contains(
+            "bluc_gcc_cpu_seconds"));
+        assertTrue(BuildMetrics.formatJson(FILE_PATH, 0).contains(
+            "\"gccRuns\":2,\"gccWallNanos\":2000000001,\"gccCpuNanos\":null"));
+    }
+    
+    @Test
+    public void testFormatsJson()
+    {
+        recordBuild();
+        
+        String json = BuildMetrics.formatJson("dir\\\"quoted\".bluc", 0);
+        
+        assertTrue(json.startsWith(
+            "{\"source\":\"dir\\\\\\\"quoted\\\".bluc\",\"exitCode\":0," + 
+            "\"profile\":{\"phases\":[{\"name\":\"lex\",\"calls\":1,"));
+        assertTrue(json.contains(",\"tokens\":31,\"statements\":"));
+        assertTrue(json.contains(",\"functions\":1,\"cacheHits\":0," + 
+            "\"cacheMisses\":1,\"gccRuns\":1,\"gccWallNanos\":2000000000," +
+            "\"gccCpuNanos\":500000000,\"peakHeapBytes\":"));
+    }
+    
+    @Test
+    public void testWritesTheFormatTheFileNameAsksFor() throws IOException
+    {
+        Path json           = folder.getRoot().toPath().resolve("m.json");
+        Path openMetrics    = folder.getRoot().toPath().resolve("m.prom");
+        
+        recordBuild();
+        BuildMetrics.write(json, FILE_PATH, 0);
+        BuildMetrics.write(openMetrics, FILE_PATH, 0);
+        
+        assertTrue(new String(Files.readAllBytes(json), 
+            StandardCharsets.UTF_8).startsWith("{\"source\":"));
+        assertTrue(new String(Files.readAllBytes(openMetrics), 
+            StandardCharsets.UTF_8).endsWith("# EOF\n"));
+        
+        // only the metrics are left behind, not the temporary files
+        assertEquals(2, folder.getRoot().list().length);
+    }
+    
+    /**
+     * -jN compiles each unit on a worker thread of its own, then links.
+     *  Every one of those gcc runs counts.
+     */
+    @Test
+    public void testCountsEveryTranslationUnitCompile() throws IOException
+    {
+        Path    source      = folder.getRoot().toPath().resolve(FILE_PATH);
+        Path    metrics     = folder.getRoot().toPath().resolve("m.json");
+        int     unitCount   = 0;
+        
+        Files.write(source, Arrays.asList(
+            "int buildMetricsFirst(int a)",
+            "{",
+            "    return a + 1;",
+            "}",
+            "int buildMetricsSecond(int a)",
+            "{",
+            "    return a * 2;",
+            "}",
+            "int main()",
+            "{",
+            "    return 0;",
+            "}"), StandardCharsets.UTF_8);
+        
+        assertEquals(0, BluC.run(new String[] {FILE_PATH, "-c", "-exe", 
+            "-j3", "-metrics=" + metrics}, folder.getRoot()));
+        
+        while (Files.exists(folder.getRoot().toPath().resolve(
+            "buildMetricsTest_" + unitCount + ".c")))
+        {
+            unitCount++;
+        }
+        
+        assertTrue(unitCount > 1);
+        assertTrue(new String(Files.readAllBytes(metrics), 
+            StandardCharsets.UTF_8).contains(
+                "\"gccRuns\":" + (unitCount + 1) + ","));
+    }
+}
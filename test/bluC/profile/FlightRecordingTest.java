@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.profile;
+
+import bluC.Logger;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.transpiler.Transpiler;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class FlightRecordingTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Before
+    @After
+    public void resetCompilerState()
+    {
+        Logger.reset();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
+    }
+    
+    private static ArrayList<RecordedEvent> getEvents(
+        ArrayList<RecordedEvent> events, String name)
+    {
+        ArrayList<RecordedEvent> named = new ArrayList<>();
+        
+        for (RecordedEvent event : events)
+        {
+            if (event.getEventType().getName().equals(name))
+            {
+                named.add(event);
+            }
+        }
+        
+        return named;
+    }
+    
+    @Test
+    public void testRecordsDeclarationsAndFunctions() throws Exception
+    {
+        Path            destination = temporaryFolder.getRoot().toPath().
+                                        resolve("test.jfr");
+        FlightRecording recording   = FlightRecording.start(destination);
+        Transpiler      transpiler  = new Transpiler(
+            "flightRecordingTest.bluc", new ArrayList<>(Arrays.asList(
+                "int recordedGlobal = 1;",
+                "int recordedFunction(int a)",
+                "{",
+                "    return a;",
+                "}")));
+        
+        ArrayList<RecordedEvent>    events;
+        ArrayList<RecordedEvent>    declarations;
+        ArrayList<RecordedEvent>    emissions;
+        
+        assertTrue(transpiler.analyze());
+        transpiler.emit(new StringBuilder());
+        recording.close();
+        
+        events          = new ArrayList<>(RecordingFile.readAllEvents(
+                            destination));
+        declarations    = getEvents(events, "bluC.DeclarationParse");
+        emissions       = getEvents(events, "bluC.FunctionEmit");
+        
+        assertEquals(1, getEvents(events, "bluC.Lex").size());
+        // counting the end of file token
+        assertEquals(17, getEvents(events, "bluC.Lex").get(0).
+            getInt("tokenCount"));
+        
+        assertEquals(2, declarations.size());
+        assertEquals("recordedGlobal", declarations.get(0).getString("name"));
+        assertEquals("Function", declarations.get(1).getString("kind"));
+        assertEquals(2, declarations.get(1).getInt("firstLine"));
+        assertEquals(5, declarations.get(1).getInt("lastLine"));
+        
+        assertEquals(1, emissions.size());
+        assertEquals("recordedFunction", emissions.get(0).getString("name"));
+    }
+}
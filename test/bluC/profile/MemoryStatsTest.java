@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.profile;
+
+import bluC.Logger;
+import bluC.builders.ASTFragmentBuilder;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.staticAnalysis.SymbolResolver;
+import bluC.transpiler.Lexer;
+import bluC.transpiler.statements.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class MemoryStatsTest
+{
+    private static final String FILE_PATH = "memoryStatsTest.bluc";
+    
+    private static final String[] SOURCE = 
+    {
+        "int memoryStatsGlobal = 1;",
+        "int memoryStatsFunction(int a)",
+        "{",
+        "    while (a < 10)",
+        "    {",
+        "        a = a + 1;",
+        "    }",
+        "    return a;",
+        "}"
+    };
+    
+    @Before
+    @After
+    public void resetState()
+    {
+        MemoryStats.reset();
+        Logger.reset();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
+    }
+    
+    /**
+     * An object with a header, two ints and a reference fits in 24 bytes.
+     */
+    private static class TwoIntsAndReference
+    {
+        int     first;
+        int     second;
+        Object  reference;
+    }
+    
+    @Test
+    public void testEstimatesShallowBytes()
+    {
+        assertEquals(24, MemoryStats.estimateShallowBytes(
+            TwoIntsAndReference.class));
+        assertEquals(16, MemoryStats.estimateShallowBytes(Object.class));
+    }
+    
+    @Test
+    public void testDisabledCountsNothing()
+    {
+        MemoryStats.countTokens(new Lexer(FILE_PATH, 
+            new ArrayList<>(Arrays.asList(SOURCE))).lex());
+        
+        assertTrue(MemoryStats.formatTable().contains(String.format(
+            "%-28s %12d", "tokens", 0)));
+    }
+    
+    @Test
+    public void testCountsTokensNodesScopesAndSymbols()
+    {
+        ArrayList<Statement>    ast;
+        SymbolResolver          resolver    = new SymbolResolver();
+        String                  table;
+        
+        MemoryStats.enable();
+        MemoryStats.countTokens(new Lexer(FILE_PATH, 
+            new ArrayList<>(Arrays.asList(SOURCE))).lex());
+        
+        ast = new ASTFragmentBuilder().
+            setFilePath     (FILE_PATH).
+            setFileContents (String.join("\n", SOURCE)).
+            build();
+        resolver.resolve(ast);
+        MemoryStats.countAst(ast, resolver);
+        
+        table = MemoryStats.formatTable();
+        
+        // the end of file token is counted too
+        assertTrue(table.contains(String.format("%-28s %12d", "tokens", 31)));
+        assertTrue(table.contains(String.format("%-28s %12d", "  Function", 
+            1)));
+        
+        // the root scope, the function and the while loop
+        assertTrue(table.contains(String.format("%-28s %12d", "scopes", 3)));
+        assertTrue(table.contains(String.format("%-28s %12d", "symbols", 2)));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.profile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class ProfilerTest
+{
+    @After
+    public void tearDown()
+    {
+        Profiler.reset();
+    }
+    
+    @Test
+    public void testDisabledRecordsNothing()
+    {
+        Profiler.Measurement lexing = Profiler.start(Profiler.Phase.LEX);
+        
+        assertSame(Profiler.NOT_MEASURED, lexing);
+        lexing.stop();
+        
+        assertFalse(Profiler.formatJson().contains("\"lex\""));
+    }
+    
+    @Test
+    public void testSumsRunsOfPhase()
+    {
+        Profiler.enable();
+        
+        for (int i = 0; i < 3; i++)
+        {
+            Profiler.start(Profiler.Phase.GCC).stop();
+        }
+        
+        assertTrue(Profiler.formatJson().startsWith(
+            "{\"phases\":[{\"name\":\"gcc\",\"calls\":3,"));
+    }
+    
+    @Test
+    public void testReportsPhasesInBuildOrder()
+    {
+        String table;
+        
+        Profiler.enable();
+        Profiler.start(Profiler.Phase.EMIT).stop();
+        Profiler.start(Profiler.Phase.READ).stop();
+        
+        table = Profiler.formatTable();
+        assertTrue(table.indexOf("read") < table.indexOf("emit"));
+        assertTrue(table.contains("total"));
+    }
+    
+    @Test
+    public void testCountsAllocations()
+    {
+        Profiler.Measurement    parsing;
+        int[][]                 allocated;
+        String                  json;
+        
+        Profiler.enable();
+        parsing     = Profiler.start(Profiler.Phase.PARSE);
+        allocated   = new int[1024][];
+        
+        for (int i = 0; i < allocated.length; i++)
+        {
+            allocated[i] = new int[256];
+        }
+        
+        parsing.stop();
+        json = Profiler.formatJson();
+        
+        // 1024 arrays of 1KB each, unless the JVM can't count allocations
+        if (!json.contains("\"allocatedBytes\":null"))
+        {
+            long bytes = Long.parseLong(json.replaceAll(
+                ".*\"allocatedBytes\":([0-9]+)}.*", "$1"));
+            
+            assertTrue(bytes >= 1024 * 1024);
+        }
+        
+        assertEquals(1024, allocated.length);
+    }
+}
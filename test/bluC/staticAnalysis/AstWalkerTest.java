@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.staticAnalysis;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.Expression;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Block;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class AstWalkerTest
+{
+    private static final String TEST_FILE_CONTENTS = 
+        "int walkerTest(int a)\n" +
+        "{\n" +
+        "    int b = a;\n" +
+        "    if (a < b)\n" +
+        "    {\n" +
+        "        b = 1;\n" +
+        "    }\n" +
+        "    else if (b < 2)\n" +
+        "    {\n" +
+        "        b = a;\n" +
+        "    }\n" +
+        "    else\n" +
+        "    {\n" +
+        "        while (b < 3)\n" +
+        "        {\n" +
+        "            b = b + (a * 2);\n" +
+        "        }\n" +
+        "    }\n" +
+        "    return -b;\n" +
+        "}";
+    
+    /**
+     * Overrides only what it records, so everything else is the default 
+     *  descent.
+     */
+    private static class Recorder extends AstWalker
+    {
+        private final ArrayList<String> variables   = new ArrayList<>();
+        private int                     scopeCount  = 0;
+        
+        @Override
+        protected void walkScope(Block block)
+        {
+            scopeCount++;
+            super.walkScope(block);
+        }
+        
+        @Override
+        public Void visitVar(Expression.Variable visitor)
+        {
+            variables.add(visitor.getVariableInfo().getNameText());
+            return null;
+        }
+    }
+    
+    @Test
+    public void testWalksEveryVariableInSourceOrder()
+    {
+        ArrayList<Statement> ast = new ASTFragmentBuilder().
+            setFilePath     ("astWalkerTest.bluc").
+            setFileContents (TEST_FILE_CONTENTS).
+            build();
+        Recorder recorder = new Recorder();
+        
+        recorder.walk(ast.get(0));
+        
+        assertEquals(Arrays.asList("a", "a", "b", "b", "b", "b", "a", "b", 
+            "b", "b", "a", "b"), recorder.variables);
+        // the function, the if, the else-if, the else and the while
+        assertEquals(5, recorder.scopeCount);
+    }
+}
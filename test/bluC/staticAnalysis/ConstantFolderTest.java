@@ -0,0 +1,162 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.staticAnalysis;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.CEmitter;
+import bluC.transpiler.statements.Statement;
+import java.io.IOException;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class ConstantFolderTest
+{
+    private static String foldAndEmit(String fileContents) throws IOException
+    {
+        ArrayList<Statement> ast = new ASTFragmentBuilder().
+            setFilePath     ("constantFolderTest.bluc").
+            setFileContents (fileContents).
+            build();
+        
+        StringBuilder   output  = new StringBuilder();
+        CEmitter        emitter = new CEmitter(output);
+        
+        new ConstantFolder().fold(ast);
+        
+        for (Statement statement : ast)
+        {
+            emitter.emitTopLevel(statement);
+        }
+        
+        return output.toString();
+    }
+    
+    /**
+     * Wraps the statements in a function with an int x, a double d and a 
+     *  float f to use.
+     */
+    private static String foldAndEmitInFunction(String statements) 
+        throws IOException
+    {
+        return foldAndEmit(
+            "void constantFolderTest(int x, double d, float f)\n" +
+            "{\n" +
+            statements +
+            "}");
+    }
+    
+    @Test
+    public void testFoldsWithCPromotions() throws IOException
+    {
+        assertEquals("double a = -5.36;\n", 
+            foldAndEmit("double a = 1 + 2.12 * (-3f * 1);"));
+        assertEquals("int a = 3;\n", foldAndEmit("int a = 7 / 2;"));
+        assertEquals("int a = -3;\n", foldAndEmit("int a = -7 / 2;"));
+        assertEquals("double a = 3.5;\n", foldAndEmit("double a = 7 / 2.0;"));
+        assertEquals("int a = 1;\n", foldAndEmit("int a = 3 < 2.5 + 1;"));
+        assertEquals("int a = 9;\n", foldAndEmit("int a = 010 + 1;"));
+    }
+    
+    @Test
+    public void testFloatArithmeticIsSinglePrecision() throws IOException
+    {
+        // 16777217 isn't representable as a float
+        assertEquals("double a = 1.6777216E7f;\n", 
+            foldAndEmit("double a = 16777216f + 1;"));
+        assertEquals("double a = 1.6777217E7;\n", 
+            foldAndEmit("double a = 16777216.0 + 1;"));
+    }
+    
+    @Test
+    public void testLeavesUndefinedResultsForGcc() throws IOException
+    {
+        assertEquals("int a = 2147483647 + 1;\n", 
+            foldAndEmit("int a = 2147483647 + 1;"));
+        assertEquals("int a = 1 / 0;\n", foldAndEmit("int a = 1 / 0;"));
+        assertEquals("double a = 1.0 / 0;\n", 
+            foldAndEmit("double a = 1.0 / 0;"));
+        
+        // INT_MIN has no int literal
+        assertEquals("int a = -2147483647 - 1;\n", 
+            foldAndEmit("int a = -2147483647 - 1;"));
+    }
+    
+    @Test
+    public void testSimplifiesIdentities() throws IOException
+    {
+        String testThis = foldAndEmitInFunction(
+            "    x = x * 1 + 0;\n" +
+            "    x = 1 * (x - 0);\n" +
+            "    d = d / 1 - 0;\n" +
+            "    d = d * 1.0;\n");
+        
+        assertTrue(testThis.contains("    x = x;\n    x = x;\n"));
+        assertTrue(testThis.contains("    d = d;\n    d = d;\n"));
+    }
+    
+    @Test
+    public void testKeepsIdentitiesWhichChangeTheValue() throws IOException
+    {
+        String testThis = foldAndEmitInFunction(
+            "    d = d + 0;\n" +
+            "    f = f * 1.0;\n" +
+            "    x = x * 1.0;\n");
+        
+        // -0.0 + 0 is 0.0, and the other two are done as doubles
+        assertTrue(testThis.contains("    d = d + 0;\n"));
+        assertTrue(testThis.contains("    f = f * 1.0;\n"));
+        assertTrue(testThis.contains("    x = x * 1.0;\n"));
+    }
+    
+    @Test
+    public void testRemovesRedundantGroupings() throws IOException
+    {
+        String testThis = foldAndEmitInFunction(
+            "    x = ((x + 1)) * (2 * (x));\n" +
+            "    x = (x - 1) + (x - (x - 2));\n" +
+            "    x = (x < 1) < 2;\n" +
+            "    x = -(-x);\n");
+        
+        assertTrue(testThis.contains("    x = (x + 1) * (2 * x);\n"));
+        assertTrue(testThis.contains("    x = x - 1 + (x - (x - 2));\n"));
+        assertTrue(testThis.contains("    x = (x < 1) < 2;\n"));
+        assertTrue(testThis.contains("    x = -(-x);\n"));
+    }
+    
+    @Test
+    public void testSimplifiesDoubleNegations() throws IOException
+    {
+        String testThis = foldAndEmitInFunction(
+            "    x = !(!(x < 3));\n" +
+            "    x = !(!(x));\n" +
+            "    if (!(!(x)))\n" +
+            "    {\n" +
+            "        x = 1;\n" +
+            "    }\n");
+        
+        assertTrue(testThis.contains("    x = x < 3;\n"));
+        
+        // x may be something other than 0 or 1, unless it's a condition
+        assertTrue(testThis.contains("    x = !(!x);\n"));
+        assertTrue(testThis.contains("    if (x)\n"));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.staticAnalysis;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.statements.Return;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Function;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class ControlFlowGraphTest
+{
+    private static final String TEST_FILE_CONTENTS = 
+        "int cfgTest(int a)\n" +
+        "{\n" +
+        "    int b = 0;\n" +
+        "    if (a < 1)\n" +
+        "    {\n" +
+        "        b = 1;\n" +
+        "    }\n" +
+        "    else if (a < 2)\n" +
+        "    {\n" +
+        "        b = 2;\n" +
+        "    }\n" +
+        "    else\n" +
+        "    {\n" +
+        "        return b;\n" +
+        "    }\n" +
+        "    while (b < 10)\n" +
+        "    {\n" +
+        "        b = b + 1;\n" +
+        "    }\n" +
+        "    return b;\n" +
+        "    b = 3;\n" +
+        "}";
+    
+    private Function            function;
+    private ControlFlowGraph    testThis;
+    
+    // the blocks, found by walking the graph from the entry
+    private BasicBlock  first;
+    private BasicBlock  ifBody;
+    private BasicBlock  elseIfTest;
+    private BasicBlock  elseIfBody;
+    private BasicBlock  elseBody;
+    private BasicBlock  ifJoin;
+    private BasicBlock  whileHeader;
+    private BasicBlock  whileBody;
+    private BasicBlock  afterWhile;
+    
+    @Before
+    public void setUp()
+    {
+        ArrayList<Statement> ast = new ASTFragmentBuilder().
+            setFilePath     ("controlFlowGraphTest.bluc").
+            setFileContents (TEST_FILE_CONTENTS).
+            build();
+        function = (Function) ast.get(0);
+        
+        testThis = new ControlFlowGraph();
+        testThis.build(function);
+        
+        first       = testThis.getEntry().getSuccessors().get(0);
+        ifBody      = first.getTrueSuccessor();
+        elseIfTest  = first.getFalseSuccessor();
+        elseIfBody  = elseIfTest.getTrueSuccessor();
+        elseBody    = elseIfTest.getFalseSuccessor();
+        ifJoin      = ifBody.getSuccessors().get(0);
+        whileHeader = ifJoin.getSuccessors().get(0);
+        whileBody   = whileHeader.getTrueSuccessor();
+        afterWhile  = whileHeader.getFalseSuccessor();
+    }
+    
+    @Test
+    public void testBranchesEndBlocksOnTheirConditions()
+    {
+        assertSame(function.getBody().get(0), first.getStatements().get(0));
+        assertTrue(first.isConditional());
+        assertTrue(elseIfTest.isConditional());
+        assertTrue(elseIfTest.getStatements().isEmpty());
+        assertTrue(whileHeader.isConditional());
+        assertFalse(ifBody.isConditional());
+        
+        assertEquals(1, ifBody.getStatements().size());
+        assertEquals(1, elseIfBody.getStatements().size());
+        assertTrue(elseBody.getStatements().get(0) instanceof Return);
+        assertSame(ifJoin, elseIfBody.getSuccessors().get(0));
+    }
+    
+    @Test
+    public void testLoopsAndReturns()
+    {
+        assertEquals(1, whileBody.getSuccessors().size());
+        assertSame(whileHeader, whileBody.getSuccessors().get(0));
+        assertTrue(whileHeader.getPredecessors().contains(whileBody));
+        
+        assertSame(testThis.getExit(), elseBody.getSuccessors().get(0));
+        assertSame(testThis.getExit(), afterWhile.getSuccessors().get(0));
+        assertTrue(testThis.getExit().getSuccessors().isEmpty());
+    }
+    
+    @Test
+    public void testUnreachableBlocksArePruned()
+    {
+        Statement unreachable = function.getBody().get(
+            function.getBody().size() - 1);
+        
+        assertEquals(11, testThis.getBlocks().size());
+        
+        for (BasicBlock block : testThis.getBlocks())
+        {
+            assertFalse(block.getStatements().contains(unreachable));
+        }
+        
+        // nor do they remain as predecessors of the blocks they jumped to
+        assertEquals(2, ifJoin.getPredecessors().size());
+        assertEquals(2, testThis.getExit().getPredecessors().size());
+    }
+    
+    @Test
+    public void testBlocksAreInReversePostorder()
+    {
+        ArrayList<BasicBlock>   blocks      = testThis.getBlocks();
+        int                     backEdges   = 0;
+        
+        assertSame(testThis.getEntry(), blocks.get(0));
+        
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            assertEquals(i, blocks.get(i).getID());
+            
+            for (BasicBlock successor : blocks.get(i).getSuccessors())
+            {
+                if (successor.getID() <= i)
+                {
+                    backEdges++;
+                }
+            }
+        }
+        
+        assertEquals(1, backEdges);
+        assertTrue(whileBody.getID() > whileHeader.getID());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.staticAnalysis;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.Expression;
+import bluC.transpiler.statements.ExpressionStatement;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class DataFlowAnalysisTest
+{
+    private SymbolResolver symbolResolver;
+    
+    private ControlFlowGraph buildGraph(String fileContents)
+    {
+        ArrayList<Statement>    ast     = new ASTFragmentBuilder().
+                                            setFilePath     (
+                                                "dataFlowAnalysisTest.bluc").
+                                            setFileContents (fileContents).
+                                            build();
+        ControlFlowGraph        graph   = new ControlFlowGraph();
+        
+        symbolResolver = new SymbolResolver();
+        symbolResolver.resolve(ast);
+        graph.build((Function) ast.get(0));
+        
+        return graph;
+    }
+    
+    private static BitSet slots(int... slots)
+    {
+        BitSet set = new BitSet();
+        
+        for (int slot : slots)
+        {
+            set.set(slot);
+        }
+        
+        return set;
+    }
+    
+    @Test
+    public void testLiveVariables()
+    {
+        ControlFlowGraph graph = buildGraph(
+            "int liveTest(int a, int b)\n" +
+            "{\n" +
+            "    int c = a + 1;\n" +
+            "    while (c < b)\n" +
+            "    {\n" +
+            "        c = c * 2;\n" +
+            "    }\n" +
+            "    b = 0;\n" +
+            "    return c;\n" +
+            "}");
+        LiveVariables   liveness    = new LiveVariables(graph, 
+                                        symbolResolver);
+        BasicBlock      first       = graph.getEntry().getSuccessors().get(0);
+        BasicBlock      header      = first.getSuccessors().get(0);
+        BasicBlock      body        = header.getTrueSuccessor();
+        BasicBlock      after       = header.getFalseSuccessor();
+        
+        liveness.solve();
+        
+        // a, b and c are slots 0, 1 and 2
+        assertEquals(3, liveness.getSlotCount());
+        assertEquals(slots(0, 1), liveness.getIn(graph.getEntry()));
+        assertEquals(slots(0, 1), liveness.getIn(first));
+        assertEquals(slots(1, 2), liveness.getOut(first));
+        assertEquals(slots(1, 2), liveness.getIn(header));
+        assertEquals(slots(1, 2), liveness.getIn(body));
+        assertEquals(slots(2), liveness.getIn(after));
+        assertEquals(slots(), liveness.getIn(graph.getExit()));
+        
+        assertTrue(liveness.isLiveIn(header, 
+            (VarDeclaration) graph.getFunction().getBody().get(0)));
+    }
+    
+    /**
+     * Definite assignment, as an example of a forward must-analysis.
+     */
+    @Test
+    public void testForwardIntersection()
+    {
+        final ControlFlowGraph  graph       = buildGraph(
+            "int assignTest(int a)\n" +
+            "{\n" +
+            "    int x;\n" +
+            "    int y;\n" +
+            "    if (a < 1)\n" +
+            "    {\n" +
+            "        x = 1;\n" +
+            "        y = 1;\n" +
+            "    }\n" +
+            "    else\n" +
+            "    {\n" +
+            "        x = 2;\n" +
+            "    }\n" +
+            "    return x;\n" +
+            "}");
+        DataFlowAnalysis        assigned    = new DataFlowAnalysis(graph, 
+            symbolResolver, DataFlowAnalysis.Direction.FORWARD, 
+            DataFlowAnalysis.Meet.INTERSECTION)
+        {
+            @Override
+            protected BitSet getBoundaryFacts()
+            {
+                // the parameters
+                return slots(0);
+            }
+            
+            @Override
+            protected void transfer(BasicBlock block, BitSet facts)
+            {
+                for (Statement statement : block.getStatements())
+                {
+                    if (statement instanceof VarDeclaration && 
+                        ((VarDeclaration) statement).getValue() != 
+                            VarDeclaration.NO_VALUE)
+                    {
+                        facts.set(getSlot((VarDeclaration) statement));
+                    }
+                    else if (statement instanceof ExpressionStatement)
+                    {
+                        Expression expression = ((ExpressionStatement) 
+                            statement).getExpression();
+                        
+                        if (expression.getOperator().getTextContent().
+                            equals("="))
+                        {
+                            facts.set(getSlot((Expression.Variable) 
+                                expression.getOperand1()));
+                        }
+                    }
+                }
+            }
+        };
+        BasicBlock              first       = graph.getEntry().
+                                                getSuccessors().get(0);
+        BasicBlock              join        = first.getTrueSuccessor().
+                                                getSuccessors().get(0);
+        
+        assigned.solve();
+        
+        // a, x and y are slots 0, 1 and 2
+        assertEquals(slots(0), assigned.getIn(first));
+        assertEquals(slots(0, 1, 2), assigned.getOut(first.getTrueSuccessor()));
+        assertEquals(slots(0, 1), assigned.getIn(join));
+        assertFalse(assigned.getIn(join).get(2));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.staticAnalysis;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.ClassDef;
+import bluC.transpiler.statements.blocks.Method;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class DeclarationGraphTest
+{
+    private static ArrayList<Statement> parse(String fileContents)
+    {
+        return new ASTFragmentBuilder().
+            setFilePath     ("declarationGraphTest.bluc").
+            setFileContents (fileContents).
+            build();
+    }
+    
+    @Test
+    public void testSelfReferencingClassIsForwardDeclared()
+    {
+        ArrayList<Statement> ast = parse(
+            "class GraphNode\n" +
+            "{\n" +
+            "    GraphNode* next;\n" +
+            "}");
+        ClassDef            class_      = (ClassDef) ast.get(0);
+        DeclarationGraph    testThis    = new DeclarationGraph();
+        
+        ArrayList<Statement> forwardDeclarations = testThis.build(ast);
+        
+        assertEquals(1, forwardDeclarations.size());
+        assertSame(class_, forwardDeclarations.get(0));
+        assertTrue(testThis.needsForwardDeclaration(class_));
+    }
+    
+    @Test
+    public void testUsesAfterDefinitionAreNotForwardDeclared()
+    {
+        ArrayList<Statement> ast = parse(
+            "int graphGlobal = 1;\n" +
+            "class GraphPoint\n" +
+            "{\n" +
+            "    int x;\n" +
+            "    int getX()\n" +
+            "    {\n" +
+            "        return x;\n" +
+            "    }\n" +
+            "}\n" +
+            "int graphTest(GraphPoint* point)\n" +
+            "{\n" +
+            "    return graphGlobal;\n" +
+            "}");
+        ClassDef            class_      = (ClassDef) ast.get(1);
+        Method              getX        = (Method) class_.getBody().get(1);
+        DeclarationGraph    testThis    = new DeclarationGraph();
+        
+        assertTrue(testThis.build(ast).isEmpty());
+        assertFalse(testThis.needsForwardDeclaration(class_));
+        
+        // the method's implicit "this" parameter uses its class
+        assertEquals(1, testThis.getUses(getX).size());
+        assertSame(class_, testThis.getUses(getX).get(0));
+        
+        assertEquals(2, testThis.getUses(ast.get(2)).size());
+        assertSame(class_, testThis.getUses(ast.get(2)).get(0));
+        assertSame(ast.get(0), testThis.getUses(ast.get(2)).get(1));
+        
+        // methods are emitted right after their class
+        assertEquals(4, testThis.getDeclarations().size());
+        assertSame(getX, testThis.getDeclarations().get(2));
+    }
+}
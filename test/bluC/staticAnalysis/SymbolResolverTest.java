@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.staticAnalysis;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.Expression;
+import bluC.transpiler.ResolvedSymbol;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.Block;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class SymbolResolverTest
+{
+    private static final String TEST_FILE_CONTENTS = 
+        "int global = 1;\n" +
+        "int resolverTest(int param)\n" +
+        "{\n" +
+        "    int local = param;\n" +
+        "    {\n" +
+        "        int nested = local;\n" +
+        "    }\n" +
+        "    int afterNested = global;\n" +
+        "}";
+    
+    private ArrayList<Statement>    ast;
+    private Function                function;
+    private SymbolResolver          testThis;
+    
+    @Before
+    public void setUp()
+    {
+        ast = new ASTFragmentBuilder().
+            setFilePath     ("symbolResolverTest.bluc").
+            setFileContents (TEST_FILE_CONTENTS).
+            build();
+        function = (Function) ast.get(1);
+        
+        testThis = new SymbolResolver();
+        testThis.resolve(ast);
+    }
+    
+    private VarDeclaration getLocal(int bodyIndex)
+    {
+        return (VarDeclaration) function.getBody().get(bodyIndex);
+    }
+    
+    @Test
+    public void testGlobalSymbol()
+    {
+        ResolvedSymbol global = testThis.getSymbol(
+            (VarDeclaration) ast.get(0));
+        
+        assertEquals(0, global.getSymbolID());
+        assertEquals(0, global.getScopeDepth());
+        assertEquals(0, global.getSlotIndex());
+        assertTrue(global.isGlobal());
+        assertEquals(1, testThis.getFrameSize(ResolvedSymbol.ROOT_FRAME));
+    }
+    
+    @Test
+    public void testLocalSlotsAreNumberedPerFrame()
+    {
+        VarDeclaration param = function.getParameters().getParameters().get(0);
+        VarDeclaration nested = (VarDeclaration) 
+            ((Block) function.getBody().get(1)).getBody().get(0);
+        
+        assertEquals(0, testThis.getSymbol(param).getSlotIndex());
+        assertEquals(1, testThis.getSymbol(getLocal(0)).getSlotIndex());
+        assertEquals(2, testThis.getSymbol(nested).getSlotIndex());
+        assertEquals(3, testThis.getSymbol(getLocal(2)).getSlotIndex());
+        assertEquals(4, testThis.getFrameSize(function));
+        
+        assertEquals(1, testThis.getSymbol(param).getScopeDepth());
+        assertEquals(2, testThis.getSymbol(nested).getScopeDepth());
+        assertSame(function, testThis.getSymbol(nested).getFrame());
+    }
+    
+    @Test
+    public void testUseSitesAreAnnotated()
+    {
+        VarDeclaration  param       = 
+            function.getParameters().getParameters().get(0);
+        Expression      paramUse    = getLocal(0).getValue();
+        Expression      globalUse   = getLocal(2).getValue();
+        
+        assertTrue(paramUse instanceof Expression.Variable);
+        assertSame(testThis.getSymbol(param), 
+            ((Expression.Variable) paramUse).getResolvedSymbol());
+        assertSame(testThis.getSymbol((VarDeclaration) ast.get(0)),
+            ((Expression.Variable) globalUse).getResolvedSymbol());
+    }
+    
+    @Test
+    public void testSymbolIDsAreUnique()
+    {
+        ArrayList<ResolvedSymbol> symbols = testThis.getSymbols();
+        
+        assertEquals(5, symbols.size());
+        
+        for (int i = 0; i < symbols.size(); i++)
+        {
+            assertEquals(i, symbols.get(i).getSymbolID());
+        }
+    }
+}
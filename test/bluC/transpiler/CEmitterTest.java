@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.transpiler;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.statements.Statement;
+import java.io.IOException;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class CEmitterTest
+{
+    private static String emit(String fileContents) throws IOException
+    {
+        ArrayList<Statement> ast = new ASTFragmentBuilder().
+            setFilePath     ("cEmitterTest.bluc").
+            setFileContents (fileContents).
+            build();
+        
+        StringBuilder   output  = new StringBuilder();
+        CEmitter        emitter = new CEmitter(output);
+        
+        for (Statement statement : ast)
+        {
+            emitter.emitTopLevel(statement);
+        }
+        
+        return output.toString();
+    }
+    
+    @Test
+    public void testMatchesLineSplitOutput() throws IOException
+    {
+        String testThis = emit(
+            "int global = 1;\n" +
+            "int emitterTest(int param)\n" +
+            "{\n" +
+            "    int local = param + 2;\n" +
+            "    {\n" +
+            "        local = (local * 3);\n" +
+            "    }\n" +
+            "    return local;\n" +
+            "}");
+        
+        assertEquals(
+            "int global = 1;\n" +
+            "int emitterTest(int param)\n" +
+            "{\n" +
+            "    int local = param + 2;\n" +
+            "    {\n" +
+            "        local = (local * 3);\n" +
+            "    }\n" +
+            " \n" +
+            "    return local;\n" +
+            "}\n" +
+            " \n",
+            testThis);
+    }
+    
+    @Test
+    public void testIfWithoutElse() throws IOException
+    {
+        String testThis = emit(
+            "void emitterTest(int param)\n" +
+            "{\n" +
+            "    if (param)\n" +
+            "    {\n" +
+            "        param = 1;\n" +
+            "    }\n" +
+            "}");
+        
+        assertEquals(
+            "void emitterTest(int param)\n" +
+            "{\n" +
+            "    if (param)\n" +
+            "    {\n" +
+            "        param = 1;\n" +
+            "    }\n" +
+            "\n" +
+            "}\n" +
+            " \n",
+            testThis);
+    }
+    
+    /**
+     * The baseline emitter threw a NullPointerException on any if without
+     *  an else, even after an else-if.
+     */
+    @Test
+    public void testElseIfWithoutElse() throws IOException
+    {
+        String testThis = emit(
+            "void emitterTest(int param)\n" +
+            "{\n" +
+            "    if (param < 1)\n" +
+            "    {\n" +
+            "        param = 1;\n" +
+            "    }\n" +
+            "    else if (param < 2)\n" +
+            "    {\n" +
+            "        param = 2;\n" +
+            "    }\n" +
+            "}");
+        
+        assertEquals(
+            "void emitterTest(int param)\n" +
+            "{\n" +
+            "    if (param < 1)\n" +
+            "    {\n" +
+            "        param = 1;\n" +
+            "    }\n" +
+            "    else if (param < 2)\n" +
+            "    {\n" +
+            "        param = 2;\n" +
+            "    }\n" +
+            "\n" +
+            "}\n" +
+            " \n",
+            testThis);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.transpiler;
+
+import bluC.Debug;
+import bluC.Logger;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class LexerTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @After
+    public void tearDown()
+    {
+        System.clearProperty(Lexer.DEBUG_OUTPUT_PROPERTY);
+        Debug.reset();
+        Logger.reset();
+    }
+    
+    @Test
+    public void testDebugOutputGoesWhereThePropertySays() throws Exception
+    {
+        File output = new File(temporaryFolder.getRoot(), 
+            "lexerContents.txt");
+        
+        System.setProperty(Lexer.DEBUG_OUTPUT_PROPERTY, output.getPath());
+        Debug.enable("lexer");
+        
+        assertTrue(new Transpiler("lexerTest.bluc", new ArrayList<>(
+            Arrays.asList("int lexed = 1;"))).analyze());
+        assertEquals("int lexed = 1;", 
+            Files.readAllLines(output.toPath()).get(0));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.transpiler;
+
+import bluC.builders.TokenBuilder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class TokenTest
+{
+    private Token testThis;
+    
+    @Before
+    public void setUp()
+    {
+        testThis = new TokenBuilder().
+            setFileName     ("tokenTest.bluc").
+            setLineIndex    (12).
+            setTextContent  ("someName").
+            build();
+    }
+    
+    @Test
+    public void testEqualTokensHaveEqualHashes()
+    {
+        Token same = new TokenBuilder().
+            setFileName     ("tokenTest.bluc").
+            setLineIndex    (12).
+            setTextContent  ("someName").
+            build();
+        
+        assertNotSame(testThis, same);
+        assertEquals(testThis, same);
+        assertEquals(testThis.hashCode(), same.hashCode());
+    }
+    
+    @Test
+    public void testWithTextContentCopies()
+    {
+        int     hash    = testThis.hashCode();
+        Token   renamed = testThis.withTextContent("other", true);
+        
+        assertNotSame(testThis, renamed);
+        assertNotEquals(testThis, renamed);
+        assertEquals((Object) "someName", (Object) testThis.getTextContent());
+        assertEquals(hash, testThis.hashCode());
+        
+        assertEquals((Object) "other", (Object) renamed.getTextContent());
+        assertTrue(renamed.getWasEmittedByCompiler());
+        assertEquals(testThis.getLineIndex(), renamed.getLineIndex());
+        assertEquals((Object) testThis.getFilepath(), 
+            (Object) renamed.getFilepath());
+    }
+    
+    @Test
+    public void testWithTextContentKeepsWasEmittedByCompiler()
+    {
+        Token renamed = testThis.withTextContent("other");
+        
+        assertEquals(testThis.getWasEmittedByCompiler(), 
+            renamed.getWasEmittedByCompiler());
+        assertEquals(testThis.getLineIndex(), renamed.getLineIndex());
+    }
+}
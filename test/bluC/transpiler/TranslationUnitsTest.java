@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.transpiler;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.staticAnalysis.DeclarationGraph;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.ClassDef;
+import java.io.IOException;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class TranslationUnitsTest
+{
+    private static final String TEST_FILE_CONTENTS = 
+        "int unitsGlobal = 1;\n" +
+        "class UnitsPoint\n" +
+        "{\n" +
+        "    int x;\n" +
+        "    int getX()\n" +
+        "    {\n" +
+        "        return 1;\n" +
+        "    }\n" +
+        "    int getY()\n" +
+        "    {\n" +
+        "        return 2;\n" +
+        "    }\n" +
+        "}\n" +
+        "int unitsTest(int a)\n" +
+        "{\n" +
+        "    return a;\n" +
+        "}";
+    
+    private ArrayList<Statement>    ast;
+    private DeclarationGraph        declarationGraph;
+    
+    @Before
+    public void setUp()
+    {
+        ast = new ASTFragmentBuilder().
+            setFilePath     ("translationUnitsTest.bluc").
+            setFileContents (TEST_FILE_CONTENTS).
+            build();
+        
+        declarationGraph = new DeclarationGraph();
+        declarationGraph.build(ast);
+    }
+    
+    @Test
+    public void testMethodsOfAClassShareAUnit()
+    {
+        TranslationUnits testThis = new TranslationUnits(ast, 
+            declarationGraph, 8);
+        ClassDef class_ = (ClassDef) ast.get(1);
+        
+        // the global, the class' methods and the function
+        assertEquals(3, testThis.getUnitCount());
+        
+        int definitionCount = 0;
+        for (int i = 0; i < testThis.getUnitCount(); i++)
+        {
+            ArrayList<Statement> unit = testThis.getUnit(i);
+            definitionCount += unit.size();
+            
+            if (unit.contains(class_.getBody().get(1)))
+            {
+                assertTrue(unit.contains(class_.getBody().get(2)));
+            }
+        }
+        
+        assertEquals(4, definitionCount);
+    }
+    
+    @Test
+    public void testHeaderDeclaresEveryDefinition() throws IOException
+    {
+        TranslationUnits    testThis    = new TranslationUnits(ast, 
+                                            declarationGraph, 2);
+        StringBuilder       header      = new StringBuilder();
+        StringBuilder       unit        = new StringBuilder();
+        
+        testThis.emitHeader("units.h", header);
+        testThis.emitUnit(0, "units.h", unit);
+        
+        assertTrue(header.toString().startsWith(
+            "#ifndef UNITS_H_\n#define UNITS_H_\n"));
+        assertTrue(header.toString().contains("} UnitsPoint;\n"));
+        assertTrue(header.toString().contains("extern int unitsGlobal;\n"));
+        assertTrue(header.toString().contains("int unitsTest(int a);\n"));
+        assertTrue(header.toString().endsWith("#endif\n"));
+        assertTrue(unit.toString().startsWith("#include \"units.h\"\n"));
+    }
+}
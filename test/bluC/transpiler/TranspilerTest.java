@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.transpiler;
+
+import bluC.Flags;
+import bluC.Logger;
+import bluC.parser.handlers.statement.ClassHandler;
+import bluC.parser.handlers.statement.FunctionHandler;
+import bluC.parser.handlers.statement.VariableHandler;
+import bluC.staticAnalysis.DeclarationGraph;
+import bluC.transpiler.statements.Statement;
+import bluC.transpiler.statements.blocks.StructDef;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class TranspilerTest
+{
+    private static final String[] TEST_FILE_CONTENTS = 
+    {
+        "int transpilerGlobal = 1;",
+        "class TranspilerPoint",
+        "{",
+        "    int x;",
+        "    TranspilerPoint* next;",
+        "    int getX()",
+        "    {",
+        "        return 1;",
+        "    }",
+        "}",
+        "class TranspilerLine",
+        "{",
+        "    int length;",
+        "    int getLength()",
+        "    {",
+        "        int i = 0;",
+        "        while (i < 10)",
+        "        {",
+        "            i = i + 1;",
+        "        }",
+        "        return i;",
+        "    }",
+        "}",
+        "int transpilerHelper(int a)",
+        "{",
+        "    if (a < 1)",
+        "    {",
+        "        return 0;",
+        "    }",
+        "    else",
+        "    {",
+        "        return a * 2;",
+        "    }",
+        "}",
+        "int transpilerOther(int b)",
+        "{",
+        "    int c = b + transpilerGlobal;",
+        "    return c;",
+        "}",
+        "int main()",
+        "{",
+        "    TranspilerPoint p;",
+        "    return transpilerGlobal;",
+        "}",
+    };
+    
+    private Transpiler testThis;
+    
+    @Before
+    public void setUp()
+    {
+        resetCompilerState();
+        
+        testThis = new Transpiler("transpilerTest.bluc", 
+            new ArrayList<>(Arrays.asList(TEST_FILE_CONTENTS)));
+        assertTrue(testThis.analyze());
+    }
+    
+    @After
+    public void resetCompilerState()
+    {
+        Logger.reset();
+        Flags.clear();
+        ClassHandler.reset();
+        VariableHandler.reset();
+        FunctionHandler.reset();
+    }
+    
+    @Test
+    public void testParallelEmissionMatchesSequential() throws IOException
+    {
+        StringBuilder       sequential          = new StringBuilder();
+        StringBuilder       forwardDeclarations = new StringBuilder();
+        DeclarationGraph    declarationGraph    = 
+                                testThis.getDeclarationGraph();
+        
+        testThis.emit(sequential);
+        new CEmitter(forwardDeclarations, declarationGraph).
+            emitForwardDeclarations(
+                declarationGraph.getForwardDeclarations());
+        
+        // TranspilerPoint refers to itself
+        assertFalse(forwardDeclarations.length() == 0);
+        
+        for (int workerCount : new int[] {1, 2, 3, 8})
+        {
+            StringBuilder parallel = new StringBuilder(forwardDeclarations);
+            
+            testThis.emitInParallel(parallel, workerCount);
+            assertEquals("workers: " + workerCount, sequential.toString(), 
+                parallel.toString());
+        }
+    }
+    
+    @Test
+    public void testParallelEmissionFlag() throws IOException
+    {
+        StringBuilder sequential    = new StringBuilder();
+        StringBuilder parallel      = new StringBuilder();
+        
+        testThis.emit(sequential);
+        Flags.set("parallel", "true");
+        testThis.emit(parallel);
+        
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+    
+    @Test
+    public void testWorkerFailureIsRethrown() throws IOException
+    {
+        ArrayList<Statement>    statements  = new ArrayList<>();
+        StringBuilder           output      = new StringBuilder();
+        
+        // emitting a StructDef isn't supported yet, so its worker throws
+        statements.add(new StructDef(0));
+        statements.add(new StructDef(1));
+        
+        try
+        {
+            Transpiler.emitInParallel(output, statements, 
+                testThis.getDeclarationGraph(), 2);
+            fail("Expected the worker's exception to be rethrown");
+        }
+        catch (UnsupportedOperationException ex)
+        {
+            assertEquals(0, output.length());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.transpiler.statements;
+
+import bluC.builders.ASTFragmentBuilder;
+import bluC.transpiler.statements.blocks.Function;
+import bluC.transpiler.statements.vars.VarDeclaration;
+import java.util.ArrayList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class FreezeTest
+{
+    private static final String TEST_FILE_PATH = "freezeTest.bluc";
+    
+    private ArrayList<Statement> buildAst(String fileContents)
+    {
+        return new ASTFragmentBuilder().
+            setFilePath     (TEST_FILE_PATH).
+            setFileContents (fileContents).
+            build();
+    }
+    
+    private Function buildFunction(String returnedValue)
+    {
+        return (Function) buildAst(
+            "int freezeTest(int a)\n" +
+            "{\n" +
+            "    int b = a + 2;\n" +
+            "    return " + returnedValue + ";\n" +
+            "}").get(0);
+    }
+    
+    @Test
+    public void testFreezeKeepsHash()
+    {
+        Function    testThis        = buildFunction("b");
+        int         unfrozenHash    = testThis.hashCode();
+        
+        testThis.freeze();
+        
+        assertTrue(testThis.isFrozen());
+        assertEquals(unfrozenHash, testThis.hashCode());
+    }
+    
+    @Test
+    public void testFreezeIsRecursive()
+    {
+        Function testThis = buildFunction("b");
+        
+        testThis.freeze();
+        
+        assertTrue(testThis.getParameters().isFrozen());
+        assertTrue(testThis.getBody().get(0).isFrozen());
+        assertTrue(((VarDeclaration) testThis.getBody().get(0)).getValue().
+            isFrozen());
+    }
+    
+    @Test
+    public void testFrozenEquality()
+    {
+        Function    testThis    = buildFunction("b");
+        Function    same        = buildFunction("b");
+        Function    different   = buildFunction("a");
+        
+        testThis.freeze();
+        same.freeze();
+        different.freeze();
+        
+        assertEquals(testThis, same);
+        assertNotEquals(testThis, different);
+    }
+    
+    @Test
+    public void testUnfrozenEqualsFrozen()
+    {
+        Function testThis   = buildFunction("b");
+        Function same       = buildFunction("b");
+        
+        testThis.freeze();
+        
+        assertFalse(same.isFrozen());
+        assertEquals(testThis, same);
+        assertEquals(same, testThis);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testFrozenStatementRejectsChanges()
+    {
+        Function testThis = buildFunction("b");
+        
+        testThis.freeze();
+        testThis.setEndingLineIndex(3);
+    }
+}
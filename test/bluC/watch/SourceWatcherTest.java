@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.watch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author John Schneider
+ */
+public class SourceWatcherTest
+{
+    private static final long TIMEOUT_MILLIS = 5000;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private SourceWatcher   watcher;
+    private Path            source;
+    
+    @Before
+    public void setUp() throws IOException
+    {
+        source  = folder.newFile("watched.bluc").toPath().toAbsolutePath();
+        watcher = new SourceWatcher(50);
+        watcher.watch(source);
+    }
+    
+    @After
+    public void tearDown() throws IOException
+    {
+        watcher.close();
+    }
+    
+    private static void write(Path file, String contents) throws IOException
+    {
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void testReportsChangedFile() throws Exception
+    {
+        write(source, "int main() {}");
+        
+        assertEquals(new LinkedHashSet<>(Arrays.asList(source)), 
+            watcher.awaitChanges(TIMEOUT_MILLIS));
+    }
+    
+    @Test
+    public void testIgnoresOtherFilesInDirectory() throws Exception
+    {
+        write(folder.getRoot().toPath().resolve("watched.c"), "int x;");
+        
+        assertTrue(watcher.awaitChanges(500).isEmpty());
+    }
+    
+    @Test
+    public void testDebouncesBurstOfChanges() throws Exception
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            write(source, "int x = " + i + ";");
+        }
+        
+        assertEquals(1, watcher.awaitChanges(TIMEOUT_MILLIS).size());
+        
+        // the whole burst was consumed by the first call
+        assertTrue(watcher.awaitChanges(500).isEmpty());
+    }
+    
+    @Test
+    public void testReportsFileReplacedByRename() throws Exception
+    {
+        Path saved = folder.getRoot().toPath().resolve("watched.bluc~");
+        
+        write(saved, "int main() {}");
+        Files.move(saved, source, 
+            StandardCopyOption.REPLACE_EXISTING);
+        
+        assertEquals(new LinkedHashSet<>(Arrays.asList(source)), 
+            watcher.awaitChanges(TIMEOUT_MILLIS));
+    }
+}
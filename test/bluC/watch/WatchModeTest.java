@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 John Schneider.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package bluC.watch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs bluc -watch in a JVM of its own, since it only returns once it's 
+ *  killed.
+ * 
+ * @author John Schneider
+ */
+public class WatchModeTest
+{
+    private static final long TIMEOUT_MILLIS = 30000;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static void write(Path file, String contents) throws IOException
+    {
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Waits until the watcher's output contains <b>expected</b> 
+     *  <b>count</b> times.
+     */
+    private static void awaitOutput(Process watcher, Path log, 
+        String expected, int count) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        
+        while (new String(Files.readAllBytes(log), StandardCharsets.UTF_8).
+            split(Pattern.quote(expected), -1).length - 1 < count)
+        {
+            assertTrue("The watcher exited", watcher.isAlive());
+            assertTrue("Timed out waiting for \"" + expected + "\"", 
+                System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+    
+    @Test(timeout = 2 * TIMEOUT_MILLIS)
+    public void testRebuildsAfterTruncatedSave() throws Exception
+    {
+        File    root    = folder.getRoot();
+        Path    source  = root.toPath().resolve("watched.bluc");
+        Path    output  = root.toPath().resolve("watched.c");
+        Path    log     = root.toPath().resolve("watch.log");
+        Process watcher;
+        
+        // a file saved half way through typing it
+        write(source, "int main()\n{\n    int x = 1 +");
+        
+        watcher = new ProcessBuilder(
+            System.getProperty("java.home") + "/bin/java", 
+            "-cp", System.getProperty("java.class.path"), 
+            "bluC.BluC", "watched.bluc", "-c", "-watch").
+            directory(root).
+            redirectErrorStream(true).
+            redirectOutput(log.toFile()).
+            start();
+        
+        try
+        {
+            awaitOutput(watcher, log, "[Build failed]", 1);
+            assertFalse(Files.exists(output));
+            
+            write(source, "int main()\n{\n    int x = 1 + 2;\n    " +
+                "return x;\n}\n");
+            awaitOutput(watcher, log, "[Build succeeded]", 1);
+            assertTrue(Files.exists(output));
+            
+            // and again, after another failed save
+            write(source, "int main()\n{\n    asd");
+            awaitOutput(watcher, log, "[Build failed]", 2);
+            write(source, "int main()\n{\n    return 3;\n}\n");
+            awaitOutput(watcher, log, "[Build succeeded]", 2);
+            assertTrue(new String(Files.readAllBytes(output), 
+                StandardCharsets.UTF_8).contains("return 3;"));
+        } finally
+        {
+            watcher.destroyForcibly();
+            watcher.waitFor();
+        }
+    }
+}